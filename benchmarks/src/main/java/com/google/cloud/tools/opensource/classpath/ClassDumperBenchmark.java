@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.classpath;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of scanning jar files for the classes they define and their symbol references. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ClassDumperBenchmark {
+
+  @Param({"guava", "grpc-google-cloud-firestore-v1beta1"})
+  public String artifactId;
+
+  private Path jar;
+  private ImmutableList<Path> classpath;
+
+  @Setup
+  public void setUp() {
+    int index = FixtureJars.ARTIFACT_IDS.indexOf(artifactId);
+    jar = FixtureJars.paths().get(index);
+    classpath = FixtureJars.paths().subList(0, index + 1);
+  }
+
+  @Benchmark
+  public SymbolReferenceSet scanSymbolReferencesInJar() throws IOException {
+    return ClassDumper.scanSymbolReferencesInJar(jar);
+  }
+
+  @Benchmark
+  public SymbolReferenceSet scanWithJarScanCache() throws IOException {
+    return new JarScanCache().getSymbolReferences(jar);
+  }
+
+  /**
+   * Creates the class dumper of the class path of the fixture jar files up to the jar file, which
+   * indexes their defined classes.
+   */
+  @Benchmark
+  public ClassDumper createClassDumper() throws IOException {
+    return ClassDumper.create(classpath);
+  }
+}
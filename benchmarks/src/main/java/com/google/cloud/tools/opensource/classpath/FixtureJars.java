@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.classpath;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Jar files for the linkage benchmarks. The build copies them from the local Maven repository into
+ * the {@code fixtures} resource directory, so the benchmarks need no network.
+ */
+final class FixtureJars {
+
+  /** The artifact IDs of the fixture jar files, most depended-upon first. */
+  static final ImmutableList<String> ARTIFACT_IDS =
+      ImmutableList.of(
+          "guava", "protobuf-java", "grpc-core", "gax", "grpc-google-cloud-firestore-v1beta1");
+
+  private static ImmutableList<Path> extracted;
+
+  private FixtureJars() {}
+
+  /**
+   * Returns the absolute paths of the fixture jar files. The jar files are extracted from the
+   * class path to a temporary directory on the first call, because the uber jar of the benchmarks
+   * nests them.
+   */
+  static synchronized ImmutableList<Path> paths() {
+    if (extracted == null) {
+      try {
+        Path directory = Files.createTempDirectory("fixtures");
+        ImmutableList.Builder<Path> paths = ImmutableList.builder();
+        for (String artifactId : ARTIFACT_IDS) {
+          Path jar = directory.resolve(artifactId + ".jar");
+          try (InputStream in =
+              FixtureJars.class.getResourceAsStream("/fixtures/" + artifactId + ".jar")) {
+            if (in == null) {
+              throw new IllegalStateException("Fixture jar " + artifactId + " is not built");
+            }
+            Files.copy(in, jar);
+          }
+          jar.toFile().deleteOnExit();
+          paths.add(jar.toAbsolutePath());
+        }
+        directory.toFile().deleteOnExit();
+        extracted = paths.build();
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+    }
+    return extracted;
+  }
+}
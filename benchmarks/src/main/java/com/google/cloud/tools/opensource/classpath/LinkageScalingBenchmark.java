@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.classpath;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of {@link StaticLinkageChecker#findLinkageErrors()} over synthetic class paths of
+ * growing sizes, including the scan of the jar files. Each jar file has 10 classes with 20
+ * references each, so 5,000 jar files have a million references. Run {@link LinkageScalingReport}
+ * for the throughput and the peak heap of each size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class LinkageScalingBenchmark {
+
+  @Param({"10", "100", "1000"})
+  public int jarCount;
+
+  private Path directory;
+  private SyntheticClasspath classpath;
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("synthetic-classpath");
+    classpath = LinkageScalingReport.generator(jarCount).generate(directory);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+  }
+
+  @Benchmark
+  public StaticLinkageCheckReport findLinkageErrors() throws IOException {
+    StaticLinkageChecker staticLinkageChecker =
+        StaticLinkageChecker.create(
+            false, classpath.getJars(), ImmutableSet.of(classpath.getJars().get(0)));
+    return staticLinkageChecker.findLinkageErrors();
+  }
+}
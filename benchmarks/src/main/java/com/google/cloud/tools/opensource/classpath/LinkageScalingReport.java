@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.classpath;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Prints the scaling curve of {@link StaticLinkageChecker} over synthetic class paths as CSV: for
+ * each number of jar files, the time to scan the jar files and to validate their references, the
+ * throughput in references per second, and the peak heap usage.
+ *
+ * <p>Usage: {@code java -cp benchmarks.jar
+ * com.google.cloud.tools.opensource.classpath.LinkageScalingReport [jarCount...]}. The default
+ * sizes are 10, 100, 1000 and 5000 jar files. Give the JVM enough heap, such as {@code -Xmx4g},
+ * for the largest size.
+ */
+public class LinkageScalingReport {
+
+  private static final int[] DEFAULT_JAR_COUNTS = {10, 100, 1000, 5000};
+
+  /** The generator of the class paths of the scaling benchmarks. */
+  static SyntheticClasspathGenerator generator(int jarCount) {
+    return new SyntheticClasspathGenerator()
+        .setJarCount(jarCount)
+        .setClassesPerJar(10)
+        .setReferencesPerClass(20)
+        .setMissingRates(0.01, 0.01, 0.01);
+  }
+
+  public static void main(String[] arguments) throws IOException {
+    int[] jarCounts = DEFAULT_JAR_COUNTS;
+    if (arguments.length > 0) {
+      jarCounts = new int[arguments.length];
+      for (int i = 0; i < arguments.length; i++) {
+        jarCounts[i] = Integer.parseInt(arguments[i]);
+      }
+    }
+
+    System.out.println(
+        "jars,references,errors,scanMillis,validationMillis,referencesPerSecond,peakHeapMegabytes");
+    for (int jarCount : jarCounts) {
+      Path directory = Files.createTempDirectory("synthetic-classpath");
+      try {
+        System.out.println(measure(generator(jarCount).generate(directory)));
+      } finally {
+        MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+      }
+    }
+  }
+
+  private static String measure(SyntheticClasspath classpath) throws IOException {
+    List<MemoryPoolMXBean> heapPools = heapPools();
+    System.gc();
+    heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+    Stopwatch scan = Stopwatch.createStarted();
+    StaticLinkageChecker staticLinkageChecker =
+        StaticLinkageChecker.create(
+            false, classpath.getJars(), ImmutableSet.of(classpath.getJars().get(0)));
+    scan.stop();
+    Stopwatch validation = Stopwatch.createStarted();
+    StaticLinkageCheckReport report = staticLinkageChecker.findLinkageErrors();
+    validation.stop();
+
+    long peakHeap = 0;
+    for (MemoryPoolMXBean pool : heapPools) {
+      peakHeap += pool.getPeakUsage().getUsed();
+    }
+    long totalMillis = Math.max(1, scan.elapsed(TimeUnit.MILLISECONDS)
+        + validation.elapsed(TimeUnit.MILLISECONDS));
+    return classpath.getJars().size()
+        + "," + classpath.getReferenceCount()
+        + "," + report.getTotalErrorCount()
+        + "," + scan.elapsed(TimeUnit.MILLISECONDS)
+        + "," + validation.elapsed(TimeUnit.MILLISECONDS)
+        + "," + classpath.getReferenceCount() * 1000L / totalMillis
+        + "," + peakHeap / (1024 * 1024);
+  }
+
+  private static List<MemoryPoolMXBean> heapPools() {
+    return ManagementFactory.getMemoryPoolMXBeans()
+        .stream()
+        .filter(pool -> pool.getType() == MemoryType.HEAP)
+        .collect(Collectors.toList());
+  }
+}
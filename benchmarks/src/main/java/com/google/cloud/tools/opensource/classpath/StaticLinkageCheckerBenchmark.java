@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.classpath;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of validating symbol references against the class path of the fixture jar files. The
+ * jar files are scanned in the setup, so the results measure symbol validation only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StaticLinkageCheckerBenchmark {
+
+  @Param({"guava", "grpc-core", "grpc-google-cloud-firestore-v1beta1"})
+  public String artifactId;
+
+  private StaticLinkageChecker staticLinkageChecker;
+  private Path jar;
+  private SymbolReferenceSet symbolReferences;
+
+  @Setup
+  public void setUp() throws IOException {
+    ImmutableList<Path> classpath = FixtureJars.paths();
+    jar = classpath.get(FixtureJars.ARTIFACT_IDS.indexOf(artifactId));
+    staticLinkageChecker =
+        StaticLinkageChecker.create(false, classpath, ImmutableSet.of(classpath.get(0)));
+    symbolReferences = ClassDumper.scanSymbolReferencesInJar(jar);
+  }
+
+  @Benchmark
+  public JarLinkageReport generateLinkageReport() throws IOException {
+    return staticLinkageChecker.generateLinkageReport(
+        jar, symbolReferences, ImmutableList.of());
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.classpath;
+
+import com.google.common.collect.ImmutableList;
+import java.nio.file.Path;
+
+/** Jar files written by {@link SyntheticClasspathGenerator} and their expected linkage errors. */
+final class SyntheticClasspath {
+
+  private final ImmutableList<Path> jars;
+  private final int referenceCount;
+  private final int missingClassCount;
+  private final int missingMethodCount;
+  private final int missingFieldCount;
+
+  SyntheticClasspath(ImmutableList<Path> jars, int referenceCount, int missingClassCount,
+      int missingMethodCount, int missingFieldCount) {
+    this.jars = jars;
+    this.referenceCount = referenceCount;
+    this.missingClassCount = missingClassCount;
+    this.missingMethodCount = missingMethodCount;
+    this.missingFieldCount = missingFieldCount;
+  }
+
+  /** Returns the absolute paths of the jar files. */
+  ImmutableList<Path> getJars() {
+    return jars;
+  }
+
+  /** Returns the number of generated references between classes in different jar files. */
+  int getReferenceCount() {
+    return referenceCount;
+  }
+
+  /** Returns the number of references to classes that are not in the class path. */
+  int getMissingClassCount() {
+    return missingClassCount;
+  }
+
+  /** Returns the number of references to methods that are not in their target classes. */
+  int getMissingMethodCount() {
+    return missingMethodCount;
+  }
+
+  /** Returns the number of references to fields that are not in their target classes. */
+  int getMissingFieldCount() {
+    return missingFieldCount;
+  }
+}
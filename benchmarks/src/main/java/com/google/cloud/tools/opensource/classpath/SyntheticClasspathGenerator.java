@@ -0,0 +1,186 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.classpath;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.apache.bcel.Const;
+import org.apache.bcel.generic.ClassGen;
+import org.apache.bcel.generic.ConstantPoolGen;
+import org.apache.bcel.generic.FieldGen;
+import org.apache.bcel.generic.InstructionConst;
+import org.apache.bcel.generic.InstructionFactory;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.MethodGen;
+import org.apache.bcel.generic.ObjectType;
+import org.apache.bcel.generic.Type;
+
+/**
+ * Writes jar files of generated classes that reference classes in the other jar files, with
+ * controlled rates of references to missing classes, methods and fields. Class paths far larger
+ * than real BOMs show how {@link StaticLinkageChecker} scales.
+ *
+ * <p>Each class {@code synthetic.jarN.ClassM} has a static method {@code call()}, a static field
+ * {@code value}, and a method {@code run()} whose code holds the references. A reference to a
+ * missing class is a {@code checkcast} to a class in the {@code synthetic.missing} package, which
+ * no jar file defines. The names of missing classes, methods and fields are unique, so that the
+ * checker reports each of them exactly once. The output is the same for the same parameters.
+ */
+final class SyntheticClasspathGenerator {
+
+  private int jarCount = 10;
+  private int classesPerJar = 10;
+  private int referencesPerClass = 20;
+  private double missingClassRate;
+  private double missingMethodRate;
+  private double missingFieldRate;
+  private long seed = 1;
+
+  /** Number of jar files. At least two, because references within a jar file are not checked. */
+  SyntheticClasspathGenerator setJarCount(int jarCount) {
+    checkArgument(jarCount >= 2, "At least two jar files are required");
+    this.jarCount = jarCount;
+    return this;
+  }
+
+  SyntheticClasspathGenerator setClassesPerJar(int classesPerJar) {
+    checkArgument(classesPerJar >= 1);
+    this.classesPerJar = classesPerJar;
+    return this;
+  }
+
+  SyntheticClasspathGenerator setReferencesPerClass(int referencesPerClass) {
+    checkArgument(referencesPerClass >= 0);
+    this.referencesPerClass = referencesPerClass;
+    return this;
+  }
+
+  /**
+   * Sets the rates of references to missing classes, methods and fields, each between 0 and 1.
+   * The other references are valid method and field references.
+   */
+  SyntheticClasspathGenerator setMissingRates(
+      double missingClassRate, double missingMethodRate, double missingFieldRate) {
+    checkArgument(missingClassRate >= 0 && missingMethodRate >= 0 && missingFieldRate >= 0);
+    checkArgument(missingClassRate + missingMethodRate + missingFieldRate <= 1);
+    this.missingClassRate = missingClassRate;
+    this.missingMethodRate = missingMethodRate;
+    this.missingFieldRate = missingFieldRate;
+    return this;
+  }
+
+  SyntheticClasspathGenerator setSeed(long seed) {
+    this.seed = seed;
+    return this;
+  }
+
+  /** Writes the jar files to {@code directory}. */
+  SyntheticClasspath generate(Path directory) throws IOException {
+    Random random = new Random(seed);
+    ImmutableList.Builder<Path> jars = ImmutableList.builder();
+    int referenceCount = 0;
+    int missingClassCount = 0;
+    int missingMethodCount = 0;
+    int missingFieldCount = 0;
+
+    for (int jar = 0; jar < jarCount; jar++) {
+      Path jarPath = directory.resolve("synthetic-" + jar + ".jar").toAbsolutePath();
+      try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jarPath))) {
+        for (int classIndex = 0; classIndex < classesPerJar; classIndex++) {
+          String className = className(jar, classIndex);
+          ClassGen classGen = new ClassGen(className, "java.lang.Object", "<generated>",
+              Const.ACC_PUBLIC | Const.ACC_SUPER, null);
+          ConstantPoolGen constantPool = classGen.getConstantPool();
+          InstructionFactory factory = new InstructionFactory(classGen, constantPool);
+          addTargetMembers(classGen, constantPool);
+
+          InstructionList code = new InstructionList();
+          for (int reference = 0; reference < referencesPerClass; reference++) {
+            // Targets are in the other jar files
+            int targetJar = (jar + 1 + random.nextInt(jarCount - 1)) % jarCount;
+            String targetClass = className(targetJar, random.nextInt(classesPerJar));
+            String suffix = jar + "x" + classIndex + "x" + reference;
+            String uniqueName = "missing" + suffix;
+            double dice = random.nextDouble();
+            if (dice < missingClassRate) {
+              code.append(InstructionConst.ACONST_NULL);
+              code.append(factory.createCheckCast(
+                  new ObjectType("synthetic.missing.Class" + suffix)));
+              code.append(InstructionConst.POP);
+              missingClassCount++;
+            } else if (dice < missingClassRate + missingMethodRate) {
+              code.append(factory.createInvoke(
+                  targetClass, uniqueName, Type.VOID, Type.NO_ARGS, Const.INVOKESTATIC));
+              missingMethodCount++;
+            } else if (dice < missingClassRate + missingMethodRate + missingFieldRate) {
+              code.append(factory.createGetStatic(targetClass, uniqueName, Type.INT));
+              code.append(InstructionConst.POP);
+              missingFieldCount++;
+            } else if (random.nextBoolean()) {
+              code.append(factory.createInvoke(
+                  targetClass, "call", Type.VOID, Type.NO_ARGS, Const.INVOKESTATIC));
+            } else {
+              code.append(factory.createGetStatic(targetClass, "value", Type.INT));
+              code.append(InstructionConst.POP);
+            }
+            referenceCount++;
+          }
+          code.append(InstructionConst.RETURN);
+          addMethod(classGen, constantPool, Const.ACC_PUBLIC, "run", code);
+
+          out.putNextEntry(new JarEntry(className.replace('.', '/') + ".class"));
+          out.write(classGen.getJavaClass().getBytes());
+          out.closeEntry();
+        }
+      }
+      jars.add(jarPath);
+    }
+    return new SyntheticClasspath(jars.build(), referenceCount, missingClassCount,
+        missingMethodCount, missingFieldCount);
+  }
+
+  private static String className(int jar, int classIndex) {
+    return "synthetic.jar" + jar + ".Class" + classIndex;
+  }
+
+  private static void addTargetMembers(ClassGen classGen, ConstantPoolGen constantPool) {
+    FieldGen field = new FieldGen(
+        Const.ACC_PUBLIC | Const.ACC_STATIC, Type.INT, "value", constantPool);
+    classGen.addField(field.getField());
+
+    InstructionList code = new InstructionList();
+    code.append(InstructionConst.RETURN);
+    addMethod(classGen, constantPool, Const.ACC_PUBLIC | Const.ACC_STATIC, "call", code);
+  }
+
+  private static void addMethod(ClassGen classGen, ConstantPoolGen constantPool,
+      int accessFlags, String name, InstructionList code) {
+    MethodGen method = new MethodGen(accessFlags, Type.VOID, Type.NO_ARGS, null, name,
+        classGen.getClassName(), code, constantPool);
+    method.setMaxStack();
+    method.setMaxLocals();
+    classGen.addMethod(method.getMethod());
+    code.dispose();
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of {@link DependencyGraph} and {@link DependencyTreeFormatter} on synthetic trees.
+ * With breadth 5, depths 4 and 6 have about 800 and 20,000 paths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DependencyGraphBenchmark {
+
+  @Param({"4", "6"})
+  public int depth;
+
+  private List<DependencyPath> paths;
+  private DependencyGraph graph;
+
+  @Setup
+  public void setUp() {
+    paths = SyntheticDependencyPaths.generate(5, depth, 200, 5);
+    graph = SyntheticDependencyPaths.toGraph(paths);
+  }
+
+  @Benchmark
+  public DependencyGraph addPath() {
+    return SyntheticDependencyPaths.toGraph(paths);
+  }
+
+  @Benchmark
+  public List<Update> findUpdates() {
+    return graph.findUpdates();
+  }
+
+  @Benchmark
+  public String formatDependencyPaths() {
+    return DependencyTreeFormatter.formatDependencyPaths(paths);
+  }
+}
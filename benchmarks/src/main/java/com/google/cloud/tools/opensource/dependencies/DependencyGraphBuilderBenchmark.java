@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.aether.RepositoryException;
+import org.eclipse.aether.artifact.Artifact;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of resolving dependency graphs from a {@link FakeMavenRepository}, without network.
+ * The caches of {@link DependencyGraphBuilder} are cleared before each invocation. The local
+ * repository is a temporary directory, which the first invocation fills, so the results measure
+ * resolution with the artifacts available in the local repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DependencyGraphBuilderBenchmark {
+
+  /** Length of the dependency chain below the conflicting versions of the shared library. */
+  @Param({"5", "20"})
+  public int depth;
+
+  private Path directory;
+  private List<Artifact> roots;
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("fake-repository");
+    FakeMavenRepository repository = new FakeMavenRepository(directory.resolve("remote"));
+    roots = repository.addGraph("com.example", 10, 4, depth);
+    System.setProperty("maven.repo.local", directory.resolve("local").toString());
+    DependencyGraphBuilder.setRemoteRepositories(
+        ImmutableList.of(repository.getRemoteRepository()));
+  }
+
+  @Setup(Level.Invocation)
+  public void clearCaches() {
+    DependencyGraphBuilder.setRemoteRepositories(DependencyGraphBuilder.getRemoteRepositories());
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    System.clearProperty("maven.repo.local");
+    MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+  }
+
+  @Benchmark
+  public DependencyGraph getCompleteDependencies() throws RepositoryException {
+    return DependencyGraphBuilder.getCompleteDependencies(roots.get(0));
+  }
+
+  @Benchmark
+  public DependencyGraph getTransitiveDependencies() throws RepositoryException {
+    return DependencyGraphBuilder.getTransitiveDependencies(roots.get(0));
+  }
+
+  /** Resolves the class path of all roots, as the static linkage check of a BOM does. */
+  @Benchmark
+  public DependencyGraph getStaticLinkageCheckDependencies() throws RepositoryException {
+    return DependencyGraphBuilder.getStaticLinkageCheckDependencies(roots);
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+
+/**
+ * Generates the dependency paths of a synthetic dependency tree, without a Maven repository. The
+ * same artifacts appear in different versions at different nodes, so that the graph has
+ * conflicts and updates as in real-world trees.
+ */
+final class SyntheticDependencyPaths {
+
+  private SyntheticDependencyPaths() {}
+
+  /**
+   * Returns the paths to the nodes of a tree in breadth first order, as {@link
+   * DependencyGraphBuilder} lists them.
+   *
+   * @param breadth number of direct dependencies of each non-leaf node
+   * @param depth number of levels below the root
+   * @param distinctArtifacts number of distinct groupId:artifactId keys below the root
+   * @param versions number of versions of each artifact
+   */
+  static List<DependencyPath> generate(
+      int breadth, int depth, int distinctArtifacts, int versions) {
+    List<DependencyPath> paths = new ArrayList<>();
+    DependencyPath root = new DependencyPath();
+    root.add(new DefaultArtifact("com.example:root:1.0"));
+    paths.add(root);
+
+    Queue<DependencyPath> queue = new ArrayDeque<>();
+    queue.add(root);
+    int node = 0;
+    while (!queue.isEmpty()) {
+      DependencyPath parent = queue.remove();
+      if (parent.size() > depth) {
+        continue;
+      }
+      for (int i = 0; i < breadth; i++) {
+        node++;
+        Artifact artifact =
+            new DefaultArtifact(
+                "com.example:artifact-" + (node % distinctArtifacts) + ":1."
+                    + ((node / distinctArtifacts) % versions));
+        DependencyPath path = new DependencyPath();
+        parent.getPath().forEach(path::add);
+        path.add(artifact);
+        paths.add(path);
+        queue.add(path);
+      }
+    }
+    return paths;
+  }
+
+  /** Returns a graph of the paths, added in order. */
+  static DependencyGraph toGraph(List<DependencyPath> paths) {
+    DependencyGraph graph = new DependencyGraph();
+    for (DependencyPath path : paths) {
+      graph.addPath(path);
+    }
+    return graph;
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of sorting version strings with {@link VersionComparator}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class VersionComparatorBenchmark {
+
+  private static final String[] QUALIFIERS = {"", "-SNAPSHOT", "-rc1", "-android", "-jre"};
+
+  private final VersionComparator comparator = new VersionComparator();
+  private List<String> versions;
+
+  @Setup
+  public void setUp() {
+    versions = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      versions.add(
+          (i % 7) + "." + ((i * 31) % 23) + "." + ((i * 17) % 11) + QUALIFIERS[i % 5]);
+    }
+  }
+
+  @Benchmark
+  public List<String> sort() {
+    List<String> copy = new ArrayList<>(versions);
+    copy.sort(comparator);
+    return copy;
+  }
+}
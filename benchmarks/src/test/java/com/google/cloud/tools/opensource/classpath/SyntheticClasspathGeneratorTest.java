@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.classpath;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SyntheticClasspathGeneratorTest {
+
+  private Path directory;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("synthetic-classpath");
+  }
+
+  @After
+  public void cleanUp() throws IOException {
+    MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+  }
+
+  @Test
+  public void testGenerate_expectedLinkageErrors() throws IOException {
+    SyntheticClasspath classpath =
+        new SyntheticClasspathGenerator()
+            .setJarCount(5)
+            .setClassesPerJar(4)
+            .setReferencesPerClass(50)
+            .setMissingRates(0.1, 0.1, 0.1)
+            .generate(directory);
+    Assert.assertEquals(5, classpath.getJars().size());
+    Assert.assertEquals(1000, classpath.getReferenceCount());
+    Assert.assertTrue(classpath.getMissingClassCount() > 0);
+    Assert.assertTrue(classpath.getMissingMethodCount() > 0);
+    Assert.assertTrue(classpath.getMissingFieldCount() > 0);
+
+    StaticLinkageChecker staticLinkageChecker =
+        StaticLinkageChecker.create(
+            false, classpath.getJars(), ImmutableSet.of(classpath.getJars().get(0)));
+    StaticLinkageCheckReport report = staticLinkageChecker.findLinkageErrors();
+
+    int missingClassErrors = 0;
+    int missingMethodErrors = 0;
+    int missingFieldErrors = 0;
+    for (JarLinkageReport jarLinkageReport : report.getJarLinkageReports()) {
+      missingClassErrors += jarLinkageReport.getMissingClassErrors().size();
+      missingMethodErrors += jarLinkageReport.getMissingMethodErrors().size();
+      missingFieldErrors += jarLinkageReport.getMissingFieldErrors().size();
+    }
+    Assert.assertEquals(classpath.getMissingClassCount(), missingClassErrors);
+    Assert.assertEquals(classpath.getMissingMethodCount(), missingMethodErrors);
+    Assert.assertEquals(classpath.getMissingFieldCount(), missingFieldErrors);
+  }
+
+  @Test
+  public void testGenerate_noMissingReferences() throws IOException {
+    SyntheticClasspath classpath =
+        new SyntheticClasspathGenerator().setJarCount(3).generate(directory);
+
+    StaticLinkageChecker staticLinkageChecker =
+        StaticLinkageChecker.create(
+            false, classpath.getJars(), ImmutableSet.of(classpath.getJars().get(0)));
+    Assert.assertEquals(0, staticLinkageChecker.findLinkageErrors().getTotalErrorCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetJarCount_tooFew() {
+    new SyntheticClasspathGenerator().setJarCount(1);
+  }
+}
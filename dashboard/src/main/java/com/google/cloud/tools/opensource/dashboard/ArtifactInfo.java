@@ -16,9 +16,13 @@
 
 package com.google.cloud.tools.opensource.dashboard;
 
+import java.nio.file.Path;
+
 import org.eclipse.aether.RepositoryException;
 
 import com.google.cloud.tools.opensource.dependencies.DependencyGraph;
+import com.google.cloud.tools.opensource.dependencies.DependencyPath;
+import com.google.common.collect.LinkedListMultimap;
 
 /** 
  * Cache of info looked up for an artifact.
@@ -27,6 +31,7 @@ class ArtifactInfo {
 
   private DependencyGraph completeDependencies;
   private DependencyGraph transitiveDependencies;
+  private LinkedListMultimap<Path, DependencyPath> linkageClasspath = LinkedListMultimap.create();
   private RepositoryException exception;
 
   ArtifactInfo(DependencyGraph completeDependencies,
@@ -35,6 +40,13 @@ class ArtifactInfo {
     this.transitiveDependencies = transitiveDependencies;
   }
 
+  ArtifactInfo(DependencyGraph completeDependencies,
+      DependencyGraph transitiveDependencies,
+      LinkedListMultimap<Path, DependencyPath> linkageClasspath) {
+    this(completeDependencies, transitiveDependencies);
+    this.linkageClasspath = linkageClasspath;
+  }
+
   ArtifactInfo(RepositoryException ex) {
     this.exception = ex;
   }
@@ -47,6 +59,14 @@ class ArtifactInfo {
     return transitiveDependencies;
   }
 
+  /**
+   * @return jar files of the artifact and its dependencies for the static linkage check. Empty if
+   *     the class path could not be resolved.
+   */
+  LinkedListMultimap<Path, DependencyPath> getLinkageClasspath() {
+    return linkageClasspath;
+  }
+
   RepositoryException getException() {
     return exception;
   }
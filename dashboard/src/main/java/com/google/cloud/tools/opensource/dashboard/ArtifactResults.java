@@ -16,6 +16,7 @@
 
 package com.google.cloud.tools.opensource.dashboard;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -46,6 +47,13 @@ public final class ArtifactResults {
     results.put(testName, result);
   }
 
+  /**
+   * @return unmodifiable map of test names to their failure counts
+   */
+  Map<String, Integer> getResults() {
+    return Collections.unmodifiableMap(results);
+  }
+
   /**
    * @return true for pass, false for fail, null for unknown test
    */
@@ -44,13 +44,15 @@ import org.eclipse.aether.artifact.DefaultArtifact;
 import org.eclipse.aether.collection.DependencyCollectionException;
 import org.eclipse.aether.resolution.DependencyResolutionException;
 
+import com.google.cloud.tools.opensource.classpath.JarScanCache;
 import com.google.cloud.tools.opensource.classpath.StaticLinkageCheckReport;
 import com.google.cloud.tools.opensource.classpath.StaticLinkageChecker;
-import com.google.cloud.tools.opensource.dependencies.Artifacts;
+import com.google.cloud.tools.opensource.dependencies.BatchedDependencyGraphs;
 import com.google.cloud.tools.opensource.dependencies.DependencyGraph;
 import com.google.cloud.tools.opensource.dependencies.DependencyGraphBuilder;
 import com.google.cloud.tools.opensource.dependencies.DependencyPath;
 import com.google.cloud.tools.opensource.dependencies.DependencyTreeFormatter;
+import com.google.cloud.tools.opensource.dependencies.Metrics;
 import com.google.cloud.tools.opensource.dependencies.RepositoryUtility;
 import com.google.cloud.tools.opensource.dependencies.Update;
 import com.google.cloud.tools.opensource.dependencies.VersionComparator;
@@ -60,16 +62,31 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.ListMultimap;
-import com.google.common.html.HtmlEscapers;
+import com.google.common.hash.HashCode;
 
 public class DashboardMain {
   public static final String TEST_NAME_UPPER_BOUND = "Upper Bounds";
   public static final String TEST_NAME_GLOBAL_UPPER_BOUND = "Global Upper Bounds";
   public static final String TEST_NAME_DEPENDENCY_CONVERGENCE = "Dependency Convergence";
+  public static final String TEST_NAME_STATIC_LINKAGE_CHECK = "Static Linkage Errors";
+
+  private static final String COMPONENT_TEMPLATE = "/templates/component.ftl";
+
+  private static final Metrics.Timer artifactReportTimer =
+      Metrics.timer("dashboard.artifactReport");
+  private static final Metrics.Timer renderTimer = Metrics.timer("dashboard.render");
+
+  /**
+   * Whether to resolve all members of the BOM in one request instead of one request for each
+   * member and each of their dependencies. Set by the {@code dashboard.batchResolution} system
+   * property.
+   */
+  private static final boolean batchResolution = Boolean.getBoolean("dashboard.batchResolution");
 
   public static void main(String[] args)
       throws IOException, TemplateException, RepositoryException, ClassNotFoundException {
 
+    Metrics.registerMBean();
     Path output = generate();
     System.out.println("Wrote dashboard into " + output.toAbsolutePath());
   }
@@ -86,26 +103,36 @@ public class DashboardMain {
     // TODO should pass in maven coordinates as argument
     DefaultArtifact bom =
         new DefaultArtifact("com.google.cloud:cloud-oss-bom:pom:1.0.0-SNAPSHOT");
-    List<Artifact> managedDependencies = RepositoryUtility.readBom(bom);
-
-    ArtifactCache cache = loadArtifactInfo(managedDependencies);
-    
-    ImmutableList<Path> classpath = StaticLinkageChecker.artifactsToClasspath(managedDependencies);
-    LinkedListMultimap<Path, DependencyPath> paths =
-        StaticLinkageChecker.artifactsToPaths(managedDependencies);
+    List<Artifact> managedDependencies =
+        RepositoryUtility.readBom(bom, DependencyGraphBuilder.getRemoteRepositories());
+
+    ArtifactCache cache;
+    LinkedListMultimap<Path, DependencyPath> paths;
+    if (batchResolution) {
+      BatchedDependencyGraphs graphs =
+          DependencyGraphBuilder.getBatchedDependencies(managedDependencies);
+      cache = loadArtifactInfo(managedDependencies, graphs);
+      paths =
+          StaticLinkageChecker.dependencyGraphToPaths(graphs.getStaticLinkageCheckDependencies());
+    } else {
+      cache = loadArtifactInfo(managedDependencies);
+      paths = StaticLinkageChecker.artifactsToPaths(managedDependencies);
+    }
+    ImmutableList<Path> classpath = ImmutableList.copyOf(paths.keySet());
     
     // TODO(suztomo): choose entry point classes for reachability
     ImmutableSet<Path> entryPoints = ImmutableSet.of(classpath.get(0));
 
-    
-    
+    // The BOM-wide check and the checks for each artifact share the scans of jar files
+    JarScanCache jarScanCache = new JarScanCache();
     boolean onlyReachable = false;
     StaticLinkageChecker staticLinkageChecker =
-        StaticLinkageChecker.create(onlyReachable, paths, entryPoints);
+        StaticLinkageChecker.create(onlyReachable, paths, entryPoints, jarScanCache);
     
     StaticLinkageCheckReport report = staticLinkageChecker.findLinkageErrors();
-    List<ArtifactResults> table = generateReports(configuration, output, cache);
+    List<ArtifactResults> table = generateReports(configuration, output, cache, jarScanCache);
     generateDashboard(configuration, output, table, cache.getGlobalDependencies(), report);
+    Metrics.writeJson(output.resolve("metrics.json"));
 
     return output;
   }
@@ -130,9 +157,25 @@ public class DashboardMain {
   @VisibleForTesting
   static List<ArtifactResults> generateReports(Configuration configuration, Path output,
       ArtifactCache cache) {
+    return generateReports(configuration, output, cache, new JarScanCache());
+  }
+
+  private static List<ArtifactResults> generateReports(Configuration configuration, Path output,
+      ArtifactCache cache, JarScanCache jarScanCache) {
 
     Map<Artifact, ArtifactInfo> artifacts = cache.getInfoMap();
     List<ArtifactResults> table = new ArrayList<>();
+
+    // Pages whose inputs have not changed since the previous run are not generated again
+    PageCache pageCache = new PageCache(output);
+    Map<String, String> latestVersions = collectLatestVersions(cache.getGlobalDependencies());
+    String templateSource;
+    try {
+      templateSource = configuration.getTemplate(COMPONENT_TEMPLATE).toString();
+    } catch (IOException ex) {
+      throw new RuntimeException("Error in template setting in this project", ex);
+    }
+
     for (Entry<Artifact, ArtifactInfo> entry : artifacts.entrySet()) {
       ArtifactInfo info = entry.getValue();
       try {
@@ -141,9 +184,17 @@ public class DashboardMain {
           unavailable.setExceptionMessage(info.getException().getMessage());
           table.add(unavailable);
         } else {
-          ArtifactResults results =
-              generateArtifactReport(configuration, output, entry.getKey(), entry.getValue(),
-                  cache.getGlobalDependencies());
+          HashCode fingerprint =
+              PageCache.fingerprint(entry.getKey(), info, latestVersions, templateSource);
+          ArtifactResults results = pageCache.load(entry.getKey(), fingerprint);
+          if (results == null) {
+            pageCache.invalidate(entry.getKey());
+            try (Metrics.Timing timing = artifactReportTimer.start()) {
+              results = generateArtifactReport(configuration, output, entry.getKey(),
+                  entry.getValue(), cache.getGlobalDependencies(), jarScanCache);
+            }
+            pageCache.save(results, entry.getKey(), fingerprint);
+          }
           table.add(results);
         }
       } catch (RepositoryException | IOException ex) {
@@ -162,7 +213,8 @@ public class DashboardMain {
   }
   
   /**
-   * This is the only method that queries the Maven repository.
+   * This is the only method that queries the Maven repository. The graphs of each artifact are
+   * derived from the dependencies resolved for that artifact alone.
    */
   private static ArtifactCache loadArtifactInfo(List<Artifact> artifacts) {
     Map<Artifact, ArtifactInfo> infoMap = new LinkedHashMap<>();
@@ -170,15 +222,10 @@ public class DashboardMain {
     
     for (Artifact artifact : artifacts) {
       try {
-        DependencyGraph completeDependencies =
-            DependencyGraphBuilder.getCompleteDependencies(artifact);
-        globalDependencies.add(completeDependencies);
-        
-        // picks versions according to Maven rules
-        DependencyGraph transitiveDependencies =
-            DependencyGraphBuilder.getTransitiveDependencies(artifact);
-  
-        ArtifactInfo info = new ArtifactInfo(completeDependencies, transitiveDependencies);
+        BatchedDependencyGraphs graphs =
+            DependencyGraphBuilder.getBatchedDependencies(ImmutableList.of(artifact));
+        ArtifactInfo info = loadArtifactInfo(artifact, graphs);
+        globalDependencies.add(info.getCompleteDependencies());
         infoMap.put(artifact, info);
       } catch (RepositoryException ex) {
         ArtifactInfo info = new ArtifactInfo(ex);
@@ -193,13 +240,60 @@ public class DashboardMain {
     return cache;
   }
 
+  /**
+   * Same as {@link #loadArtifactInfo(List)}, with the graphs of the artifacts derived from
+   * dependencies resolved for all artifacts at once.
+   */
+  private static ArtifactCache loadArtifactInfo(List<Artifact> artifacts,
+      BatchedDependencyGraphs graphs) {
+    Map<Artifact, ArtifactInfo> infoMap = new LinkedHashMap<>();
+    List<DependencyGraph> globalDependencies = new ArrayList<>();
+
+    for (Artifact artifact : artifacts) {
+      try {
+        ArtifactInfo info = loadArtifactInfo(artifact, graphs);
+        globalDependencies.add(info.getCompleteDependencies());
+        infoMap.put(artifact, info);
+      } catch (RepositoryException ex) {
+        ArtifactInfo info = new ArtifactInfo(ex);
+        infoMap.put(artifact, info);
+      }
+    }
+
+    ArtifactCache cache = new ArtifactCache();
+    cache.setInfoMap(infoMap);
+    cache.setGlobalDependencies(globalDependencies);
+
+    return cache;
+  }
+
+  private static ArtifactInfo loadArtifactInfo(Artifact artifact,
+      BatchedDependencyGraphs graphs) throws RepositoryException {
+    DependencyGraph completeDependencies = graphs.getCompleteDependencies(artifact);
+
+    // picks versions according to Maven rules
+    DependencyGraph transitiveDependencies = graphs.getTransitiveDependencies(artifact);
+
+    LinkedListMultimap<Path, DependencyPath> linkageClasspath = LinkedListMultimap.create();
+    try {
+      linkageClasspath = StaticLinkageChecker.dependencyGraphToPaths(
+          graphs.getStaticLinkageCheckDependencies(artifact));
+    } catch (RepositoryException ex) {
+      // The other checks can still run without the static linkage check
+      System.err.println("Could not resolve the class path of " + artifact + ": "
+          + ex.getMessage());
+    }
+
+    return new ArtifactInfo(completeDependencies, transitiveDependencies, linkageClasspath);
+  }
+
   private static ArtifactResults generateArtifactReport(Configuration configuration, Path output,
-      Artifact artifact, ArtifactInfo artifactInfo, List<DependencyGraph> globalDependencies)
+      Artifact artifact, ArtifactInfo artifactInfo, List<DependencyGraph> globalDependencies,
+      JarScanCache jarScanCache)
       throws IOException, TemplateException, DependencyCollectionException,
       DependencyResolutionException {
 
-    String coordinates = Artifacts.toCoordinates(artifact);
-    File outputFile = output.resolve(coordinates.replace(':', '_') + ".html").toFile();
+    File outputFile = output.resolve(PageCache.pageFileName(artifact)).toFile();
     
     try (Writer out = new OutputStreamWriter(
         new FileOutputStream(outputFile), StandardCharsets.UTF_8)) {
@@ -217,9 +311,21 @@ public class DashboardMain {
       Map<Artifact, Artifact> globalUpperBoundFailures = findUpperBoundsFailures(
           collectLatestVersions(globalDependencies), transitiveDependencies);
 
+      // Null when the class path of the artifact is unavailable
+      StaticLinkageCheckReport staticLinkageCheckReport = null;
+      LinkedListMultimap<Path, DependencyPath> linkageClasspath =
+          artifactInfo.getLinkageClasspath();
+      if (!linkageClasspath.isEmpty()) {
+        ImmutableSet<Path> entryPoints =
+            ImmutableSet.of(Iterables.getFirst(linkageClasspath.keySet(), null));
+        StaticLinkageChecker staticLinkageChecker =
+            StaticLinkageChecker.create(false, linkageClasspath, entryPoints, jarScanCache);
+        staticLinkageCheckReport = staticLinkageChecker.findLinkageErrors();
+      }
+
       ListMultimap<DependencyPath, DependencyPath> dependencyTree =
           DependencyTreeFormatter.buildDependencyPathTree(completeDependencies.list());
-      Template report = configuration.getTemplate("/templates/component.ftl");
+      Template report = configuration.getTemplate(COMPONENT_TEMPLATE);
 
       Map<String, Object> templateData = new HashMap<>();
       templateData.put("groupId", artifact.getGroupId());
@@ -232,12 +338,24 @@ public class DashboardMain {
       // Explicit casting avoids Freemarker's error on `AbstractListMultimap.get` in CircleCI
       templateData.put("dependencyTree", (LinkedListMultimap<?, ?>) dependencyTree);
       templateData.put("dependencyRootNode", Iterables.getFirst(dependencyTree.values(), null));
-      report.process(templateData, out);
+      templateData.put(
+          "truncated", completeDependencies.isTruncated() || transitiveDependencies.isTruncated());
+      if (staticLinkageCheckReport != null) {
+        templateData.put(
+            "staticLinkageErrors", new LinkageReportDirective(staticLinkageCheckReport));
+      }
+      try (Metrics.Timing timing = renderTimer.start()) {
+        report.process(templateData, out);
+      }
 
       ArtifactResults results = new ArtifactResults(artifact);
       results.addResult(TEST_NAME_UPPER_BOUND, upperBoundFailures.size());
       results.addResult(TEST_NAME_GLOBAL_UPPER_BOUND, globalUpperBoundFailures.size());
       results.addResult(TEST_NAME_DEPENDENCY_CONVERGENCE, convergenceIssues.size());
+      if (staticLinkageCheckReport != null) {
+        results.addResult(TEST_NAME_STATIC_LINKAGE_CHECK,
+            staticLinkageCheckReport.getTotalErrorCount());
+      }
 
       return results;
     }
@@ -285,10 +403,11 @@ public class DashboardMain {
       templateData.put("table", table);
       templateData.put("lastUpdated", LocalDateTime.now());
       templateData.put("latestArtifacts", latestArtifacts);
-      String escapedStaticLinkageErrors = HtmlEscapers.htmlEscaper().escape(report.toString());
-      templateData.put("staticLinkageErrors", escapedStaticLinkageErrors);
+      templateData.put("staticLinkageErrors", new LinkageReportDirective(report));
 
-      dashboard.process(templateData, out);
+      try (Metrics.Timing timing = renderTimer.start()) {
+        dashboard.process(templateData, out);
+      }
     }
   }
 
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.dashboard;
+
+import com.google.cloud.tools.opensource.classpath.LinkageReportWriter;
+import com.google.cloud.tools.opensource.classpath.StaticLinkageCheckReport;
+import freemarker.core.Environment;
+import freemarker.template.TemplateDirectiveBody;
+import freemarker.template.TemplateDirectiveModel;
+import freemarker.template.TemplateException;
+import freemarker.template.TemplateModel;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Writes a static linkage check report, escaped for the {@code <pre>} element of a page, into the
+ * output of the template, as in {@code <pre><@staticLinkageErrors/></pre>}. Each jar file's section
+ * is escaped as it is written, without a copy of the whole report.
+ */
+class LinkageReportDirective implements TemplateDirectiveModel {
+
+  private final StaticLinkageCheckReport report;
+
+  LinkageReportDirective(StaticLinkageCheckReport report) {
+    this.report = report;
+  }
+
+  @Override
+  public void execute(Environment environment, @SuppressWarnings("rawtypes") Map parameters,
+      TemplateModel[] loopVariables, TemplateDirectiveBody body)
+      throws TemplateException, IOException {
+    if (!parameters.isEmpty() || loopVariables.length > 0 || body != null) {
+      throw new TemplateException(
+          "The static linkage errors take no parameters, loop variables or body", environment);
+    }
+    report.writeTo(LinkageReportWriter.html(environment.getOut()));
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.dashboard;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+
+import javax.annotation.Nullable;
+
+import org.eclipse.aether.artifact.Artifact;
+
+import com.google.cloud.tools.opensource.dependencies.Artifacts;
+import com.google.cloud.tools.opensource.dependencies.DependencyGraph;
+import com.google.cloud.tools.opensource.dependencies.DependencyPath;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Records a fingerprint of the inputs of each artifact page next to the page, so that a later
+ * run can reuse the page and its test results when the inputs have not changed.
+ *
+ * <p>The fingerprint covers the artifact's coordinates, its complete and transitive dependency
+ * graphs and whether they are truncated, the class path of its static linkage check with the size
+ * and last modified time of each jar file, the latest versions across the BOM of the artifact's
+ * dependencies (used by the global upper bounds check) and the template source. A version bump of
+ * an artifact outside the artifact's graphs does not change the fingerprint, while a jar file
+ * rewritten in place, such as a snapshot downloaded again, does.
+ */
+final class PageCache {
+
+  private static final Logger logger = Logger.getLogger(PageCache.class.getName());
+
+  private static final String FINGERPRINT_KEY = "fingerprint";
+  private static final String RESULT_KEY_PREFIX = "result.";
+
+  private final Path output;
+
+  PageCache(Path output) {
+    this.output = output;
+  }
+
+  static HashCode fingerprint(Artifact artifact, ArtifactInfo info,
+      Map<String, String> latestVersions, String templateSource) throws IOException {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(Artifacts.toCoordinates(artifact), StandardCharsets.UTF_8);
+    putGraph(hasher, info.getCompleteDependencies());
+    putGraph(hasher, info.getTransitiveDependencies());
+    hasher.putChar('[');
+    for (Path jar : info.getLinkageClasspath().keySet()) {
+      hasher.putString(jar.toString(), StandardCharsets.UTF_8);
+      hasher.putChar('\t');
+      hasher.putLong(Files.size(jar));
+      hasher.putLong(Files.getLastModifiedTime(jar).toMillis());
+      hasher.putChar('\n');
+    }
+    hasher.putChar(']');
+    // The global upper bounds check looks up only the artifact's dependencies
+    SortedSet<String> keys =
+        new TreeSet<>(info.getCompleteDependencies().getHighestVersionMap().keySet());
+    keys.addAll(info.getTransitiveDependencies().getHighestVersionMap().keySet());
+    hasher.putChar('[');
+    for (String key : keys) {
+      String latestVersion = latestVersions.get(key);
+      if (latestVersion != null) {
+        hasher.putString(key, StandardCharsets.UTF_8);
+        hasher.putChar('\t');
+        hasher.putString(latestVersion, StandardCharsets.UTF_8);
+        hasher.putChar('\n');
+      }
+    }
+    hasher.putChar(']');
+    hasher.putString(templateSource, StandardCharsets.UTF_8);
+    return hasher.hash();
+  }
+
+  private static void putGraph(Hasher hasher, DependencyGraph graph) {
+    // The separators keep ["a", "bc"] and ["ab", "c"] from producing the same fingerprint
+    hasher.putChar('[');
+    for (DependencyPath path : graph.list()) {
+      hasher.putString(path.toString(), StandardCharsets.UTF_8);
+      hasher.putChar('\n');
+    }
+    hasher.putChar(']');
+    hasher.putBoolean(graph.isTruncated());
+  }
+
+  static String pageFileName(Artifact artifact) {
+    return Artifacts.toCoordinates(artifact).replace(':', '_') + ".html";
+  }
+
+  private Path fingerprintFile(Artifact artifact) {
+    return output.resolve(pageFileName(artifact) + ".fingerprint");
+  }
+
+  /**
+   * Returns the results recorded for the artifact's page if the page exists and was generated
+   * from inputs with the same fingerprint; otherwise null.
+   */
+  @Nullable
+  ArtifactResults load(Artifact artifact, HashCode fingerprint) {
+    Path fingerprintFile = fingerprintFile(artifact);
+    if (!Files.isRegularFile(fingerprintFile)
+        || !Files.isRegularFile(output.resolve(pageFileName(artifact)))) {
+      return null;
+    }
+
+    Properties properties = new Properties();
+    try (InputStream in = Files.newInputStream(fingerprintFile)) {
+      properties.load(in);
+    } catch (IOException ex) {
+      logger.warning("Could not read " + fingerprintFile + ": " + ex.getMessage());
+      return null;
+    }
+    if (!fingerprint.toString().equals(properties.getProperty(FINGERPRINT_KEY))) {
+      return null;
+    }
+
+    ArtifactResults results = new ArtifactResults(artifact);
+    for (String key : properties.stringPropertyNames()) {
+      if (key.startsWith(RESULT_KEY_PREFIX)) {
+        String testName = key.substring(RESULT_KEY_PREFIX.length());
+        try {
+          results.addResult(testName, Integer.parseInt(properties.getProperty(key)));
+        } catch (NumberFormatException ex) {
+          return null;
+        }
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Forgets the fingerprint of the artifact's page, so that a page left incomplete by a failed run
+   * is not reused.
+   */
+  void invalidate(Artifact artifact) throws IOException {
+    Files.deleteIfExists(fingerprintFile(artifact));
+  }
+
+  /**
+   * Records the fingerprint and the results of the artifact's page that has just been written.
+   */
+  void save(ArtifactResults results, Artifact artifact, HashCode fingerprint) throws IOException {
+    Properties properties = new Properties();
+    properties.setProperty(FINGERPRINT_KEY, fingerprint.toString());
+    for (Map.Entry<String, Integer> entry : results.getResults().entrySet()) {
+      properties.setProperty(RESULT_KEY_PREFIX + entry.getKey(), entry.getValue().toString());
+    }
+    try (OutputStream out = Files.newOutputStream(fingerprintFile(artifact))) {
+      properties.store(out, Artifacts.toCoordinates(artifact));
+    }
+  }
+}
@@ -109,8 +109,24 @@
       <h3 style="color: green">${groupId}:${artifactId}:${version} Converges</h3>
     </#if>
 
+    <h2>Static Linkage Check</h2>
+
+    <p>Every reference to a class, method, or field in the class files of the artifact and its
+       transitive dependencies resolves in the class path of the artifact.</p>
+
+    <#if staticLinkageErrors?? >
+      <pre id="static_linkage_errors"><@staticLinkageErrors/></pre>
+    <#else>
+      <p>Static linkage check result is unavailable</p>
+    </#if>
+
     <h2>Dependencies</h2>
 
+    <#if truncated>
+      <p class="truncated">The dependency graph exceeded the limits of the budget.
+        The checks above and the tree below have only the dependencies found before the limit.</p>
+    </#if>
+
     <#if dependencyRootNode?? >
       <@formatDependencyNode dependencyRootNode dependencyRootNode />
     <#else>
@@ -39,6 +39,9 @@
         <th title=
           "For each transitive dependency the library pulls in, the highest version found anywhere in the union of the BOM's dependency trees is picked.">
           Global Upper Bounds</th>
+        <th title=
+          "The artifact and its transitive dependencies have no static linkage errors. That is, every reference to a class, method, or field in their class files resolves in the class path of the artifact.">
+          Static Linkage Errors</th>
       </tr>
       <#list table as row>
         <tr>
@@ -46,6 +49,7 @@
           <@testResult row=row name="Upper Bounds"/>
           <@testResult row=row name="Dependency Convergence"/>
           <@testResult row=row name="Global Upper Bounds"/>
+          <@testResult row=row name="Static Linkage Errors"/>
         </tr>
       </#list>
     </table>
@@ -54,7 +58,7 @@
 
     <h2>Static Linkage Errors</h2>
 
-    <pre id="static_linkage_errors">${staticLinkageErrors}</pre>
+    <pre id="static_linkage_errors"><@staticLinkageErrors/></pre>
 
     <hr />      
       
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.dashboard;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.cloud.tools.opensource.classpath.StaticLinkageCheckReport;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class LinkageReportDirectiveTest {
+
+  private final Map<String, Object> templateData = ImmutableMap.of(
+      "staticLinkageErrors",
+      new LinkageReportDirective(StaticLinkageCheckReport.create(ImmutableList.of())));
+
+  private static String process(String source, Map<String, Object> templateData)
+      throws IOException, TemplateException {
+    Template template =
+        new Template("test", source, DashboardMain.configureFreemarker());
+    StringWriter writer = new StringWriter();
+    template.process(templateData, writer);
+    return writer.toString();
+  }
+
+  @Test
+  public void testWritesIntoTemplateOutput() throws IOException, TemplateException {
+    Assert.assertEquals(
+        "<pre>No static linkage errors\n</pre>",
+        process("<pre><@staticLinkageErrors/></pre>", templateData));
+  }
+
+  @Test(expected = TemplateException.class)
+  public void testBody() throws IOException, TemplateException {
+    process("<@staticLinkageErrors>body</@staticLinkageErrors>", templateData);
+  }
+}
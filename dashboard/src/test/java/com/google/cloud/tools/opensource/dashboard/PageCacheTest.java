@@ -0,0 +1,186 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.dashboard;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import freemarker.template.Configuration;
+
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.cloud.tools.opensource.dependencies.DependencyGraph;
+import com.google.cloud.tools.opensource.dependencies.DependencyPath;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.hash.HashCode;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+
+public class PageCacheTest {
+
+  private Path outputDirectory;
+  private Artifact artifact = new DefaultArtifact("io.grpc:grpc-context:1.15.0");
+  private ArtifactInfo info = new ArtifactInfo(new DependencyGraph(), new DependencyGraph());
+
+  @Before
+  public void setUp() throws IOException {
+    outputDirectory = Files.createTempDirectory("dashboard");
+  }
+
+  @After
+  public void cleanUp() throws IOException {
+    MoreFiles.deleteRecursively(outputDirectory, RecursiveDeleteOption.ALLOW_INSECURE);
+  }
+
+  /** Returns a graph whose dependencies have the highest versions. */
+  private static DependencyGraph graph(Map<String, String> highestVersions, boolean truncated) {
+    return new DependencyGraph() {
+      @Override
+      public Map<String, String> getHighestVersionMap() {
+        return highestVersions;
+      }
+
+      @Override
+      public boolean isTruncated() {
+        return truncated;
+      }
+    };
+  }
+
+  @Test
+  public void testFingerprint() throws IOException {
+    ArtifactInfo info = new ArtifactInfo(
+        graph(ImmutableMap.of("a:b", "1.0"), false), graph(ImmutableMap.of("a:b", "1.0"), false));
+    HashCode fingerprint =
+        PageCache.fingerprint(artifact, info, ImmutableMap.of("a:b", "1.0"), "template");
+    Assert.assertEquals(fingerprint,
+        PageCache.fingerprint(artifact, info, ImmutableMap.of("a:b", "1.0"), "template"));
+    Assert.assertNotEquals(fingerprint,
+        PageCache.fingerprint(artifact, info, ImmutableMap.of("a:b", "2.0"), "template"));
+    Assert.assertNotEquals(fingerprint,
+        PageCache.fingerprint(artifact, info, ImmutableMap.of("a:b", "1.0"), "template2"));
+    Assert.assertNotEquals(fingerprint,
+        PageCache.fingerprint(new DefaultArtifact("io.grpc:grpc-context:1.16.0"), info,
+            ImmutableMap.of("a:b", "1.0"), "template"));
+  }
+
+  @Test
+  public void testFingerprint_latestVersionsOutsideGraphs() throws IOException {
+    ArtifactInfo info = new ArtifactInfo(
+        graph(ImmutableMap.of("a:b", "1.0"), false), graph(ImmutableMap.of("a:b", "1.0"), false));
+    HashCode fingerprint = PageCache.fingerprint(artifact, info,
+        ImmutableMap.of("a:b", "1.0", "c:d", "1.0"), "template");
+
+    Assert.assertEquals(fingerprint, PageCache.fingerprint(artifact, info,
+        ImmutableMap.of("a:b", "1.0", "c:d", "2.0"), "template"));
+    Assert.assertEquals(fingerprint,
+        PageCache.fingerprint(artifact, info, ImmutableMap.of("a:b", "1.0"), "template"));
+  }
+
+  @Test
+  public void testFingerprint_truncated() throws IOException {
+    DependencyGraph complete = graph(ImmutableMap.of("a:b", "1.0"), false);
+    HashCode fingerprint = PageCache.fingerprint(artifact,
+        new ArtifactInfo(complete, graph(ImmutableMap.of("a:b", "1.0"), false)),
+        ImmutableMap.of("a:b", "1.0"), "template");
+
+    Assert.assertNotEquals(fingerprint, PageCache.fingerprint(artifact,
+        new ArtifactInfo(complete, graph(ImmutableMap.of("a:b", "1.0"), true)),
+        ImmutableMap.of("a:b", "1.0"), "template"));
+  }
+
+  @Test
+  public void testFingerprint_jarRewrittenInPlace() throws IOException {
+    Path jar = outputDirectory.resolve("a-b-1.0-SNAPSHOT.jar");
+    Files.write(jar, new byte[] {1, 2, 3});
+    LinkedListMultimap<Path, DependencyPath> linkageClasspath = LinkedListMultimap.create();
+    linkageClasspath.put(jar, DependencyPath.of(ImmutableList.of(artifact)));
+    ArtifactInfo info = new ArtifactInfo(
+        graph(ImmutableMap.of("a:b", "1.0-SNAPSHOT"), false),
+        graph(ImmutableMap.of("a:b", "1.0-SNAPSHOT"), false),
+        linkageClasspath);
+    HashCode fingerprint =
+        PageCache.fingerprint(artifact, info, ImmutableMap.of(), "template");
+    Assert.assertEquals(fingerprint,
+        PageCache.fingerprint(artifact, info, ImmutableMap.of(), "template"));
+
+    // A snapshot downloaded again at the same path
+    FileTime lastModified = Files.getLastModifiedTime(jar);
+    Files.write(jar, new byte[] {1, 2, 3, 4});
+    Files.setLastModifiedTime(jar, FileTime.fromMillis(lastModified.toMillis() + 60_000));
+    Assert.assertNotEquals(fingerprint,
+        PageCache.fingerprint(artifact, info, ImmutableMap.of(), "template"));
+  }
+
+  @Test
+  public void testSaveAndLoad() throws IOException {
+    PageCache pageCache = new PageCache(outputDirectory);
+    HashCode fingerprint = PageCache.fingerprint(artifact, info, ImmutableMap.of(), "template");
+    Assert.assertNull(pageCache.load(artifact, fingerprint));
+
+    ArtifactResults results = new ArtifactResults(artifact);
+    results.addResult(DashboardMain.TEST_NAME_UPPER_BOUND, 2);
+    results.addResult(DashboardMain.TEST_NAME_DEPENDENCY_CONVERGENCE, 0);
+    Files.write(outputDirectory.resolve(PageCache.pageFileName(artifact)), new byte[0]);
+    pageCache.save(results, artifact, fingerprint);
+
+    ArtifactResults loaded = pageCache.load(artifact, fingerprint);
+    Assert.assertNotNull(loaded);
+    Assert.assertEquals(results.getResults(), loaded.getResults());
+
+    HashCode otherFingerprint =
+        PageCache.fingerprint(artifact, info, ImmutableMap.of(), "template2");
+    Assert.assertNull(pageCache.load(artifact, otherFingerprint));
+
+    pageCache.invalidate(artifact);
+    Assert.assertNull(pageCache.load(artifact, fingerprint));
+  }
+
+  @Test
+  public void testGenerateReports_reusesUnchangedPage() throws IOException {
+    Configuration configuration = DashboardMain.configureFreemarker();
+    Map<Artifact, ArtifactInfo> map = new LinkedHashMap<>();
+    map.put(artifact, info);
+    ArtifactCache cache = new ArtifactCache();
+    cache.setInfoMap(map);
+
+    List<ArtifactResults> firstRun =
+        DashboardMain.generateReports(configuration, outputDirectory, cache);
+    Path page = outputDirectory.resolve(PageCache.pageFileName(artifact));
+    Assert.assertTrue(Files.isRegularFile(page));
+    FileTime marker = FileTime.fromMillis(0);
+    Files.setLastModifiedTime(page, marker);
+
+    List<ArtifactResults> secondRun =
+        DashboardMain.generateReports(configuration, outputDirectory, cache);
+    Assert.assertEquals("Unchanged page should not be rewritten",
+        marker, Files.getLastModifiedTime(page));
+    Assert.assertEquals(firstRun.get(0).getResults(), secondRun.get(0).getResults());
+  }
+}
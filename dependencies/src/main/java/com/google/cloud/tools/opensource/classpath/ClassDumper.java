@@ -18,14 +18,15 @@ package com.google.cloud.tools.opensource.classpath;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import com.google.cloud.tools.opensource.dependencies.Metrics;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.ImmutableSetMultimap;
-import com.google.common.collect.SetMultimap;
+import com.google.common.hash.BloomFilter;
 import com.google.common.reflect.ClassPath.ClassInfo;
-import java.io.File;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
@@ -33,11 +34,14 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.CodeSource;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.bcel.Const;
 import org.apache.bcel.classfile.Attribute;
 import org.apache.bcel.classfile.ClassFormatException;
+import org.apache.bcel.classfile.ClassParser;
 import org.apache.bcel.classfile.Constant;
 import org.apache.bcel.classfile.ConstantCP;
 import org.apache.bcel.classfile.ConstantClass;
@@ -51,29 +55,55 @@ import org.apache.bcel.classfile.InnerClasses;
 import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.generic.Type;
 import org.apache.bcel.util.ClassPath;
-import org.apache.bcel.util.SyntheticRepository;
+import org.apache.bcel.util.MemorySensitiveClassPathRepository;
+import org.apache.bcel.util.Repository;
 
 /**
  * Class to read symbol references in Java class files and to verify the availability of references
  * in them, through the input class path for a static linkage check.
+ *
+ * <p>Each dumper reads the jar files through its own BCEL repository and class loader, so that a
+ * dumper created after a jar file is rebuilt in place reads the new classes. Close the dumper to
+ * close the jar files opened by its class loader.
+ *
+ * <p>Creating a dumper does not read the jar files. A class is looked up only in the jar files
+ * whose Bloom filter of class file names, read from the central directory of the file, may contain
+ * it, and a jar file is scanned only when its classes or symbol references are asked for.
  */
-class ClassDumper {
+class ClassDumper implements Closeable {
+
+  private static final Metrics.Counter skippedLookupCounter =
+      Metrics.counter("classpath.skippedLookups");
+  // Separate from the classpath.scan timer of JarScanCache, whose scans also hash the jar files
+  // and do not go through this method
+  private static final Metrics.Timer bcelScanTimer = Metrics.timer("classpath.scan.bcel");
 
   private final ImmutableList<Path> inputClasspath;
-  private final SyntheticRepository syntheticRepository;
-  private final ClassLoader classLoader;
-  private final ImmutableSetMultimap<Path, String> jarFileToClasses;
+  private final Repository classRepository = new JarFilesRepository();
+  private final URLClassLoader classLoader;
+  private final JarScanCache jarScanCache;
+  // Classes defined in the jar files, kept as they were when first asked for
+  private final Map<Path, ImmutableSet<String>> jarFileToClasses = new ConcurrentHashMap<>();
 
   ImmutableList<Path> getInputClasspath() {
     return inputClasspath;
   }
 
   static ClassDumper create(List<Path> jarFilePaths) throws IOException {
-    // Creates classpath in the same order as inputClasspath for BCEL API
-    String pathAsString =
-        jarFilePaths.stream().map(Path::toString).collect(Collectors.joining(File.pathSeparator));
-    ClassPath classPath = new ClassPath(pathAsString);
-    SyntheticRepository syntheticRepository = SyntheticRepository.getInstance(classPath);
+    return create(jarFilePaths, new JarScanCache());
+  }
+
+  /**
+   * Creates a dumper for the jar files, taking the classes defined in each jar file from {@code
+   * jarScanCache}.
+   */
+  static ClassDumper create(List<Path> jarFilePaths, JarScanCache jarScanCache)
+      throws IOException {
+    for (Path jarFilePath : jarFilePaths) {
+      if (!jarFilePath.isAbsolute() || !Files.exists(jarFilePath)) {
+        throw new IOException("Not an absolute path to a jar file: " + jarFilePath);
+      }
+    }
 
     URL[] jarFileUrls = jarFilePaths.stream().map(jarPath -> {
       try {
@@ -86,22 +116,97 @@ class ClassDumper {
     URLClassLoader classLoaderFromJars =
         new URLClassLoader(jarFileUrls, ClassLoader.getSystemClassLoader());
 
-    return new ClassDumper(
-        jarFilePaths,
-        syntheticRepository,
-        classLoaderFromJars,
-        jarFilesToDefinedClasses(jarFilePaths));
+    return new ClassDumper(jarFilePaths, classLoaderFromJars, jarScanCache);
+  }
+
+  /**
+   * Returns a new BCEL repository for the class path. Unlike {@link
+   * org.apache.bcel.util.SyntheticRepository#getInstance(ClassPath)}, the repository is not kept
+   * for the lifetime of the JVM, where it would keep returning the classes of a jar file read
+   * before the file was rebuilt.
+   */
+  private static Repository repository(ClassPath classPath) {
+    return new MemorySensitiveClassPathRepository(classPath);
   }
 
   private ClassDumper(
-      List<Path> inputClasspath,
-      SyntheticRepository syntheticRepository,
-      ClassLoader classLoader,
-      SetMultimap<Path, String> jarFileToClasses) {
+      List<Path> inputClasspath, URLClassLoader classLoader, JarScanCache jarScanCache) {
     this.inputClasspath = ImmutableList.copyOf(inputClasspath);
-    this.syntheticRepository = syntheticRepository;
     this.classLoader = classLoader;
-    this.jarFileToClasses = ImmutableSetMultimap.copyOf(jarFileToClasses);
+    this.jarScanCache = jarScanCache;
+  }
+
+  /**
+   * Returns false if the jar file has no class file for the class, as told by the Bloom filter of
+   * its class files. True may be a false positive.
+   *
+   * @param internalName internal name of the class, such as {@code com/google/common/base/Joiner}
+   */
+  private boolean mayBeInJarFile(Path jarPath, String internalName) {
+    BloomFilter<CharSequence> filter;
+    try {
+      filter = jarScanCache.getClassNameFilter(jarPath);
+    } catch (IOException ex) {
+      // Let the lookup in the file tell
+      return true;
+    }
+    if (filter == null || filter.mightContain(internalName)) {
+      return true;
+    }
+    skippedLookupCounter.increment();
+    return false;
+  }
+
+  /**
+   * BCEL repository that looks for a class in the class loader of BCEL first, like {@link
+   * ClassPath}, and then in the jar files of the input class path in order, skipping the jar files
+   * that cannot have the class file.
+   */
+  private final class JarFilesRepository extends MemorySensitiveClassPathRepository {
+
+    // Class paths of single jar files, opened on first lookup
+    private final Map<Path, ClassPath> jarClassPaths = new HashMap<>();
+
+    private JarFilesRepository() {
+      super(new ClassPath(""));
+    }
+
+    @Override
+    public JavaClass loadClass(String className) throws ClassNotFoundException {
+      String binaryName = className.replace('/', '.');
+      JavaClass loaded = findClass(binaryName);
+      if (loaded != null) {
+        return loaded;
+      }
+      String internalName = binaryName.replace('.', '/');
+      if (ClassPath.class.getClassLoader().getResource(internalName + ".class") != null) {
+        return super.loadClass(binaryName);
+      }
+      for (Path jarPath : inputClasspath) {
+        if (!mayBeInJarFile(jarPath, internalName)) {
+          continue;
+        }
+        ClassPath classPath =
+            jarClassPaths.computeIfAbsent(jarPath, path -> new ClassPath(path.toString()));
+        ClassPath.ClassFile classFile;
+        try {
+          classFile = classPath.getClassFile(internalName, ".class");
+        } catch (IOException ex) {
+          // Not in this jar file
+          continue;
+        }
+        try (InputStream inputStream = classFile.getInputStream()) {
+          JavaClass javaClass = new ClassParser(inputStream, binaryName).parse();
+          storeClass(javaClass);
+          return javaClass;
+        } catch (IOException ex) {
+          throw new ClassNotFoundException(
+              "Exception while looking for class " + binaryName + ": " + ex, ex);
+        }
+      }
+      throw new ClassNotFoundException(
+          "Class " + binaryName + " not found in the input class path");
+    }
   }
 
   /**
@@ -111,23 +216,60 @@ class ClassDumper {
    *     API</a>
    */
   JavaClass loadJavaClass(String className) throws ClassNotFoundException {
-    return syntheticRepository.loadClass(className);
+    return classRepository.loadClass(className);
   }
 
   /**
    * Returns {@link Class} for {@code className} in the input class path using a Java class loader.
    */
   Class<?> loadClass(String className) throws ClassNotFoundException {
+    String internalName = className.replace('.', '/');
+    boolean mayBeInInputClasspath = false;
+    for (Path jarPath : inputClasspath) {
+      if (mayBeInJarFile(jarPath, internalName)) {
+        mayBeInInputClasspath = true;
+        break;
+      }
+    }
+    if (!mayBeInInputClasspath) {
+      // The class loader of the jar files delegates to its parent first
+      return classLoader.getParent().loadClass(className);
+    }
     return classLoader.loadClass(className);
   }
 
+  /** Closes the jar files opened by the class loader of this dumper. */
+  @Override
+  public void close() throws IOException {
+    classLoader.close();
+  }
+
   /**
-   * Returns class names defined in the jar file.
+   * Returns class names defined in the jar file. The jar file is scanned on first use, and this
+   * dumper keeps returning the classes of that scan even if the file is modified later.
    *
    * @param jarPath absolute path to the jar file
    */
-  ImmutableSet<String> classesDefinedInJar(Path jarPath) {
-    return jarFileToClasses.get(jarPath);
+  ImmutableSet<String> classesDefinedInJar(Path jarPath) throws IOException {
+    ImmutableSet<String> classes = jarFileToClasses.get(jarPath);
+    if (classes == null) {
+      classes = jarScanCache.getDefinedClasses(jarPath);
+      ImmutableSet<String> previous = jarFileToClasses.putIfAbsent(jarPath, classes);
+      if (previous != null) {
+        classes = previous;
+      }
+    }
+    return classes;
+  }
+
+  /**
+   * Returns the symbol references in the jar file of the input class path. The jar file is scanned
+   * only if the cache of this dumper does not have the result yet.
+   *
+   * @param jarPath absolute path to the jar file
+   */
+  SymbolReferenceSet symbolReferencesInJar(Path jarPath) throws IOException {
+    return jarScanCache.getSymbolReferences(jarPath);
   }
 
   /**
@@ -141,14 +283,16 @@ class ClassDumper {
     checkArgument(jarFilePath.isAbsolute(), "The input jar file path is not an absolute path");
     checkArgument(Files.isReadable(jarFilePath), "The input jar file path is not readable");
 
-    SymbolReferenceSet.Builder symbolTableBuilder = SymbolReferenceSet.builder();
-    for (JavaClass javaClass : topLevelJavaClassesInJar(jarFilePath)) {
-      symbolTableBuilder.addAll(scanSymbolReferencesInClass(javaClass));
+    try (Metrics.Timing timing = bcelScanTimer.start()) {
+      SymbolReferenceSet.Builder symbolTableBuilder = SymbolReferenceSet.builder();
+      for (JavaClass javaClass : topLevelJavaClassesInJar(jarFilePath)) {
+        symbolTableBuilder.addAll(scanSymbolReferencesInClass(javaClass));
+      }
+      return symbolTableBuilder.build();
     }
-    return symbolTableBuilder.build();
   }
 
-  private static SymbolReferenceSet scanSymbolReferencesInClass(JavaClass javaClass) {
+  static SymbolReferenceSet scanSymbolReferencesInClass(JavaClass javaClass) {
     SymbolReferenceSet.Builder symbolTableBuilder = SymbolReferenceSet.builder();
     ImmutableSet.Builder<ClassSymbolReference> classReferences =
         symbolTableBuilder.classReferencesBuilder();
@@ -349,27 +493,7 @@ class ClassDumper {
     }
   }
 
-  /**
-   * @param jarFilePaths absolute paths to jar files
-   * @return map of jar file paths to classes defined in them
-   */
-  private static ImmutableSetMultimap<Path, String> jarFilesToDefinedClasses(
-      List<Path> jarFilePaths) throws IOException {
-    ImmutableSetMultimap.Builder<Path, String> pathToClasses = ImmutableSetMultimap.builder();
-
-    for (Path jarFilePath : jarFilePaths) {
-      for (JavaClass javaClass : topLevelJavaClassesInJar(jarFilePath)) {
-        pathToClasses.put(jarFilePath, javaClass.getClassName());
-        // This does not take double-nested classes. As long as such classes are accessed
-        // only from the outer class, static linkage checker does not report false positives
-        // TODO(suztomo): enhance this so that it can work with double-nested classes
-        pathToClasses.putAll(jarFilePath, listInnerClassNames(javaClass));
-      }
-    }
-    return pathToClasses.build();
-  }
-
-  private static ImmutableSet<ClassInfo> listTopLevelClassesFromJar(URL jarFileUrl)
+  static ImmutableSet<ClassInfo> listTopLevelClassesFromJar(URL jarFileUrl)
       throws IOException {
     URL[] jarFileUrls = new URL[] {jarFileUrl};
 
@@ -385,25 +509,38 @@ class ClassDumper {
     return allClassesInJar;
   }
 
-  private static ImmutableSet<JavaClass> topLevelJavaClassesInJar(Path jarFilePath)
+  static ImmutableSet<JavaClass> topLevelJavaClassesInJar(Path jarFilePath)
       throws IOException {
-    String pathToJar = jarFilePath.toString();
-    SyntheticRepository repository = SyntheticRepository.getInstance(new ClassPath(pathToJar));
+    Repository repository = jarRepository(jarFilePath);
     ImmutableSet.Builder<JavaClass> javaClasses = ImmutableSet.builder();
     URL jarFileUrl = jarFilePath.toUri().toURL();
     for (ClassInfo classInfo : listTopLevelClassesFromJar(jarFileUrl)) {
-      String className = classInfo.getName();
-      try {
-        JavaClass javaClass = repository.loadClass(className);
-        javaClasses.add(javaClass);
-      } catch (ClassNotFoundException ex) {
-        // We couldn't load the class from the jar file where we found it.
-        throw new IOException("Corrupt jar file " + jarFilePath + "; could not load " + className);
-      }
+      javaClasses.add(loadTopLevelClass(repository, jarFilePath, classInfo.getName()));
     }
     return javaClasses.build();
   }
 
+  /** Returns a new BCEL repository of the classes in the jar file. */
+  static Repository jarRepository(Path jarFilePath) {
+    return repository(new ClassPath(jarFilePath.toString()));
+  }
+
+  /**
+   * Loads the class listed by {@link #listTopLevelClassesFromJar(URL)} from the repository of the
+   * jar file.
+   *
+   * @throws IOException when the class cannot be loaded from the jar file where it was found
+   */
+  static JavaClass loadTopLevelClass(
+      Repository repository, Path jarFilePath, String className) throws IOException {
+    try {
+      return repository.loadClass(className);
+    } catch (ClassNotFoundException ex) {
+      // We couldn't load the class from the jar file where we found it.
+      throw new IOException("Corrupt jar file " + jarFilePath + "; could not load " + className);
+    }
+  }
+
   /** Returns true if two class names (binary name JLS 13.1) have the same package. */
   static boolean classesInSamePackage(String classNameA, String classNameB) {
     // Because package name cannot have '.' at the beginning, we can use lastDotIndex=0 (that will
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.classpath;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.cloud.tools.opensource.dependencies.DependencyPath;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+/**
+ * Checks successive class paths for linkage errors, such as the class paths of a BOM before and
+ * after a version bump, reusing the results of the previous check.
+ *
+ * <p>Each check scans only the jar files not scanned by an earlier check or modified since. It
+ * checks all references in the jar files added to the class path or modified. In the other jar
+ * files, it checks only the references to classes defined in the jar files added, removed or
+ * modified, to classes that extend or implement such classes, and to methods with such classes in
+ * their parameter types; the other references have the same result as in the previous check.
+ * When the order of the unchanged jar files differs, a class may be found in another jar file, so
+ * all references are checked.
+ *
+ * <p>The checker is not thread-safe.
+ */
+public final class IncrementalLinkageChecker {
+
+  private final JarScanCache jarScanCache;
+
+  @Nullable private StaticLinkageChecker previousChecker;
+  @Nullable private StaticLinkageCheckReport previousReport;
+
+  private IncrementalLinkageChecker(JarScanCache jarScanCache) {
+    this.jarScanCache = Preconditions.checkNotNull(jarScanCache);
+  }
+
+  /** Returns a checker that keeps the scans of jar files in {@code jarScanCache}. */
+  public static IncrementalLinkageChecker create(JarScanCache jarScanCache) {
+    return new IncrementalLinkageChecker(jarScanCache);
+  }
+
+  /** Checks the jar files for linkage errors. */
+  public Result check(List<Path> jarFilePaths) throws IOException {
+    return check(jarFilePaths, ArrayListMultimap.create());
+  }
+
+  /**
+   * Checks the jar files in the keys of {@code paths} for linkage errors, reporting the dependency
+   * paths to each jar file.
+   */
+  public Result check(LinkedListMultimap<Path, DependencyPath> paths) throws IOException {
+    return check(new ArrayList<>(paths.keySet()), paths);
+  }
+
+  private Result check(List<Path> jarFilePaths, ListMultimap<Path, DependencyPath> paths)
+      throws IOException {
+    Preconditions.checkArgument(
+        !jarFilePaths.isEmpty(),
+        "The linkage classpath is empty. Specify input to supply one or more jar files");
+
+    Set<Path> modifiedJars = new HashSet<>();
+    for (Path jarPath : jarFilePaths) {
+      if (jarScanCache.evictModified(ImmutableList.of(jarPath))) {
+        modifiedJars.add(jarPath);
+      }
+    }
+    ClassDumper classDumper = ClassDumper.create(jarFilePaths, jarScanCache);
+    StaticLinkageChecker checker =
+        new StaticLinkageChecker(false, classDumper, ImmutableSet.of(), paths);
+    StaticLinkageCheckReport report;
+    if (previousChecker == null) {
+      report = checker.findLinkageErrors();
+    } else {
+      ClassDumper previousClassDumper = previousChecker.getClassDumper();
+      List<Path> previousJarFilePaths = previousClassDumper.getInputClasspath();
+      Set<Path> previousJars = new HashSet<>(previousJarFilePaths);
+      Set<Path> jars = new HashSet<>(jarFilePaths);
+
+      Set<Path> changedJars = new HashSet<>(modifiedJars);
+      Set<String> changedClasses = new HashSet<>();
+      for (Path jarPath : previousJarFilePaths) {
+        if (!jars.contains(jarPath) || modifiedJars.contains(jarPath)) {
+          changedClasses.addAll(previousClassDumper.classesDefinedInJar(jarPath));
+        }
+      }
+      for (Path jarPath : jarFilePaths) {
+        if (!previousJars.contains(jarPath) || modifiedJars.contains(jarPath)) {
+          changedJars.add(jarPath);
+          changedClasses.addAll(classDumper.classesDefinedInJar(jarPath));
+        }
+      }
+
+      Predicate<Path> unchanged =
+          jarPath ->
+              jars.contains(jarPath)
+                  && previousJars.contains(jarPath)
+                  && !modifiedJars.contains(jarPath);
+      if (previousJarFilePaths.stream().filter(unchanged).collect(toImmutableList())
+          .equals(jarFilePaths.stream().filter(unchanged).collect(toImmutableList()))) {
+        Map<Path, JarLinkageReport> previousReports = new HashMap<>();
+        for (JarLinkageReport jarLinkageReport : previousReport.getJarLinkageReports()) {
+          previousReports.put(jarLinkageReport.getJarPath(), jarLinkageReport);
+        }
+        report = checker.findLinkageErrors(previousReports, changedJars, changedClasses);
+      } else {
+        report = checker.findLinkageErrors();
+      }
+    }
+
+    Result result = new Result(report, previousReport);
+    if (previousChecker != null) {
+      previousChecker.close();
+    }
+    previousChecker = checker;
+    previousReport = report;
+    return result;
+  }
+
+  /** The report of a check and its differences from the report of the previous check. */
+  public static final class Result {
+    private final StaticLinkageCheckReport report;
+    private final StaticLinkageCheckReport introducedErrors;
+    private final StaticLinkageCheckReport fixedErrors;
+
+    private Result(StaticLinkageCheckReport report,
+        @Nullable StaticLinkageCheckReport previousReport) {
+      this.report = report;
+      if (previousReport == null) {
+        introducedErrors = report;
+        fixedErrors = StaticLinkageCheckReport.create(ImmutableList.of());
+      } else {
+        Set<List<Object>> errors = errorKeys(report);
+        Set<List<Object>> previousErrors = errorKeys(previousReport);
+        introducedErrors = filter(report, error -> !previousErrors.contains(errorKey(error)));
+        fixedErrors = filter(previousReport, error -> !errors.contains(errorKey(error)));
+      }
+    }
+
+    /** Returns the report of the linkage errors in the class path. */
+    public StaticLinkageCheckReport getReport() {
+      return report;
+    }
+
+    /**
+     * Returns the report of the linkage errors not found by the previous check, or of all errors
+     * for the first check.
+     */
+    public StaticLinkageCheckReport getIntroducedErrors() {
+      return introducedErrors;
+    }
+
+    /** Returns the report of the linkage errors of the previous check not found any more. */
+    public StaticLinkageCheckReport getFixedErrors() {
+      return fixedErrors;
+    }
+
+    /**
+     * Returns the reference and the reason of the error. Errors are compared without the location
+     * of the target class, which differs when the jar file defining the class changes.
+     */
+    private static List<Object> errorKey(StaticLinkageError<?> error) {
+      return ImmutableList.of(error.getReference(), error.getReason());
+    }
+
+    private static Set<List<Object>> errorKeys(StaticLinkageCheckReport report) {
+      Set<List<Object>> keys = new HashSet<>();
+      for (JarLinkageReport jarLinkageReport : report.getJarLinkageReports()) {
+        jarLinkageReport.getMissingClassErrors().forEach(error -> keys.add(errorKey(error)));
+        jarLinkageReport.getMissingMethodErrors().forEach(error -> keys.add(errorKey(error)));
+        jarLinkageReport.getMissingFieldErrors().forEach(error -> keys.add(errorKey(error)));
+      }
+      return keys;
+    }
+
+    private static StaticLinkageCheckReport filter(
+        StaticLinkageCheckReport report, Predicate<StaticLinkageError<?>> predicate) {
+      ImmutableList.Builder<JarLinkageReport> jarLinkageReports = ImmutableList.builder();
+      for (JarLinkageReport jarLinkageReport : report.getJarLinkageReports()) {
+        jarLinkageReports.add(
+            JarLinkageReport.builder()
+                .setJarPath(jarLinkageReport.getJarPath())
+                .setDependencyPaths(jarLinkageReport.getDependencyPaths())
+                .setMissingClassErrors(
+                    jarLinkageReport.getMissingClassErrors().stream()
+                        .filter(predicate)
+                        .collect(toImmutableList()))
+                .setMissingMethodErrors(
+                    jarLinkageReport.getMissingMethodErrors().stream()
+                        .filter(predicate)
+                        .collect(toImmutableList()))
+                .setMissingFieldErrors(
+                    jarLinkageReport.getMissingFieldErrors().stream()
+                        .filter(predicate)
+                        .collect(toImmutableList()))
+                .build());
+      }
+      return StaticLinkageCheckReport.create(jarLinkageReports.build());
+    }
+  }
+}
@@ -19,6 +19,7 @@ package com.google.cloud.tools.opensource.classpath;
 import com.google.auto.value.AutoValue;
 import com.google.cloud.tools.opensource.dependencies.DependencyPath;
 import com.google.common.collect.ImmutableList;
+import java.io.IOException;
 import java.nio.file.Path;
 
 /**
@@ -65,28 +66,38 @@ public abstract class JarLinkageReport {
   
   @Override
   public String toString() {
-    String indent = "  ";
     StringBuilder builder = new StringBuilder();
+    try {
+      appendTo(builder);
+    } catch (IOException ex) {
+      // StringBuilder does not throw IOException
+      throw new AssertionError(ex);
+    }
+    return builder.toString();
+  }
+
+  /** Appends the text format of this report to {@code appendable}. */
+  void appendTo(Appendable appendable) throws IOException {
+    String indent = "  ";
     int totalErrors = getTotalErrorCount();
 
-    builder.append(getJarPath().getFileName() + " (" + totalErrors + " errors):\n");
+    appendable.append(getJarPath().getFileName() + " (" + totalErrors + " errors):\n");
     for (DependencyPath path : getDependencyPaths()) {
-      builder.append(indent + "Linked from: " + path);
-      builder.append("\n");
+      appendable.append(indent + "Linked from: " + path);
+      appendable.append("\n");
     }
     for (StaticLinkageError<ClassSymbolReference> missingClass : getMissingClassErrors()) {
-      builder.append(indent + missingClass);
-      builder.append("\n");
+      appendable.append(indent + missingClass);
+      appendable.append("\n");
     }
     for (StaticLinkageError<MethodSymbolReference> missingMethod : getMissingMethodErrors()) {
-      builder.append(indent + missingMethod);
-      builder.append("\n");
+      appendable.append(indent + missingMethod);
+      appendable.append("\n");
     }
     for (StaticLinkageError<FieldSymbolReference> missingField : getMissingFieldErrors()) {
-      builder.append(indent + missingField);
-      builder.append("\n");
+      appendable.append(indent + missingField);
+      appendable.append("\n");
     }
-    return builder.toString();
   }
 
   int getTotalErrorCount() {
@@ -0,0 +1,570 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.classpath;
+
+import com.google.cloud.tools.opensource.dependencies.Metrics;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.Funnels;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.google.common.reflect.ClassPath.ClassInfo;
+import com.google.common.util.concurrent.Futures;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.ZipException;
+import javax.annotation.Nullable;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.util.Repository;
+
+/**
+ * Results of scanning jar files for the classes they define and the symbol references they
+ * contain. A cache shared by {@link StaticLinkageChecker}s of overlapping class paths scans each
+ * jar file only once.
+ *
+ * <p>The cache is thread-safe. Different jar files are scanned in parallel by the threads asking
+ * for them, while a thread asking for a jar file being scanned by another thread waits for that
+ * scan.
+ *
+ * <p>Byte-identical jar files, such as relocated or republished artifacts, are scanned once, and
+ * a class file with the same name, CRC-32 and size as one scanned in another jar file, such as a
+ * class unchanged between two versions of a library, is not parsed again. The jar files share the
+ * symbol references of such classes instead of holding equal copies.
+ *
+ * <p>The cache also keeps a Bloom filter of the class files of each jar file, read from the central
+ * directory of the file without scanning it, with which {@link ClassDumper} rules out the jar
+ * files that cannot define a class without looking into them.
+ *
+ * <p>Processes checking parts of the same class path share the scans through an index file
+ * written by {@link #writeIndex(Path, Iterable)}.
+ */
+public final class JarScanCache {
+
+  private static final Metrics.Timer scanTimer = Metrics.timer("classpath.scan");
+  private static final Metrics.Counter scannedClassCounter =
+      Metrics.counter("classpath.scannedClasses");
+  private static final Metrics.Counter identicalJarCounter =
+      Metrics.counter("classpath.identicalJars");
+  private static final Metrics.Counter sharedClassCounter =
+      Metrics.counter("classpath.sharedClasses");
+
+  private static final int INDEX_MAGIC = 0x4a534349; // "JSCI"
+  private static final int INDEX_VERSION = 2;
+
+  private static final Funnel<CharSequence> CLASS_NAME_FUNNEL =
+      Funnels.stringFunnel(StandardCharsets.UTF_8);
+  private static final double CLASS_NAME_FILTER_FALSE_POSITIVES = 0.01;
+
+  private static final int MAX_CONTENT_SCANS = 10_000;
+  private static final int MAX_CLASS_SCANS = 100_000;
+
+  // Guarded by this
+  private final Map<Path, FutureTask<Scan>> scans = new HashMap<>();
+
+  // Guarded by this
+  private final Map<Path, ClassNameFilter> classNameFilters = new HashMap<>();
+
+  // Scans by the SHA-256 of the jar files, shared by byte-identical jar files under different
+  // coordinates, such as relocated or republished artifacts. Bounded so that a long-running
+  // process seeing many versions of the jar files does not keep the scans of all of them.
+  private final Cache<HashCode, Scan> scansByContent =
+      CacheBuilder.newBuilder().maximumSize(MAX_CONTENT_SCANS).build();
+
+  // Scans of top-level class files, shared by the jar files that have the same class file
+  private final Cache<ClassEntryKey, ClassScan> classScans =
+      CacheBuilder.newBuilder().maximumSize(MAX_CLASS_SCANS).build();
+
+  /**
+   * Returns the names of the classes defined in the jar file, including inner classes.
+   *
+   * @param jarPath absolute path to a jar file
+   */
+  ImmutableSet<String> getDefinedClasses(Path jarPath) throws IOException {
+    return getScan(jarPath).definedClasses;
+  }
+
+  /**
+   * Returns the symbol references in the class files of the jar file.
+   *
+   * @param jarPath absolute path to a jar file
+   */
+  SymbolReferenceSet getSymbolReferences(Path jarPath) throws IOException {
+    return getScan(jarPath).symbolReferences;
+  }
+
+  /**
+   * Returns a Bloom filter of the internal names, such as {@code com/google/common/base/Joiner},
+   * of all class files in the jar file, or null if the class files of the file are unknown, such
+   * as for a directory. A class the filter does not contain cannot be loaded from the jar file.
+   * The filter is built from the entry names in the central directory of the file, without
+   * scanning its class files.
+   *
+   * @param jarPath absolute path to a jar file
+   */
+  @Nullable
+  BloomFilter<CharSequence> getClassNameFilter(Path jarPath) throws IOException {
+    ClassNameFilter classNameFilter;
+    synchronized (this) {
+      classNameFilter = classNameFilters.get(jarPath);
+    }
+    if (classNameFilter == null) {
+      FileTime readTime = lastModifiedTime(jarPath);
+      BloomFilter<CharSequence> filter = null;
+      if (Files.isRegularFile(jarPath)) {
+        try (JarFile jarFile = openJarFile(jarPath)) {
+          filter = classNameFilter(jarFile);
+        }
+      }
+      classNameFilter = new ClassNameFilter(filter, readTime);
+      synchronized (this) {
+        classNameFilters.putIfAbsent(jarPath, classNameFilter);
+      }
+    }
+    return classNameFilter.filter;
+  }
+
+  /** Returns the number of jar files scanned so far, including those being scanned. */
+  public synchronized int size() {
+    return scans.size();
+  }
+
+  /**
+   * Removes the scan results of the jar files that were modified or deleted after they were
+   * scanned, so that they are scanned again on next use. A long-running process sharing this
+   * cache across checks calls this before each check.
+   *
+   * @param jarPaths absolute paths to jar files
+   * @return true if any scan result was removed
+   */
+  synchronized boolean evictModified(Iterable<Path> jarPaths) {
+    boolean evicted = false;
+    for (Path jarPath : jarPaths) {
+      ClassNameFilter classNameFilter = classNameFilters.get(jarPath);
+      if (classNameFilter != null
+          && (classNameFilter.readTime == null
+              || !classNameFilter.readTime.equals(lastModifiedTime(jarPath)))) {
+        classNameFilters.remove(jarPath);
+        evicted = true;
+      }
+      FutureTask<Scan> task = scans.get(jarPath);
+      if (task == null || !task.isDone()) {
+        continue;
+      }
+      Scan scan = Futures.getUnchecked(task);
+      if (scan.scanTime == null || !scan.scanTime.equals(lastModifiedTime(jarPath))) {
+        scans.remove(jarPath);
+        if (scan.contentHash != null) {
+          // Other jar files of the old content, if any, keep their own scans
+          scansByContent.invalidate(scan.contentHash);
+        }
+        evicted = true;
+      }
+    }
+    return evicted;
+  }
+
+  /**
+   * Writes the scans of the jar files to {@code file}, scanning the jar files not scanned yet, so
+   * that other processes can read them with {@link #readIndex(Path)} instead of scanning the jar
+   * files again. The file is replaced atomically; processes writing the same index at the same
+   * time do not corrupt it.
+   *
+   * @param jarPaths absolute paths to jar files
+   */
+  public void writeIndex(Path file, Iterable<Path> jarPaths) throws IOException {
+    Map<Path, Scan> jarScans = new LinkedHashMap<>();
+    Map<Path, BloomFilter<CharSequence>> filters = new HashMap<>();
+    // Each string is written once and referred to by its index
+    Map<String, Integer> strings = new LinkedHashMap<>();
+    for (Path jarPath : jarPaths) {
+      Scan scan = getScan(jarPath);
+      jarScans.put(jarPath, scan);
+      filters.put(jarPath, getClassNameFilter(jarPath));
+      addStrings(strings, jarPath.toString());
+      scan.definedClasses.forEach(className -> addStrings(strings, className));
+      for (ClassSymbolReference reference : scan.symbolReferences.getClassReferences()) {
+        addStrings(strings, reference.getSourceClassName(), reference.getTargetClassName());
+      }
+      for (MethodSymbolReference reference : scan.symbolReferences.getMethodReferences()) {
+        addStrings(strings, reference.getSourceClassName(), reference.getTargetClassName(),
+            reference.getMethodName(), reference.getDescriptor());
+      }
+      for (FieldSymbolReference reference : scan.symbolReferences.getFieldReferences()) {
+        addStrings(strings, reference.getSourceClassName(), reference.getTargetClassName(),
+            reference.getFieldName());
+      }
+    }
+
+    Path temporaryFile =
+        Files.createTempFile(file.toAbsolutePath().getParent(), "jar-scan-index", ".tmp");
+    try (DataOutputStream output = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+      output.writeInt(INDEX_MAGIC);
+      output.writeInt(INDEX_VERSION);
+      output.writeInt(strings.size());
+      for (String string : strings.keySet()) {
+        output.writeUTF(string);
+      }
+      output.writeInt(jarScans.size());
+      for (Map.Entry<Path, Scan> entry : jarScans.entrySet()) {
+        Scan scan = entry.getValue();
+        output.writeInt(strings.get(entry.getKey().toString()));
+        output.writeLong(scan.scanTime == null ? -1 : scan.scanTime.to(TimeUnit.NANOSECONDS));
+        output.writeInt(scan.definedClasses.size());
+        for (String className : scan.definedClasses) {
+          output.writeInt(strings.get(className));
+        }
+        SymbolReferenceSet symbolReferences = scan.symbolReferences;
+        output.writeInt(symbolReferences.getClassReferences().size());
+        for (ClassSymbolReference reference : symbolReferences.getClassReferences()) {
+          writeStrings(output, strings, reference.getSourceClassName(),
+              reference.getTargetClassName());
+        }
+        output.writeInt(symbolReferences.getMethodReferences().size());
+        for (MethodSymbolReference reference : symbolReferences.getMethodReferences()) {
+          writeStrings(output, strings, reference.getSourceClassName(),
+              reference.getTargetClassName(), reference.getMethodName(),
+              reference.getDescriptor());
+        }
+        output.writeInt(symbolReferences.getFieldReferences().size());
+        for (FieldSymbolReference reference : symbolReferences.getFieldReferences()) {
+          writeStrings(output, strings, reference.getSourceClassName(),
+              reference.getTargetClassName(), reference.getFieldName());
+        }
+        BloomFilter<CharSequence> classNameFilter = filters.get(entry.getKey());
+        output.writeBoolean(classNameFilter != null);
+        if (classNameFilter != null) {
+          classNameFilter.writeTo(output);
+        }
+      }
+    } catch (IOException | RuntimeException ex) {
+      Files.deleteIfExists(temporaryFile);
+      throw ex;
+    }
+    Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static void addStrings(Map<String, Integer> strings, String... values) {
+    for (String value : values) {
+      strings.putIfAbsent(value, strings.size());
+    }
+  }
+
+  private static void writeStrings(DataOutputStream output, Map<String, Integer> strings,
+      String... values) throws IOException {
+    for (String value : values) {
+      output.writeInt(strings.get(value));
+    }
+  }
+
+  /**
+   * Returns a cache with the scans of jar files written by {@link #writeIndex(Path, Iterable)}.
+   * Call {@link #evictModified(Iterable)} to scan the jar files modified since the index was
+   * written again.
+   *
+   * @throws IOException if the file is not an index of jar file scans
+   */
+  public static JarScanCache readIndex(Path file) throws IOException {
+    JarScanCache cache = new JarScanCache();
+    try (DataInputStream input =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (input.readInt() != INDEX_MAGIC || input.readInt() != INDEX_VERSION) {
+        throw new IOException("Not a jar scan index: " + file);
+      }
+      String[] strings = new String[input.readInt()];
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = input.readUTF();
+      }
+      int jarCount = input.readInt();
+      for (int i = 0; i < jarCount; i++) {
+        Path jarPath = Paths.get(strings[input.readInt()]);
+        long scanTime = input.readLong();
+        ImmutableSet.Builder<String> definedClasses = ImmutableSet.builder();
+        for (int count = input.readInt(); count > 0; count--) {
+          definedClasses.add(strings[input.readInt()]);
+        }
+        SymbolReferenceSet.Builder symbolReferences = SymbolReferenceSet.builder();
+        for (int count = input.readInt(); count > 0; count--) {
+          symbolReferences.classReferencesBuilder().add(
+              ClassSymbolReference.builder()
+                  .setSourceClassName(strings[input.readInt()])
+                  .setTargetClassName(strings[input.readInt()])
+                  .build());
+        }
+        for (int count = input.readInt(); count > 0; count--) {
+          symbolReferences.methodReferencesBuilder().add(
+              MethodSymbolReference.builder()
+                  .setSourceClassName(strings[input.readInt()])
+                  .setTargetClassName(strings[input.readInt()])
+                  .setMethodName(strings[input.readInt()])
+                  .setDescriptor(strings[input.readInt()])
+                  .build());
+        }
+        for (int count = input.readInt(); count > 0; count--) {
+          symbolReferences.fieldReferencesBuilder().add(
+              FieldSymbolReference.builder()
+                  .setSourceClassName(strings[input.readInt()])
+                  .setTargetClassName(strings[input.readInt()])
+                  .setFieldName(strings[input.readInt()])
+                  .build());
+        }
+        BloomFilter<CharSequence> classNameFilter =
+            input.readBoolean() ? BloomFilter.readFrom(input, CLASS_NAME_FUNNEL) : null;
+        FileTime readTime = scanTime < 0 ? null : FileTime.from(scanTime, TimeUnit.NANOSECONDS);
+        // The index does not record the content hashes; the scans are not shared by content
+        Scan scan = new Scan(definedClasses.build(), symbolReferences.build(), null, readTime);
+        FutureTask<Scan> task = new FutureTask<>(() -> scan);
+        task.run();
+        cache.scans.put(jarPath, task);
+        cache.classNameFilters.put(jarPath, new ClassNameFilter(classNameFilter, readTime));
+      }
+    } catch (EOFException | ArrayIndexOutOfBoundsException ex) {
+      throw new IOException("Not a jar scan index: " + file, ex);
+    }
+    return cache;
+  }
+
+  private Scan getScan(Path jarPath) throws IOException {
+    FutureTask<Scan> task;
+    boolean owner = false;
+    synchronized (this) {
+      task = scans.get(jarPath);
+      if (task == null) {
+        task = new FutureTask<>(() -> scan(jarPath));
+        scans.put(jarPath, task);
+        owner = true;
+      }
+    }
+    if (owner) {
+      task.run();
+    }
+    try {
+      return task.get();
+    } catch (ExecutionException ex) {
+      synchronized (this) {
+        // A later call scans the jar file again, rather than failing with the same exception
+        scans.remove(jarPath, task);
+      }
+      Throwables.throwIfInstanceOf(ex.getCause(), IOException.class);
+      Throwables.throwIfUnchecked(ex.getCause());
+      throw new IOException("Could not scan " + jarPath, ex.getCause());
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for the scan of " + jarPath, ex);
+    }
+  }
+
+  @Nullable
+  private static FileTime lastModifiedTime(Path jarPath) {
+    try {
+      return Files.getLastModifiedTime(jarPath);
+    } catch (IOException ex) {
+      // The file was deleted
+      return null;
+    }
+  }
+
+  private Scan scan(Path jarPath) throws IOException {
+    try (Metrics.Timing timing = scanTimer.start()) {
+      FileTime scanTime = lastModifiedTime(jarPath);
+      boolean regularFile = Files.isRegularFile(jarPath);
+      HashCode contentHash = null;
+      if (regularFile) {
+        // Hashing the bytes costs far less than parsing the class files of a copy
+        contentHash = MoreFiles.asByteSource(jarPath).hash(Hashing.sha256());
+        Scan identical = scansByContent.getIfPresent(contentHash);
+        if (identical != null) {
+          identicalJarCounter.increment();
+          return new Scan(
+              identical.definedClasses, identical.symbolReferences, contentHash, scanTime);
+        }
+      }
+
+      ImmutableSet.Builder<String> classNames = ImmutableSet.builder();
+      SymbolReferenceSet.Builder symbolTableBuilder = SymbolReferenceSet.builder();
+      Repository repository = ClassDumper.jarRepository(jarPath);
+      try (JarFile jarFile = regularFile ? openJarFile(jarPath) : null) {
+        for (ClassInfo classInfo :
+            ClassDumper.listTopLevelClassesFromJar(jarPath.toUri().toURL())) {
+          ClassScan classScan = scanClass(repository, jarPath, jarFile, classInfo);
+          classNames.add(classInfo.getName());
+          classNames.addAll(classScan.innerClassNames);
+          symbolTableBuilder.addAll(classScan.symbolReferences);
+        }
+      }
+      Scan scan = new Scan(classNames.build(), symbolTableBuilder.build(), contentHash, scanTime);
+      if (contentHash != null) {
+        scansByContent.asMap().putIfAbsent(contentHash, scan);
+      }
+      return scan;
+    }
+  }
+
+  /** Returns the jar file, or null if the file is not a zip file and thus has no classes. */
+  @Nullable
+  private static JarFile openJarFile(Path jarPath) throws IOException {
+    try {
+      return new JarFile(jarPath.toFile());
+    } catch (ZipException ex) {
+      // Like the class loaders reading the file, treat it as a file without classes
+      return null;
+    }
+  }
+
+  private static BloomFilter<CharSequence> classNameFilter(@Nullable JarFile jarFile) {
+    List<String> internalNames = new ArrayList<>();
+    if (jarFile != null) {
+      for (JarEntry entry : Collections.list(jarFile.entries())) {
+        String name = entry.getName();
+        if (name.endsWith(".class")) {
+          internalNames.add(name.substring(0, name.length() - ".class".length()));
+        }
+      }
+    }
+    BloomFilter<CharSequence> filter =
+        BloomFilter.create(
+            CLASS_NAME_FUNNEL,
+            Math.max(internalNames.size(), 1),
+            CLASS_NAME_FILTER_FALSE_POSITIVES);
+    internalNames.forEach(filter::put);
+    return filter;
+  }
+
+  /**
+   * Returns the scan of the class, shared with the class files of the same name, CRC and size in
+   * other jar files, such as the classes unchanged between two versions of a library.
+   */
+  private ClassScan scanClass(Repository repository, Path jarPath,
+      @Nullable JarFile jarFile, ClassInfo classInfo) throws IOException {
+    JarEntry entry = jarFile == null ? null : jarFile.getJarEntry(classInfo.getResourceName());
+    ClassEntryKey key = null;
+    if (entry != null && entry.getCrc() >= 0 && entry.getSize() >= 0) {
+      key = new ClassEntryKey(entry.getName(), entry.getCrc(), entry.getSize());
+      ClassScan shared = classScans.getIfPresent(key);
+      if (shared != null) {
+        sharedClassCounter.increment();
+        return shared;
+      }
+    }
+
+    JavaClass javaClass =
+        ClassDumper.loadTopLevelClass(repository, jarPath, classInfo.getName());
+    // This does not take double-nested classes. As long as such classes are accessed
+    // only from the outer class, static linkage checker does not report false positives
+    // TODO(suztomo): enhance this so that it can work with double-nested classes
+    ClassScan classScan =
+        new ClassScan(
+            ClassDumper.listInnerClassNames(javaClass),
+            ClassDumper.scanSymbolReferencesInClass(javaClass));
+    scannedClassCounter.increment();
+    if (key != null) {
+      classScans.asMap().putIfAbsent(key, classScan);
+    }
+    return classScan;
+  }
+
+  private static final class Scan {
+    private final ImmutableSet<String> definedClasses;
+    private final SymbolReferenceSet symbolReferences;
+    @Nullable private final HashCode contentHash;
+    @Nullable private final FileTime scanTime;
+
+    private Scan(ImmutableSet<String> definedClasses, SymbolReferenceSet symbolReferences,
+        @Nullable HashCode contentHash, @Nullable FileTime scanTime) {
+      this.definedClasses = definedClasses;
+      this.symbolReferences = symbolReferences;
+      this.contentHash = contentHash;
+      this.scanTime = scanTime;
+    }
+  }
+
+  private static final class ClassNameFilter {
+    @Nullable private final BloomFilter<CharSequence> filter;
+    @Nullable private final FileTime readTime;
+
+    private ClassNameFilter(@Nullable BloomFilter<CharSequence> filter,
+        @Nullable FileTime readTime) {
+      this.filter = filter;
+      this.readTime = readTime;
+    }
+  }
+
+  private static final class ClassScan {
+    private final ImmutableSet<String> innerClassNames;
+    private final SymbolReferenceSet symbolReferences;
+
+    private ClassScan(ImmutableSet<String> innerClassNames, SymbolReferenceSet symbolReferences) {
+      this.innerClassNames = innerClassNames;
+      this.symbolReferences = symbolReferences;
+    }
+  }
+
+  /** The name, CRC-32 and size of a class file entry, from the central directory of a jar. */
+  private static final class ClassEntryKey {
+    private final String name;
+    private final long crc;
+    private final long size;
+
+    private ClassEntryKey(String name, long crc, long size) {
+      this.name = name;
+      this.crc = crc;
+      this.size = size;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof ClassEntryKey)) {
+        return false;
+      }
+      ClassEntryKey that = (ClassEntryKey) other;
+      return name.equals(that.name) && crc == that.crc && size == that.size;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(name, crc, size);
+    }
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.classpath;
+
+import com.google.cloud.tools.opensource.dependencies.DependencyGraph;
+import com.google.cloud.tools.opensource.dependencies.DependencyGraphBuilder;
+import com.google.cloud.tools.opensource.dependencies.DependencyPath;
+import com.google.cloud.tools.opensource.dependencies.Metrics;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.aether.AbstractRepositoryListener;
+import org.eclipse.aether.RepositoryEvent;
+import org.eclipse.aether.RepositoryException;
+import org.eclipse.aether.artifact.Artifact;
+
+/**
+ * Runs the static linkage check of Maven artifacts as a pipeline of resolution, scan and
+ * validation. A jar file is scanned as soon as the resolver has it in the local repository, while
+ * other artifacts are still being resolved and downloaded, and the jar files are scanned in
+ * parallel.
+ *
+ * <p>Validation starts once all jar files are scanned, because whether a reference is satisfied
+ * depends on the classes of the whole class path. The report of each jar file is written as soon
+ * as the jar file is validated.
+ *
+ * <p>The scans wait in a bounded queue. When the queue is full, the resolving thread scans the jar
+ * file itself, which slows the resolution down to the pace of the scans rather than holding an
+ * unbounded backlog of jar files.
+ */
+public final class LinkageCheckPipeline {
+
+  private static final Metrics.Timer resolveStageTimer = Metrics.timer("pipeline.resolve");
+  private static final Metrics.Timer scanStageTimer = Metrics.timer("pipeline.scanWait");
+  private static final Metrics.Timer validateStageTimer = Metrics.timer("pipeline.validate");
+
+  private final JarScanCache jarScanCache;
+  private final int scanThreads;
+  private final int queueCapacity;
+
+  private LinkageCheckPipeline(JarScanCache jarScanCache, int scanThreads, int queueCapacity) {
+    this.jarScanCache = Preconditions.checkNotNull(jarScanCache);
+    this.scanThreads = scanThreads;
+    this.queueCapacity = queueCapacity;
+  }
+
+  /**
+   * Returns a pipeline that scans jar files with one thread for each available processor and
+   * stores the scans in {@code jarScanCache}.
+   */
+  public static LinkageCheckPipeline create(JarScanCache jarScanCache) {
+    int processors = Runtime.getRuntime().availableProcessors();
+    return create(jarScanCache, processors, processors * 4);
+  }
+
+  /**
+   * Returns a pipeline that scans jar files with {@code scanThreads} threads and holds at most
+   * {@code queueCapacity} jar files waiting for a scan.
+   */
+  public static LinkageCheckPipeline create(
+      JarScanCache jarScanCache, int scanThreads, int queueCapacity) {
+    Preconditions.checkArgument(scanThreads > 0, "scanThreads must be positive");
+    Preconditions.checkArgument(queueCapacity > 0, "queueCapacity must be positive");
+    return new LinkageCheckPipeline(jarScanCache, scanThreads, queueCapacity);
+  }
+
+  /**
+   * Checks the class path of {@code artifacts} and their dependencies, writing the report to
+   * {@code writer}. The first jar file of the class path is the entry point for reachability.
+   *
+   * @throws RepositoryException when there is a problem in resolving the artifacts
+   * @throws IOException when there is a problem in reading a jar file or writing the report
+   */
+  public void check(List<Artifact> artifacts, boolean onlyReachable, LinkageReportWriter writer)
+      throws RepositoryException, IOException {
+    Preconditions.checkArgument(!artifacts.isEmpty(), "No artifacts to check");
+
+    ThreadPoolExecutor scanExecutor =
+        new ThreadPoolExecutor(
+            scanThreads,
+            scanThreads,
+            0,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("jar-scan-%d").build(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    Map<Path, Future<SymbolReferenceSet>> scans = new ConcurrentHashMap<>();
+    try {
+      LinkedListMultimap<Path, DependencyPath> paths;
+      try (Metrics.Timing timing = resolveStageTimer.start()) {
+        DependencyGraph dependencyGraph =
+            DependencyGraphBuilder.getStaticLinkageCheckDependencies(
+                artifacts, new ScanningListener(scanExecutor, scans));
+        paths = StaticLinkageChecker.dependencyGraphToPaths(dependencyGraph);
+      }
+      // The graph may come from the cache, without events for its artifacts
+      for (Path jarPath : paths.keySet()) {
+        submitScan(scanExecutor, scans, jarPath);
+      }
+
+      try (Metrics.Timing timing = scanStageTimer.start()) {
+        for (Path jarPath : paths.keySet()) {
+          awaitScan(jarPath, scans.get(jarPath));
+        }
+      }
+
+      try (Metrics.Timing timing = validateStageTimer.start()) {
+        ImmutableSet<Path> entryPoints =
+            ImmutableSet.of(Iterables.getFirst(paths.keySet(), null));
+        StaticLinkageChecker staticLinkageChecker =
+            StaticLinkageChecker.create(onlyReachable, paths, entryPoints, jarScanCache);
+        staticLinkageChecker.findLinkageErrors(writer);
+      }
+    } finally {
+      scanExecutor.shutdownNow();
+    }
+  }
+
+  private void submitScan(
+      ThreadPoolExecutor scanExecutor, Map<Path, Future<SymbolReferenceSet>> scans, Path jarPath) {
+    // computeIfAbsent would hold the map's lock while the caller runs a scan
+    if (!scans.containsKey(jarPath)) {
+      Future<SymbolReferenceSet> scan =
+          scanExecutor.submit(() -> jarScanCache.getSymbolReferences(jarPath));
+      scans.putIfAbsent(jarPath, scan);
+    }
+  }
+
+  private static void awaitScan(Path jarPath, Future<SymbolReferenceSet> scan)
+      throws IOException {
+    try {
+      scan.get();
+    } catch (ExecutionException ex) {
+      Throwables.throwIfInstanceOf(ex.getCause(), IOException.class);
+      Throwables.throwIfUnchecked(ex.getCause());
+      throw new IOException("Could not scan " + jarPath, ex.getCause());
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for the scan of " + jarPath, ex);
+    }
+  }
+
+  /** Submits the scan of each jar file as soon as the resolver has the file. */
+  private final class ScanningListener extends AbstractRepositoryListener {
+    private final ThreadPoolExecutor scanExecutor;
+    private final Map<Path, Future<SymbolReferenceSet>> scans;
+
+    private ScanningListener(
+        ThreadPoolExecutor scanExecutor, Map<Path, Future<SymbolReferenceSet>> scans) {
+      this.scanExecutor = scanExecutor;
+      this.scans = scans;
+    }
+
+    @Override
+    public void artifactResolved(RepositoryEvent event) {
+      Artifact artifact = event.getArtifact();
+      File file = artifact == null ? null : artifact.getFile();
+      if (file != null && file.getName().endsWith(".jar")) {
+        submitScan(scanExecutor, scans, file.toPath().toAbsolutePath());
+      }
+    }
+  }
+}
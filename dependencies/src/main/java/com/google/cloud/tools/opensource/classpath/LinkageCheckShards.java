@@ -0,0 +1,401 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.classpath;
+
+import com.google.cloud.tools.opensource.dependencies.DependencyPath;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.LinkedListMultimap;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.eclipse.aether.RepositoryException;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+
+/**
+ * Static linkage checks split across processes. Each process checks the jar files of one shard of
+ * the class path against the whole class path and writes a shard report file; {@link
+ * #merge(List)} combines the shard reports into one {@link StaticLinkageCheckReport}, in the
+ * order of the class path.
+ *
+ * <p>The processes share the scans of the jar files through an index file. One step writes the
+ * index with {@code --write-index} before the shards start, so that the shards do not each scan
+ * every jar file of the class path to find the classes they define.
+ *
+ * <pre>
+ * $ java StaticLinkageChecker -j a.jar,b.jar,c.jar --write-index scans.idx
+ * $ java StaticLinkageChecker -j a.jar,b.jar,c.jar -i scans.idx -s 0/2 --shard-output 0.shard
+ * $ java StaticLinkageChecker -j a.jar,b.jar,c.jar -i scans.idx -s 1/2 --shard-output 1.shard
+ * $ java LinkageCheckShards -o json 0.shard 1.shard
+ * </pre>
+ */
+public final class LinkageCheckShards {
+
+  private static final int MAGIC = 0x4c435352; // "LCSR"
+  private static final int VERSION = 1;
+
+  private static final Pattern SHARD_PATTERN = Pattern.compile("(\\d+)/(\\d+)");
+
+  private static final byte CLASS_ERROR = 0;
+  private static final byte METHOD_ERROR = 1;
+  private static final byte FIELD_ERROR = 2;
+
+  private LinkageCheckShards() {}
+
+  /**
+   * Returns the shard index and the shard count of {@code shard} in the form {@code i/n}.
+   *
+   * @throws ParseException if the shard is not in the form or {@code i} is not less than {@code n}
+   */
+  static int[] parseShard(String shard) throws ParseException {
+    Matcher matcher = SHARD_PATTERN.matcher(shard);
+    if (!matcher.matches()) {
+      throw new ParseException("Shard " + shard + " is not in the form index/count");
+    }
+    int index = Integer.parseInt(matcher.group(1));
+    int count = Integer.parseInt(matcher.group(2));
+    if (index >= count) {
+      throw new ParseException("Shard index " + index + " is not less than the count " + count);
+    }
+    return new int[] {index, count};
+  }
+
+  /**
+   * Scans the jar files of the class path in the command line and writes the index file of the
+   * {@code --write-index} option, for the processes of the shards to read with {@code --index}.
+   *
+   * @param artifacts the Maven artifacts of the input, or an empty list when the input is jar files
+   */
+  static void writeIndex(CommandLine commandLine, List<Artifact> artifacts)
+      throws IOException, RepositoryException, ParseException {
+    List<Path> classpath =
+        artifacts.isEmpty()
+            ? StaticLinkageCheckOption.generateInputClasspath(commandLine)
+            : StaticLinkageChecker.artifactsToClasspath(artifacts);
+    new JarScanCache().writeIndex(Paths.get(commandLine.getOptionValue("write-index")), classpath);
+  }
+
+  /**
+   * Checks the shard of the class path specified by the {@code --shard} option in the command line
+   * and writes the report to the file of the {@code --shard-output} option.
+   *
+   * @param artifacts the Maven artifacts of the input, or an empty list when the input is jar files
+   */
+  static void checkShard(CommandLine commandLine, List<Artifact> artifacts)
+      throws IOException, RepositoryException, ParseException {
+    int[] shard = parseShard(commandLine.getOptionValue("s"));
+    LinkedListMultimap<Path, DependencyPath> paths = LinkedListMultimap.create();
+    List<Path> classpath;
+    if (artifacts.isEmpty()) {
+      classpath = StaticLinkageCheckOption.generateInputClasspath(commandLine);
+    } else {
+      paths = StaticLinkageChecker.artifactsToPaths(artifacts);
+      classpath = new ArrayList<>(paths.keySet());
+    }
+
+    JarScanCache jarScanCache = new JarScanCache();
+    if (commandLine.hasOption("i")) {
+      jarScanCache = loadIndex(Paths.get(commandLine.getOptionValue("i")), classpath);
+    }
+    StaticLinkageCheckReport report;
+    try (StaticLinkageChecker checker =
+        new StaticLinkageChecker(
+            false,
+            ClassDumper.create(classpath, jarScanCache),
+            ImmutableSet.of(classpath.get(0)),
+            paths)) {
+      report = checker.findLinkageErrors(shard[0], shard[1]);
+    }
+    writeShardReport(
+        Paths.get(commandLine.getOptionValue("shard-output")), shard[0], shard[1], classpath,
+        report);
+  }
+
+  /**
+   * Returns the scans of the jar files in the index file written before the shards started. Jar
+   * files modified since the index was written are scanned again.
+   *
+   * @throws IOException if the index file does not exist or is not an index
+   */
+  static JarScanCache loadIndex(Path indexFile, List<Path> classpath) throws IOException {
+    if (!Files.exists(indexFile)) {
+      // Shards writing the index themselves would each scan the whole class path
+      throw new IOException(
+          "Index file " + indexFile + " does not exist. Write it with --write-index first");
+    }
+    JarScanCache jarScanCache = JarScanCache.readIndex(indexFile);
+    jarScanCache.evictModified(classpath);
+    return jarScanCache;
+  }
+
+  /**
+   * Writes the report of shard {@code shard} of {@code shardCount} of {@code classpath} to {@code
+   * file}.
+   */
+  static void writeShardReport(Path file, int shard, int shardCount, List<Path> classpath,
+      StaticLinkageCheckReport report) throws IOException {
+    try (DataOutputStream output =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      output.writeInt(shard);
+      output.writeInt(shardCount);
+      output.writeInt(classpath.size());
+      for (Path jarPath : classpath) {
+        output.writeUTF(jarPath.toString());
+      }
+
+      output.writeInt(report.getJarLinkageReports().size());
+      for (JarLinkageReport jarLinkageReport : report.getJarLinkageReports()) {
+        output.writeInt(classpath.indexOf(jarLinkageReport.getJarPath()));
+        output.writeInt(jarLinkageReport.getDependencyPaths().size());
+        for (DependencyPath path : jarLinkageReport.getDependencyPaths()) {
+          output.writeInt(path.size());
+          for (Artifact artifact : path.getPath()) {
+            output.writeUTF(artifact.toString());
+          }
+        }
+        output.writeInt(jarLinkageReport.getTotalErrorCount());
+        for (StaticLinkageError<ClassSymbolReference> error :
+            jarLinkageReport.getMissingClassErrors()) {
+          output.writeByte(CLASS_ERROR);
+          writeReference(output, error.getReference());
+          writeError(output, error);
+        }
+        for (StaticLinkageError<MethodSymbolReference> error :
+            jarLinkageReport.getMissingMethodErrors()) {
+          output.writeByte(METHOD_ERROR);
+          writeReference(output, error.getReference());
+          output.writeUTF(error.getReference().getMethodName());
+          output.writeUTF(error.getReference().getDescriptor());
+          writeError(output, error);
+        }
+        for (StaticLinkageError<FieldSymbolReference> error :
+            jarLinkageReport.getMissingFieldErrors()) {
+          output.writeByte(FIELD_ERROR);
+          writeReference(output, error.getReference());
+          output.writeUTF(error.getReference().getFieldName());
+          writeError(output, error);
+        }
+      }
+    }
+  }
+
+  private static void writeReference(DataOutputStream output, SymbolReference reference)
+      throws IOException {
+    output.writeUTF(reference.getSourceClassName());
+    output.writeUTF(reference.getTargetClassName());
+  }
+
+  private static void writeError(DataOutputStream output, StaticLinkageError<?> error)
+      throws IOException {
+    output.writeUTF(error.getReason().name());
+    URL location = error.getTargetClassLocation();
+    output.writeBoolean(location != null);
+    if (location != null) {
+      output.writeUTF(location.toString());
+    }
+  }
+
+  /**
+   * Returns the report combining the shard reports written by the processes checking the shards of
+   * the same class path.
+   *
+   * @throws IllegalArgumentException if the shard reports are of different class paths or shard
+   *     counts, or a shard is missing or repeated
+   * @throws IOException if a file is not a shard report
+   */
+  public static StaticLinkageCheckReport merge(List<Path> shardReports) throws IOException {
+    List<Path> classpath = null;
+    int shardCount = 0;
+    JarLinkageReport[] jarLinkageReports = null;
+    TreeSet<Integer> shards = new TreeSet<>();
+
+    for (Path file : shardReports) {
+      try (DataInputStream input =
+          new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+          throw new IOException("Not a linkage check shard report: " + file);
+        }
+        int shard = input.readInt();
+        int count = input.readInt();
+        List<Path> shardClasspath = new ArrayList<>();
+        for (int i = input.readInt(); i > 0; i--) {
+          shardClasspath.add(Paths.get(input.readUTF()));
+        }
+        if (classpath == null) {
+          classpath = shardClasspath;
+          shardCount = count;
+          jarLinkageReports = new JarLinkageReport[classpath.size()];
+        } else if (!classpath.equals(shardClasspath) || shardCount != count) {
+          throw new IllegalArgumentException(
+              file + " is a shard of another class path or shard count");
+        }
+        if (!shards.add(shard)) {
+          throw new IllegalArgumentException("Shard " + shard + " is repeated in " + file);
+        }
+
+        for (int i = input.readInt(); i > 0; i--) {
+          int position = input.readInt();
+          jarLinkageReports[position] = readJarLinkageReport(input, classpath.get(position));
+        }
+      } catch (EOFException | IndexOutOfBoundsException ex) {
+        throw new IOException("Not a linkage check shard report: " + file, ex);
+      }
+    }
+
+    if (classpath == null || shards.size() != shardCount) {
+      throw new IllegalArgumentException(
+          "The shard reports have shards " + shards + " of " + shardCount);
+    }
+    return StaticLinkageCheckReport.create(ImmutableList.copyOf(jarLinkageReports));
+  }
+
+  private static JarLinkageReport readJarLinkageReport(DataInputStream input, Path jarPath)
+      throws IOException {
+    List<DependencyPath> dependencyPaths = new ArrayList<>();
+    for (int i = input.readInt(); i > 0; i--) {
+      List<Artifact> artifacts = new ArrayList<>();
+      for (int j = input.readInt(); j > 0; j--) {
+        artifacts.add(new DefaultArtifact(input.readUTF()));
+      }
+      dependencyPaths.add(DependencyPath.of(artifacts));
+    }
+
+    ImmutableList.Builder<StaticLinkageError<ClassSymbolReference>> classErrors =
+        ImmutableList.builder();
+    ImmutableList.Builder<StaticLinkageError<MethodSymbolReference>> methodErrors =
+        ImmutableList.builder();
+    ImmutableList.Builder<StaticLinkageError<FieldSymbolReference>> fieldErrors =
+        ImmutableList.builder();
+    for (int i = input.readInt(); i > 0; i--) {
+      byte kind = input.readByte();
+      String sourceClassName = input.readUTF();
+      String targetClassName = input.readUTF();
+      switch (kind) {
+        case CLASS_ERROR:
+          classErrors.add(
+              readError(
+                  input,
+                  ClassSymbolReference.builder()
+                      .setSourceClassName(sourceClassName)
+                      .setTargetClassName(targetClassName)
+                      .build()));
+          break;
+        case METHOD_ERROR:
+          methodErrors.add(
+              readError(
+                  input,
+                  MethodSymbolReference.builder()
+                      .setSourceClassName(sourceClassName)
+                      .setTargetClassName(targetClassName)
+                      .setMethodName(input.readUTF())
+                      .setDescriptor(input.readUTF())
+                      .build()));
+          break;
+        case FIELD_ERROR:
+          fieldErrors.add(
+              readError(
+                  input,
+                  FieldSymbolReference.builder()
+                      .setSourceClassName(sourceClassName)
+                      .setTargetClassName(targetClassName)
+                      .setFieldName(input.readUTF())
+                      .build()));
+          break;
+        default:
+          throw new IOException("Unknown kind of linkage error " + kind);
+      }
+    }
+    return JarLinkageReport.builder()
+        .setJarPath(jarPath)
+        .setDependencyPaths(dependencyPaths)
+        .setMissingClassErrors(classErrors.build())
+        .setMissingMethodErrors(methodErrors.build())
+        .setMissingFieldErrors(fieldErrors.build())
+        .build();
+  }
+
+  private static <R extends SymbolReference> StaticLinkageError<R> readError(
+      DataInputStream input, R reference) throws IOException {
+    StaticLinkageError.Reason reason;
+    try {
+      reason = StaticLinkageError.Reason.valueOf(input.readUTF());
+    } catch (IllegalArgumentException ex) {
+      throw new IOException("Unknown reason of linkage error", ex);
+    }
+    @Nullable URL location = input.readBoolean() ? new URL(input.readUTF()) : null;
+    switch (reason) {
+      case CLASS_NOT_FOUND:
+        return StaticLinkageError.errorMissingTargetClass(reference);
+      case INACCESSIBLE:
+        return StaticLinkageError.errorInvalidModifier(reference, location);
+      default:
+        return StaticLinkageError.errorMissingMember(reference, location);
+    }
+  }
+
+  /**
+   * Merges the shard reports in the arguments and writes the report to the standard output in the
+   * format of the {@code -o} option: {@code text} (default), {@code json} or {@code ndjson}.
+   */
+  public static void main(String[] arguments) throws IOException, ParseException {
+    Options options = new Options();
+    options.addOption("o", "output-format", true, "Format of the report: text, json, or ndjson");
+    CommandLine commandLine;
+    try {
+      commandLine = new DefaultParser().parse(options, arguments);
+      if (commandLine.getArgList().isEmpty()) {
+        throw new ParseException("Missing shard report files");
+      }
+    } catch (ParseException ex) {
+      new HelpFormatter().printHelp("LinkageCheckShards [options] shard-report...", options);
+      throw ex;
+    }
+
+    List<Path> shardReports = new ArrayList<>();
+    for (String argument : commandLine.getArgList()) {
+      shardReports.add(Paths.get(argument));
+    }
+    Writer writer = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+    merge(shardReports)
+        .writeTo(StaticLinkageCheckOption.createReportWriter(commandLine, writer));
+  }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.classpath;
+
+import com.google.cloud.tools.opensource.dependencies.Json;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+import javax.annotation.Nullable;
+
+/**
+ * Writes the result of a static linkage check one {@link JarLinkageReport} at a time, so that the
+ * output starts as soon as the first jar file is checked and the whole report never has to be
+ * held in memory.
+ *
+ * <p>Call {@link #write(JarLinkageReport)} for each jar file and then {@link #finish()}. Like
+ * {@link StaticLinkageCheckReport#toString()}, the writers omit jar files without errors.
+ */
+public abstract class LinkageReportWriter {
+
+  final Writer out;
+
+  private LinkageReportWriter(Writer out) {
+    this.out = out;
+  }
+
+  /**
+   * Returns a writer for the text format of {@link StaticLinkageCheckReport#toString()}.
+   */
+  public static LinkageReportWriter text(Writer out) {
+    return new TextWriter(out);
+  }
+
+  /**
+   * Returns a writer for the text format escaped for use as the content of an HTML element, such
+   * as {@code <pre>}.
+   */
+  public static LinkageReportWriter html(Writer out) {
+    return new TextWriter(new HtmlEscapingWriter(out));
+  }
+
+  /**
+   * Returns a writer for a JSON array with an object for each jar file with linkage errors.
+   */
+  public static LinkageReportWriter json(Writer out) {
+    return new JsonWriter(out);
+  }
+
+  /**
+   * Returns a writer for newline-delimited JSON with one object for each linkage error. In addition
+   * to the fields of the errors in {@link #json(Writer)}, each object has the {@code jar} file
+   * containing the source class. Each jar file's lines are flushed as soon as they are written.
+   *
+   * @see <a href="http://ndjson.org/">Newline Delimited JSON</a>
+   */
+  public static LinkageReportWriter ndjson(Writer out) {
+    return new NdjsonWriter(out);
+  }
+
+  /** Writes the linkage errors of one jar file. */
+  public abstract void write(JarLinkageReport jarLinkageReport) throws IOException;
+
+  /**
+   * Writes the end of the report and flushes the underlying writer. The underlying writer is not
+   * closed.
+   */
+  public abstract void finish() throws IOException;
+
+  private static final class TextWriter extends LinkageReportWriter {
+    private boolean empty = true;
+
+    private TextWriter(Writer out) {
+      super(out);
+    }
+
+    @Override
+    public void write(JarLinkageReport jarLinkageReport) throws IOException {
+      if (jarLinkageReport.getTotalErrorCount() > 0) {
+        jarLinkageReport.appendTo(out);
+        out.write('\n');
+        empty = false;
+      }
+    }
+
+    @Override
+    public void finish() throws IOException {
+      if (empty) {
+        out.write("No static linkage errors\n");
+      }
+      out.flush();
+    }
+  }
+
+  private static final class JsonWriter extends LinkageReportWriter {
+    private boolean empty = true;
+
+    private JsonWriter(Writer out) {
+      super(out);
+    }
+
+    @Override
+    public void write(JarLinkageReport jarLinkageReport) throws IOException {
+      if (jarLinkageReport.getTotalErrorCount() == 0) {
+        return;
+      }
+      out.write(empty ? "[\n" : ",\n");
+      empty = false;
+
+      out.write("{\"jar\":" + Json.quote(jarLinkageReport.getJarPath()));
+      out.write(",\"dependencyPaths\":");
+      out.write(Json.array(jarLinkageReport.getDependencyPaths()));
+      out.write(",\"errors\":[");
+      boolean firstError = true;
+      for (StaticLinkageError<?> error : jarLinkageReport.getMissingClassErrors()) {
+        firstError = writeError(error, firstError);
+      }
+      for (StaticLinkageError<?> error : jarLinkageReport.getMissingMethodErrors()) {
+        firstError = writeError(error, firstError);
+      }
+      for (StaticLinkageError<?> error : jarLinkageReport.getMissingFieldErrors()) {
+        firstError = writeError(error, firstError);
+      }
+      out.write("]}");
+    }
+
+    private boolean writeError(StaticLinkageError<?> error, boolean first) throws IOException {
+      if (!first) {
+        out.write(',');
+      }
+      out.write(toJson(error));
+      return false;
+    }
+
+    @Override
+    public void finish() throws IOException {
+      out.write(empty ? "[]\n" : "\n]\n");
+      out.flush();
+    }
+  }
+
+  private static final class NdjsonWriter extends LinkageReportWriter {
+
+    private NdjsonWriter(Writer out) {
+      super(out);
+    }
+
+    @Override
+    public void write(JarLinkageReport jarLinkageReport) throws IOException {
+      if (jarLinkageReport.getTotalErrorCount() == 0) {
+        return;
+      }
+      String jar = Json.quote(jarLinkageReport.getJarPath());
+      for (StaticLinkageError<?> error : jarLinkageReport.getMissingClassErrors()) {
+        writeLine(jar, error);
+      }
+      for (StaticLinkageError<?> error : jarLinkageReport.getMissingMethodErrors()) {
+        writeLine(jar, error);
+      }
+      for (StaticLinkageError<?> error : jarLinkageReport.getMissingFieldErrors()) {
+        writeLine(jar, error);
+      }
+      out.flush();
+    }
+
+    private void writeLine(String jar, StaticLinkageError<?> error) throws IOException {
+      StringBuilder builder = new StringBuilder("{\"jar\":").append(jar).append(',');
+      appendFields(builder, error);
+      out.write(builder.append("}\n").toString());
+    }
+
+    @Override
+    public void finish() throws IOException {
+      out.flush();
+    }
+  }
+
+  /**
+   * Returns the JSON object for a linkage error. The object has the {@code type} of the symbol
+   * reference ({@code class}, {@code method} or {@code field}), the reason, the source and target
+   * classes, the member name and descriptor for method and field references, and the target class
+   * location.
+   */
+  static String toJson(StaticLinkageError<?> error) {
+    StringBuilder builder = new StringBuilder("{");
+    appendFields(builder, error);
+    return builder.append('}').toString();
+  }
+
+  private static void appendFields(StringBuilder builder, StaticLinkageError<?> error) {
+    SymbolReference reference = error.getReference();
+    if (reference instanceof MethodSymbolReference) {
+      MethodSymbolReference methodReference = (MethodSymbolReference) reference;
+      builder.append("\"type\":\"method\"");
+      builder.append(",\"methodName\":" + Json.quote(methodReference.getMethodName()));
+      builder.append(",\"descriptor\":" + Json.quote(methodReference.getDescriptor()));
+    } else if (reference instanceof FieldSymbolReference) {
+      FieldSymbolReference fieldReference = (FieldSymbolReference) reference;
+      builder.append("\"type\":\"field\"");
+      builder.append(",\"fieldName\":" + Json.quote(fieldReference.getFieldName()));
+    } else {
+      builder.append("\"type\":\"class\"");
+    }
+    builder.append(",\"reason\":" + Json.quote(error.getReason()));
+    builder.append(",\"sourceClass\":" + Json.quote(reference.getSourceClassName()));
+    builder.append(",\"targetClass\":" + Json.quote(reference.getTargetClassName()));
+    builder.append(",\"targetClassLocation\":" + Json.quote(error.getTargetClassLocation()));
+  }
+
+  /**
+   * Escapes the characters written through it as HTML text, like {@link
+   * com.google.common.html.HtmlEscapers#htmlEscaper()}. The runs of characters between those
+   * escaped are passed through to the underlying writer as they are, without copying.
+   */
+  private static final class HtmlEscapingWriter extends FilterWriter {
+
+    private HtmlEscapingWriter(Writer out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+      String replacement = replacement((char) c);
+      if (replacement == null) {
+        out.write(c);
+      } else {
+        out.write(replacement);
+      }
+    }
+
+    @Override
+    public void write(char[] buffer, int offset, int length) throws IOException {
+      int start = offset;
+      int end = offset + length;
+      for (int i = offset; i < end; i++) {
+        String replacement = replacement(buffer[i]);
+        if (replacement != null) {
+          out.write(buffer, start, i - start);
+          out.write(replacement);
+          start = i + 1;
+        }
+      }
+      out.write(buffer, start, end - start);
+    }
+
+    @Override
+    public void write(String string, int offset, int length) throws IOException {
+      int start = offset;
+      int end = offset + length;
+      for (int i = offset; i < end; i++) {
+        String replacement = replacement(string.charAt(i));
+        if (replacement != null) {
+          out.write(string, start, i - start);
+          out.write(replacement);
+          start = i + 1;
+        }
+      }
+      out.write(string, start, end - start);
+    }
+
+    @Nullable
+    private static String replacement(char c) {
+      switch (c) {
+        case '"':
+          return "&quot;";
+        case '\'':
+          return "&#39;";
+        case '&':
+          return "&amp;";
+        case '<':
+          return "&lt;";
+        case '>':
+          return "&gt;";
+        default:
+          return null;
+      }
+    }
+  }
+}
@@ -18,13 +18,14 @@ package com.google.cloud.tools.opensource.classpath;
 
 import static com.google.common.collect.ImmutableList.toImmutableList;
 
+import com.google.cloud.tools.opensource.dependencies.DependencyGraphBuilder;
 import com.google.cloud.tools.opensource.dependencies.RepositoryUtility;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Streams;
+import java.io.Writer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
 import java.util.stream.Stream;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -52,6 +53,9 @@ import org.eclipse.aether.artifact.DefaultArtifact;
  */
 public class StaticLinkageCheckOption {
   
+  private static final ImmutableList<String> OUTPUT_FORMATS =
+      ImmutableList.of("text", "json", "ndjson");
+
   private static final Options options = configureOptions();
   
   static CommandLine readCommandLine(String[] arguments) throws ParseException {
@@ -75,6 +79,23 @@ public class StaticLinkageCheckOption {
       throw new ParseException(
           "Exactly one of BOM, Maven coordinates, or jar files must be specified");
     }
+    String outputFormat = commandLine.getOptionValue("o", "text");
+    if (!OUTPUT_FORMATS.contains(outputFormat)) {
+      throw new ParseException(
+          "Unknown output format " + outputFormat + ". Valid formats are " + OUTPUT_FORMATS);
+    }
+    if (commandLine.hasOption("s")) {
+      LinkageCheckShards.parseShard(commandLine.getOptionValue("s"));
+      if (!commandLine.hasOption("shard-output")) {
+        throw new ParseException("A shard requires the file of --shard-output");
+      }
+      if (commandLine.hasOption("r")) {
+        throw new ParseException("A shard does not support --report-only-reachable");
+      }
+    }
+    if (commandLine.hasOption("write-index") && commandLine.hasOption("s")) {
+      throw new ParseException("Write the index with --write-index before the shards start");
+    }
   }
 
   private static Options configureOptions() {
@@ -92,27 +113,77 @@ public class StaticLinkageCheckOption {
         "report-only-reachable",
         false,
         "To report only linkage errors reachable from entry point");
+    options.addOption(
+        "o",
+        "output-format",
+        true,
+        "Format of the report: text (default), json, or ndjson with one linkage error per line");
+    options.addOption(
+        "m",
+        "metrics-output",
+        true,
+        "File to write the timers and counters of the check to as JSON");
+    options.addOption(
+        "s",
+        "shard",
+        true,
+        "Shard of the jar files to check, as index/count such as 0/4. The report of the shard is"
+            + " written to the file of --shard-output for LinkageCheckShards to merge");
+    options.addOption(null, "shard-output", true, "File to write the report of the shard to");
+    options.addOption(
+        "i",
+        "index",
+        true,
+        "Index file of the scans of the jar files written by --write-index, shared by the shards");
+    options.addOption(
+        null,
+        "write-index",
+        true,
+        "File to write the index of the scans of the jar files to, without checking them, before"
+            + " the shards start");
     return options;
   }
 
-  static ImmutableList<Path> generateInputClasspath(CommandLine commandLine)
-      throws RepositoryException, ParseException {
-    Splitter commaSplitter = Splitter.on(",");
+  /** Returns the writer for the output format specified in the command line. */
+  static LinkageReportWriter createReportWriter(CommandLine commandLine, Writer writer) {
+    switch (commandLine.getOptionValue("o", "text")) {
+      case "json":
+        return LinkageReportWriter.json(writer);
+      case "ndjson":
+        return LinkageReportWriter.ndjson(writer);
+      default:
+        return LinkageReportWriter.text(writer);
+    }
+  }
 
+  /**
+   * Returns the Maven artifacts of the BOM or the artifacts specified in the command line, or an
+   * empty list when the input is jar files.
+   */
+  static ImmutableList<Artifact> readArtifacts(CommandLine commandLine)
+      throws RepositoryException {
     if (commandLine.hasOption("b")) {
       String bomCoordinates = commandLine.getOptionValue("b");
       DefaultArtifact bomArtifact = new DefaultArtifact(bomCoordinates);
-      List<Artifact> artifactsInBom = RepositoryUtility.readBom(bomArtifact);
-      return StaticLinkageChecker.artifactsToClasspath(artifactsInBom);
+      return ImmutableList.copyOf(
+          RepositoryUtility.readBom(bomArtifact, DependencyGraphBuilder.getRemoteRepositories()));
     } else if (commandLine.hasOption("a")) {
       String mavenCoordinatesOption = commandLine.getOptionValue("a");
-      ImmutableList<Artifact> artifacts =
-          commaSplitter
-              .splitToList(mavenCoordinatesOption)
-              .stream()
-              .map(DefaultArtifact::new)
-              .collect(toImmutableList());
-      return StaticLinkageChecker.artifactsToClasspath(artifacts);
+      return Splitter.on(",")
+          .splitToList(mavenCoordinatesOption)
+          .stream()
+          .map(DefaultArtifact::new)
+          .collect(toImmutableList());
+    }
+    return ImmutableList.of();
+  }
+
+  static ImmutableList<Path> generateInputClasspath(CommandLine commandLine)
+      throws RepositoryException, ParseException {
+    Splitter commaSplitter = Splitter.on(",");
+
+    if (commandLine.hasOption("b") || commandLine.hasOption("a")) {
+      return StaticLinkageChecker.artifactsToClasspath(readArtifacts(commandLine));
     } else if (commandLine.hasOption("j")) {
       String jarFiles = commandLine.getOptionValue("j");
       ImmutableList<Path> jarFilesInArguments =
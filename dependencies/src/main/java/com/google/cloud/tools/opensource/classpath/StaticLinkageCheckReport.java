@@ -19,6 +19,8 @@ package com.google.cloud.tools.opensource.classpath;
 import com.google.auto.value.AutoValue;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.io.StringWriter;
 
 /**
  * The result of a static linkage check.
@@ -33,20 +35,32 @@ public abstract class StaticLinkageCheckReport {
     return new AutoValue_StaticLinkageCheckReport(ImmutableList.copyOf(jarLinkageReports));
   }
   
-  @Override
-  public String toString() {
-    StringBuilder builder = new StringBuilder();
+  /** Returns the number of linkage errors in all jar files. */
+  public int getTotalErrorCount() {
+    int count = 0;
+    for (JarLinkageReport jarLinkageReport : getJarLinkageReports()) {
+      count += jarLinkageReport.getTotalErrorCount();
+    }
+    return count;
+  }
+
+  /** Writes the report of each jar file to {@code writer} and finishes it. */
+  public void writeTo(LinkageReportWriter writer) throws IOException {
     for (JarLinkageReport jarLinkageReport : getJarLinkageReports()) {
-      if (jarLinkageReport.getTotalErrorCount() > 0) {
-        builder.append(jarLinkageReport.toString());
-        builder.append('\n');
-      }
+      writer.write(jarLinkageReport);
     }
-    
-    String result = builder.toString();
-    if (result.isEmpty()) {
-      return "No static linkage errors\n";
+    writer.finish();
+  }
+
+  @Override
+  public String toString() {
+    StringWriter writer = new StringWriter();
+    try {
+      writeTo(LinkageReportWriter.text(writer));
+    } catch (IOException ex) {
+      // StringWriter does not throw IOException
+      throw new AssertionError(ex);
     }
-    return result;
+    return writer.toString();
   }
 }
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.classpath;
+
+import com.google.cloud.tools.opensource.dependencies.CoordinateTable;
+import com.google.cloud.tools.opensource.dependencies.Metrics;
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.ParseException;
+import org.eclipse.aether.RepositoryException;
+
+/**
+ * Runs {@link StaticLinkageChecker} as a long-running process that answers check requests over
+ * HTTP on the loopback interface. The Maven repository system, the dependency graph caches of
+ * {@link com.google.cloud.tools.opensource.dependencies.DependencyGraphBuilder} and a {@link
+ * JarScanCache} stay in memory between requests, so that a check of an already-seen class path
+ * neither starts a JVM nor scans its jar files again.
+ *
+ * <p>The server has two endpoints:
+ *
+ * <ul>
+ *   <li>{@code POST /check} takes the command-line arguments of {@link StaticLinkageChecker}, one
+ *       per line, as the request body and responds with the report in the requested output
+ *       format. Invalid arguments get status 400 and unresolvable Maven coordinates get status
+ *       502.
+ *   <li>{@code GET /metrics} responds with {@link Metrics#toJson()}.
+ * </ul>
+ *
+ * <p>Check requests are handled one at a time because BCEL's class repositories are not
+ * thread-safe; metrics requests are answered during a check. The BCEL repository and class loader
+ * reading the classes of a class path are kept for the next checks of the same jar files, up to
+ * {@value #MAX_CACHED_CLASSPATHS} class paths. Jar files modified since their last scan, such as
+ * a module rebuilt by CI, are scanned again and read through a new repository and class loader.
+ *
+ * <p>A check that fails before the first line of the report gets status 500 with the error
+ * message. Once the report has started, a failure ends the response early.
+ */
+public final class StaticLinkageCheckServer {
+
+  private static final Logger logger = Logger.getLogger(StaticLinkageCheckServer.class.getName());
+
+  /** The port the server listens on when none is specified. */
+  public static final int DEFAULT_PORT = 8787;
+
+  /** The number of class paths whose class dumpers are kept between checks. */
+  static final int MAX_CACHED_CLASSPATHS = 4;
+
+  private static final Metrics.Counter reusedClassDumperCounter =
+      Metrics.counter("server.reusedClassDumpers");
+
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final JarScanCache jarScanCache = new JarScanCache();
+  // Held by check requests, which use the class dumpers one at a time
+  private final Object checkLock = new Object();
+  // Class dumpers by the paths and last modified times of the jar files in their class paths
+  private final Cache<ImmutableList<Map.Entry<Path, FileTime>>, ClassDumper> classDumpers =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_CACHED_CLASSPATHS)
+          .removalListener(StaticLinkageCheckServer::closeClassDumper)
+          .build();
+
+  private StaticLinkageCheckServer(HttpServer server) {
+    this.server = server;
+    server.createContext("/check", this::handleCheck);
+    server.createContext("/metrics", this::handleMetrics);
+    server.setExecutor(executor);
+  }
+
+  /**
+   * Starts a server listening on {@code port} of the loopback interface. Port 0 picks a free port.
+   */
+  public static StaticLinkageCheckServer start(int port) throws IOException {
+    InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+    StaticLinkageCheckServer checkServer =
+        new StaticLinkageCheckServer(HttpServer.create(address, 0));
+    checkServer.server.start();
+    return checkServer;
+  }
+
+  /** Returns the port the server listens on. */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /** Stops the server, waiting at most {@code delaySeconds} for the current request to finish. */
+  public void stop(int delaySeconds) {
+    server.stop(delaySeconds);
+    executor.shutdown();
+    synchronized (checkLock) {
+      classDumpers.invalidateAll();
+    }
+  }
+
+  /**
+   * Starts the server on the port given as the only argument, or on {@link #DEFAULT_PORT}, and
+   * runs until the process is terminated.
+   */
+  public static void main(String[] arguments) throws IOException {
+    int port = arguments.length > 0 ? Integer.parseInt(arguments[0]) : DEFAULT_PORT;
+    Metrics.registerMBean();
+    StaticLinkageCheckServer checkServer = start(port);
+    System.out.println("Static linkage checker listening on http://localhost:"
+        + checkServer.getPort() + "/check");
+  }
+
+  private void handleCheck(HttpExchange exchange) throws IOException {
+    try {
+      if (!"POST".equals(exchange.getRequestMethod())) {
+        respond(exchange, 405, "Use POST with the arguments of the checker, one per line\n");
+        return;
+      }
+      String body =
+          new String(ByteStreams.toByteArray(exchange.getRequestBody()), StandardCharsets.UTF_8);
+      List<String> arguments =
+          Splitter.on('\n').trimResults().omitEmptyStrings().splitToList(body);
+      synchronized (checkLock) {
+        check(exchange, arguments);
+      }
+    } catch (IOException | RuntimeException ex) {
+      logger.log(Level.WARNING, "Check request failed", ex);
+      throw ex;
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void check(HttpExchange exchange, List<String> arguments) throws IOException {
+    // The coordinates of the dependency paths of previous requests are not kept in memory
+    CoordinateTable.reset();
+
+    CommandLine commandLine;
+    ImmutableList<Path> inputClasspath;
+    try {
+      commandLine = StaticLinkageCheckOption.readCommandLine(arguments.toArray(new String[0]));
+      inputClasspath = StaticLinkageCheckOption.generateInputClasspath(commandLine);
+    } catch (ParseException ex) {
+      respond(exchange, 400, ex.getMessage() + "\n");
+      return;
+    } catch (RepositoryException ex) {
+      respond(exchange, 502, ex.getMessage() + "\n");
+      return;
+    }
+    if (inputClasspath.isEmpty()) {
+      respond(exchange, 400, "The linkage classpath is empty\n");
+      return;
+    }
+
+    jarScanCache.evictModified(inputClasspath);
+    ClassDumper classDumper;
+    try {
+      classDumper = getClassDumper(inputClasspath);
+    } catch (IOException ex) {
+      // Such as a jar file that does not exist
+      respond(exchange, 400, ex.getMessage() + "\n");
+      return;
+    }
+    // TODO(suztomo): take an argument to choose entry point classes for reachability
+    ImmutableSet<Path> entryPoints = ImmutableSet.of(inputClasspath.get(0));
+    // Not closed, so that the class dumper stays open for the next checks
+    StaticLinkageChecker staticLinkageChecker =
+        new StaticLinkageChecker(commandLine.hasOption("r"), classDumper, entryPoints);
+
+    exchange.getResponseHeaders().set("Content-Type", contentType(commandLine));
+    ResponseWriter writer = new ResponseWriter(exchange);
+    try {
+      staticLinkageChecker.findLinkageErrors(
+          StaticLinkageCheckOption.createReportWriter(commandLine, writer));
+      // Sends the headers of an empty report
+      writer.close();
+    } catch (IOException | RuntimeException ex) {
+      if (writer.started) {
+        throw ex;
+      }
+      logger.log(Level.WARNING, "Check request failed", ex);
+      respond(exchange, 500, ex + "\n");
+    }
+  }
+
+  /**
+   * Returns the class dumper of the class path, reusing the one of an earlier check if none of the
+   * jar files has been modified since.
+   */
+  private ClassDumper getClassDumper(ImmutableList<Path> inputClasspath) throws IOException {
+    ImmutableList.Builder<Map.Entry<Path, FileTime>> key = ImmutableList.builder();
+    for (Path jarPath : inputClasspath) {
+      key.add(Maps.immutableEntry(jarPath, Files.getLastModifiedTime(jarPath)));
+    }
+    ImmutableList<Map.Entry<Path, FileTime>> classpathKey = key.build();
+    ClassDumper classDumper = classDumpers.getIfPresent(classpathKey);
+    if (classDumper != null) {
+      reusedClassDumperCounter.increment();
+      return classDumper;
+    }
+    classDumper = ClassDumper.create(inputClasspath, jarScanCache);
+    classDumpers.put(classpathKey, classDumper);
+    return classDumper;
+  }
+
+  private static void closeClassDumper(
+      RemovalNotification<ImmutableList<Map.Entry<Path, FileTime>>, ClassDumper> notification) {
+    try {
+      notification.getValue().close();
+    } catch (IOException ex) {
+      logger.log(Level.WARNING, "Could not close the class loader of a class path", ex);
+    }
+  }
+
+  private void handleMetrics(HttpExchange exchange) throws IOException {
+    try {
+      exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+      respond(exchange, 200, Metrics.toJson());
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private static String contentType(CommandLine commandLine) {
+    switch (commandLine.getOptionValue("o", "text")) {
+      case "json":
+        return "application/json; charset=utf-8";
+      case "ndjson":
+        return "application/x-ndjson; charset=utf-8";
+      default:
+        return "text/plain; charset=utf-8";
+    }
+  }
+
+  /**
+   * Sends the response headers with status 200 when the report starts, so that a check failing
+   * before can still respond with an error status.
+   */
+  private static final class ResponseWriter extends Writer {
+    private final HttpExchange exchange;
+    private Writer out;
+    private boolean started;
+
+    private ResponseWriter(HttpExchange exchange) {
+      this.exchange = exchange;
+    }
+
+    private Writer start() throws IOException {
+      if (!started) {
+        started = true;
+        // Length 0 streams the report in chunks as each jar file is checked
+        exchange.sendResponseHeaders(200, 0);
+        out = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8);
+      }
+      return out;
+    }
+
+    @Override
+    public void write(char[] buffer, int offset, int length) throws IOException {
+      start().write(buffer, offset, length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      start().flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      start().close();
+    }
+  }
+
+  private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream responseBody = exchange.getResponseBody()) {
+      responseBody.write(bytes);
+    }
+  }
+}
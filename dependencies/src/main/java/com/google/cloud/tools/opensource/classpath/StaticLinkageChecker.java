@@ -21,29 +21,39 @@ import static com.google.common.collect.ImmutableList.toImmutableList;
 import com.google.cloud.tools.opensource.dependencies.DependencyGraph;
 import com.google.cloud.tools.opensource.dependencies.DependencyGraphBuilder;
 import com.google.cloud.tools.opensource.dependencies.DependencyPath;
+import com.google.cloud.tools.opensource.dependencies.Metrics;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.ListMultimap;
 import com.google.common.graph.Traverser;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.Array;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.logging.Logger;
 import org.apache.bcel.classfile.Field;
 import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
+import org.apache.bcel.generic.ArrayType;
+import org.apache.bcel.generic.ObjectType;
+import org.apache.bcel.generic.Type;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.ParseException;
 import org.eclipse.aether.RepositoryException;
@@ -52,26 +62,50 @@ import org.eclipse.aether.artifact.Artifact;
 /**
  * A tool to find static linkage errors for a class path.
  */
-public class StaticLinkageChecker {
+public class StaticLinkageChecker implements Closeable {
   // TODO(suztomo): enhance scope to include fields and classes. Issue #207
 
   private static final Logger logger = Logger.getLogger(StaticLinkageChecker.class.getName());
 
+  private static final Metrics.Timer checkClassTimer = Metrics.timer("linkage.checkClass");
+  private static final Metrics.Timer checkMethodTimer = Metrics.timer("linkage.checkMethod");
+  private static final Metrics.Timer checkFieldTimer = Metrics.timer("linkage.checkField");
+  private static final Metrics.Counter reusedReferenceCounter =
+      Metrics.counter("linkage.reusedReferences");
+
   public static StaticLinkageChecker create(
       boolean onlyReachable, List<Path> jarFilePaths, Iterable<Path> entryPoints)
       throws IOException {
+    return create(onlyReachable, jarFilePaths, entryPoints, new JarScanCache());
+  }
+
+  /**
+   * Creates a checker for the jar files that takes their scan results from {@code jarScanCache}.
+   */
+  public static StaticLinkageChecker create(boolean onlyReachable, List<Path> jarFilePaths,
+      Iterable<Path> entryPoints, JarScanCache jarScanCache) throws IOException {
     Preconditions.checkArgument(
         !jarFilePaths.isEmpty(),
         "The linkage classpath is empty. Specify input to supply one or more jar files");
-    ClassDumper dumper = ClassDumper.create(jarFilePaths);
+    ClassDumper dumper = ClassDumper.create(jarFilePaths, jarScanCache);
     return new StaticLinkageChecker(onlyReachable, dumper, entryPoints);
   }
   
   public static StaticLinkageChecker create(boolean onlyReachable,
       LinkedListMultimap<Path, DependencyPath> paths, ImmutableSet<Path> entryPoints)
       throws IOException {
+    return create(onlyReachable, paths, entryPoints, new JarScanCache());
+  }
+
+  /**
+   * Creates a checker that takes the scan results of jar files from {@code jarScanCache}. Checkers
+   * sharing a cache scan each jar file at most once, even when their class paths overlap.
+   */
+  public static StaticLinkageChecker create(boolean onlyReachable,
+      LinkedListMultimap<Path, DependencyPath> paths, ImmutableSet<Path> entryPoints,
+      JarScanCache jarScanCache) throws IOException {
     List<Path> jarFilePaths = new ArrayList<>(paths.keySet());
-    ClassDumper dumper = ClassDumper.create(jarFilePaths);
+    ClassDumper dumper = ClassDumper.create(jarFilePaths, jarScanCache);
     return new StaticLinkageChecker(onlyReachable, dumper, entryPoints, paths);
   }
 
@@ -100,6 +134,16 @@ public class StaticLinkageChecker {
     this.paths = Preconditions.checkNotNull(paths);
   }
 
+  ClassDumper getClassDumper() {
+    return classDumper;
+  }
+
+  /** Closes the jar files opened to load the classes of the input class path. */
+  @Override
+  public void close() throws IOException {
+    classDumper.close();
+  }
+
   /**
    * Given Maven coordinates or list of the jar files as file names in filesystem, outputs the
    * report of static linkage check.
@@ -113,16 +157,34 @@ public class StaticLinkageChecker {
       throws IOException, RepositoryException, ParseException {
     
     CommandLine commandLine = StaticLinkageCheckOption.readCommandLine(arguments);
-    ImmutableList<Path> inputClasspath =
-        StaticLinkageCheckOption.generateInputClasspath(commandLine);
-    // TODO(suztomo): take command-line option to choose entry point classes for reachability
-    ImmutableSet<Path> entryPoints = ImmutableSet.of(inputClasspath.get(0));
-
+    Metrics.registerMBean();
     boolean onlyReachable = commandLine.hasOption("r");
-    StaticLinkageChecker staticLinkageChecker = create(onlyReachable, inputClasspath, entryPoints);
-    StaticLinkageCheckReport report = staticLinkageChecker.findLinkageErrors();
+    Writer writer = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+    LinkageReportWriter reportWriter =
+        StaticLinkageCheckOption.createReportWriter(commandLine, writer);
+
+    ImmutableList<Artifact> artifacts = StaticLinkageCheckOption.readArtifacts(commandLine);
+    if (commandLine.hasOption("write-index")) {
+      LinkageCheckShards.writeIndex(commandLine, artifacts);
+    } else if (commandLine.hasOption("s")) {
+      LinkageCheckShards.checkShard(commandLine, artifacts);
+    } else if (!artifacts.isEmpty()) {
+      // Scans the jar files while the others are still being resolved
+      LinkageCheckPipeline pipeline = LinkageCheckPipeline.create(new JarScanCache());
+      pipeline.check(artifacts, onlyReachable, reportWriter);
+    } else {
+      ImmutableList<Path> inputClasspath =
+          StaticLinkageCheckOption.generateInputClasspath(commandLine);
+      // TODO(suztomo): take command-line option to choose entry point classes for reachability
+      ImmutableSet<Path> entryPoints = ImmutableSet.of(inputClasspath.get(0));
+      StaticLinkageChecker staticLinkageChecker =
+          create(onlyReachable, inputClasspath, entryPoints);
+      staticLinkageChecker.findLinkageErrors(reportWriter);
+    }
 
-    System.out.println(report);
+    if (commandLine.hasOption("m")) {
+      Metrics.writeJson(Paths.get(commandLine.getOptionValue("m")));
+    }
   }
 
   /**
@@ -151,13 +213,19 @@ public class StaticLinkageChecker {
   public static LinkedListMultimap<Path, DependencyPath> artifactsToPaths(List<Artifact> artifacts)
       throws RepositoryException {
     
-    LinkedListMultimap<Path, DependencyPath> multimap = LinkedListMultimap.create();
     if (artifacts.isEmpty()) {
-      return multimap;
+      return LinkedListMultimap.create();
     }
     // dependencyGraph holds multiple versions for one artifact key (groupId:artifactId)
     DependencyGraph dependencyGraph =
         DependencyGraphBuilder.getStaticLinkageCheckDependencies(artifacts);
+    return dependencyGraphToPaths(dependencyGraph);
+  }
+
+  /** Returns the jar files of the dependency graph mapped to their dependency paths. */
+  public static LinkedListMultimap<Path, DependencyPath> dependencyGraphToPaths(
+      DependencyGraph dependencyGraph) {
+    LinkedListMultimap<Path, DependencyPath> multimap = LinkedListMultimap.create();
     List<DependencyPath> dependencyPaths = dependencyGraph.list();
 
     for (DependencyPath dependencyPath : dependencyPaths) {
@@ -175,28 +243,90 @@ public class StaticLinkageChecker {
    * Finds linkage errors in the input classpath and generates a static linkage check report.
    */
   public StaticLinkageCheckReport findLinkageErrors() throws IOException {
-    ImmutableList<Path> jarFilePaths = classDumper.getInputClasspath();
+    ImmutableList.Builder<JarLinkageReport> jarLinkageReports = ImmutableList.builder();
+    checkJarFiles(jarLinkageReports::add);
+    return StaticLinkageCheckReport.create(jarLinkageReports.build());
+  }
 
-    ImmutableMap.Builder<Path, SymbolReferenceSet> jarToSymbols = ImmutableMap.builder();
-    for (Path jarPath : jarFilePaths) {
-      jarToSymbols.put(jarPath, ClassDumper.scanSymbolReferencesInJar(jarPath));
+  /**
+   * Finds linkage errors in the input classpath and writes the report of each jar file to {@code
+   * writer} as soon as the jar file is checked. Unlike {@link #findLinkageErrors()}, this does not
+   * hold the linkage errors of all jar files in memory.
+   */
+  public void findLinkageErrors(LinkageReportWriter writer) throws IOException {
+    checkJarFiles(writer::write);
+    writer.finish();
+  }
+
+  /**
+   * Finds linkage errors in the jar files of one shard of the input classpath against the whole
+   * classpath. The jar file at position {@code i} of the classpath is in shard {@code i %
+   * shardCount}, so the shards of the same classpath cover each jar file exactly once.
+   *
+   * @see LinkageCheckShards
+   */
+  StaticLinkageCheckReport findLinkageErrors(int shard, int shardCount) throws IOException {
+    Preconditions.checkArgument(
+        shard >= 0 && shard < shardCount, "Shard %s is not in 0 to %s", shard, shardCount - 1);
+    ImmutableList<Path> classpath = classDumper.getInputClasspath();
+    ImmutableList.Builder<JarLinkageReport> jarLinkageReports = ImmutableList.builder();
+    for (int i = shard; i < classpath.size(); i += shardCount) {
+      Path jarPath = classpath.get(i);
+      SymbolReferenceSet symbolReferenceSet = classDumper.symbolReferencesInJar(jarPath);
+      jarLinkageReports.add(
+          generateLinkageReport(jarPath, symbolReferenceSet, this.paths.get(jarPath)));
     }
+    return StaticLinkageCheckReport.create(jarLinkageReports.build());
+  }
 
-    // Validate linkage error of each reference
+  /**
+   * Finds linkage errors in the input classpath like {@link #findLinkageErrors()}, taking the
+   * result of each reference that cannot have changed from the report of an earlier check. The
+   * references in {@code changedJars} are checked again, as are the references to the classes in
+   * {@code changedClasses}, to classes that extend or implement them, or to methods with them in
+   * their parameter types.
+   *
+   * @param previousReports reports of the earlier check by jar file
+   * @param changedJars jar files added to the class path since the earlier check or modified
+   * @param changedClasses names of the classes defined in the jar files added, removed or modified
+   *     since the earlier check
+   */
+  StaticLinkageCheckReport findLinkageErrors(Map<Path, JarLinkageReport> previousReports,
+      Set<Path> changedJars, Set<String> changedClasses) throws IOException {
+    ChangedClasses changed = new ChangedClasses(changedClasses);
     ImmutableList.Builder<JarLinkageReport> jarLinkageReports = ImmutableList.builder();
-    for (Map.Entry<Path, SymbolReferenceSet> entry : jarToSymbols.build().entrySet()) {
-      Path jarPath = entry.getKey();
+    for (Path jarPath : classDumper.getInputClasspath()) {
+      SymbolReferenceSet symbolReferenceSet = classDumper.symbolReferencesInJar(jarPath);
       Iterable<DependencyPath> dependencyPaths = this.paths.get(jarPath);
-      jarLinkageReports.add(generateLinkageReport(jarPath, entry.getValue(), dependencyPaths));
+      JarLinkageReport previousReport = previousReports.get(jarPath);
+      if (changedJars.contains(jarPath) || previousReport == null) {
+        jarLinkageReports.add(generateLinkageReport(jarPath, symbolReferenceSet, dependencyPaths));
+      } else {
+        jarLinkageReports.add(
+            generateLinkageReport(
+                jarPath, symbolReferenceSet, dependencyPaths, previousReport, changed));
+      }
     }
+    return StaticLinkageCheckReport.create(jarLinkageReports.build());
+  }
 
+  private void checkJarFiles(JarLinkageReportConsumer consumer) throws IOException {
     if (reportOnlyReachable) {
       // TODO: Optionally, report errors only reachable from entry point classes
       logger.warning("reportOnlyReachable is not yet implemented");
       throw new UnsupportedOperationException("reportOnlyReachable is not yet implemented");
     }
 
-    return StaticLinkageCheckReport.create(jarLinkageReports.build());
+    // Validate linkage error of each reference
+    for (Path jarPath : classDumper.getInputClasspath()) {
+      SymbolReferenceSet symbolReferenceSet = classDumper.symbolReferencesInJar(jarPath);
+      Iterable<DependencyPath> dependencyPaths = this.paths.get(jarPath);
+      consumer.accept(generateLinkageReport(jarPath, symbolReferenceSet, dependencyPaths));
+    }
+  }
+
+  private interface JarLinkageReportConsumer {
+    void accept(JarLinkageReport jarLinkageReport) throws IOException;
   }
 
   /**
@@ -209,7 +339,7 @@ public class StaticLinkageChecker {
    */
   @VisibleForTesting
   JarLinkageReport generateLinkageReport(Path jarPath, SymbolReferenceSet symbolReferenceSet,
-      Iterable<DependencyPath> dependencyPaths) {
+      Iterable<DependencyPath> dependencyPaths) throws IOException {
     
     JarLinkageReport.Builder reportBuilder = JarLinkageReport.builder()
         .setJarPath(jarPath)
@@ -223,23 +353,150 @@ public class StaticLinkageChecker {
         errorsFromSymbolReferences(
             symbolReferenceSet.getClassReferences(),
             classesDefinedInJar,
-            this::checkLinkageErrorMissingClassAt));
+            checkClassTimer.wrap(this::checkLinkageErrorMissingClassAt)));
 
     reportBuilder.setMissingMethodErrors(
         errorsFromSymbolReferences(
             symbolReferenceSet.getMethodReferences(),
             classesDefinedInJar,
-            this::checkLinkageErrorMissingMethodAt));
+            checkMethodTimer.wrap(this::checkLinkageErrorMissingMethodAt)));
 
     reportBuilder.setMissingFieldErrors(
         errorsFromSymbolReferences(
             symbolReferenceSet.getFieldReferences(),
             classesDefinedInJar,
-            this::checkLinkageErrorMissingFieldAt));
+            checkFieldTimer.wrap(this::checkLinkageErrorMissingFieldAt)));
 
     return reportBuilder.build();
   }
 
+  /**
+   * Generates a linkage report for a jar file unchanged since {@code previousReport}, checking only
+   * the references affected by the {@code changed} classes.
+   */
+  private JarLinkageReport generateLinkageReport(Path jarPath,
+      SymbolReferenceSet symbolReferenceSet, Iterable<DependencyPath> dependencyPaths,
+      JarLinkageReport previousReport, ChangedClasses changed) throws IOException {
+    Map<SymbolReference, StaticLinkageError<?>> previousErrors = new HashMap<>();
+    for (StaticLinkageError<?> error : previousReport.getMissingClassErrors()) {
+      previousErrors.put(error.getReference(), error);
+    }
+    for (StaticLinkageError<?> error : previousReport.getMissingMethodErrors()) {
+      previousErrors.put(error.getReference(), error);
+    }
+    for (StaticLinkageError<?> error : previousReport.getMissingFieldErrors()) {
+      previousErrors.put(error.getReference(), error);
+    }
+
+    ImmutableSet<String> classesDefinedInJar = classDumper.classesDefinedInJar(jarPath);
+    return JarLinkageReport.builder()
+        .setJarPath(jarPath)
+        .setDependencyPaths(dependencyPaths)
+        .setMissingClassErrors(
+            errorsFromSymbolReferences(
+                symbolReferenceSet.getClassReferences(),
+                classesDefinedInJar,
+                reuseUnaffected(
+                    checkClassTimer.wrap(this::checkLinkageErrorMissingClassAt),
+                    previousErrors,
+                    reference -> changed.contains(reference.getTargetClassName()))))
+        .setMissingMethodErrors(
+            errorsFromSymbolReferences(
+                symbolReferenceSet.getMethodReferences(),
+                classesDefinedInJar,
+                reuseUnaffected(
+                    checkMethodTimer.wrap(this::checkLinkageErrorMissingMethodAt),
+                    previousErrors,
+                    reference ->
+                        changed.containsHierarchyOf(reference.getTargetClassName())
+                            || changed.containsParameterTypeOf(reference.getDescriptor()))))
+        .setMissingFieldErrors(
+            errorsFromSymbolReferences(
+                symbolReferenceSet.getFieldReferences(),
+                classesDefinedInJar,
+                reuseUnaffected(
+                    checkFieldTimer.wrap(this::checkLinkageErrorMissingFieldAt),
+                    previousErrors,
+                    reference -> changed.containsHierarchyOf(reference.getTargetClassName()))))
+        .build();
+  }
+
+  /**
+   * Returns a function that applies {@code checkFunction} to the references for which {@code
+   * affected} is true and returns the error in {@code previousErrors}, if any, for the others.
+   */
+  private static <R extends SymbolReference>
+      Function<R, Optional<StaticLinkageError<R>>> reuseUnaffected(
+          Function<R, Optional<StaticLinkageError<R>>> checkFunction,
+          Map<SymbolReference, StaticLinkageError<?>> previousErrors,
+          Predicate<R> affected) {
+    return reference -> {
+      if (affected.test(reference)) {
+        return checkFunction.apply(reference);
+      }
+      reusedReferenceCounter.increment();
+      @SuppressWarnings("unchecked") // the error of a reference has the type of the reference
+      StaticLinkageError<R> error = (StaticLinkageError<R>) previousErrors.get(reference);
+      return Optional.ofNullable(error);
+    };
+  }
+
+  /**
+   * Classes that may resolve differently than in an earlier check because the jar files defining
+   * them were added, removed or modified.
+   */
+  private final class ChangedClasses {
+    private final Set<String> classNames;
+    // Class names to whether the class or any of its superclasses and interfaces changed
+    private final Map<String, Boolean> hierarchies = new HashMap<>();
+
+    private ChangedClasses(Set<String> classNames) {
+      this.classNames = classNames;
+    }
+
+    private boolean contains(String className) {
+      // Array classes are checked again rather than taking apart their element types
+      return className.startsWith("[") || classNames.contains(className);
+    }
+
+    /** Returns true if the class, one of its superclasses or one of its interfaces changed. */
+    private boolean containsHierarchyOf(String className) {
+      Boolean changed = hierarchies.get(className);
+      if (changed != null) {
+        return changed;
+      }
+      changed = contains(className);
+      if (!changed) {
+        // BCEL gives java.lang.Object as the superclass of java.lang.Object
+        hierarchies.put(className, false);
+        try {
+          JavaClass javaClass = classDumper.loadJavaClass(className);
+          changed = containsHierarchyOf(javaClass.getSuperclassName());
+          for (String interfaceName : javaClass.getInterfaceNames()) {
+            changed = changed || containsHierarchyOf(interfaceName);
+          }
+        } catch (ClassNotFoundException ex) {
+          // Not found in this class path and not in a changed jar file, so not found before either
+        }
+      }
+      hierarchies.put(className, changed);
+      return changed;
+    }
+
+    /** Returns true if the class of a parameter type in the method descriptor changed. */
+    private boolean containsParameterTypeOf(String methodDescriptor) {
+      for (Type type : Type.getArgumentTypes(methodDescriptor)) {
+        if (type instanceof ArrayType) {
+          type = ((ArrayType) type).getBasicType();
+        }
+        if (type instanceof ObjectType && contains(((ObjectType) type).getClassName())) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
   private static <R extends SymbolReference, C> ImmutableList<C> errorsFromSymbolReferences(
       Set<R> symbolReferences,
       Set<String> classesDefinedInJar,
@@ -0,0 +1,443 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.collection.CollectResult;
+import org.eclipse.aether.collection.DependencyCollectionException;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyCycle;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.graph.Exclusion;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.resolution.DependencyResolutionException;
+import org.eclipse.aether.util.artifact.ArtifactIdUtils;
+
+/**
+ * Dependency graphs of many artifacts, such as the members of a BOM, resolved together by {@link
+ * DependencyGraphBuilder#getBatchedDependencies(List)}. The resolver reads the descriptor of each
+ * artifact once and shares the subtrees of artifacts that appear under more than one member, so
+ * the cost grows with the number of unique artifacts rather than with the number of members times
+ * the depth of their trees.
+ *
+ * <p>The batch is one unmediated tree of all members with the dependencies of 'provided' scope.
+ * {@link #getStaticLinkageCheckDependencies(Artifact)} and {@link
+ * #getCompleteDependencies(Artifact)} derive the graph of each member from it with and without
+ * those dependencies, with every path of the member's subtree like {@link
+ * DependencyGraphBuilder#getStaticLinkageCheckDependencies(List)} and {@link
+ * DependencyGraphBuilder#getCompleteDependencies(Artifact)}. {@link
+ * #getTransitiveDependencies(Artifact)} applies the dependency management, the scopes, the
+ * exclusions and the optional flags of the member to the same tree and mediates the versions.
+ *
+ * <p>The few artifacts that the tree does not have with their own dependencies, such as a version
+ * nested under another version of the same artifact or a version managed by a member, are resolved
+ * on their own.
+ */
+public final class BatchedDependencyGraphs {
+
+  private final ImmutableMap<String, DependencyNode> memberNodes;
+  // A node with the dependencies of each artifact in the tree, by coordinates
+  private final ImmutableMap<String, DependencyNode> nodes;
+  private final ImmutableSet<String> unresolved;
+  @Nullable private final DependencyResolutionException failure;
+
+  private BatchedDependencyGraphs(
+      ImmutableMap<String, DependencyNode> memberNodes,
+      ImmutableMap<String, DependencyNode> nodes,
+      ImmutableSet<String> unresolved,
+      @Nullable DependencyResolutionException failure) {
+    this.memberNodes = memberNodes;
+    this.nodes = nodes;
+    this.unresolved = unresolved;
+    this.failure = failure;
+  }
+
+  /**
+   * Returns the graphs of {@code members} in the tree of {@code collectResult}, whose children
+   * are the nodes of the members. When the resolution of some artifacts failed with {@code
+   * failure}, the graphs that have them are unavailable.
+   */
+  static BatchedDependencyGraphs create(
+      List<Artifact> members,
+      CollectResult collectResult,
+      @Nullable DependencyResolutionException failure) {
+    DependencyNode root = collectResult.getRoot();
+    ImmutableMap.Builder<String, DependencyNode> memberNodes = ImmutableMap.builder();
+    Map<String, DependencyNode> childrenByKey = new HashMap<>();
+    for (DependencyNode child : root.getChildren()) {
+      childrenByKey.putIfAbsent(Artifacts.makeKey(child.getArtifact()), child);
+    }
+    Set<String> added = new HashSet<>();
+    for (Artifact member : members) {
+      String coordinates = Artifacts.toCoordinates(member);
+      DependencyNode node = childrenByKey.get(Artifacts.makeKey(member));
+      if (node != null && added.add(coordinates)) {
+        memberNodes.put(coordinates, node);
+      }
+    }
+    return new BatchedDependencyGraphs(
+        memberNodes.build(),
+        nodesByCoordinates(root, cyclicVersions(collectResult)),
+        unresolvedCoordinates(failure),
+        failure);
+  }
+
+  /**
+   * Returns the coordinates of the artifacts that the resolver found under another version of
+   * themselves. The resolver treats such an artifact as a cycle and gives its node the children of
+   * the other version instead of its own.
+   */
+  private static Set<String> cyclicVersions(CollectResult collectResult) {
+    Set<String> cyclicVersions = new HashSet<>();
+    for (DependencyCycle cycle : collectResult.getCycles()) {
+      List<Dependency> dependencies = new ArrayList<>(cycle.getPrecedingDependencies());
+      dependencies.addAll(cycle.getCyclicDependencies());
+      Artifact last = dependencies.get(dependencies.size() - 1).getArtifact();
+      for (Dependency dependency : dependencies) {
+        Artifact artifact = dependency.getArtifact();
+        if (ArtifactIdUtils.equalsVersionlessId(artifact, last)
+            && !artifact.getVersion().equals(last.getVersion())) {
+          cyclicVersions.add(Artifacts.toCoordinates(last));
+        }
+      }
+    }
+    return cyclicVersions;
+  }
+
+  /**
+   * Returns a node of each artifact in the tree that has the children of the artifact. Nodes of
+   * the same artifact share their children in the tree of the resolver.
+   */
+  private static ImmutableMap<String, DependencyNode> nodesByCoordinates(
+      DependencyNode root, Set<String> cyclicVersions) {
+    Map<String, DependencyNode> nodes = new HashMap<>();
+    // The nodes of a cycle link back to the children of their ancestor
+    Set<DependencyNode> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    Queue<DependencyNode> queue = new ArrayDeque<>(root.getChildren());
+    while (!queue.isEmpty()) {
+      DependencyNode node = queue.poll();
+      if (!visited.add(node)) {
+        continue;
+      }
+      String coordinates = Artifacts.toCoordinates(node.getArtifact());
+      if (!cyclicVersions.contains(coordinates)) {
+        nodes.putIfAbsent(coordinates, node);
+      }
+      queue.addAll(node.getChildren());
+    }
+    return ImmutableMap.copyOf(nodes);
+  }
+
+  private static ImmutableSet<String> unresolvedCoordinates(
+      @Nullable DependencyResolutionException failure) {
+    if (failure == null || failure.getResult() == null) {
+      return ImmutableSet.of();
+    }
+    ImmutableSet.Builder<String> unresolved = ImmutableSet.builder();
+    for (ArtifactResult result : failure.getResult().getArtifactResults()) {
+      if (!result.isResolved()) {
+        unresolved.add(Artifacts.toCoordinates(result.getRequest().getArtifact()));
+      }
+    }
+    return unresolved.build();
+  }
+
+  /** Returns the coordinates of the members, in the order they were requested. */
+  public ImmutableList<String> getMembers() {
+    return memberNodes.keySet().asList();
+  }
+
+  /**
+   * Returns the full dependency graph of the member including duplicates and conflicting versions,
+   * as {@link DependencyGraphBuilder#getCompleteDependencies(Artifact)} returns.
+   *
+   * @throws DependencyCollectionException when there is a problem in collecting dependency
+   * @throws DependencyResolutionException when an artifact in the graph was not resolved
+   * @throws IllegalArgumentException when the artifact is not one of the members
+   */
+  public DependencyGraph getCompleteDependencies(Artifact member)
+      throws DependencyCollectionException, DependencyResolutionException {
+    return completeGraph(ImmutableList.of(getMemberNode(member)), false, member);
+  }
+
+  /**
+   * Returns the full dependency graph of the member including duplicates, conflicting versions
+   * and dependencies with 'provided' scope, as {@link
+   * DependencyGraphBuilder#getStaticLinkageCheckDependencies(List)} returns for the member alone.
+   *
+   * @throws DependencyCollectionException when there is a problem in collecting dependency
+   * @throws DependencyResolutionException when an artifact in the graph was not resolved
+   * @throws IllegalArgumentException when the artifact is not one of the members
+   */
+  public DependencyGraph getStaticLinkageCheckDependencies(Artifact member)
+      throws DependencyCollectionException, DependencyResolutionException {
+    return completeGraph(ImmutableList.of(getMemberNode(member)), true, member);
+  }
+
+  /**
+   * Returns the full dependency graph of all members, in the same order as {@link
+   * DependencyGraphBuilder#getStaticLinkageCheckDependencies(List)}.
+   *
+   * @throws DependencyCollectionException when there is a problem in collecting dependency
+   * @throws DependencyResolutionException when an artifact in the graph was not resolved
+   */
+  public DependencyGraph getStaticLinkageCheckDependencies()
+      throws DependencyCollectionException, DependencyResolutionException {
+    if (failure != null) {
+      throw failure;
+    }
+    return completeGraph(memberNodes.values(), true, null);
+  }
+
+  private DependencyGraph completeGraph(Collection<DependencyNode> startNodes,
+      boolean includeProvidedScope, @Nullable Artifact member)
+      throws DependencyCollectionException, DependencyResolutionException {
+    DependencyGraph graph = new DependencyGraph();
+    GraphBudget.Tracker budget = DependencyGraphBuilder.getGraphBudget().start();
+    Set<String> missing = new LinkedHashSet<>();
+    Queue<QueueItem> queue = new ArrayDeque<>();
+    for (DependencyNode node : startNodes) {
+      queue.add(new QueueItem(node.getArtifact(), new DependencyPath()));
+    }
+    while (!queue.isEmpty() && !budget.isExhausted()) {
+      QueueItem item = queue.poll();
+      if (item.repeatsDependency()) {
+        // DependencyGraphBuilder stops a cycle where it reaches a dependency on the path again
+        continue;
+      }
+      DependencyPath path = item.path();
+      if (!budget.admit(path)) {
+        continue;
+      }
+      graph.addPath(path);
+      addIfUnresolved(missing, item.artifact);
+      for (DependencyNode child : getNode(item.artifact).getChildren()) {
+        if (includeProvidedScope || !"provided".equals(child.getDependency().getScope())) {
+          queue.add(new QueueItem(child.getArtifact(), path));
+        }
+      }
+    }
+    graph.setTruncated(budget.isTruncated());
+    checkResolved(missing, member);
+    return graph;
+  }
+
+  /**
+   * Returns the dependency graph of the member with one version of each artifact, as {@link
+   * DependencyGraphBuilder#getTransitiveDependencies(Artifact)} returns. The dependency
+   * management of the member applies to its transitive dependencies, the exclusions of each
+   * dependency apply below it, and the optional dependencies and the dependencies of 'provided'
+   * scope are left out below the member before {@link DependencyGraph#mediate()} picks the
+   * versions.
+   *
+   * @throws DependencyCollectionException when there is a problem in collecting dependency
+   * @throws DependencyResolutionException when an artifact in the graph was not resolved
+   * @throws IllegalArgumentException when the artifact is not one of the members
+   */
+  public DependencyGraph getTransitiveDependencies(Artifact member)
+      throws DependencyCollectionException, DependencyResolutionException {
+    DependencyNode memberNode = getMemberNode(member);
+    Map<String, Dependency> managedDependencies = new HashMap<>();
+    for (Dependency managed :
+        DependencyGraphBuilder.getManagedDependencies(memberNode.getArtifact())) {
+      managedDependencies.putIfAbsent(
+          ArtifactIdUtils.toVersionlessId(managed.getArtifact()), managed);
+    }
+
+    DependencyGraph graph = new DependencyGraph();
+    GraphBudget.Tracker budget = DependencyGraphBuilder.getGraphBudget().start();
+    Queue<ManagedItem> queue = new ArrayDeque<>();
+    queue.add(new ManagedItem(memberNode.getArtifact(), new DependencyPath(), ImmutableList.of()));
+    while (!queue.isEmpty() && !budget.isExhausted()) {
+      ManagedItem item = queue.poll();
+      DependencyPath path = item.path();
+      if (!budget.admit(path)) {
+        continue;
+      }
+      graph.addPath(path);
+      // The resolver manages and filters the dependencies below the direct dependencies
+      boolean transitive = path.size() > 1;
+      for (DependencyNode child : getNode(item.artifact).getChildren()) {
+        Dependency dependency = child.getDependency();
+        String scope = dependency.getScope();
+        if ("provided".equals(scope)
+            || "test".equals(scope)
+            || (transitive && dependency.isOptional())
+            || isExcluded(child.getArtifact(), item.exclusions)) {
+          continue;
+        }
+        Artifact artifact = child.getArtifact();
+        List<Exclusion> exclusions = new ArrayList<>(item.exclusions);
+        exclusions.addAll(dependency.getExclusions());
+        Dependency managed =
+            transitive ? managedDependencies.get(ArtifactIdUtils.toVersionlessId(artifact)) : null;
+        if (managed != null) {
+          if (!managed.getArtifact().getVersion().equals(artifact.getVersion())) {
+            artifact = getNode(managed.getArtifact()).getArtifact();
+          }
+          exclusions.addAll(managed.getExclusions());
+        }
+        if (!isOnPath(artifact, path)) {
+          // Otherwise the resolver finds a cycle, where the nearer ancestor wins
+          queue.add(new ManagedItem(artifact, path, exclusions));
+        }
+      }
+    }
+    graph.setTruncated(budget.isTruncated());
+
+    DependencyGraph mediated = graph.mediate();
+    Set<String> missing = new LinkedHashSet<>();
+    for (DependencyPath path : mediated.list()) {
+      addIfUnresolved(missing, path.getLeaf());
+    }
+    checkResolved(missing, member);
+    return mediated;
+  }
+
+  private static boolean isExcluded(Artifact artifact, List<Exclusion> exclusions) {
+    for (Exclusion exclusion : exclusions) {
+      if (matches(exclusion.getGroupId(), artifact.getGroupId())
+          && matches(exclusion.getArtifactId(), artifact.getArtifactId())
+          && matches(exclusion.getExtension(), artifact.getExtension())
+          && matches(exclusion.getClassifier(), artifact.getClassifier())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean matches(String pattern, String value) {
+    return "*".equals(pattern) || pattern.equals(value);
+  }
+
+  private static boolean isOnPath(Artifact artifact, DependencyPath path) {
+    for (Artifact ancestor : path.getPath()) {
+      if (ArtifactIdUtils.equalsVersionlessId(ancestor, artifact)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void addIfUnresolved(Set<String> missing, Artifact artifact) {
+    String coordinates = Artifacts.toCoordinates(artifact);
+    if (unresolved.contains(coordinates)) {
+      missing.add(coordinates);
+    }
+  }
+
+  private void checkResolved(Set<String> missing, @Nullable Artifact member)
+      throws DependencyResolutionException {
+    if (missing.isEmpty()) {
+      return;
+    }
+    String message = "Could not resolve " + missing;
+    if (member != null) {
+      message += " in the dependencies of " + Artifacts.toCoordinates(member);
+    }
+    throw new DependencyResolutionException(failure.getResult(), message, failure);
+  }
+
+  /**
+   * Returns a node of the artifact with its dependencies, from the tree of the batch or, if the
+   * tree does not have them, from a resolution of the artifact on its own.
+   */
+  private DependencyNode getNode(Artifact artifact)
+      throws DependencyCollectionException, DependencyResolutionException {
+    DependencyNode node = nodes.get(Artifacts.toCoordinates(artifact));
+    if (node == null) {
+      node = DependencyGraphBuilder.resolveWithProvidedScope(artifact);
+    }
+    return node;
+  }
+
+  private DependencyNode getMemberNode(Artifact member) {
+    String coordinates = Artifacts.toCoordinates(member);
+    DependencyNode memberNode = memberNodes.get(coordinates);
+    if (memberNode == null) {
+      throw new IllegalArgumentException(coordinates + " is not a member of the batch");
+    }
+    return memberNode;
+  }
+
+  private static class QueueItem {
+    final Artifact artifact;
+    final DependencyPath parentPath;
+
+    private QueueItem(Artifact artifact, DependencyPath parentPath) {
+      this.artifact = artifact;
+      this.parentPath = parentPath;
+    }
+
+    /**
+     * Returns true if the parent path already has the dependency from the parent to this
+     * artifact. A path may reach an artifact again, but not go on through the same dependency.
+     */
+    private boolean repeatsDependency() {
+      int size = parentPath.size();
+      if (size < 2) {
+        return false;
+      }
+      CoordinateTable table = CoordinateTable.shared();
+      int parentId = parentPath.getId(size - 1, table);
+      int id = table.getId(artifact);
+      for (int i = 0; i < size - 1; i++) {
+        if (parentPath.getId(i, table) == parentId && parentPath.getId(i + 1, table) == id) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /** Returns a new path of the parent path followed by the artifact. */
+    DependencyPath path() {
+      DependencyPath path = new DependencyPath();
+      for (Artifact parent : parentPath.getPath()) {
+        path.add(parent);
+      }
+      path.add(artifact);
+      return path;
+    }
+  }
+
+  /** Item of a path with the exclusions of the dependencies on the path. */
+  private static final class ManagedItem extends QueueItem {
+    private final List<Exclusion> exclusions;
+
+    private ManagedItem(Artifact artifact, DependencyPath parentPath, List<Exclusion> exclusions) {
+      super(artifact, parentPath);
+      this.exclusions = exclusions;
+    }
+  }
+}
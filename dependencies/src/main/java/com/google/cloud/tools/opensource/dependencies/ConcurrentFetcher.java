@@ -0,0 +1,214 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+import org.eclipse.aether.RepositoryException;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactDescriptorRequest;
+import org.eclipse.aether.resolution.ArtifactDescriptorResult;
+import org.eclipse.aether.resolution.ArtifactRequest;
+
+/**
+ * Fetches POM files and jar files into the local repository concurrently, ahead of the resolver.
+ * The resolver reads artifact descriptors one at a time while it collects a dependency graph, and
+ * downloads the artifacts of the graph with a small fixed number of threads. After a prefetch,
+ * both find the files in the local repository.
+ *
+ * <p>Each fetch blocks on network I/O. On Java 21 and later each fetch runs on its own virtual
+ * thread; on earlier runtimes it runs on a pool of platform threads. Either way, at most {@code
+ * concurrency} fetches are in flight.
+ *
+ * <p>A fetcher serves the resolutions of one traversal of dependency graphs. Each descriptor and
+ * each file is fetched at most once across its prefetches, so that the resolutions of nodes deep
+ * in a graph do not fetch again what the resolution of the root has fetched.
+ *
+ * <p>Prefetching is best effort. A failed fetch is logged and left to the resolver, which reports
+ * it with the context of the dependency graph.
+ */
+final class ConcurrentFetcher implements AutoCloseable {
+
+  private static final Logger logger = Logger.getLogger(ConcurrentFetcher.class.getName());
+
+  private static final Metrics.Counter descriptorCounter =
+      Metrics.counter("dependencies.prefetch.descriptors");
+  private static final Metrics.Counter artifactCounter =
+      Metrics.counter("dependencies.prefetch.artifacts");
+
+  private final RepositorySystem system;
+  private final RepositorySystemSession session;
+  private final ExecutorService executor;
+  private final Semaphore permits;
+  private final boolean virtualThreads;
+  private final Set<String> descriptorsRead = ConcurrentHashMap.newKeySet();
+  private final Set<String> artifactsFetched = ConcurrentHashMap.newKeySet();
+
+  ConcurrentFetcher(RepositorySystem system, RepositorySystemSession session, int concurrency) {
+    Preconditions.checkArgument(concurrency > 0, "concurrency must be positive");
+    this.system = system;
+    this.session = session;
+    this.permits = new Semaphore(concurrency);
+    ExecutorService virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+    this.virtualThreads = virtualThreadExecutor != null;
+    this.executor =
+        virtualThreads
+            ? virtualThreadExecutor
+            : Executors.newFixedThreadPool(
+                concurrency,
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("fetch-%d").build());
+  }
+
+  /**
+   * Returns {@code Executors.newVirtualThreadPerTaskExecutor()} when the runtime has it, or null.
+   * This project compiles for Java 8, where the method does not exist.
+   */
+  @Nullable
+  private static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException ex) {
+      return null;
+    }
+  }
+
+  /** Returns true if the fetches run on virtual threads. */
+  boolean usesVirtualThreads() {
+    return virtualThreads;
+  }
+
+  /**
+   * Reads the descriptors of {@code roots} and, transitively, of their dependencies except those
+   * with test scope or declared optional below the roots, skipping the descriptors read by
+   * earlier prefetches. Returns when all reads have finished.
+   */
+  void prefetchDescriptors(List<Artifact> roots, List<RemoteRepository> repositories) {
+    Queue<Future<?>> pending = new ConcurrentLinkedQueue<>();
+    for (Artifact root : roots) {
+      submitDescriptorRead(root, true, repositories, pending);
+    }
+    // A read submits the reads of its dependencies before it finishes
+    Future<?> next;
+    while ((next = pending.poll()) != null) {
+      await(next);
+    }
+  }
+
+  private void submitDescriptorRead(Artifact artifact, boolean root,
+      List<RemoteRepository> repositories, Queue<Future<?>> pending) {
+    String version = artifact.getVersion();
+    if (version.startsWith("[") || version.startsWith("(")) {
+      // The resolver chooses a version from the range
+      return;
+    }
+    if (!descriptorsRead.add(Artifacts.toCoordinates(artifact))) {
+      return;
+    }
+    pending.add(submit(() -> {
+      ArtifactDescriptorRequest request =
+          new ArtifactDescriptorRequest(artifact, repositories, null);
+      ArtifactDescriptorResult result = system.readArtifactDescriptor(session, request);
+      descriptorCounter.increment();
+      for (Dependency dependency : result.getDependencies()) {
+        if ("test".equals(dependency.getScope()) || (dependency.isOptional() && !root)) {
+          continue;
+        }
+        submitDescriptorRead(
+            dependency.getArtifact(), false, result.getRepositories(), pending);
+      }
+      return null;
+    }));
+  }
+
+  /**
+   * Downloads the files of the artifacts in the dependency graph of {@code node}, skipping the
+   * files downloaded by earlier prefetches. Returns when all downloads have finished.
+   */
+  void prefetchArtifacts(DependencyNode node) {
+    List<Future<?>> downloads = new ArrayList<>();
+    List<DependencyNode> stack = new ArrayList<>();
+    stack.add(node);
+    while (!stack.isEmpty()) {
+      DependencyNode current = stack.remove(stack.size() - 1);
+      stack.addAll(current.getChildren());
+      Artifact artifact = current.getArtifact();
+      if (artifact == null || !artifactsFetched.add(Artifacts.toCoordinates(artifact))) {
+        continue;
+      }
+      ArtifactRequest request = new ArtifactRequest(artifact, current.getRepositories(), null);
+      downloads.add(submit(() -> {
+        system.resolveArtifact(session, request);
+        artifactCounter.increment();
+        return null;
+      }));
+    }
+    downloads.forEach(ConcurrentFetcher::await);
+  }
+
+  private Future<?> submit(Callable<Void> fetch) {
+    return executor.submit(() -> {
+      permits.acquire();
+      try {
+        return fetch.call();
+      } finally {
+        permits.release();
+      }
+    });
+  }
+
+  private static void await(Future<?> future) {
+    try {
+      future.get();
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof RepositoryException) {
+        logger.log(Level.FINE, "Prefetch failed", ex.getCause());
+      } else {
+        logger.log(Level.WARNING, "Prefetch failed", ex.getCause());
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import org.eclipse.aether.artifact.Artifact;
+
+/**
+ * Table of the Maven coordinates seen by the tools, giving each groupId:artifactId:version and
+ * each groupId:artifactId a dense integer ID. Graph structures use the IDs as keys instead of
+ * strings built by {@link Artifacts#toCoordinates(Artifact)} and {@link
+ * Artifacts#makeKey(Artifact)}: finding the ID of an artifact neither concatenates nor hashes the
+ * whole coordinates, and comparing IDs is a comparison of integers.
+ *
+ * <p>IDs are never reused or removed from a table. A long-running process, such as a server,
+ * calls {@link #reset()} between unrelated requests so that the shared table does not keep every
+ * coordinate it has seen. This class is thread-safe.
+ */
+public final class CoordinateTable {
+
+  private static volatile CoordinateTable shared = new CoordinateTable();
+
+  private final Interner coordinates = new Interner();
+  private final Interner keys = new Interner();
+
+  /** Returns the table shared by the graphs and paths created since the last {@link #reset()}. */
+  public static CoordinateTable shared() {
+    return shared;
+  }
+
+  /**
+   * Starts a new shared table. The graphs and paths created before keep the previous table, which
+   * is garbage collected with the last of them.
+   */
+  public static void reset() {
+    shared = new CoordinateTable();
+  }
+
+  /** Returns the ID of the groupId:artifactId:version of the artifact. */
+  public int getId(Artifact artifact) {
+    return coordinates.intern(
+        new Key(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion()));
+  }
+
+  /** Returns the ID of the groupId:artifactId of the artifact. */
+  public int getKeyId(Artifact artifact) {
+    return keys.intern(new Key(artifact.getGroupId(), artifact.getArtifactId(), null));
+  }
+
+  /** Returns the ID of the groupId:artifactId:version, or -1 if the table does not have it. */
+  public int findId(String coordinates) {
+    return this.coordinates.find(coordinates);
+  }
+
+  /** Returns the ID of the groupId:artifactId, or -1 if the table does not have it. */
+  public int findKeyId(String key) {
+    return keys.find(key);
+  }
+
+  /** Returns the groupId:artifactId:version with the ID. */
+  public String getCoordinates(int id) {
+    return coordinates.getName(id);
+  }
+
+  /** Returns the groupId:artifactId with the ID. */
+  public String getKey(int keyId) {
+    return keys.getName(keyId);
+  }
+
+  /**
+   * Returns a hash code of the groupId:artifactId:version of the artifact, which unlike its ID is
+   * the same in every table.
+   */
+  static int hashCode(Artifact artifact) {
+    return hashCode(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion());
+  }
+
+  private static int hashCode(String groupId, String artifactId, @Nullable String version) {
+    return (groupId.hashCode() * 31 + artifactId.hashCode()) * 31 + Objects.hashCode(version);
+  }
+
+  /** Coordinates compared by the strings of the artifact, whose hash codes are cached. */
+  private static final class Key {
+    private final String groupId;
+    private final String artifactId;
+    @Nullable private final String version;
+
+    private Key(String groupId, String artifactId, @Nullable String version) {
+      this.groupId = groupId;
+      this.artifactId = artifactId;
+      this.version = version;
+    }
+
+    private String toName() {
+      String key = groupId + ":" + artifactId;
+      return version == null ? key : key + ":" + version;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) other;
+      return groupId.equals(key.groupId)
+          && artifactId.equals(key.artifactId)
+          && Objects.equals(version, key.version);
+    }
+
+    @Override
+    public int hashCode() {
+      return CoordinateTable.hashCode(groupId, artifactId, version);
+    }
+  }
+
+  private static final class Interner {
+    private final ConcurrentHashMap<Key, Integer> ids = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> idsByName = new ConcurrentHashMap<>();
+    // Written under the lock of this interner; the volatile write publishes the new name before
+    // its ID is put in the maps
+    private volatile String[] names = new String[1024];
+    private int size;
+
+    private int intern(Key key) {
+      Integer id = ids.get(key);
+      if (id != null) {
+        return id;
+      }
+      synchronized (this) {
+        id = ids.get(key);
+        if (id != null) {
+          return id;
+        }
+        String name = key.toName();
+        String[] array = names;
+        if (size == array.length) {
+          array = Arrays.copyOf(array, size * 2);
+        }
+        array[size] = name;
+        names = array;
+        id = size++;
+        idsByName.put(name, id);
+        ids.put(key, id);
+        return id;
+      }
+    }
+
+    private int find(String name) {
+      Integer id = idsByName.get(name);
+      return id == null ? -1 : id;
+    }
+
+    private String getName(int id) {
+      return names[id];
+    }
+  }
+}
@@ -16,22 +16,27 @@
 
 package com.google.cloud.tools.opensource.dependencies;
 
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
 
 import org.eclipse.aether.artifact.Artifact;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.MultimapBuilder;
 import com.google.common.collect.SetMultimap;
-import com.google.common.collect.TreeMultimap;
+import com.google.common.collect.SortedSetMultimap;
 
 /**
  * A representation of the complete non-cyclic transitive dependency tree of a Maven artifact.
@@ -50,14 +55,36 @@ public class DependencyGraph {
   // That is, this list contains the paths to each node in breadth first order 
   private final List<DependencyPath> graph = new ArrayList<>();
 
-  // map of groupId:artifactId to versions
+  // Artifacts are indexed by the IDs of their coordinates in the shared table when the graph was
+  // created
+  private final CoordinateTable table = CoordinateTable.shared();
+
+  // map of the ID of groupId:artifactId to versions. The methods that return artifacts in the
+  // order of groupId:artifactId sort the IDs by their keys.
   // TODO if versions' values were the whole coordinate string 
   // (or even the Artifact itself), would this be simpler?
-  private final TreeMultimap<String, String> versions =
-      TreeMultimap.create(Comparator.naturalOrder(), new VersionComparator());
+  private final SortedSetMultimap<Integer, String> versions =
+      MultimapBuilder.hashKeys().treeSetValues(new VersionComparator()).build();
   
-  // map of groupId:artifactId:version to paths
-  private SetMultimap<String, DependencyPath> paths = HashMultimap.create();
+  // map of the ID of groupId:artifactId:version to paths
+  private SetMultimap<Integer, DependencyPath> paths = HashMultimap.create();
+
+  // Adjacency and reverse adjacency of the artifacts, built as the paths are added so that
+  // queries take time proportional to their results instead of scanning the paths.
+  // map of the ID of groupId:artifactId:version to the IDs of its direct dependencies
+  private final SetMultimap<Integer, Integer> dependencies = LinkedHashMultimap.create();
+  // map of the ID of groupId:artifactId:version to the IDs of the artifacts that directly depend
+  // on it
+  private final SetMultimap<Integer, Integer> dependents = LinkedHashMultimap.create();
+  // map of the ID of groupId:artifactId to the IDs of the artifacts that directly depend on any
+  // version of it
+  private final SetMultimap<Integer, Integer> dependentsByKey = LinkedHashMultimap.create();
+  // map of the ID of groupId:artifactId:version to the IDs of the roots of the paths to it
+  private final SetMultimap<Integer, Integer> roots = LinkedHashMultimap.create();
+  // map of the ID of groupId:artifactId:version to the first artifact added with the coordinates
+  private final Map<Integer, Artifact> artifacts = new HashMap<>();
+
+  private boolean truncated;
   
   @VisibleForTesting
   public DependencyGraph() {
@@ -66,9 +93,19 @@ public class DependencyGraph {
   void addPath(DependencyPath path) {
     graph.add(path);
     Artifact leaf = path.getLeaf();
-    String coordinates = Artifacts.toCoordinates(leaf);
-    versions.put(Artifacts.makeKey(leaf), leaf.getVersion());
-    paths.put(coordinates, path);
+    int leafId = path.getId(path.size() - 1, table);
+    int keyId = table.getKeyId(leaf);
+    versions.put(keyId, leaf.getVersion());
+    paths.put(leafId, path);
+
+    artifacts.putIfAbsent(leafId, leaf);
+    roots.put(leafId, path.getId(0, table));
+    if (path.size() > 1) {
+      int parentId = path.getId(path.size() - 2, table);
+      dependencies.put(parentId, leafId);
+      dependents.put(leafId, parentId);
+      dependentsByKey.put(keyId, parentId);
+    }
   }
   
   /**
@@ -77,17 +114,40 @@ public class DependencyGraph {
    */
   List<DependencyPath> findConflicts() {
     List<DependencyPath> result = new ArrayList<>();
-    for (String coordinates : versions.keySet()) {
-      Set<String> artifactVersions = versions.get(coordinates);
+    for (int keyId : sortedKeyIds()) {
+      Set<String> artifactVersions = versions.get(keyId);
       if (artifactVersions.size() > 1) { // multiple versions
         for (String conflictingVersion : artifactVersions) {
-          result.addAll(paths.get(coordinates + ":" + conflictingVersion));
+          result.addAll(paths.get(findId(keyId, conflictingVersion)));
         }
       }
     }
     return result;
   }
 
+  /** Returns the IDs of groupId:artifactId in the order of groupId:artifactId. */
+  private List<Integer> sortedKeyIds() {
+    List<Integer> keyIds = new ArrayList<>(versions.keySet());
+    keyIds.sort(Comparator.comparing(table::getKey));
+    return keyIds;
+  }
+
+  private int findId(int keyId, String version) {
+    return table.findId(table.getKey(keyId) + ":" + version);
+  }
+
+  void setTruncated(boolean truncated) {
+    this.truncated = truncated;
+  }
+
+  /**
+   * Returns true if the graph has only the paths found before the traversal exceeded its {@link
+   * GraphBudget}.
+   */
+  public boolean isTruncated() {
+    return truncated;
+  }
+
   /**
    * @return a mutable copy of the paths in this graph, usually in breadth first order
    */
@@ -99,39 +159,92 @@ public class DependencyGraph {
    * @return all paths to the specified artifact
    */
   public Set<DependencyPath> getPaths(String coordinates) {
-    return paths.get(coordinates);
+    int id = table.findId(coordinates);
+    return id < 0 ? ImmutableSet.of() : paths.get(id);
+  }
+
+  /**
+   * Returns the groupId:artifactId:version of the direct dependencies of the artifact in this
+   * graph, in the order they were added.
+   *
+   * @param coordinates groupId:artifactId:version of the artifact
+   */
+  public Set<String> getDependencies(String coordinates) {
+    return toCoordinates(dependencies, table.findId(coordinates));
+  }
+
+  /**
+   * Returns the groupId:artifactId:version of the artifacts that directly depend on the artifact
+   * in this graph, in the order they were added. {@link #getPaths(String)} has the paths through
+   * them.
+   *
+   * @param coordinates groupId:artifactId:version of the artifact
+   */
+  public Set<String> getDependents(String coordinates) {
+    return toCoordinates(dependents, table.findId(coordinates));
+  }
+
+  /**
+   * Returns the groupId:artifactId:version of the artifacts that directly depend on any version
+   * of the artifact in this graph, in the order they were added.
+   *
+   * @param key groupId:artifactId of the artifact
+   */
+  public Set<String> getDependentsOfAnyVersion(String key) {
+    return toCoordinates(dependentsByKey, table.findKeyId(key));
+  }
+
+  /**
+   * Returns the groupId:artifactId:version of the roots of the paths to the artifact, such as the
+   * members of a BOM that pull it in.
+   *
+   * @param coordinates groupId:artifactId:version of the artifact
+   */
+  public Set<String> getRoots(String coordinates) {
+    return toCoordinates(roots, table.findId(coordinates));
+  }
+
+  private ImmutableSet<String> toCoordinates(SetMultimap<Integer, Integer> index, int id) {
+    if (id < 0) {
+      return ImmutableSet.of();
+    }
+    return index.get(id).stream().map(table::getCoordinates).collect(toImmutableSet());
   }
 
   /**
    * Returns a list of updates indicating desired updates formatted for a person to read.
    */
   public List<Update> findUpdates() {
-    List<DependencyPath> paths = findConflicts();
-    
     // now generate necessary upgrades
     LinkedHashSet<Update> upgrades = new LinkedHashSet<>();
-    for (DependencyPath path : paths) {
-      Artifact leaf = path.getLeaf();
-      String key = Artifacts.makeKey(leaf);
-      String highestVersion = versions.get(key).last();
-      if (!leaf.getVersion().equals(highestVersion)) {
-        Artifact parent = path.get(path.size() - 2);
-        // when the parent is out of date, update the parent instead
-        // TODO drop if any ancestor needs an update, instead of just the parent
-        // or perhaps we just order the updates from root down, and then rerun after
-        // each fix. Maybe even calculate what will be needed postfix
-        String lastParentVersion = versions.get(Artifacts.makeKey(parent)).last();
-        if (parent.getVersion().equals(lastParentVersion)) {
-          
-          // setVersion returns a new instance on change
-          Artifact updated = leaf.setVersion(highestVersion);
-          Update update = Update.builder()
-              .setParent(parent)
-              .setFrom(leaf)
-              .setTo(updated)
-              .build();
-          
-          upgrades.add(update); 
+    for (int keyId : sortedKeyIds()) {
+      SortedSet<String> artifactVersions = versions.get(keyId);
+      if (artifactVersions.size() < 2) {
+        continue;
+      }
+      String highestVersion = artifactVersions.last();
+      for (String version : artifactVersions.headSet(highestVersion)) {
+        int id = findId(keyId, version);
+        Artifact leaf = artifacts.get(id);
+        for (int parentId : dependents.get(id)) {
+          Artifact parent = artifacts.get(parentId);
+          // when the parent is out of date, update the parent instead
+          // TODO drop if any ancestor needs an update, instead of just the parent
+          // or perhaps we just order the updates from root down, and then rerun after
+          // each fix. Maybe even calculate what will be needed postfix
+          String lastParentVersion = versions.get(table.getKeyId(parent)).last();
+          if (parent.getVersion().equals(lastParentVersion)) {
+
+            // setVersion returns a new instance on change
+            Artifact updated = leaf.setVersion(highestVersion);
+            Update update = Update.builder()
+                .setParent(parent)
+                .setFrom(leaf)
+                .setTo(updated)
+                .build();
+
+            upgrades.add(update);
+          }
         }
       }
     }
@@ -141,18 +254,53 @@ public class DependencyGraph {
     return new ArrayList<>(upgrades);
   }
 
+  /**
+   * Returns the graph with the versions Maven picks from this complete graph, like {@link
+   * DependencyGraphBuilder#getTransitiveDependencies(Artifact)} but without another traversal of
+   * the dependencies. The nearest version of each artifact wins; among versions at the same depth,
+   * the first declared wins. The dependencies of the versions that lose are left out with them.
+   *
+   * <p>The paths in this graph do not record exclusions, optional dependencies or dependency
+   * management, so the mediation does not apply them.
+   */
+  public DependencyGraph mediate() {
+    // Sorting by depth turns a pre-order list into level order and keeps level order as is
+    List<DependencyPath> levelOrder = list();
+    levelOrder.sort(Comparator.comparingInt(DependencyPath::size));
+
+    DependencyGraph mediated = new DependencyGraph();
+    Set<Integer> pickedKeys = new HashSet<>();
+    Set<DependencyPath> picked = new HashSet<>();
+    for (DependencyPath path : levelOrder) {
+      if (path.size() > 1 && !picked.contains(parentOf(path))) {
+        continue;
+      }
+      if (pickedKeys.add(table.getKeyId(path.getLeaf()))) {
+        picked.add(path);
+        mediated.addPath(path);
+      }
+    }
+    mediated.setTruncated(truncated);
+    return mediated;
+  }
+
+  private static DependencyPath parentOf(DependencyPath path) {
+    DependencyPath parent = new DependencyPath();
+    for (int i = 0; i < path.size() - 1; i++) {
+      parent.add(path.get(i));
+    }
+    return parent;
+  }
+
   /**
    * @return a map of groupId:artifactId to the highest version found in the tree
    */
   public Map<String, String> getHighestVersionMap() {
-    Map<String, Collection<String>> input = versions.asMap();
     Map<String, String> output = new HashMap<>();
-    
-    VersionComparator comparator = new VersionComparator();
 
-    for (Map.Entry<String, Collection<String>> entry : input.entrySet()) {
-      String highestVersion = Collections.max(entry.getValue(), comparator);
-      output.put(entry.getKey(), highestVersion);
+    // The versions of each artifact are sorted by VersionComparator
+    for (int keyId : versions.keySet()) {
+      output.put(table.getKey(keyId), versions.get(keyId).last());
     }
     
     return output;
@@ -18,28 +18,47 @@ package com.google.cloud.tools.opensource.dependencies;
 
 import static com.google.common.collect.ImmutableList.toImmutableList;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Stack;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.eclipse.aether.AbstractForwardingRepositorySystemSession;
+import org.eclipse.aether.RepositoryEvent;
 import org.eclipse.aether.RepositoryException;
+import org.eclipse.aether.RepositoryListener;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.collection.CollectRequest;
 import org.eclipse.aether.collection.CollectResult;
 import org.eclipse.aether.collection.DependencyCollectionException;
+import org.eclipse.aether.collection.DependencyGraphTransformer;
+import org.eclipse.aether.collection.DependencyManager;
+import org.eclipse.aether.collection.DependencySelector;
 import org.eclipse.aether.graph.Dependency;
 import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactDescriptorException;
+import org.eclipse.aether.resolution.ArtifactDescriptorRequest;
+import org.eclipse.aether.resolution.ArtifactResult;
 import org.eclipse.aether.resolution.DependencyRequest;
 import org.eclipse.aether.resolution.DependencyResolutionException;
+import org.eclipse.aether.resolution.DependencyResult;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+import org.eclipse.aether.util.graph.manager.NoopDependencyManager;
+import org.eclipse.aether.util.graph.selector.ScopeDependencySelector;
+import org.eclipse.aether.util.listener.ChainedRepositoryListener;
 
 /**
  * Based on the <a href="https://maven.apache.org/resolver/index.html">Apache Maven Artifact
@@ -71,20 +90,93 @@ public class DependencyGraphBuilder {
   private static final Map<String, DependencyNode> cacheWithProvidedScope = new HashMap<>();
   private static final Map<String, DependencyNode> cacheWithoutProvidedScope = new HashMap<>();
 
-  private static DependencyNode resolveCompileTimeDependencies(Artifact rootDependencyArtifact)
-      throws DependencyCollectionException, DependencyResolutionException {
-    return resolveCompileTimeDependencies(rootDependencyArtifact, false);
+  private static final Metrics.Timer resolveTimer = Metrics.timer("dependencies.resolve");
+  private static final Metrics.Timer collectTimer = Metrics.timer("dependencies.collect");
+  private static final Metrics.Timer downloadTimer = Metrics.timer("dependencies.download");
+  private static final Metrics.Counter cacheHitCounter =
+      Metrics.counter("dependencies.resolve.cacheHits");
+  private static final Metrics.Timer prefetchTimer = Metrics.timer("dependencies.prefetch");
+
+  private static ImmutableList<RemoteRepository> repositories =
+      ImmutableList.of(RepositoryUtility.CENTRAL);
+
+  private static int fetchConcurrency = Integer.getInteger("dependencies.fetchConcurrency", 0);
+
+  private static UnresolvableArtifactCache unresolvableArtifacts =
+      UnresolvableArtifactCache.fromSystemProperties();
+
+  private static GraphBudget graphBudget = GraphBudget.fromSystemProperties();
+
+  /**
+   * Sets the remote repositories to resolve dependencies from, in order of preference. The default
+   * is Maven Central. This clears the dependencies resolved from the previous repositories.
+   */
+  public static void setRemoteRepositories(List<RemoteRepository> remoteRepositories) {
+    repositories = ImmutableList.copyOf(remoteRepositories);
+    cacheWithProvidedScope.clear();
+    cacheWithoutProvidedScope.clear();
+  }
+
+  /**
+   * Sets the number of POM and jar files fetched concurrently ahead of the resolver, or 0 to
+   * leave all fetching to the resolver. The default is the value of the {@code
+   * dependencies.fetchConcurrency} system property, or 0. On Java 21 and later each fetch runs on
+   * a virtual thread.
+   */
+  public static void setFetchConcurrency(int concurrency) {
+    Preconditions.checkArgument(concurrency >= 0, "concurrency must not be negative");
+    fetchConcurrency = concurrency;
+  }
+
+  /**
+   * Sets the cache of the artifacts missing from the remote repositories. A resolution that needs
+   * one of them fails without contacting the repositories. The default is configured by system
+   * properties as described in {@link UnresolvableArtifactCache}.
+   */
+  public static void setUnresolvableArtifactCache(UnresolvableArtifactCache cache) {
+    unresolvableArtifacts = Preconditions.checkNotNull(cache);
+  }
+
+  /**
+   * Sets the limits on the traversal of each dependency graph. A graph exceeding them has only
+   * the paths found before the limit and is {@link DependencyGraph#isTruncated() truncated}. The
+   * default is configured by system properties as described in {@link GraphBudget}.
+   */
+  public static void setGraphBudget(GraphBudget budget) {
+    graphBudget = Preconditions.checkNotNull(budget);
+  }
+
+  static GraphBudget getGraphBudget() {
+    return graphBudget;
+  }
+
+  /** Returns the remote repositories to resolve dependencies from. */
+  public static ImmutableList<RemoteRepository> getRemoteRepositories() {
+    return repositories;
+  }
+
+  /**
+   * Returns a fetcher for the resolutions of one traversal, or null when prefetching is off. The
+   * resolutions of the dependencies of each node in the traversal share the fetcher, which fetches
+   * each file at most once. Closing a null resource is skipped by try-with-resources.
+   */
+  @Nullable
+  private static ConcurrentFetcher newFetcher() {
+    return fetchConcurrency > 0
+        ? new ConcurrentFetcher(system, RepositoryUtility.newSession(system), fetchConcurrency)
+        : null;
   }
 
   private static DependencyNode resolveCompileTimeDependencies(
-      Artifact rootDependencyArtifact, boolean includeProvidedScope)
+      Artifact rootDependencyArtifact, @Nullable ConcurrentFetcher fetcher)
       throws DependencyCollectionException, DependencyResolutionException {
     return resolveCompileTimeDependencies(
-        ImmutableList.of(rootDependencyArtifact), includeProvidedScope);
+        ImmutableList.of(rootDependencyArtifact), false, null, fetcher);
   }
 
   private static DependencyNode resolveCompileTimeDependencies(
-      List<Artifact> dependencyArtifacts, boolean includeProvidedScope)
+      List<Artifact> dependencyArtifacts, boolean includeProvidedScope,
+      @Nullable RepositoryListener listener, @Nullable ConcurrentFetcher fetcher)
       throws DependencyCollectionException, DependencyResolutionException {
 
     Map<String, DependencyNode> cache =
@@ -92,13 +184,34 @@ public class DependencyGraphBuilder {
     String cacheKey =
         dependencyArtifacts.stream().map(Artifacts::toCoordinates).collect(Collectors.joining(","));
     if (cache.containsKey(cacheKey)) {
+      cacheHitCounter.increment();
       return cache.get(cacheKey);
     }
 
-    RepositorySystemSession session =
-        includeProvidedScope
-            ? RepositoryUtility.newSessionWithProvidedScope(system)
-            : RepositoryUtility.newSession(system);
+    try (Metrics.Timing timing = resolveTimer.start()) {
+      RepositorySystemSession session =
+          includeProvidedScope
+              ? RepositoryUtility.newSessionWithProvidedScope(system)
+              : RepositoryUtility.newSession(system);
+      if (listener != null) {
+        session = new ListeningSession(session, listener);
+      }
+      return resolve(dependencyArtifacts, session, fetcher, cache, cacheKey);
+    }
+  }
+
+  private static DependencyNode resolve(List<Artifact> dependencyArtifacts,
+      RepositorySystemSession session, @Nullable ConcurrentFetcher fetcher,
+      Map<String, DependencyNode> cache, String cacheKey)
+      throws DependencyCollectionException, DependencyResolutionException {
+    for (Artifact artifact : dependencyArtifacts) {
+      checkNotKnownUnresolvable(artifact);
+    }
+    if (fetcher != null) {
+      try (Metrics.Timing prefetchTiming = prefetchTimer.start()) {
+        fetcher.prefetchDescriptors(dependencyArtifacts, repositories);
+      }
+    }
 
     CollectRequest collectRequest = new CollectRequest();
 
@@ -113,22 +226,85 @@ public class DependencyGraphBuilder {
     } else {
       collectRequest.setDependencies(dependencyList);
     }
-    collectRequest.addRepository(RepositoryUtility.CENTRAL);
-    CollectResult collectResult = system.collectDependencies(session, collectRequest);
+    collectRequest.setRepositories(repositories);
+    CollectResult collectResult;
+    try (Metrics.Timing collectTiming = collectTimer.start()) {
+      collectResult = system.collectDependencies(session, collectRequest);
+    }
     DependencyNode node = collectResult.getRoot();
+    checkNoKnownUnresolvable(node);
 
     DependencyRequest dependencyRequest = new DependencyRequest();
     dependencyRequest.setRoot(node);
     dependencyRequest.setCollectRequest(collectRequest);
 
+    if (fetcher != null) {
+      try (Metrics.Timing prefetchTiming = prefetchTimer.start()) {
+        fetcher.prefetchArtifacts(node);
+      }
+    }
+
     // This might be able to speed up by using collectDependencies here instead
-    system.resolveDependencies(session, dependencyRequest);
+    try (Metrics.Timing downloadTiming = downloadTimer.start()) {
+      system.resolveDependencies(session, dependencyRequest);
+    } catch (DependencyResolutionException ex) {
+      recordUnresolvable(ex);
+      throw ex;
+    }
 
     cache.put(cacheKey, node);
 
     return node;
   }
 
+  private static void checkNotKnownUnresolvable(Artifact artifact)
+      throws DependencyResolutionException {
+    if (unresolvableArtifacts.contains(artifact, repositories)) {
+      throw new DependencyResolutionException(
+          new DependencyResult(new DependencyRequest()),
+          "Could not find artifact " + artifact + " (cached as unresolvable)",
+          null);
+    }
+  }
+
+  /** Fails without downloading if the graph has an artifact known to be missing. */
+  private static void checkNoKnownUnresolvable(DependencyNode node)
+      throws DependencyResolutionException {
+    Queue<DependencyNode> queue = new ArrayDeque<>();
+    queue.add(node);
+    while (!queue.isEmpty()) {
+      DependencyNode current = queue.poll();
+      if (current.getArtifact() != null) {
+        checkNotKnownUnresolvable(current.getArtifact());
+      }
+      queue.addAll(current.getChildren());
+    }
+  }
+
+  /**
+   * Records the artifacts that the repositories do not have. Artifacts that failed for other
+   * reasons, such as a network error, are tried again next time.
+   */
+  private static void recordUnresolvable(DependencyResolutionException ex) {
+    DependencyResult result = ex.getResult();
+    if (result == null) {
+      return;
+    }
+    for (ArtifactResult artifactResult : result.getArtifactResults()) {
+      if (artifactResult.isResolved() || artifactResult.getExceptions().isEmpty()) {
+        continue;
+      }
+      boolean notFound =
+          artifactResult
+              .getExceptions()
+              .stream()
+              .allMatch(exception -> exception instanceof ArtifactNotFoundException);
+      if (notFound) {
+        unresolvableArtifacts.add(artifactResult.getRequest().getArtifact(), repositories);
+      }
+    }
+  }
+
   /**
    * Returns the non-transitive compile time dependencies of an artifact.
    */
@@ -137,7 +313,10 @@ public class DependencyGraphBuilder {
     
     List<Artifact> result = new ArrayList<>();
     
-    DependencyNode node = resolveCompileTimeDependencies(artifact);
+    DependencyNode node;
+    try (ConcurrentFetcher fetcher = newFetcher()) {
+      node = resolveCompileTimeDependencies(artifact, fetcher);
+    }
     for (DependencyNode child : node.getChildren()) {
       result.add(child.getArtifact());
     }
@@ -155,13 +334,162 @@ public class DependencyGraphBuilder {
    */
   public static DependencyGraph getStaticLinkageCheckDependencies(List<Artifact> artifacts)
       throws DependencyCollectionException, DependencyResolutionException {
-    DependencyNode node = resolveCompileTimeDependencies(artifacts, true);
+    return getStaticLinkageCheckDependencies(artifacts, null);
+  }
+
+  /**
+   * Finds the same dependency graph as {@link #getStaticLinkageCheckDependencies(List)}, notifying
+   * {@code listener} of the artifacts as they are resolved, so that the caller can start to use
+   * the files of some artifacts while others are still being downloaded. The listener is not
+   * notified when the graph comes from the cache.
+   *
+   * @param listener listener receiving events such as {@link
+   *     RepositoryListener#artifactResolved(RepositoryEvent)}, called from the resolving threads
+   */
+  public static DependencyGraph getStaticLinkageCheckDependencies(List<Artifact> artifacts,
+      @Nullable RepositoryListener listener)
+      throws DependencyCollectionException, DependencyResolutionException {
     DependencyGraph graph = new DependencyGraph();
-    levelOrder(node, graph, GraphTraversalOption.FULL_DEPENDENCY_WITH_PROVIDED);
+    try (ConcurrentFetcher fetcher = newFetcher()) {
+      DependencyNode node = resolveCompileTimeDependencies(artifacts, true, listener, fetcher);
+      levelOrder(node, graph, GraphTraversalOption.FULL_DEPENDENCY_WITH_PROVIDED, fetcher);
+    }
 
     return graph;
   }
 
+  /** Session adding a listener to the events of another session. */
+  private static final class ListeningSession extends AbstractForwardingRepositorySystemSession {
+    private final RepositorySystemSession session;
+    private final RepositoryListener listener;
+
+    private ListeningSession(RepositorySystemSession session, RepositoryListener listener) {
+      this.session = session;
+      this.listener =
+          ChainedRepositoryListener.newInstance(session.getRepositoryListener(), listener);
+    }
+
+    @Override
+    protected RepositorySystemSession getSession() {
+      return session;
+    }
+
+    @Override
+    public RepositoryListener getRepositoryListener() {
+      return listener;
+    }
+  }
+
+  /**
+   * Resolves the dependencies of many artifacts, such as the members of a BOM, in one request. The
+   * descriptor of an artifact shared by several members is read once, and the graphs of each
+   * member, with and without the dependencies with 'provided' scope, are derived from the
+   * combined tree without resolving its nodes again, as {@link #getCompleteDependencies(Artifact)}
+   * does.
+   *
+   * <p>When some artifacts cannot be resolved, the graphs that have them throw the exception and
+   * the other graphs are still available.
+   *
+   * @param artifacts Maven artifacts to retrieve their dependencies
+   * @throws DependencyCollectionException when there is a problem in collecting dependency
+   */
+  public static BatchedDependencyGraphs getBatchedDependencies(List<Artifact> artifacts)
+      throws DependencyCollectionException {
+    try (Metrics.Timing timing = resolveTimer.start()) {
+      RepositorySystemSession session = new UnmediatedSession(RepositoryUtility.newSession(system));
+
+      CollectRequest collectRequest = new CollectRequest();
+      collectRequest.setDependencies(
+          artifacts
+              .stream()
+              .map(artifact -> new Dependency(artifact, "compile"))
+              .collect(toImmutableList()));
+      collectRequest.setRepositories(repositories);
+      CollectResult collectResult;
+      try (Metrics.Timing collectTiming = collectTimer.start()) {
+        collectResult = system.collectDependencies(session, collectRequest);
+      }
+      DependencyNode root = collectResult.getRoot();
+
+      DependencyRequest dependencyRequest = new DependencyRequest();
+      dependencyRequest.setRoot(root);
+      dependencyRequest.setCollectRequest(collectRequest);
+      DependencyResolutionException failure = null;
+      try (Metrics.Timing downloadTiming = downloadTimer.start()) {
+        system.resolveDependencies(session, dependencyRequest);
+      } catch (DependencyResolutionException ex) {
+        recordUnresolvable(ex);
+        failure = ex;
+      }
+      return BatchedDependencyGraphs.create(artifacts, collectResult, failure);
+    }
+  }
+
+  /**
+   * Returns the resolved dependency tree of the artifact including the dependencies with
+   * 'provided' scope, for {@link BatchedDependencyGraphs} to find the direct dependencies of an
+   * artifact that its tree does not have.
+   */
+  static DependencyNode resolveWithProvidedScope(Artifact artifact)
+      throws DependencyCollectionException, DependencyResolutionException {
+    return resolveCompileTimeDependencies(ImmutableList.of(artifact), true, null, null);
+  }
+
+  /**
+   * Returns the dependency management of the artifact, which the resolver applies to the
+   * transitive dependencies of the artifact.
+   *
+   * @throws DependencyCollectionException when the descriptor of the artifact cannot be read
+   */
+  static List<Dependency> getManagedDependencies(Artifact artifact)
+      throws DependencyCollectionException {
+    ArtifactDescriptorRequest request = new ArtifactDescriptorRequest(artifact, repositories, null);
+    try {
+      return system
+          .readArtifactDescriptor(RepositoryUtility.newSession(system), request)
+          .getManagedDependencies();
+    } catch (ArtifactDescriptorException ex) {
+      CollectResult result = new CollectResult(new CollectRequest());
+      result.addException(ex);
+      throw new DependencyCollectionException(result, ex.getMessage(), ex);
+    }
+  }
+
+  /**
+   * Session keeping every path of the dependency tree, as if each node were resolved as a root on
+   * its own: the direct optional dependencies and the direct dependencies with 'provided' scope of
+   * each node are included, exclusions and dependency management are not applied, and conflicting
+   * versions are not mediated.
+   */
+  private static final class UnmediatedSession extends AbstractForwardingRepositorySystemSession {
+    private final RepositorySystemSession session;
+    private final DependencySelector selector = new ScopeDependencySelector("test");
+
+    private UnmediatedSession(RepositorySystemSession session) {
+      this.session = session;
+    }
+
+    @Override
+    protected RepositorySystemSession getSession() {
+      return session;
+    }
+
+    @Override
+    public DependencySelector getDependencySelector() {
+      return selector;
+    }
+
+    @Override
+    public DependencyManager getDependencyManager() {
+      return new NoopDependencyManager();
+    }
+
+    @Override
+    public DependencyGraphTransformer getDependencyGraphTransformer() {
+      return null;
+    }
+  }
+
   /**
    * Finds the full compile time, transitive dependency graph including duplicates
    * and conflicting versions.
@@ -169,14 +497,50 @@ public class DependencyGraphBuilder {
   public static DependencyGraph getCompleteDependencies(Artifact artifact)
       throws DependencyCollectionException, DependencyResolutionException {
     
-    // root node
-    DependencyNode node = resolveCompileTimeDependencies(artifact);
     DependencyGraph graph = new DependencyGraph();
-    levelOrder(node, graph, GraphTraversalOption.FULL_DEPENDENCY);
+    try (ConcurrentFetcher fetcher = newFetcher()) {
+      // root node
+      DependencyNode node = resolveCompileTimeDependencies(artifact, fetcher);
+      levelOrder(node, graph, GraphTraversalOption.FULL_DEPENDENCY, fetcher);
+    }
     
     return graph;
   }
-  
+
+  /**
+   * Passes the paths of {@link #getCompleteDependencies(Artifact)} to {@code consumer} in the same
+   * level order, as each path is found. The dependencies of a node are resolved only when the
+   * consumer returns from the path of the node, so a slow consumer slows down the traversal
+   * instead of paths piling up in memory, and only the frontier of the traversal is held rather
+   * than the whole graph.
+   *
+   * @return true if the traversal stopped at the limits of the {@link GraphBudget}
+   */
+  public static boolean forEachCompleteDependency(Artifact artifact,
+      Consumer<DependencyPath> consumer)
+      throws DependencyCollectionException, DependencyResolutionException {
+    try (ConcurrentFetcher fetcher = newFetcher()) {
+      DependencyNode node = resolveCompileTimeDependencies(artifact, fetcher);
+      return traverse(node, consumer, GraphTraversalOption.FULL_DEPENDENCY, false, fetcher);
+    }
+  }
+
+  /**
+   * Passes the paths of {@link #getCompleteDependencies(Artifact)} to {@code consumer} in
+   * pre-order, each path followed by the paths of its dependencies, as in the output of {@code mvn
+   * dependency:tree}.
+   *
+   * @return true if the traversal stopped at the limits of the {@link GraphBudget}
+   */
+  static boolean forEachCompleteDependencyPreOrder(Artifact artifact,
+      Consumer<DependencyPath> consumer)
+      throws DependencyCollectionException, DependencyResolutionException {
+    try (ConcurrentFetcher fetcher = newFetcher()) {
+      DependencyNode node = resolveCompileTimeDependencies(artifact, fetcher);
+      return traverse(node, consumer, GraphTraversalOption.FULL_DEPENDENCY, true, fetcher);
+    }
+  }
+
   /**
    * Finds the complete transitive dependency graph as seen by Maven.
    * It does not include duplicates and conflicting versions. That is,
@@ -186,7 +550,10 @@ public class DependencyGraphBuilder {
   public static DependencyGraph getTransitiveDependencies(Artifact artifact)
       throws DependencyCollectionException, DependencyResolutionException {
     // root node
-    DependencyNode node = resolveCompileTimeDependencies(artifact);
+    DependencyNode node;
+    try (ConcurrentFetcher fetcher = newFetcher()) {
+      node = resolveCompileTimeDependencies(artifact, fetcher);
+    }
     DependencyGraph graph = new DependencyGraph();
     levelOrder(node, graph);
     return graph;
@@ -205,7 +572,7 @@ public class DependencyGraphBuilder {
 
   private static void levelOrder(DependencyNode node, DependencyGraph graph) {
     try {
-      levelOrder(node, graph, GraphTraversalOption.NONE);
+      levelOrder(node, graph, GraphTraversalOption.NONE, null);
     } catch (RepositoryException ex) {
       throw new RuntimeException(
           "Problem resolving dependencies even though it is not supposed to resolve dependency",
@@ -230,26 +597,52 @@ public class DependencyGraphBuilder {
    * {@code graphTraversalOption} is FULL_DEPENDENCY or FULL_DEPENDENCY_WITH_PROVIDED,
    * then it resolves the dependency of the artifact of the each
    * node in the dependency tree; otherwise it just follows the given dependency tree starting with
-   * firstNode.
+   * firstNode. The graph is marked as truncated when the traversal exceeds the {@link
+   * GraphBudget}.
    *
    * @param firstNode node to start traversal
    * @param graph graph to store {@link DependencyPath} instances
    * @param graphTraversalOption option to recursively resolve the dependency to build complete
    *     dependency tree, with or without dependencies of provided scope
+   * @param fetcher fetcher shared by the resolutions of the traversal, or null
    * @throws DependencyCollectionException when there is a problem in collecting dependency. This
    *     happens only when graphTraversalOption is FULL_DEPENDENCY or FULL_DEPENDENCY_WITH_PROVIDED.
    * @throws DependencyResolutionException when there is a problem in resolving dependency. This
    *     happens only when graphTraversalOption is FULL_DEPENDENCY or FULL_DEPENDENCY_WITH_PROVIDED.
    */
-  private static void levelOrder(
-      DependencyNode firstNode, DependencyGraph graph, GraphTraversalOption graphTraversalOption)
+  private static void levelOrder(DependencyNode firstNode, DependencyGraph graph,
+      GraphTraversalOption graphTraversalOption, @Nullable ConcurrentFetcher fetcher)
+      throws DependencyCollectionException, DependencyResolutionException {
+    boolean truncated = traverse(firstNode, graph::addPath, graphTraversalOption, false, fetcher);
+    graph.setTruncated(truncated);
+  }
+
+  /**
+   * Traverses dependency tree in level-order or, when {@code preOrder} is true, in pre-order
+   * (depth-first search) and passes {@link DependencyPath} instances corresponding to tree nodes
+   * to {@code consumer}. See {@link #levelOrder(DependencyNode, DependencyGraph,
+   * GraphTraversalOption, ConcurrentFetcher)} for the options.
+   *
+   * @return true if a path was left out because of the {@link GraphBudget}
+   */
+  private static boolean traverse(
+      DependencyNode firstNode,
+      Consumer<DependencyPath> consumer,
+      GraphTraversalOption graphTraversalOption,
+      boolean preOrder,
+      @Nullable ConcurrentFetcher fetcher)
       throws DependencyCollectionException, DependencyResolutionException {
 
     boolean resolveFullDependency = graphTraversalOption.resolveFullDependencies();
-    Queue<LevelOrderQueueItem> queue = new ArrayDeque<>();
+    GraphBudget.Tracker budget = graphBudget.start();
+    Deque<LevelOrderQueueItem> queue = new ArrayDeque<>();
     queue.add(new LevelOrderQueueItem(firstNode, new Stack<>()));
 
     while (!queue.isEmpty()) {
+      if (budget.isExhausted()) {
+        logger.warning("Dependency graph of " + firstNode + " truncated at " + graphBudget);
+        break;
+      }
       LevelOrderQueueItem item = queue.poll();
       DependencyNode dependencyNode = item.dependencyNode;
       DependencyPath forPath = new DependencyPath();
@@ -267,15 +660,20 @@ public class DependencyGraphBuilder {
                   + parentNodes);
           continue;
         }
+        if (!budget.admit(forPath)) {
+          // Neither this path nor the paths below it are resolved
+          continue;
+        }
         parentNodes.push(dependencyNode);
-        graph.addPath(forPath);
+        consumer.accept(forPath);
 
         if (resolveFullDependency && !"system".equals(dependencyNode.getDependency().getScope())) {
           try {
             boolean includeProvidedScope =
                 graphTraversalOption == GraphTraversalOption.FULL_DEPENDENCY_WITH_PROVIDED;
-            dependencyNode =
-                resolveCompileTimeDependencies(dependencyNode.getArtifact(), includeProvidedScope);
+            dependencyNode = resolveCompileTimeDependencies(
+                ImmutableList.of(dependencyNode.getArtifact()), includeProvidedScope, null,
+                fetcher);
           } catch (DependencyResolutionException ex) {
             // A dependency may be unavailable. For example, com.google.guava:guava-gwt:jar:20.0
             // has a transitive dependency to org.eclipse.jdt.core.compiler:ecj:jar:4.4RC4 (not
@@ -302,11 +700,20 @@ public class DependencyGraphBuilder {
           }
         }
       }
-      for (DependencyNode child : dependencyNode.getChildren()) {
+      List<DependencyNode> children = dependencyNode.getChildren();
+      for (int i = 0; i < children.size(); i++) {
+        // In pre-order the children are pushed to the front of the queue in reverse order
+        DependencyNode child = children.get(preOrder ? children.size() - 1 - i : i);
         @SuppressWarnings("unchecked")
         Stack<DependencyNode> clone = (Stack<DependencyNode>) parentNodes.clone();
-        queue.add(new LevelOrderQueueItem(child, clone));
+        LevelOrderQueueItem childItem = new LevelOrderQueueItem(child, clone);
+        if (preOrder) {
+          queue.addFirst(childItem);
+        } else {
+          queue.addLast(childItem);
+        }
       }
     }
+    return budget.isTruncated();
   }
 }
@@ -0,0 +1,327 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.SetMultimap;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import org.eclipse.aether.RepositoryException;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+
+/**
+ * Differences between two sets of dependency graphs, such as the complete dependency graphs of the
+ * members of two releases of a BOM: the artifacts and paths that were added or removed, and the
+ * artifacts that started or stopped having more than one version in a graph.
+ *
+ * <p>Artifacts and paths are compared through their IDs in {@link CoordinateTable}, so the
+ * comparison takes time proportional to the number of paths in the graphs.
+ */
+public final class DependencyGraphDiff {
+
+  private final CoordinateTable table;
+
+  private final ImmutableSet<String> addedArtifacts;
+  private final ImmutableSet<String> removedArtifacts;
+  private final ImmutableSet<DependencyPath> addedPaths;
+  private final ImmutableSet<DependencyPath> removedPaths;
+  private final ImmutableMap<String, ImmutableSortedSet<String>> appearedConflicts;
+  private final ImmutableMap<String, ImmutableSortedSet<String>> disappearedConflicts;
+
+  private DependencyGraphDiff(CoordinateTable table, Summary oldSummary, Summary newSummary) {
+    this.table = table;
+    addedArtifacts = toCoordinates(difference(newSummary.artifacts, oldSummary.artifacts));
+    removedArtifacts = toCoordinates(difference(oldSummary.artifacts, newSummary.artifacts));
+    addedPaths = difference(newSummary.paths, oldSummary.paths);
+    removedPaths = difference(oldSummary.paths, newSummary.paths);
+    appearedConflicts = conflictDifference(newSummary, oldSummary);
+    disappearedConflicts = conflictDifference(oldSummary, newSummary);
+  }
+
+  /**
+   * Returns the differences from the paths in {@code oldGraphs} to the paths in {@code
+   * newGraphs}.
+   */
+  public static DependencyGraphDiff compare(
+      Iterable<DependencyGraph> oldGraphs, Iterable<DependencyGraph> newGraphs) {
+    CoordinateTable table = CoordinateTable.shared();
+    return new DependencyGraphDiff(
+        table, new Summary(oldGraphs, table), new Summary(newGraphs, table));
+  }
+
+  private static <E> ImmutableSet<E> difference(Set<E> set1, Set<E> set2) {
+    ImmutableSet.Builder<E> difference = ImmutableSet.builder();
+    for (E element : set1) {
+      if (!set2.contains(element)) {
+        difference.add(element);
+      }
+    }
+    return difference.build();
+  }
+
+  private ImmutableSet<String> toCoordinates(Set<Integer> ids) {
+    ImmutableSet.Builder<String> coordinates = ImmutableSet.builder();
+    for (int id : ids) {
+      coordinates.add(table.getCoordinates(id));
+    }
+    return coordinates.build();
+  }
+
+  private ImmutableMap<String, ImmutableSortedSet<String>> conflictDifference(
+      Summary summary1, Summary summary2) {
+    ImmutableMap.Builder<String, ImmutableSortedSet<String>> difference = ImmutableMap.builder();
+    for (Map.Entry<Integer, SortedSet<String>> entry : summary1.conflicts.entrySet()) {
+      if (!summary2.conflicts.containsKey(entry.getKey())) {
+        difference.put(
+            table.getKey(entry.getKey()), ImmutableSortedSet.copyOfSorted(entry.getValue()));
+      }
+    }
+    return difference.build();
+  }
+
+  /** Returns the groupId:artifactId:version of the artifacts only in the new graphs. */
+  public ImmutableSet<String> getAddedArtifacts() {
+    return addedArtifacts;
+  }
+
+  /** Returns the groupId:artifactId:version of the artifacts only in the old graphs. */
+  public ImmutableSet<String> getRemovedArtifacts() {
+    return removedArtifacts;
+  }
+
+  /** Returns the paths only in the new graphs. */
+  public ImmutableSet<DependencyPath> getAddedPaths() {
+    return addedPaths;
+  }
+
+  /** Returns the paths only in the old graphs. */
+  public ImmutableSet<DependencyPath> getRemovedPaths() {
+    return removedPaths;
+  }
+
+  /**
+   * Returns the map of groupId:artifactId to the versions of the artifacts that have more than one
+   * version in a new graph and in no old graph.
+   */
+  public ImmutableMap<String, ImmutableSortedSet<String>> getAppearedConflicts() {
+    return appearedConflicts;
+  }
+
+  /**
+   * Returns the map of groupId:artifactId to the versions of the artifacts that have more than one
+   * version in an old graph and in no new graph.
+   */
+  public ImmutableMap<String, ImmutableSortedSet<String>> getDisappearedConflicts() {
+    return disappearedConflicts;
+  }
+
+  /** Returns true if the old and new graphs have the same paths. */
+  public boolean isEmpty() {
+    return addedPaths.isEmpty() && removedPaths.isEmpty();
+  }
+
+  /**
+   * Writes the differences as text, the version changes of each artifact followed by the paths
+   * and conflicts. The writer is flushed after each section and not closed.
+   */
+  public void writeText(Writer out) throws IOException {
+    if (isEmpty()) {
+      out.write("No differences\n");
+      out.flush();
+      return;
+    }
+
+    SetMultimap<String, String> removedVersions = versionsByKey(removedArtifacts);
+    SetMultimap<String, String> addedVersions = versionsByKey(addedArtifacts);
+    Set<String> keys = new LinkedHashSet<>(removedVersions.keySet());
+    keys.addAll(addedVersions.keySet());
+    if (!keys.isEmpty()) {
+      out.write("Versions:\n");
+      for (String key : keys) {
+        out.write("  " + key + " " + joinVersions(removedVersions.get(key)) + " -> "
+            + joinVersions(addedVersions.get(key)) + "\n");
+      }
+      out.flush();
+    }
+
+    writePaths(out, "Added paths", addedPaths);
+    writePaths(out, "Removed paths", removedPaths);
+    writeConflicts(out, "Appeared conflicts", appearedConflicts);
+    writeConflicts(out, "Disappeared conflicts", disappearedConflicts);
+  }
+
+  private static SetMultimap<String, String> versionsByKey(Set<String> coordinates) {
+    SetMultimap<String, String> versions = LinkedHashMultimap.create();
+    for (String artifact : coordinates) {
+      int separator = artifact.lastIndexOf(':');
+      versions.put(artifact.substring(0, separator), artifact.substring(separator + 1));
+    }
+    return versions;
+  }
+
+  private static String joinVersions(Set<String> versions) {
+    return versions.isEmpty() ? "(none)" : String.join(", ", versions);
+  }
+
+  private static void writePaths(Writer out, String title, Set<DependencyPath> paths)
+      throws IOException {
+    if (paths.isEmpty()) {
+      return;
+    }
+    out.write(title + " (" + paths.size() + "):\n");
+    for (DependencyPath path : paths) {
+      out.write("  " + path + "\n");
+    }
+    out.flush();
+  }
+
+  private static void writeConflicts(
+      Writer out, String title, Map<String, ImmutableSortedSet<String>> conflicts)
+      throws IOException {
+    if (conflicts.isEmpty()) {
+      return;
+    }
+    out.write(title + ":\n");
+    for (Map.Entry<String, ImmutableSortedSet<String>> entry : conflicts.entrySet()) {
+      out.write("  " + entry.getKey() + " " + String.join(", ", entry.getValue()) + "\n");
+    }
+    out.flush();
+  }
+
+  /**
+   * Writes the differences as newline-delimited JSON with one object for each difference. The
+   * {@code change} field of each object is one of {@code addedArtifact}, {@code removedArtifact},
+   * {@code addedPath}, {@code removedPath}, {@code appearedConflict} and {@code
+   * disappearedConflict}. The writer is flushed after each kind of difference and not closed.
+   *
+   * @see <a href="http://ndjson.org/">Newline Delimited JSON</a>
+   */
+  public void writeNdjson(Writer out) throws IOException {
+    for (String artifact : addedArtifacts) {
+      out.write("{\"change\":\"addedArtifact\",\"artifact\":" + Json.quote(artifact) + "}\n");
+    }
+    for (String artifact : removedArtifacts) {
+      out.write("{\"change\":\"removedArtifact\",\"artifact\":" + Json.quote(artifact) + "}\n");
+    }
+    out.flush();
+    for (DependencyPath path : addedPaths) {
+      out.write("{\"change\":\"addedPath\"," + path.toJson().substring(1) + "\n");
+    }
+    out.flush();
+    for (DependencyPath path : removedPaths) {
+      out.write("{\"change\":\"removedPath\"," + path.toJson().substring(1) + "\n");
+    }
+    out.flush();
+    writeConflictsNdjson(out, "appearedConflict", appearedConflicts);
+    writeConflictsNdjson(out, "disappearedConflict", disappearedConflicts);
+  }
+
+  private static void writeConflictsNdjson(
+      Writer out, String change, Map<String, ImmutableSortedSet<String>> conflicts)
+      throws IOException {
+    for (Map.Entry<String, ImmutableSortedSet<String>> entry : conflicts.entrySet()) {
+      out.write("{\"change\":\"" + change + "\",\"artifact\":" + Json.quote(entry.getKey())
+          + ",\"versions\":" + Json.array(entry.getValue()) + "}\n");
+    }
+    out.flush();
+  }
+
+  /** The artifacts, paths and conflicts of a set of graphs. */
+  private static final class Summary {
+    // IDs of groupId:artifactId:version in the order they are first found
+    private final Set<Integer> artifacts = new LinkedHashSet<>();
+    private final Set<DependencyPath> paths = new LinkedHashSet<>();
+    // map of the ID of groupId:artifactId to the versions of the artifact, for the artifacts with
+    // more than one version in any of the graphs
+    private final Map<Integer, SortedSet<String>> conflicts = new LinkedHashMap<>();
+
+    private Summary(Iterable<DependencyGraph> graphs, CoordinateTable table) {
+      for (DependencyGraph graph : graphs) {
+        Map<Integer, Set<String>> versions = new HashMap<>();
+        for (DependencyPath path : graph.list()) {
+          Artifact leaf = path.getLeaf();
+          artifacts.add(path.getId(path.size() - 1, table));
+          paths.add(path);
+          versions.computeIfAbsent(table.getKeyId(leaf), key -> new LinkedHashSet<>())
+              .add(leaf.getVersion());
+        }
+        for (Map.Entry<Integer, Set<String>> entry : versions.entrySet()) {
+          if (entry.getValue().size() > 1) {
+            conflicts
+                .computeIfAbsent(entry.getKey(), key -> new TreeSet<>(new VersionComparator()))
+                .addAll(entry.getValue());
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Prints the differences between the complete dependency graphs of the members of two BOMs.
+   */
+  public static void main(String[] args) throws RepositoryException, IOException {
+    boolean ndjson = args.length == 3 && DependencyLister.NDJSON_OPTION.equals(args[0]);
+    if (args.length != 2 && !ndjson) {
+      System.err.println("Usage: java " + DependencyGraphDiff.class.getCanonicalName()
+          + " [" + DependencyLister.NDJSON_OPTION + "] groupId:artifactId:version"
+          + " groupId:artifactId:version");
+      return;
+    }
+
+    List<DependencyGraph> oldGraphs = getCompleteDependencies(args[args.length - 2]);
+    List<DependencyGraph> newGraphs = getCompleteDependencies(args[args.length - 1]);
+    DependencyGraphDiff diff = compare(oldGraphs, newGraphs);
+    Writer out = new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+    if (ndjson) {
+      diff.writeNdjson(out);
+    } else {
+      diff.writeText(out);
+    }
+  }
+
+  private static List<DependencyGraph> getCompleteDependencies(String bomCoordinates)
+      throws RepositoryException {
+    List<DependencyGraph> graphs = new ArrayList<>();
+    for (Artifact member : RepositoryUtility.readBom(new DefaultArtifact(bomCoordinates))) {
+      try {
+        graphs.add(DependencyGraphBuilder.getCompleteDependencies(member));
+      } catch (RepositoryException ex) {
+        // The other members can still be compared
+        System.err.println("Could not resolve the dependencies of " + member + ": "
+            + ex.getMessage());
+      }
+    }
+    return graphs;
+  }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import com.google.common.base.Preconditions;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+
+/**
+ * A {@link DependencyGraph} saved in a compact binary file, so that later tools can load it
+ * without resolving the dependencies again.
+ *
+ * <p>The file has a table of the artifacts in the graph, each written once, followed by the paths
+ * in the order of {@link DependencyGraph#list()}. Each path is written as the distance back to
+ * the path of its parent and the index of its leaf in the artifact table, both as variable-length
+ * integers; a path of 1 million artifacts takes a few megabytes. The parent of every path must be
+ * in the graph, as it is in the graphs of {@link DependencyGraphBuilder}.
+ *
+ * <p>{@link #read(Path)} maps the file into memory and decodes only the artifact table and two
+ * integer arrays. Paths are built when they are requested.
+ */
+public final class DependencyGraphSnapshot {
+
+  private static final byte[] MAGIC = {'D', 'G', 'S', 'N'};
+  private static final int VERSION = 1;
+  private static final int FLAG_TRUNCATED = 1;
+
+  private final Artifact[] artifacts;
+  /** Index of the parent of each path, or -1 for paths starting at a root. */
+  private final int[] parents;
+  /** Index of the leaf artifact of each path in {@link #artifacts}. */
+  private final int[] leaves;
+  private final boolean truncated;
+
+  private DependencyGraphSnapshot(
+      Artifact[] artifacts, int[] parents, int[] leaves, boolean truncated) {
+    this.artifacts = artifacts;
+    this.parents = parents;
+    this.leaves = leaves;
+    this.truncated = truncated;
+  }
+
+  /**
+   * Writes the graph to {@code file}. The coordinates and the file of each artifact are kept; other
+   * properties of the artifacts are not.
+   *
+   * @throws IllegalArgumentException if the parent of a path is not in the graph before the path
+   */
+  public static void write(DependencyGraph graph, Path file) throws IOException {
+    try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(file))) {
+      write(graph, output);
+    }
+  }
+
+  private static void write(DependencyGraph graph, OutputStream output) throws IOException {
+    List<DependencyPath> paths = graph.list();
+    Map<String, Integer> artifactIndex = new HashMap<>();
+    List<Artifact> artifacts = new ArrayList<>();
+    // (index of parent path, index of leaf artifact) to the index of the path
+    Map<Long, Integer> pathIndex = new HashMap<>();
+    int[] parents = new int[paths.size()];
+    int[] leaves = new int[paths.size()];
+
+    for (int i = 0; i < paths.size(); i++) {
+      int parent = -1;
+      int leaf = -1;
+      List<Artifact> path = paths.get(i).getPath();
+      for (int depth = 0; depth < path.size(); depth++) {
+        Artifact artifact = path.get(depth);
+        String key = artifact.toString();
+        Integer index = artifactIndex.get(key);
+        if (index == null) {
+          index = artifacts.size();
+          artifactIndex.put(key, index);
+          artifacts.add(artifact);
+        }
+        if (depth == path.size() - 1) {
+          leaf = index;
+        } else {
+          Integer ancestor = pathIndex.get(pathKey(parent, index));
+          Preconditions.checkArgument(
+              ancestor != null, "The parent of %s is not in the graph before it", paths.get(i));
+          parent = ancestor;
+        }
+      }
+      pathIndex.putIfAbsent(pathKey(parent, leaf), i);
+      parents[i] = parent;
+      leaves[i] = leaf;
+    }
+
+    output.write(MAGIC);
+    writeVarint(output, VERSION);
+    output.write(graph.isTruncated() ? FLAG_TRUNCATED : 0);
+    writeVarint(output, artifacts.size());
+    for (Artifact artifact : artifacts) {
+      writeString(output, artifact.toString());
+      File file = artifact.getFile();
+      writeString(output, file == null ? "" : file.getPath());
+    }
+    writeVarint(output, paths.size());
+    for (int i = 0; i < paths.size(); i++) {
+      // The parent comes before the path, usually shortly before it in level order
+      writeVarint(output, parents[i] < 0 ? 0 : i - parents[i]);
+      writeVarint(output, leaves[i]);
+    }
+  }
+
+  private static long pathKey(int parent, int leaf) {
+    return ((long) parent << 32) | (leaf & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Reads the graph saved in {@code file} by {@link #write(DependencyGraph, Path)}.
+   *
+   * @throws IOException if the file cannot be read or is not a snapshot of a graph
+   */
+  public static DependencyGraphSnapshot read(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return read(buffer);
+    } catch (BufferUnderflowException | IllegalArgumentException ex) {
+      throw new IOException("Not a dependency graph snapshot: " + file, ex);
+    }
+  }
+
+  private static DependencyGraphSnapshot read(ByteBuffer buffer) {
+    byte[] magic = new byte[MAGIC.length];
+    buffer.get(magic);
+    for (int i = 0; i < MAGIC.length; i++) {
+      Preconditions.checkArgument(magic[i] == MAGIC[i], "wrong magic number");
+    }
+    int version = readVarint(buffer);
+    Preconditions.checkArgument(version == VERSION, "unknown version %s", version);
+    boolean truncated = (buffer.get() & FLAG_TRUNCATED) != 0;
+
+    Artifact[] artifacts = new Artifact[readCount(buffer)];
+    for (int i = 0; i < artifacts.length; i++) {
+      Artifact artifact = new DefaultArtifact(readString(buffer));
+      String file = readString(buffer);
+      artifacts[i] = file.isEmpty() ? artifact : artifact.setFile(new File(file));
+    }
+
+    int size = readCount(buffer);
+    int[] parents = new int[size];
+    int[] leaves = new int[size];
+    for (int i = 0; i < size; i++) {
+      int distance = readVarint(buffer);
+      Preconditions.checkArgument(distance <= i, "path %s has no parent", i);
+      parents[i] = distance == 0 ? -1 : i - distance;
+      leaves[i] = readVarint(buffer);
+      Preconditions.checkArgument(leaves[i] < artifacts.length, "path %s has no artifact", i);
+    }
+    return new DependencyGraphSnapshot(artifacts, parents, leaves, truncated);
+  }
+
+  /** Returns the number of paths in the graph. */
+  public int size() {
+    return leaves.length;
+  }
+
+  /** Returns true if the saved graph was {@link DependencyGraph#isTruncated() truncated}. */
+  public boolean isTruncated() {
+    return truncated;
+  }
+
+  /** Returns the path at {@code index} in the order of {@link DependencyGraph#list()}. */
+  public DependencyPath getPath(int index) {
+    Preconditions.checkElementIndex(index, size());
+    List<Artifact> reversed = new ArrayList<>();
+    for (int i = index; i >= 0; i = parents[i]) {
+      reversed.add(artifacts[leaves[i]]);
+    }
+    DependencyPath path = new DependencyPath();
+    for (int i = reversed.size() - 1; i >= 0; i--) {
+      path.add(reversed.get(i));
+    }
+    return path;
+  }
+
+  /** Returns the saved graph. */
+  public DependencyGraph toDependencyGraph() {
+    DependencyGraph graph = new DependencyGraph();
+    DependencyPath[] paths = new DependencyPath[size()];
+    for (int i = 0; i < paths.length; i++) {
+      DependencyPath path = new DependencyPath();
+      if (parents[i] >= 0) {
+        for (Artifact artifact : paths[parents[i]].getPath()) {
+          path.add(artifact);
+        }
+      }
+      path.add(artifacts[leaves[i]]);
+      paths[i] = path;
+      graph.addPath(path);
+    }
+    graph.setTruncated(truncated);
+    return graph;
+  }
+
+  private static void writeVarint(OutputStream output, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      output.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    output.write(value);
+  }
+
+  private static int readVarint(ByteBuffer buffer) {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      byte b = buffer.get();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        Preconditions.checkArgument(value >= 0, "negative variable-length integer");
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("malformed variable-length integer");
+  }
+
+  /** Reads the number of the entries that follow, each taking at least 2 bytes. */
+  private static int readCount(ByteBuffer buffer) {
+    int count = readVarint(buffer);
+    Preconditions.checkArgument(count <= buffer.remaining() / 2, "too many entries: %s", count);
+    return count;
+  }
+
+  private static void writeString(OutputStream output, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarint(output, bytes.length);
+    output.write(bytes);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    byte[] bytes = new byte[readVarint(buffer)];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
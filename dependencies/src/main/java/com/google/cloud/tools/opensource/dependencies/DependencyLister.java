@@ -16,35 +16,41 @@
 
 package com.google.cloud.tools.opensource.dependencies;
 
-import java.util.List;
-
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.eclipse.aether.collection.DependencyCollectionException;
 import org.eclipse.aether.resolution.DependencyResolutionException;
 
 public class DependencyLister {
 
+  /**
+   * Option to print newline-delimited JSON with one {@link DependencyPath#toJson() dependency path}
+   * per line instead of text.
+   */
+  static final String NDJSON_OPTION = "--ndjson";
+
   public static void main(String[] args)
       throws DependencyCollectionException, DependencyResolutionException {
     
-    if (args.length != 1 || !args[0].contains(":")) {
+    boolean ndjson = args.length == 2 && NDJSON_OPTION.equals(args[0]);
+    String coordinates = args.length > 0 ? args[args.length - 1] : "";
+    if ((args.length != 1 && !ndjson) || !coordinates.contains(":")) {
       System.err.println("Usage: java " + DependencyLister.class.getCanonicalName()
-          + " groupdId:artifactId:version");
+          + " [" + NDJSON_OPTION + "] groupdId:artifactId:version");
       return;
     }
     
     try {
-      DefaultArtifact artifact = new DefaultArtifact(args[0]);
+      DefaultArtifact artifact = new DefaultArtifact(coordinates);
     
-      DependencyGraph graph =
-          DependencyGraphBuilder.getCompleteDependencies(artifact);
-      
-      List<DependencyPath> paths = graph.list();
-      for (DependencyPath path : paths) { 
-        System.out.println(path);
+      // Each path is printed as soon as it is found, without holding the whole graph
+      boolean truncated =
+          DependencyGraphBuilder.forEachCompleteDependency(
+              artifact, path -> System.out.println(ndjson ? path.toJson() : path));
+      if (truncated) {
+        System.err.println("The dependency graph was truncated at the limits of the budget");
       }
     } catch (IllegalArgumentException ex) {
-      System.err.println("Bad Maven coordinates " + args[0]);
+      System.err.println("Bad Maven coordinates " + coordinates);
       return;      
     }
   }
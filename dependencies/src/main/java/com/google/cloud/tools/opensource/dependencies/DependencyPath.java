@@ -17,7 +17,10 @@
 package com.google.cloud.tools.opensource.dependencies;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import java.util.stream.Collectors;
@@ -29,9 +32,31 @@ import org.eclipse.aether.artifact.Artifact;
 public final class DependencyPath {
 
   private List<Artifact> path = new ArrayList<>();
+  // The shared table when the path was created, and the IDs of the coordinates of the artifacts
+  // in the path in it
+  private final CoordinateTable table = CoordinateTable.shared();
+  private int[] ids = new int[8];
+  // Of the strings of the coordinates rather than their IDs, so that paths with IDs in different
+  // tables have the same hash code
+  private int hashCode = 31;
+
+  /** Returns the path through {@code artifacts}, from the root to the leaf. */
+  public static DependencyPath of(Iterable<Artifact> artifacts) {
+    DependencyPath path = new DependencyPath();
+    for (Artifact artifact : artifacts) {
+      path.add(artifact);
+    }
+    return path;
+  }
 
   void add(Artifact artifact) {
+    int id = table.getId(artifact);
+    if (path.size() == ids.length) {
+      ids = Arrays.copyOf(ids, ids.length * 2);
+    }
+    ids[path.size()] = id;
     path.add(artifact);
+    hashCode = 37 * hashCode + CoordinateTable.hashCode(artifact);
   }
   
   @Override
@@ -40,6 +65,17 @@ public final class DependencyPath {
         .join(path.stream().map(Artifacts::toCoordinates).collect(Collectors.toList()));
   }
   
+  /**
+   * Returns a JSON object with the coordinates of the {@code leaf} artifact and the coordinates of
+   * the artifacts in the {@code path} from the root.
+   */
+  public String toJson() {
+    return "{\"leaf\":" + Json.quote(Artifacts.toCoordinates(getLeaf()))
+        + ",\"path\":"
+        + Json.array(path.stream().map(Artifacts::toCoordinates).collect(Collectors.toList()))
+        + "}";
+  }
+
   @Override
   public boolean equals(Object o) {
     if (o == null || !(o instanceof DependencyPath)) {
@@ -47,38 +83,32 @@ public final class DependencyPath {
     }
     DependencyPath other = (DependencyPath) o;
     
-    if (other.path.size() != path.size()) {
+    if (other.path.size() != path.size() || other.hashCode != hashCode) {
       return false;
     }
     
+    // Artifacts are considered to be the same if they have the same group ID, artifact ID, and
+    // version, which is when they have the same ID in the same table
     for (int i = 0; i < path.size(); i++) {
-      if (!artifactsEqual(path.get(i), other.path.get(i))) {
+      if (other.table == table
+          ? ids[i] != other.ids[i]
+          : !sameCoordinates(path.get(i), other.path.get(i))) {
         return false; 
       }
     }
     return true;
   }
 
+  private static boolean sameCoordinates(Artifact artifact, Artifact other) {
+    return artifact.getGroupId().equals(other.getGroupId())
+        && artifact.getArtifactId().equals(other.getArtifactId())
+        && artifact.getVersion().equals(other.getVersion());
+  }
+
   @Override
   public int hashCode() {
-    int hashCode = 31;
-    for (Artifact artifact : path) {
-      hashCode = 37 * hashCode
-          + (artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion())
-              .hashCode();
-    }
     return hashCode; 
   }
-  
-  /**
-   * Artifacts are considered to be the same if they have the same group ID,
-   * artifact ID, and version.
-   */
-  private static boolean artifactsEqual(Artifact artifact1, Artifact artifact2) {
-    return artifact1.getArtifactId().equals(artifact2.getArtifactId())
-        && artifact1.getGroupId().equals(artifact2.getGroupId())
-        && artifact1.getVersion().equals(artifact2.getVersion());
-  }
 
   public int size() {
     return path.size();
@@ -89,7 +119,8 @@ public final class DependencyPath {
   }
 
   public List<Artifact> getPath() {
-    return path;
+    // Unmodifiable so that the IDs stay in sync with the artifacts
+    return Collections.unmodifiableList(path);
   }
 
   // TODO think about index out of bounds
@@ -97,4 +128,10 @@ public final class DependencyPath {
     return path.get(i);
   }
 
+  /** Returns the ID of the coordinates of the artifact at {@code i} in {@code table}. */
+  int getId(int i, CoordinateTable table) {
+    Preconditions.checkElementIndex(i, path.size());
+    return table == this.table ? ids[i] : table.getId(path.get(i));
+  }
+
 }
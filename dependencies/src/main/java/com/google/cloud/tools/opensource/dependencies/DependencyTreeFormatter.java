@@ -19,6 +19,7 @@ package com.google.cloud.tools.opensource.dependencies;
 import com.google.common.base.Strings;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.ListMultimap;
+import java.io.PrintStream;
 import java.util.Collection;
 import java.util.List;
 import org.eclipse.aether.RepositoryException;
@@ -39,7 +40,7 @@ public class DependencyTreeFormatter {
     }
     for (String coordinate : args) {
       try {
-        printDependencyTree(coordinate);
+        printDependencyTree(coordinate, System.out);
       } catch (RepositoryException e) {
         System.err.println(coordinate + " : Failed to retrieve dependency information:"
             + e.getMessage());
@@ -48,17 +49,23 @@ public class DependencyTreeFormatter {
   }
 
   /**
-   * Prints dependencies for the coordinate of an artifact
+   * Prints dependencies for the coordinate of an artifact. Each line is printed as soon as the
+   * dependency is found, in the same format as {@link #formatDependencyPaths(List)}.
    *
    * @param coordinate Maven coordinate of an artifact to print its dependencies
+   * @param out stream to print the tree to
    */
-  private static void printDependencyTree(String coordinate)
+  static void printDependencyTree(String coordinate, PrintStream out)
       throws DependencyCollectionException, DependencyResolutionException {
     DefaultArtifact rootArtifact = new DefaultArtifact(coordinate);
-    DependencyGraph dependencyGraph =
-        DependencyGraphBuilder.getCompleteDependencies(rootArtifact);
-    System.out.println("Dependencies for " + coordinate);
-    System.out.println(formatDependencyPaths(dependencyGraph.list()));
+    out.println("Dependencies for " + coordinate);
+    boolean truncated =
+        DependencyGraphBuilder.forEachCompleteDependencyPreOrder(
+            rootArtifact, path -> out.print(formatLine(path)));
+    if (truncated) {
+      out.println("  ... (truncated at the limits of the budget)");
+    }
+    out.println();
   }
 
   /**
@@ -83,19 +90,21 @@ public class DependencyTreeFormatter {
       StringBuilder stringBuilder,
       ListMultimap<DependencyPath, DependencyPath> tree,
       DependencyPath currentNode) {
-    String indentCharacter = "  ";
-    int depth = currentNode.size();
-    if (depth > 0) {
+    if (currentNode.size() > 0) {
       // Nodes at top have one or more depth
-      stringBuilder.append(Strings.repeat(indentCharacter, depth));
-      stringBuilder.append(currentNode.getLeaf());
-      stringBuilder.append("\n");
+      stringBuilder.append(formatLine(currentNode));
     }
     for (DependencyPath childPath : tree.get(currentNode)) {
       formatDependencyPathTree(stringBuilder, tree, childPath);
     }
   }
 
+  /** Returns the line of the tree for the leaf of the path, indented by its depth. */
+  private static String formatLine(DependencyPath dependencyPath) {
+    String indentCharacter = "  ";
+    return Strings.repeat(indentCharacter, dependencyPath.size()) + dependencyPath.getLeaf() + "\n";
+  }
+
   /**
    * Builds ListMultimap that represents a Maven dependency tree of parent-children relationship.
    * Each node in the tree has a corresponding key in the ListMultimap. The value associated with
@@ -34,19 +34,30 @@ public class DirectReport {
   public static void main(String[] args)
       throws DependencyCollectionException, DependencyResolutionException {
     
-    if (args.length != 1 || !args[0].contains(":")) {
+    boolean ndjson = args.length == 2 && DependencyLister.NDJSON_OPTION.equals(args[0]);
+    String coordinates = args.length > 0 ? args[args.length - 1] : "";
+    if ((args.length != 1 && !ndjson) || !coordinates.contains(":")) {
       System.err.println("Usage: java " + DirectReport.class.getCanonicalName()
-          + " groupdId:artifactId:version");
+          + " [" + DependencyLister.NDJSON_OPTION + "] groupdId:artifactId:version");
       return;
     }
     
-    System.out.println("Dependencies of " + args[0] +":");
-    System.out.println();
-    
-    Artifact input = new DefaultArtifact(args[0]);
+    Artifact input = new DefaultArtifact(coordinates);
     List<Artifact> dependencies =
         DependencyGraphBuilder.getDirectDependencies(input);
     
+    if (ndjson) {
+      for (Artifact artifact : dependencies) {
+        System.out.println("{\"groupId\":" + Json.quote(artifact.getGroupId())
+            + ",\"artifactId\":" + Json.quote(artifact.getArtifactId())
+            + ",\"version\":" + Json.quote(artifact.getVersion()) + "}");
+      }
+      return;
+    }
+
+    System.out.println("Dependencies of " + coordinates +":");
+    System.out.println();
+    
     for (Artifact artifact : dependencies) {
       System.out.println("  <dependency>");
       System.out.println("    <groupId>" + artifact.getGroupId() + "</groupId>");
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarOutputStream;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+
+/**
+ * Writes a synthetic Maven repository in the default layout to a directory, to resolve
+ * dependencies through a {@code file://} URL without network. Each artifact has a POM, an empty
+ * jar file, and their SHA-1 checksums. Resolution against the repository is repeatable, which
+ * makes it suitable for regression tests and benchmarks of {@link DependencyGraphBuilder}.
+ *
+ * <p>Besides single artifacts and BOMs, {@link #addGraph} writes dependency graphs with the shapes
+ * that make resolution expensive: diamonds, version conflicts and deep chains.
+ */
+public final class FakeMavenRepository {
+
+  private final Path root;
+
+  /** Creates a repository in {@code root}, which may already hold artifacts. */
+  public FakeMavenRepository(Path root) {
+    this.root = root.toAbsolutePath();
+  }
+
+  /** Returns the remote repository to pass to the resolver. */
+  public RemoteRepository getRemoteRepository() {
+    return new RemoteRepository.Builder("fake", "default", root.toUri().toString()).build();
+  }
+
+  /**
+   * Writes a jar artifact with compile-scope dependencies.
+   *
+   * @param coordinates groupId:artifactId:version of the artifact
+   * @param dependencies groupId:artifactId:version of the dependencies
+   */
+  public Artifact addArtifact(String coordinates, String... dependencies) throws IOException {
+    StringBuilder dependencyElements = new StringBuilder();
+    for (String dependency : dependencies) {
+      dependencyElements.append(dependencyElement(new DefaultArtifact(dependency), ""));
+    }
+    return addArtifactWithPomElements(
+        coordinates, "  <dependencies>\n" + dependencyElements + "  </dependencies>\n");
+  }
+
+  /**
+   * Writes a jar artifact whose POM has {@code pomElements} after its packaging, for dependencies
+   * with scopes, exclusions or optional flags, and for a dependencyManagement section.
+   *
+   * @param coordinates groupId:artifactId:version of the artifact
+   * @param pomElements XML elements of the {@code project} element of the POM
+   */
+  public Artifact addArtifactWithPomElements(String coordinates, String pomElements)
+      throws IOException {
+    Artifact artifact = new DefaultArtifact(coordinates);
+    writePom(artifact, "jar", pomElements);
+
+    Path jar = artifactDirectory(artifact).resolve(fileName(artifact, "jar"));
+    try (OutputStream out = Files.newOutputStream(jar)) {
+      new JarOutputStream(out).close();
+    }
+    writeChecksum(jar);
+    return artifact;
+  }
+
+  /**
+   * Writes a BOM whose dependencyManagement section lists the artifacts.
+   *
+   * @param coordinates groupId:artifactId:version of the BOM
+   * @param managedDependencies artifacts to list in the BOM
+   */
+  public Artifact addBom(String coordinates, List<Artifact> managedDependencies)
+      throws IOException {
+    Artifact bom = new DefaultArtifact(coordinates);
+    StringBuilder dependencyElements = new StringBuilder();
+    for (Artifact managed : managedDependencies) {
+      dependencyElements.append(dependencyElement(managed, "  "));
+    }
+    writePom(bom, "pom", "  <dependencyManagement>\n    <dependencies>\n" + dependencyElements
+        + "    </dependencies>\n  </dependencyManagement>\n");
+    return new DefaultArtifact(bom.getGroupId(), bom.getArtifactId(), "pom", bom.getVersion());
+  }
+
+  /**
+   * Writes a dependency graph under {@code groupId} and returns its root artifacts, in the shapes
+   * that make resolution expensive.
+   *
+   * <p>Each root has {@code breadth} direct dependencies that all depend on a shared library, in
+   * different versions, which forms diamonds with version conflicts. The shared library starts a
+   * chain of {@code depth} artifacts. Artifacts are shared between roots, as artifacts in a BOM
+   * share their dependencies.
+   *
+   * @param groupId group ID of the artifacts
+   * @param rootCount number of root artifacts
+   * @param breadth number of direct dependencies of each root
+   * @param depth length of the dependency chain under the shared library
+   */
+  public List<Artifact> addGraph(String groupId, int rootCount, int breadth, int depth)
+      throws IOException {
+    // A chain: chain-0 -> chain-1 -> ... -> chain-(depth - 1)
+    String next = null;
+    for (int i = depth - 1; i >= 0; i--) {
+      String coordinates = groupId + ":chain-" + i + ":1.0";
+      if (next == null) {
+        addArtifact(coordinates);
+      } else {
+        addArtifact(coordinates, next);
+      }
+      next = coordinates;
+    }
+
+    // Versions of the shared library, each depending on the start of the chain
+    int sharedVersions = Math.max(1, Math.min(breadth, 3));
+    for (int version = 0; version < sharedVersions; version++) {
+      String coordinates = groupId + ":shared:1." + version;
+      if (next == null) {
+        addArtifact(coordinates);
+      } else {
+        addArtifact(coordinates, next);
+      }
+    }
+
+    // Middle artifacts forming diamonds between the roots and the shared library
+    int middleCount = rootCount + breadth - 1;
+    for (int i = 0; i < middleCount; i++) {
+      addArtifact(
+          groupId + ":middle-" + i + ":1.0", groupId + ":shared:1." + (i % sharedVersions));
+    }
+
+    List<Artifact> roots = new ArrayList<>();
+    for (int i = 0; i < rootCount; i++) {
+      String[] dependencies = new String[breadth];
+      for (int j = 0; j < breadth; j++) {
+        dependencies[j] = groupId + ":middle-" + (i + j) + ":1.0";
+      }
+      roots.add(addArtifact(groupId + ":root-" + i + ":1.0", dependencies));
+    }
+    return roots;
+  }
+
+  private static String dependencyElement(Artifact artifact, String indent) {
+    return indent + "    <dependency>\n"
+        + indent + "      <groupId>" + artifact.getGroupId() + "</groupId>\n"
+        + indent + "      <artifactId>" + artifact.getArtifactId() + "</artifactId>\n"
+        + indent + "      <version>" + artifact.getVersion() + "</version>\n"
+        + indent + "    </dependency>\n";
+  }
+
+  private void writePom(Artifact artifact, String packaging, String body) throws IOException {
+    String pom = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+        + "  <modelVersion>4.0.0</modelVersion>\n"
+        + "  <groupId>" + artifact.getGroupId() + "</groupId>\n"
+        + "  <artifactId>" + artifact.getArtifactId() + "</artifactId>\n"
+        + "  <version>" + artifact.getVersion() + "</version>\n"
+        + "  <packaging>" + packaging + "</packaging>\n"
+        + body
+        + "</project>\n";
+    Path directory = artifactDirectory(artifact);
+    Files.createDirectories(directory);
+    Path pomFile = directory.resolve(fileName(artifact, "pom"));
+    Files.write(pomFile, pom.getBytes(StandardCharsets.UTF_8));
+    writeChecksum(pomFile);
+  }
+
+  private static void writeChecksum(Path file) throws IOException {
+    @SuppressWarnings("deprecation") // SHA-1 is what Maven repositories use
+    String sha1 = MoreFiles.asByteSource(file).hash(Hashing.sha1()).toString();
+    Files.write(file.resolveSibling(file.getFileName() + ".sha1"),
+        sha1.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  private Path artifactDirectory(Artifact artifact) {
+    return root.resolve(artifact.getGroupId().replace('.', '/'))
+        .resolve(artifact.getArtifactId())
+        .resolve(artifact.getVersion());
+  }
+
+  private static String fileName(Artifact artifact, String extension) {
+    return artifact.getArtifactId() + "-" + artifact.getVersion() + "." + extension;
+  }
+}
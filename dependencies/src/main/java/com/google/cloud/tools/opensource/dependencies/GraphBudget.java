@@ -0,0 +1,155 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.base.Preconditions;
+import java.time.Duration;
+import javax.annotation.Nullable;
+
+/**
+ * Limits on the traversal of a dependency graph. Some artifacts have hundreds of thousands of
+ * paths in their complete dependency graphs; with a budget, {@link DependencyGraphBuilder} stops
+ * at the limit and returns the paths found so far in a graph marked as {@link
+ * DependencyGraph#isTruncated() truncated}.
+ *
+ * <p>The depth of a path is the number of artifacts in it; the artifact at the root has depth 1.
+ */
+@AutoValue
+public abstract class GraphBudget {
+
+  private static final GraphBudget UNLIMITED = builder().build();
+
+  /** Returns the maximum depth of the paths in the graph. Deeper paths are left out. */
+  public abstract int getMaxDepth();
+
+  /** Returns the maximum number of paths in the graph. */
+  public abstract int getMaxNodes();
+
+  /**
+   * Returns the time after which the traversal stops, counted from its start, or null for no
+   * limit.
+   */
+  @Nullable
+  public abstract Duration getTimeout();
+
+  /** Returns a builder for a budget without limits, to set some of them. */
+  public static Builder builder() {
+    return new AutoValue_GraphBudget.Builder()
+        .setMaxDepth(Integer.MAX_VALUE)
+        .setMaxNodes(Integer.MAX_VALUE);
+  }
+
+  /** Returns a budget without limits. */
+  public static GraphBudget unlimited() {
+    return UNLIMITED;
+  }
+
+  /**
+   * Returns the budget configured by the {@code dependencies.maxDepth} and {@code
+   * dependencies.maxNodes} system properties and the {@code dependencies.timeout} system property
+   * in the ISO-8601 format of {@link Duration#parse(CharSequence)}, such as {@code PT10M}. Limits
+   * without a property are not set.
+   */
+  static GraphBudget fromSystemProperties() {
+    Builder builder = builder();
+    Integer maxDepth = Integer.getInteger("dependencies.maxDepth");
+    if (maxDepth != null) {
+      builder.setMaxDepth(maxDepth);
+    }
+    Integer maxNodes = Integer.getInteger("dependencies.maxNodes");
+    if (maxNodes != null) {
+      builder.setMaxNodes(maxNodes);
+    }
+    String timeout = System.getProperty("dependencies.timeout");
+    if (timeout != null) {
+      builder.setTimeout(Duration.parse(timeout));
+    }
+    return builder.build();
+  }
+
+  /** Starts a traversal under this budget. */
+  Tracker start() {
+    return new Tracker();
+  }
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+
+    public abstract Builder setMaxDepth(int maxDepth);
+
+    public abstract Builder setMaxNodes(int maxNodes);
+
+    public abstract Builder setTimeout(@Nullable Duration timeout);
+
+    abstract GraphBudget autoBuild();
+
+    public GraphBudget build() {
+      GraphBudget budget = autoBuild();
+      Preconditions.checkArgument(budget.getMaxDepth() > 0, "maxDepth must be positive");
+      Preconditions.checkArgument(budget.getMaxNodes() > 0, "maxNodes must be positive");
+      Preconditions.checkArgument(
+          budget.getTimeout() == null || !budget.getTimeout().isNegative(),
+          "timeout must not be negative");
+      return budget;
+    }
+  }
+
+  /** Counts the paths of one traversal against the budget. */
+  final class Tracker {
+    @Nullable private final Long deadline;
+    private int nodes;
+    private boolean exhausted;
+    private boolean truncated;
+
+    private Tracker() {
+      Duration timeout = getTimeout();
+      deadline = timeout == null ? null : System.nanoTime() + timeout.toNanos();
+    }
+
+    /**
+     * Returns true if the traversal must stop before the next path, because of the number of
+     * paths or the timeout. Call this only when there are more paths to traverse.
+     */
+    boolean isExhausted() {
+      if (nodes >= getMaxNodes() || (deadline != null && System.nanoTime() - deadline > 0)) {
+        exhausted = true;
+        truncated = true;
+      }
+      return exhausted;
+    }
+
+    /**
+     * Returns true and counts the path if it is within the maximum depth. Otherwise the path and
+     * the paths below it are left out.
+     */
+    boolean admit(DependencyPath path) {
+      if (path.size() > getMaxDepth()) {
+        truncated = true;
+        return false;
+      }
+      nodes++;
+      return true;
+    }
+
+    /** Returns true if a path was left out because of the budget. */
+    boolean isTruncated() {
+      return truncated;
+    }
+  }
+}
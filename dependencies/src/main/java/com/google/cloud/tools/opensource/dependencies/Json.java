@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import javax.annotation.Nullable;
+
+/**
+ * Minimal helpers to write JSON text. The tools in this project only write JSON; they never parse
+ * it.
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc8259">RFC 8259: The JavaScript Object Notation
+ *     (JSON) Data Interchange Format</a>
+ */
+public final class Json {
+
+  private Json() {}
+
+  /**
+   * Returns {@code value} as a JSON string literal including the surrounding quotation marks, or
+   * {@code null} if the value is null.
+   */
+  public static String quote(@Nullable Object value) {
+    if (value == null) {
+      return "null";
+    }
+    String string = value.toString();
+    StringBuilder builder = new StringBuilder(string.length() + 2);
+    builder.append('"');
+    for (int i = 0; i < string.length(); i++) {
+      char c = string.charAt(i);
+      switch (c) {
+        case '"':
+          builder.append("\\\"");
+          break;
+        case '\\':
+          builder.append("\\\\");
+          break;
+        case '\n':
+          builder.append("\\n");
+          break;
+        case '\r':
+          builder.append("\\r");
+          break;
+        case '\t':
+          builder.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            builder.append(String.format("\\u%04x", (int) c));
+          } else {
+            builder.append(c);
+          }
+      }
+    }
+    builder.append('"');
+    return builder.toString();
+  }
+
+  /** Returns the values as a JSON array of strings. */
+  public static String array(Iterable<?> values) {
+    StringBuilder builder = new StringBuilder("[");
+    for (Object value : values) {
+      if (builder.length() > 1) {
+        builder.append(',');
+      }
+      builder.append(quote(value));
+    }
+    builder.append(']');
+    return builder.toString();
+  }
+}
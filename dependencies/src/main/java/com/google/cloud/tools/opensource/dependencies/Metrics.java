@@ -0,0 +1,265 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import com.google.common.collect.ImmutableSortedMap;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * Timers and counters of the phases of the tools, such as dependency resolution, jar file scans,
+ * symbol validation and page rendering. They are shared by all threads of the process. {@link
+ * #toJson()} exports them at the end of a run and {@link #registerMBean()} exposes them through
+ * JMX while the tool runs.
+ *
+ * <p>Code on hot paths holds its {@link Timer} or {@link Counter} in a static field, rather than
+ * looking it up by name for each event.
+ */
+public final class Metrics {
+
+  private static final Logger logger = Logger.getLogger(Metrics.class.getName());
+
+  /** The name of the MBean registered by {@link #registerMBean()}. */
+  public static final String MBEAN_NAME = "com.google.cloud.tools.opensource:type=Metrics";
+
+  private static final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+  private static final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+  private Metrics() {}
+
+  /** Returns the timer of {@code name}, creating it on first use. */
+  public static Timer timer(String name) {
+    return timers.computeIfAbsent(name, key -> new Timer());
+  }
+
+  /** Returns the counter of {@code name}, creating it on first use. */
+  public static Counter counter(String name) {
+    return counters.computeIfAbsent(name, key -> new Counter());
+  }
+
+  /** Resets all timers and counters to zero. */
+  public static void reset() {
+    timers.values().forEach(Timer::reset);
+    counters.values().forEach(Counter::reset);
+  }
+
+  /**
+   * Returns the timers and counters as a JSON object. Each timer has its {@code count} of events
+   * and their {@code totalMillis} and {@code maxMillis}.
+   */
+  public static String toJson() {
+    StringBuilder builder = new StringBuilder("{\n  \"timers\": {");
+    String separator = "\n";
+    for (Map.Entry<String, Timer> entry : ImmutableSortedMap.copyOf(timers).entrySet()) {
+      Timer timer = entry.getValue();
+      long totalMillis = TimeUnit.NANOSECONDS.toMillis(timer.getTotalNanos());
+      long maxMillis = TimeUnit.NANOSECONDS.toMillis(timer.getMaxNanos());
+      builder.append(separator).append("    ").append(Json.quote(entry.getKey()))
+          .append(": {\"count\": ").append(timer.getCount())
+          .append(", \"totalMillis\": ").append(totalMillis)
+          .append(", \"maxMillis\": ").append(maxMillis)
+          .append('}');
+      separator = ",\n";
+    }
+    builder.append("\n  },\n  \"counters\": {");
+    separator = "\n";
+    for (Map.Entry<String, Counter> entry : ImmutableSortedMap.copyOf(counters).entrySet()) {
+      builder.append(separator).append("    ").append(Json.quote(entry.getKey()))
+          .append(": ").append(entry.getValue().get());
+      separator = ",\n";
+    }
+    return builder.append("\n  }\n}\n").toString();
+  }
+
+  /** Writes {@link #toJson()} to {@code file}. */
+  public static void writeJson(Path file) throws IOException {
+    Files.write(file, toJson().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Registers the metrics as an MXBean of {@link #MBEAN_NAME} in the platform MBean server, so
+   * that JMX clients such as JConsole show them while the tool runs. Registering twice has no
+   * effect.
+   */
+  public static void registerMBean() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      server.registerMBean(
+          new StandardMBean(new MetricsBean(), MetricsMXBean.class, true),
+          new ObjectName(MBEAN_NAME));
+    } catch (InstanceAlreadyExistsException ex) {
+      // Already registered
+    } catch (JMException ex) {
+      logger.warning("Could not register metrics MBean: " + ex.getMessage());
+    }
+  }
+
+  /** The view of the metrics through JMX. */
+  public interface MetricsMXBean {
+    /** Returns the number of events of each timer. */
+    Map<String, Long> getTimerCounts();
+
+    /** Returns the total milliseconds of each timer. */
+    Map<String, Long> getTimerTotalMillis();
+
+    Map<String, Long> getCounters();
+
+    /** Returns {@link Metrics#toJson()}. */
+    String getJson();
+  }
+
+  private static final class MetricsBean implements MetricsMXBean {
+    @Override
+    public Map<String, Long> getTimerCounts() {
+      return toSortedMap(timers, Timer::getCount);
+    }
+
+    @Override
+    public Map<String, Long> getTimerTotalMillis() {
+      return toSortedMap(timers, timer -> TimeUnit.NANOSECONDS.toMillis(timer.getTotalNanos()));
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+      return toSortedMap(counters, Counter::get);
+    }
+
+    @Override
+    public String getJson() {
+      return toJson();
+    }
+
+    private static <T> Map<String, Long> toSortedMap(
+        Map<String, T> metrics, Function<T, Long> value) {
+      ImmutableSortedMap.Builder<String, Long> builder = ImmutableSortedMap.naturalOrder();
+      metrics.forEach((name, metric) -> builder.put(name, value.apply(metric)));
+      return builder.build();
+    }
+  }
+
+  /** Total and maximum duration of events, such as calls to a method. */
+  public static final class Timer {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    private Timer() {}
+
+    /**
+     * Starts timing an event that ends when the returned {@link Timing} is closed. Use it in a
+     * try-with-resources statement.
+     */
+    public Timing start() {
+      return new Timing(this, System.nanoTime());
+    }
+
+    /** Records an event that took {@code nanos} nanoseconds. */
+    public void record(long nanos) {
+      count.increment();
+      totalNanos.add(nanos);
+      maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Returns a function that records each call to {@code function} in this timer.
+     */
+    public <T, R> Function<T, R> wrap(Function<T, R> function) {
+      return input -> {
+        long start = System.nanoTime();
+        try {
+          return function.apply(input);
+        } finally {
+          record(System.nanoTime() - start);
+        }
+      };
+    }
+
+    public long getCount() {
+      return count.sum();
+    }
+
+    public long getTotalNanos() {
+      return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+      return maxNanos.get();
+    }
+
+    private void reset() {
+      count.reset();
+      totalNanos.reset();
+      maxNanos.set(0);
+    }
+  }
+
+  /** An event being timed by a {@link Timer}. */
+  public static final class Timing implements AutoCloseable {
+    private final Timer timer;
+    private final long start;
+
+    private Timing(Timer timer, long start) {
+      this.timer = timer;
+      this.start = start;
+    }
+
+    /** Records the event in its timer. */
+    @Override
+    public void close() {
+      timer.record(System.nanoTime() - start);
+    }
+  }
+
+  /** The number of occurrences of something, such as cache hits. */
+  public static final class Counter {
+    private final LongAdder value = new LongAdder();
+
+    private Counter() {}
+
+    public void increment() {
+      value.increment();
+    }
+
+    public void add(long delta) {
+      value.add(delta);
+    }
+
+    public long get() {
+      return value.sum();
+    }
+
+    private void reset() {
+      value.reset();
+    }
+  }
+}
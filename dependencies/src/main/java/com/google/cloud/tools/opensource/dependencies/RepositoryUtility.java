@@ -80,9 +80,9 @@ public final class RepositoryUtility {
   }
 
   /**
-   * Opens a new Maven repository session that looks for the local repository in the
-   * customary ~/.m2 directory. If not found, it creates an initially empty repository in
-   * a temporary location.
+   * Opens a new Maven repository session that looks for the local repository in the directory of
+   * the {@code maven.repo.local} system property, or else in the customary ~/.m2 directory. If
+   * not found, it creates an initially empty repository in a temporary location.
    */
   public static RepositorySystemSession newSession(RepositorySystem system) {
     DefaultRepositorySystemSession session = createDefaultRepositorySystemSession(system);
@@ -115,6 +115,10 @@ public final class RepositoryUtility {
   }
 
   private static File findLocalRepository() {
+    String localRepositoryProperty = System.getProperty("maven.repo.local");
+    if (localRepositoryProperty != null) {
+      return new File(localRepositoryProperty);
+    }
     Path home = Paths.get(System.getProperty("user.home"));
     Path localRepo = home.resolve(".m2").resolve("repository");
     if (Files.isDirectory(localRepo)) {
@@ -127,17 +131,27 @@ public final class RepositoryUtility {
   }
 
   /**
-   * Parse the dependencyManagement section of an artifact and return the
-   * artifacts included there.
+   * Parse the dependencyManagement section of an artifact in the {@link
+   * DependencyGraphBuilder#getRemoteRepositories() remote repositories} of the dependency graphs
+   * and return the artifacts included there.
    */
   // TODO Consider the possibility that the artifact is not a BOM; 
   // that is, that it does not have a dependency management section.
   public static List<Artifact> readBom(Artifact artifact) throws ArtifactDescriptorException {
+    return readBom(artifact, DependencyGraphBuilder.getRemoteRepositories());
+  }
+
+  /**
+   * Parse the dependencyManagement section of an artifact in the remote repositories and return
+   * the artifacts included there.
+   */
+  public static List<Artifact> readBom(Artifact artifact, List<RemoteRepository> repositories)
+      throws ArtifactDescriptorException {
     RepositorySystem system = RepositoryUtility.newRepositorySystem();
     RepositorySystemSession session = RepositoryUtility.newSession(system);
 
     ArtifactDescriptorRequest request = new ArtifactDescriptorRequest();
-    request.addRepository(RepositoryUtility.CENTRAL);
+    request.setRepositories(repositories);
     request.setArtifact(artifact);
 
     ArtifactDescriptorResult resolved = system.readArtifactDescriptor(session, request);
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSortedMap;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.repository.RemoteRepository;
+
+/**
+ * Artifacts known to be missing from the remote repositories, such as
+ * {@code org.eclipse.jdt.core.compiler:ecj:jar:4.4RC4}, so that a resolution needing them fails
+ * without another round trip to the repositories.
+ *
+ * <p>An entry expires after the time to live, after which the artifact is tried again, in case it
+ * has been published since. An entry applies only to the repositories the artifact was missing
+ * from; a resolution from other repositories, identified by their URLs, tries the artifact again.
+ * Artifacts differing only in their classifier or extension, such as the sources jar of an
+ * artifact, are separate entries. A cache with a file keeps its entries across runs; the file is
+ * a text file with the coordinates, in the
+ * {@code groupId:artifactId:extension[:classifier]:version} form, the comma-separated URLs of the
+ * repositories and the time they were found missing on each line.
+ */
+public final class UnresolvableArtifactCache {
+
+  private static final Logger logger = Logger.getLogger(UnresolvableArtifactCache.class.getName());
+
+  private static final Metrics.Counter hitCounter =
+      Metrics.counter("dependencies.unresolvable.hits");
+
+  /** The time to live of the entries when none is specified. */
+  public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofDays(1);
+
+  private final Map<String, Instant> missingSince = new ConcurrentHashMap<>();
+  @Nullable private final Path file;
+  private final Duration timeToLive;
+  private final Clock clock;
+
+  private UnresolvableArtifactCache(@Nullable Path file, Duration timeToLive, Clock clock) {
+    Preconditions.checkArgument(!timeToLive.isNegative(), "timeToLive must not be negative");
+    this.file = file;
+    this.timeToLive = timeToLive;
+    this.clock = clock;
+  }
+
+  /** Returns a cache that keeps its entries in memory for {@link #DEFAULT_TIME_TO_LIVE}. */
+  public static UnresolvableArtifactCache inMemory() {
+    return new UnresolvableArtifactCache(null, DEFAULT_TIME_TO_LIVE, Clock.systemUTC());
+  }
+
+  /**
+   * Returns a cache that keeps its entries in {@code file} for {@code timeToLive}, starting with
+   * the unexpired entries already in the file, if it exists.
+   */
+  public static UnresolvableArtifactCache persistent(Path file, Duration timeToLive)
+      throws IOException {
+    return persistent(file, timeToLive, Clock.systemUTC());
+  }
+
+  static UnresolvableArtifactCache persistent(Path file, Duration timeToLive, Clock clock)
+      throws IOException {
+    UnresolvableArtifactCache cache = new UnresolvableArtifactCache(file, timeToLive, clock);
+    if (Files.exists(file)) {
+      Splitter tabSplitter = Splitter.on('\t');
+      for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+        List<String> fields = tabSplitter.splitToList(line);
+        if (fields.size() != 3) {
+          // Including the lines of older files, which do not have the repositories
+          continue;
+        }
+        try {
+          Instant since = Instant.parse(fields.get(2));
+          if (!cache.isExpired(since)) {
+            cache.missingSince.put(fields.get(0) + '\t' + fields.get(1), since);
+          }
+        } catch (RuntimeException ex) {
+          logger.warning("Ignoring malformed line in " + file + ": " + line);
+        }
+      }
+    }
+    return cache;
+  }
+
+  /**
+   * Returns a cache configured by the {@code dependencies.unresolvableArtifactsFile} system
+   * property, with the time to live of the {@code dependencies.unresolvableArtifactsTtl} system
+   * property in the ISO-8601 format of {@link Duration#parse(CharSequence)}, or an in-memory cache
+   * if the file is not specified.
+   */
+  static UnresolvableArtifactCache fromSystemProperties() {
+    String fileName = System.getProperty("dependencies.unresolvableArtifactsFile");
+    if (fileName == null) {
+      return inMemory();
+    }
+    String timeToLive = System.getProperty("dependencies.unresolvableArtifactsTtl");
+    try {
+      return persistent(
+          Paths.get(fileName),
+          timeToLive == null ? DEFAULT_TIME_TO_LIVE : Duration.parse(timeToLive));
+    } catch (IOException ex) {
+      logger.warning("Could not read " + fileName + "; keeping unresolvable artifacts in memory");
+      return inMemory();
+    }
+  }
+
+  /**
+   * Returns true if the artifact was found missing from the repositories within the time to live.
+   * A true result counts as a hit in the {@code dependencies.unresolvable.hits} counter of {@link
+   * Metrics}.
+   */
+  public boolean contains(Artifact artifact, List<RemoteRepository> repositories) {
+    String key = key(artifact, repositories);
+    Instant since = missingSince.get(key);
+    if (since == null) {
+      return false;
+    }
+    if (isExpired(since)) {
+      missingSince.remove(key, since);
+      return false;
+    }
+    hitCounter.increment();
+    return true;
+  }
+
+  /**
+   * Records that the artifact is missing from the repositories, writing the file of a persistent
+   * cache.
+   */
+  public void add(Artifact artifact, List<RemoteRepository> repositories) {
+    missingSince.put(key(artifact, repositories), clock.instant());
+    if (file != null) {
+      try {
+        save(file);
+      } catch (IOException ex) {
+        logger.warning("Could not write unresolvable artifacts to " + file + ": " + ex);
+      }
+    }
+  }
+
+  /** Returns the number of entries, including expired ones not yet removed. */
+  public int size() {
+    return missingSince.size();
+  }
+
+  private static String key(Artifact artifact, List<RemoteRepository> repositories) {
+    List<String> urls =
+        repositories.stream().map(RemoteRepository::getUrl).collect(Collectors.toList());
+    return artifact + "\t" + Joiner.on(',').join(urls);
+  }
+
+  private boolean isExpired(Instant since) {
+    return since.plus(timeToLive).isBefore(clock.instant());
+  }
+
+  private synchronized void save(Path file) throws IOException {
+    StringBuilder content = new StringBuilder();
+    for (Map.Entry<String, Instant> entry : ImmutableSortedMap.copyOf(missingSince).entrySet()) {
+      content.append(entry.getKey()).append('\t').append(entry.getValue()).append('\n');
+    }
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    // Readers of the file, such as other processes, never see it partially written
+    Path temporaryFile = Files.createTempFile(parent, "unresolvable-artifacts", ".tmp");
+    try {
+      Files.write(temporaryFile, content.toString().getBytes(StandardCharsets.UTF_8));
+    } catch (IOException | RuntimeException ex) {
+      Files.deleteIfExists(temporaryFile);
+      throw ex;
+    }
+    Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+}
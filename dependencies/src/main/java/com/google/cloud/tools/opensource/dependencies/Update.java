@@ -41,6 +41,16 @@ public class Update {
         + Artifacts.toCoordinates(from) + " to " + to.getVersion();
   }
 
+  /**
+   * Returns a JSON object with the coordinates of the {@code parent} artifact, the dependency to
+   * upgrade {@code from}, and the dependency to upgrade {@code to}.
+   */
+  public String toJson() {
+    return "{\"parent\":" + Json.quote(Artifacts.toCoordinates(parent))
+        + ",\"from\":" + Json.quote(Artifacts.toCoordinates(from))
+        + ",\"to\":" + Json.quote(Artifacts.toCoordinates(to)) + "}";
+  }
+
   @Override 
   public int hashCode() {
     return Objects.hash(parent, from, to);
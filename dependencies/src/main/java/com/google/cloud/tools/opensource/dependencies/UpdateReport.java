@@ -34,31 +34,37 @@ public class UpdateReport {
   public static void main(String[] args)
       throws DependencyCollectionException, DependencyResolutionException {
 
-    if (args.length != 1 || !args[0].contains(":")) {
+    boolean ndjson = args.length == 2 && DependencyLister.NDJSON_OPTION.equals(args[0]);
+    String coordinates = args.length > 0 ? args[args.length - 1] : "";
+    if ((args.length != 1 && !ndjson) || !coordinates.contains(":")) {
       System.err.println("Usage: java " + UpdateReport.class.getCanonicalName()
-          + " groupdId:artifactId:version");
+          + " [" + DependencyLister.NDJSON_OPTION + "] groupdId:artifactId:version");
       return;
     }
     
     try {
-      DefaultArtifact artifact = new DefaultArtifact(args[0]);
+      DefaultArtifact artifact = new DefaultArtifact(coordinates);
       
       DependencyGraph graph =
           DependencyGraphBuilder.getCompleteDependencies(artifact);
       List<Update> updates = graph.findUpdates();
       
-      if (updates.isEmpty()) {
-        System.out.println(args[0] + " is consistent.");
+      if (ndjson) {
+        for (Update update : updates) {
+          System.out.println(update.toJson());
+        }
+      } else if (updates.isEmpty()) {
+        System.out.println(coordinates + " is consistent.");
         System.out.println();        
       } else {
-        System.out.println("Upgrades needed for " + args[0] +":");
+        System.out.println("Upgrades needed for " + coordinates +":");
         System.out.println();
         for (Update update : updates) {
           System.out.println(update);
         }
       }
     } catch (IllegalArgumentException ex) {
-      System.err.println("Bad Maven coordinates " + args[0]);
+      System.err.println("Bad Maven coordinates " + coordinates);
       return;      
     }
   }
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+
+/**
+ * Answers "what if" questions about the members of a BOM, such as whether using another version
+ * of an artifact fixes their dependency convergence and upper bounds failures, from dependency
+ * graphs resolved before. It makes no repository calls.
+ *
+ * <p>The analyzer keeps the direct dependencies of each artifact version found in the complete
+ * dependency graphs of {@link DependencyGraphBuilder#getCompleteDependencies(Artifact)}. Given
+ * version overrides, which replace the version of an artifact wherever it appears as dependency
+ * management does, it walks those dependencies from each member and re-evaluates:
+ *
+ * <ul>
+ *   <li>the updates of {@link DependencyGraph#findUpdates()},
+ *   <li>the version of each artifact picked by Maven's nearest-wins mediation,
+ *   <li>the upper bounds failures of the member and of the whole BOM, where the mediated version
+ *       is lower than the highest version in the dependencies of the member or of any member.
+ * </ul>
+ *
+ * <p>The analyzer works on artifact versions and the dependencies between them rather than on
+ * paths, so each analysis takes time proportional to the number of artifacts. Members whose
+ * dependencies have none of the overridden artifacts reuse the analysis without overrides. The
+ * complete graphs do not record exclusions or optional flags; the mediation here does not apply
+ * them, so compare results with and without overrides rather than with the dashboard.
+ */
+public final class VersionOverrideAnalyzer {
+
+  private static final VersionComparator comparator = new VersionComparator();
+
+  private final ImmutableList<Artifact> members;
+  // groupId:artifactId:version to the groupId:artifactId:version of its direct dependencies
+  private final Map<String, Set<String>> dependencies = new HashMap<>();
+  // groupId:artifactId:version to an artifact with the coordinates
+  private final Map<String, Artifact> artifacts = new HashMap<>();
+  // Analyses without overrides, keyed by the coordinates of the member
+  private final Map<String, MemberGraph> baseline = new HashMap<>();
+
+  private VersionOverrideAnalyzer(List<Artifact> members) {
+    this.members = ImmutableList.copyOf(members);
+  }
+
+  /**
+   * Returns an analyzer of {@code members} with the dependencies found in {@code completeGraphs}.
+   * The graphs must include the complete graph of each member and of each version used in the
+   * overrides.
+   */
+  public static VersionOverrideAnalyzer create(
+      List<Artifact> members, Iterable<DependencyGraph> completeGraphs) {
+    VersionOverrideAnalyzer analyzer = new VersionOverrideAnalyzer(members);
+    for (DependencyGraph graph : completeGraphs) {
+      for (DependencyPath path : graph.list()) {
+        Artifact leaf = path.getLeaf();
+        String coordinates = Artifacts.toCoordinates(leaf);
+        analyzer.artifacts.putIfAbsent(coordinates, leaf);
+        analyzer.dependencies.computeIfAbsent(coordinates, key -> new LinkedHashSet<>());
+        if (path.size() > 1) {
+          String parent = Artifacts.toCoordinates(path.get(path.size() - 2));
+          analyzer.dependencies
+              .computeIfAbsent(parent, key -> new LinkedHashSet<>())
+              .add(coordinates);
+        }
+      }
+    }
+    for (Artifact member : members) {
+      String coordinates = Artifacts.toCoordinates(member);
+      Preconditions.checkArgument(
+          analyzer.dependencies.containsKey(coordinates),
+          "The graphs do not have the dependencies of %s",
+          coordinates);
+      analyzer.baseline.put(coordinates, analyzer.walk(coordinates, ImmutableMap.of()));
+    }
+    return analyzer;
+  }
+
+  /**
+   * Returns the analysis of each member, in the order of the members, with the versions in {@code
+   * overrides} used instead of the versions in the dependencies.
+   *
+   * @param overrides map of groupId:artifactId to the version to use. An override of a member
+   *     analyzes that version of the member
+   * @throws IllegalArgumentException if the graphs do not have the dependencies of an overridden
+   *     version
+   */
+  public ImmutableMap<Artifact, Analysis> analyze(Map<String, String> overrides) {
+    Map<Artifact, MemberGraph> graphs = new LinkedHashMap<>();
+    for (Artifact member : members) {
+      MemberGraph memberGraph = baseline.get(Artifacts.toCoordinates(member));
+      if (memberGraph.isAffectedBy(overrides)) {
+        memberGraph = walk(Artifacts.toCoordinates(member), overrides);
+      }
+      graphs.put(member, memberGraph);
+    }
+
+    // Highest version of each artifact in the dependencies of any member
+    Map<String, String> globalHighestVersions = new TreeMap<>();
+    for (MemberGraph graph : graphs.values()) {
+      graph.highestVersions.forEach(
+          (key, version) ->
+              globalHighestVersions.merge(key, version, VersionOverrideAnalyzer::max));
+    }
+
+    ImmutableMap.Builder<Artifact, Analysis> analyses = ImmutableMap.builder();
+    for (Map.Entry<Artifact, MemberGraph> entry : graphs.entrySet()) {
+      analyses.put(entry.getKey(), new Analysis(entry.getValue(), globalHighestVersions));
+    }
+    return analyses.build();
+  }
+
+  private static String max(String version1, String version2) {
+    return comparator.compare(version1, version2) >= 0 ? version1 : version2;
+  }
+
+  private static String key(String coordinates) {
+    return coordinates.substring(0, coordinates.lastIndexOf(':'));
+  }
+
+  private static String version(String coordinates) {
+    return coordinates.substring(coordinates.lastIndexOf(':') + 1);
+  }
+
+  private String override(String coordinates, Map<String, String> overrides) {
+    String version = overrides.get(key(coordinates));
+    if (version == null) {
+      return coordinates;
+    }
+    String overridden = key(coordinates) + ":" + version;
+    Preconditions.checkArgument(
+        dependencies.containsKey(overridden),
+        "The graphs do not have the dependencies of %s",
+        overridden);
+    return overridden;
+  }
+
+  /** Walks the dependencies of the member in level order, applying the overrides. */
+  private MemberGraph walk(String member, Map<String, String> overrides) {
+    String root = override(member, overrides);
+    MemberGraph graph = new MemberGraph(artifacts.get(root));
+
+    // All artifact versions reachable from the root, with the dependencies between them
+    Set<String> visited = new LinkedHashSet<>();
+    Queue<String> queue = new ArrayDeque<>();
+    queue.add(root);
+    visited.add(root);
+    // Nearest wins: the first version of each artifact in level order
+    Map<String, String> mediated = new LinkedHashMap<>();
+    Set<String> mediatedVisited = new LinkedHashSet<>();
+    Queue<String> mediatedQueue = new ArrayDeque<>();
+    mediatedQueue.add(root);
+
+    while (!queue.isEmpty()) {
+      String coordinates = queue.poll();
+      graph.highestVersions.merge(
+          key(coordinates), version(coordinates), VersionOverrideAnalyzer::max);
+      for (String dependency : dependencies.get(coordinates)) {
+        String overridden = override(dependency, overrides);
+        graph.dependents.computeIfAbsent(overridden, key -> new LinkedHashSet<>()).add(coordinates);
+        if (visited.add(overridden)) {
+          queue.add(overridden);
+        }
+      }
+    }
+
+    while (!mediatedQueue.isEmpty()) {
+      String coordinates = mediatedQueue.poll();
+      if (mediated.putIfAbsent(key(coordinates), version(coordinates)) != null) {
+        // A nearer version of the artifact was picked
+        continue;
+      }
+      for (String dependency : dependencies.get(coordinates)) {
+        String overridden = override(dependency, overrides);
+        if (mediatedVisited.add(overridden)) {
+          mediatedQueue.add(overridden);
+        }
+      }
+    }
+    graph.mediatedVersions.putAll(mediated);
+    graph.versions.addAll(visited);
+    return graph;
+  }
+
+  /** The artifact versions in the dependencies of a member. */
+  private final class MemberGraph {
+    private final Artifact root;
+    private final Set<String> versions = new LinkedHashSet<>();
+    private final Map<String, Set<String>> dependents = new HashMap<>();
+    private final Map<String, String> highestVersions = new TreeMap<>();
+    private final Map<String, String> mediatedVersions = new LinkedHashMap<>();
+
+    private MemberGraph(Artifact root) {
+      this.root = root;
+    }
+
+    private boolean isAffectedBy(Map<String, String> overrides) {
+      for (String key : overrides.keySet()) {
+        if (highestVersions.containsKey(key)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /** Returns the updates of {@link DependencyGraph#findUpdates()} for these dependencies. */
+    private List<Update> findUpdates() {
+      Set<Update> updates = new LinkedHashSet<>();
+      for (String coordinates : versions) {
+        String highestVersion = highestVersions.get(key(coordinates));
+        if (version(coordinates).equals(highestVersion)) {
+          continue;
+        }
+        Artifact leaf = artifacts.get(coordinates);
+        for (String parentCoordinates : dependents.getOrDefault(coordinates, ImmutableSet.of())) {
+          Artifact parent = artifacts.get(parentCoordinates);
+          // when the parent is out of date, update the parent instead
+          if (parent.getVersion().equals(highestVersions.get(key(parentCoordinates)))) {
+            updates.add(
+                Update.builder()
+                    .setParent(parent)
+                    .setFrom(leaf)
+                    .setTo(leaf.setVersion(highestVersion))
+                    .build());
+          }
+        }
+      }
+      return new ArrayList<>(updates);
+    }
+  }
+
+  /** The result of the analysis of one member of the BOM. */
+  public static final class Analysis {
+    private final Artifact root;
+    private final ImmutableList<Update> updates;
+    private final ImmutableMap<String, String> mediatedVersions;
+    private final ImmutableMap<Artifact, Artifact> upperBoundFailures;
+    private final ImmutableMap<Artifact, Artifact> globalUpperBoundFailures;
+
+    private Analysis(MemberGraph graph, Map<String, String> globalHighestVersions) {
+      this.root = graph.root;
+      this.updates = ImmutableList.copyOf(graph.findUpdates());
+      this.mediatedVersions = ImmutableMap.copyOf(graph.mediatedVersions);
+      this.upperBoundFailures = findUpperBoundsFailures(graph.highestVersions, mediatedVersions);
+      this.globalUpperBoundFailures =
+          findUpperBoundsFailures(globalHighestVersions, mediatedVersions);
+    }
+
+    /** Returns the member, in the overridden version if the member was overridden. */
+    public Artifact getRoot() {
+      return root;
+    }
+
+    /** Returns the updates that make the dependencies of the member converge. */
+    public ImmutableList<Update> getUpdates() {
+      return updates;
+    }
+
+    /** Returns the map of groupId:artifactId to the version picked by nearest-wins mediation. */
+    public ImmutableMap<String, String> getMediatedVersions() {
+      return mediatedVersions;
+    }
+
+    /**
+     * Returns the map of the mediated versions lower than the highest version in the dependencies
+     * of the member to that highest version.
+     */
+    public ImmutableMap<Artifact, Artifact> getUpperBoundFailures() {
+      return upperBoundFailures;
+    }
+
+    /**
+     * Returns the map of the mediated versions lower than the highest version in the dependencies
+     * of any member to that highest version.
+     */
+    public ImmutableMap<Artifact, Artifact> getGlobalUpperBoundFailures() {
+      return globalUpperBoundFailures;
+    }
+
+    private static ImmutableMap<Artifact, Artifact> findUpperBoundsFailures(
+        Map<String, String> expectedVersions, Map<String, String> actualVersions) {
+      ImmutableMap.Builder<Artifact, Artifact> failures = ImmutableMap.builder();
+      for (Map.Entry<String, String> entry : expectedVersions.entrySet()) {
+        String actualVersion = actualVersions.get(entry.getKey());
+        if (actualVersion != null && comparator.compare(actualVersion, entry.getValue()) < 0) {
+          failures.put(
+              new DefaultArtifact(entry.getKey() + ":" + actualVersion),
+              new DefaultArtifact(entry.getKey() + ":" + entry.getValue()));
+        }
+      }
+      return failures.build();
+    }
+  }
+}
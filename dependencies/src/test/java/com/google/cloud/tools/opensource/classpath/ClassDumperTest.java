@@ -16,6 +16,7 @@
 
 package com.google.cloud.tools.opensource.classpath;
 
+import com.google.cloud.tools.opensource.dependencies.Metrics;
 import com.google.common.collect.ImmutableList;
 import com.google.common.truth.Correspondence;
 import com.google.common.truth.Truth;
@@ -128,6 +129,69 @@ public class ClassDumperTest {
     }
   }
 
+  @Test
+  public void testLoadJavaClass_notInClassNameFilters()
+      throws IOException, URISyntaxException, ClassNotFoundException {
+    URL jarFileUrl = URLClassLoader.getSystemResource(EXAMPLE_JAR_FILE);
+    ClassDumper classDumper = ClassDumper.create(ImmutableList.of(Paths.get(jarFileUrl.toURI())));
+    Metrics.Counter skippedLookups = Metrics.counter("classpath.skippedLookups");
+    long skippedBefore = skippedLookups.get();
+    try {
+      classDumper.loadJavaClass("com.example.NoSuchClass");
+      Assert.fail("The class should not be found");
+    } catch (ClassNotFoundException ex) {
+      // pass
+    }
+    Assert.assertEquals(skippedBefore + 1, skippedLookups.get());
+
+    // The classes in the jar file and in the JDK are still found
+    Assert.assertEquals(
+        "com.google.firestore.v1beta1.FirestoreGrpc$FirestoreStub",
+        classDumper
+            .loadJavaClass("com.google.firestore.v1beta1.FirestoreGrpc$FirestoreStub")
+            .getClassName());
+    Assert.assertEquals("java.lang.String",
+        classDumper.loadJavaClass("java.lang.String").getClassName());
+    Assert.assertSame(String.class, classDumper.loadClass("java.lang.String"));
+  }
+
+  @Test
+  public void testCreate_doesNotScanJarFiles()
+      throws IOException, URISyntaxException, ClassNotFoundException {
+    URL jarFileUrl = URLClassLoader.getSystemResource(EXAMPLE_JAR_FILE);
+    JarScanCache jarScanCache = new JarScanCache();
+    ClassDumper classDumper =
+        ClassDumper.create(ImmutableList.of(Paths.get(jarFileUrl.toURI())), jarScanCache);
+    Assert.assertEquals(0, jarScanCache.size());
+
+    classDumper.loadJavaClass("com.google.firestore.v1beta1.FirestoreGrpc");
+    Assert.assertEquals(0, jarScanCache.size());
+  }
+
+  @Test
+  public void testLoadJavaClass_skipsOtherJarFiles()
+      throws IOException, URISyntaxException, ClassNotFoundException {
+    URL firestoreJarUrl = URLClassLoader.getSystemResource(EXAMPLE_JAR_FILE);
+    URL gaxJarUrl = URLClassLoader.getSystemResource("testdata/gax-1.32.0.jar");
+    ClassDumper classDumper =
+        ClassDumper.create(
+            ImmutableList.of(Paths.get(gaxJarUrl.toURI()), Paths.get(firestoreJarUrl.toURI())));
+    Metrics.Counter skippedLookups = Metrics.counter("classpath.skippedLookups");
+    long skippedBefore = skippedLookups.get();
+
+    // The class is in the second jar file; the first one is not looked into
+    Assert.assertEquals(
+        "com.google.firestore.v1beta1.FirestoreGrpc",
+        classDumper.loadJavaClass("com.google.firestore.v1beta1.FirestoreGrpc").getClassName());
+    Assert.assertEquals(skippedBefore + 1, skippedLookups.get());
+
+    // The class is in the first jar file; the second one is not consulted
+    Assert.assertEquals(
+        "com.google.api.gax.core.GaxProperties",
+        classDumper.loadJavaClass("com.google.api.gax.core.GaxProperties").getClassName());
+    Assert.assertEquals(skippedBefore + 1, skippedLookups.get());
+  }
+
   @Test
   public void testScanSymbolTableFromJar()
       throws URISyntaxException, IOException {
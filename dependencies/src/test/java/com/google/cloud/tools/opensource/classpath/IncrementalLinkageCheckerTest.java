@@ -0,0 +1,152 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.classpath;
+
+import com.google.cloud.tools.opensource.dependencies.Metrics;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.truth.Truth;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IncrementalLinkageCheckerTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static Path absolutePathOfResource(String resourceName) throws URISyntaxException {
+    return Paths.get(URLClassLoader.getSystemResource(resourceName).toURI()).toAbsolutePath();
+  }
+
+  private static List<Path> classpath(String firestoreJar) throws URISyntaxException {
+    return ImmutableList.of(
+        absolutePathOfResource("testdata/" + firestoreJar),
+        absolutePathOfResource("testdata/google-cloud-core-1.48.0.jar"),
+        absolutePathOfResource("testdata/google-cloud-core-grpc-1.48.0.jar"),
+        absolutePathOfResource("testdata/gax-1.32.0.jar"),
+        absolutePathOfResource("testdata/api-common-1.7.0.jar"),
+        absolutePathOfResource("testdata/grpc-google-cloud-firestore-v1beta1-0.28.0.jar"),
+        absolutePathOfResource("testdata/proto-google-cloud-firestore-v1beta1-0.28.0.jar"));
+  }
+
+  private static StaticLinkageCheckReport fullCheck(List<Path> jarFilePaths) throws IOException {
+    try (StaticLinkageChecker checker =
+        StaticLinkageChecker.create(false, jarFilePaths, ImmutableSet.of(jarFilePaths.get(0)))) {
+      return checker.findLinkageErrors();
+    }
+  }
+
+  @Test
+  public void testCheck_versionBump() throws URISyntaxException, IOException {
+    IncrementalLinkageChecker checker = IncrementalLinkageChecker.create(new JarScanCache());
+    List<Path> oldClasspath = classpath("google-cloud-firestore-0.65.0-beta.jar");
+    List<Path> newClasspath = classpath("google-cloud-firestore-0.66.0-beta.jar");
+
+    IncrementalLinkageChecker.Result first = checker.check(oldClasspath);
+    Assert.assertEquals(first.getReport(), first.getIntroducedErrors());
+    Assert.assertEquals(0, first.getFixedErrors().getTotalErrorCount());
+
+    Metrics.Counter reusedReferences = Metrics.counter("linkage.reusedReferences");
+    long reusedBefore = reusedReferences.get();
+    IncrementalLinkageChecker.Result second = checker.check(newClasspath);
+    Truth.assertThat(reusedReferences.get()).isGreaterThan(reusedBefore);
+
+    // The same errors as a check without the previous results
+    Assert.assertEquals(fullCheck(newClasspath).toString(), second.getReport().toString());
+    Assert.assertEquals(
+        second.getReport().getTotalErrorCount(),
+        first.getReport().getTotalErrorCount()
+            + second.getIntroducedErrors().getTotalErrorCount()
+            - second.getFixedErrors().getTotalErrorCount());
+  }
+
+  @Test
+  public void testCheck_jarRebuiltInPlace() throws URISyntaxException, IOException {
+    Path firestoreJar = temporaryFolder.getRoot().toPath().resolve("google-cloud-firestore.jar");
+    Files.copy(absolutePathOfResource("testdata/google-cloud-firestore-0.65.0-beta.jar"),
+        firestoreJar);
+    List<Path> classpath = new ArrayList<>(classpath("google-cloud-firestore-0.65.0-beta.jar"));
+    classpath.set(0, firestoreJar);
+    IncrementalLinkageChecker checker = IncrementalLinkageChecker.create(new JarScanCache());
+    IncrementalLinkageChecker.Result first = checker.check(classpath);
+
+    // The same path with the bytes of another version
+    FileTime lastModified = Files.getLastModifiedTime(firestoreJar);
+    Files.copy(absolutePathOfResource("testdata/google-cloud-firestore-0.66.0-beta.jar"),
+        firestoreJar, StandardCopyOption.REPLACE_EXISTING);
+    Files.setLastModifiedTime(firestoreJar, FileTime.fromMillis(lastModified.toMillis() + 60_000));
+    Metrics.Counter reusedReferences = Metrics.counter("linkage.reusedReferences");
+    long reusedBefore = reusedReferences.get();
+    IncrementalLinkageChecker.Result second = checker.check(classpath);
+    Truth.assertThat(reusedReferences.get()).isGreaterThan(reusedBefore);
+
+    Assert.assertEquals(fullCheck(classpath).toString(), second.getReport().toString());
+    Assert.assertNotEquals(first.getReport().toString(), second.getReport().toString());
+  }
+
+  @Test
+  public void testCheck_sameClasspath() throws URISyntaxException, IOException {
+    IncrementalLinkageChecker checker = IncrementalLinkageChecker.create(new JarScanCache());
+    List<Path> jarFilePaths =
+        ImmutableList.of(
+            absolutePathOfResource("testdata/grpc-google-cloud-firestore-v1beta1-0.28.0.jar"),
+            absolutePathOfResource("testdata/gax-1.32.0.jar"));
+
+    IncrementalLinkageChecker.Result first = checker.check(jarFilePaths);
+    IncrementalLinkageChecker.Result second = checker.check(jarFilePaths);
+
+    Assert.assertEquals(first.getReport(), second.getReport());
+    Assert.assertEquals(0, second.getIntroducedErrors().getTotalErrorCount());
+    Assert.assertEquals(0, second.getFixedErrors().getTotalErrorCount());
+  }
+
+  @Test
+  public void testCheck_removedJar() throws URISyntaxException, IOException {
+    IncrementalLinkageChecker checker = IncrementalLinkageChecker.create(new JarScanCache());
+    Path firestoreJar =
+        absolutePathOfResource("testdata/grpc-google-cloud-firestore-v1beta1-0.28.0.jar");
+    Path protoJar =
+        absolutePathOfResource("testdata/proto-google-cloud-firestore-v1beta1-0.28.0.jar");
+
+    IncrementalLinkageChecker.Result withProto =
+        checker.check(ImmutableList.of(firestoreJar, protoJar));
+    IncrementalLinkageChecker.Result withoutProto = checker.check(ImmutableList.of(firestoreJar));
+
+    Assert.assertEquals(
+        fullCheck(ImmutableList.of(firestoreJar)).toString(), withoutProto.getReport().toString());
+    // The references to the message classes from the gRPC jar file are errors now
+    Truth.assertThat(withoutProto.getIntroducedErrors().toString())
+        .contains("com.google.firestore.v1beta1.GetDocumentRequest");
+    Assert.assertEquals(
+        withProto.getReport().getTotalErrorCount()
+            - withoutProto.getFixedErrors().getTotalErrorCount(),
+        withoutProto.getReport().getTotalErrorCount()
+            - withoutProto.getIntroducedErrors().getTotalErrorCount());
+  }
+}
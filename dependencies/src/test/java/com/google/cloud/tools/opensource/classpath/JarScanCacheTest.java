@@ -0,0 +1,228 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.classpath;
+
+import com.google.cloud.tools.opensource.dependencies.Metrics;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.BloomFilter;
+import com.google.common.io.ByteStreams;
+import com.google.common.truth.Truth;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JarScanCacheTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static Path absolutePathOfResource(String resourceName) throws URISyntaxException {
+    return Paths.get(URLClassLoader.getSystemResource(resourceName).toURI()).toAbsolutePath();
+  }
+
+  @Test
+  public void testScanOnce() throws URISyntaxException, IOException {
+    Path firestoreJar =
+        absolutePathOfResource("testdata/grpc-google-cloud-firestore-v1beta1-0.28.0.jar");
+    JarScanCache cache = new JarScanCache();
+    Assert.assertEquals(0, cache.size());
+
+    SymbolReferenceSet symbolReferences = cache.getSymbolReferences(firestoreJar);
+    Truth.assertThat(cache.getDefinedClasses(firestoreJar))
+        .containsAllOf(
+            "com.google.firestore.v1beta1.FirestoreGrpc",
+            "com.google.firestore.v1beta1.FirestoreGrpc$FirestoreStub");
+    Assert.assertSame(symbolReferences, cache.getSymbolReferences(firestoreJar));
+    Assert.assertEquals(1, cache.size());
+
+    Assert.assertEquals(
+        ClassDumper.scanSymbolReferencesInJar(firestoreJar), symbolReferences);
+  }
+
+  @Test
+  public void testSharedAcrossClassDumpers() throws URISyntaxException, IOException {
+    Path firestoreJar =
+        absolutePathOfResource("testdata/grpc-google-cloud-firestore-v1beta1-0.28.0.jar");
+    Path gaxJar = absolutePathOfResource("testdata/gax-1.32.0.jar");
+    JarScanCache cache = new JarScanCache();
+
+    SymbolReferenceSet symbolReferences =
+        ClassDumper.create(ImmutableList.of(firestoreJar), cache)
+            .symbolReferencesInJar(firestoreJar);
+    ClassDumper dumper = ClassDumper.create(ImmutableList.of(firestoreJar, gaxJar), cache);
+    dumper.symbolReferencesInJar(gaxJar);
+    Assert.assertEquals(2, cache.size());
+    Assert.assertSame(symbolReferences, dumper.symbolReferencesInJar(firestoreJar));
+  }
+
+  @Test
+  public void testEvictModified() throws URISyntaxException, IOException {
+    Path gaxJar = temporaryFolder.getRoot().toPath().resolve("gax.jar");
+    Files.copy(absolutePathOfResource("testdata/gax-1.32.0.jar"), gaxJar);
+    JarScanCache cache = new JarScanCache();
+    SymbolReferenceSet symbolReferences = cache.getSymbolReferences(gaxJar);
+
+    Assert.assertFalse(cache.evictModified(ImmutableList.of(gaxJar)));
+    Assert.assertEquals(1, cache.size());
+
+    FileTime lastModified = Files.getLastModifiedTime(gaxJar);
+    Files.setLastModifiedTime(gaxJar, FileTime.fromMillis(lastModified.toMillis() + 60_000));
+    Assert.assertTrue(cache.evictModified(ImmutableList.of(gaxJar)));
+    Assert.assertEquals(0, cache.size());
+    Assert.assertEquals(symbolReferences, cache.getSymbolReferences(gaxJar));
+  }
+
+  @Test
+  public void testEvictModified_contentChanged() throws URISyntaxException, IOException {
+    Path firestoreJar = temporaryFolder.getRoot().toPath().resolve("google-cloud-firestore.jar");
+    Files.copy(absolutePathOfResource("testdata/google-cloud-firestore-0.65.0-beta.jar"),
+        firestoreJar);
+    JarScanCache cache = new JarScanCache();
+    SymbolReferenceSet oldSymbolReferences = cache.getSymbolReferences(firestoreJar);
+
+    // Rebuilt in place with different classes
+    Path newJar = absolutePathOfResource("testdata/google-cloud-firestore-0.66.0-beta.jar");
+    FileTime lastModified = Files.getLastModifiedTime(firestoreJar);
+    Files.copy(newJar, firestoreJar, StandardCopyOption.REPLACE_EXISTING);
+    Files.setLastModifiedTime(firestoreJar, FileTime.fromMillis(lastModified.toMillis() + 60_000));
+    Assert.assertTrue(cache.evictModified(ImmutableList.of(firestoreJar)));
+
+    SymbolReferenceSet newSymbolReferences = cache.getSymbolReferences(firestoreJar);
+    Assert.assertNotEquals(oldSymbolReferences, newSymbolReferences);
+    Assert.assertEquals(ClassDumper.scanSymbolReferencesInJar(newJar), newSymbolReferences);
+    Assert.assertEquals(cache.getDefinedClasses(firestoreJar),
+        new JarScanCache().getDefinedClasses(newJar));
+  }
+
+  @Test
+  public void testWriteAndReadIndex() throws URISyntaxException, IOException {
+    Path firestoreJar =
+        absolutePathOfResource("testdata/grpc-google-cloud-firestore-v1beta1-0.28.0.jar");
+    Path gaxJar = absolutePathOfResource("testdata/gax-1.32.0.jar");
+    Path indexFile = temporaryFolder.getRoot().toPath().resolve("scans.idx");
+    JarScanCache cache = new JarScanCache();
+    cache.writeIndex(indexFile, ImmutableList.of(firestoreJar, gaxJar));
+
+    JarScanCache index = JarScanCache.readIndex(indexFile);
+    Assert.assertEquals(2, index.size());
+    Assert.assertFalse(index.evictModified(ImmutableList.of(firestoreJar, gaxJar)));
+    for (Path jar : ImmutableList.of(firestoreJar, gaxJar)) {
+      Assert.assertEquals(cache.getSymbolReferences(jar), index.getSymbolReferences(jar));
+      Assert.assertEquals(cache.getDefinedClasses(jar), index.getDefinedClasses(jar));
+      Assert.assertEquals(cache.getClassNameFilter(jar), index.getClassNameFilter(jar));
+    }
+  }
+
+  @Test
+  public void testReadIndex_notIndex() throws URISyntaxException {
+    try {
+      JarScanCache.readIndex(absolutePathOfResource("testdata/gax-1.32.0.jar"));
+      Assert.fail("A jar file should not be read as an index");
+    } catch (IOException ex) {
+      Truth.assertThat(ex.getMessage()).startsWith("Not a jar scan index");
+    }
+  }
+
+  @Test
+  public void testIdenticalJarsScannedOnce() throws URISyntaxException, IOException {
+    Path gaxJar = absolutePathOfResource("testdata/gax-1.32.0.jar");
+    Path relocatedJar = temporaryFolder.getRoot().toPath().resolve("relocated-gax.jar");
+    Files.copy(gaxJar, relocatedJar);
+    JarScanCache cache = new JarScanCache();
+
+    SymbolReferenceSet symbolReferences = cache.getSymbolReferences(gaxJar);
+    Metrics.Counter scannedClasses = Metrics.counter("classpath.scannedClasses");
+    long scannedBefore = scannedClasses.get();
+    Assert.assertSame(symbolReferences, cache.getSymbolReferences(relocatedJar));
+    Assert.assertEquals(cache.getDefinedClasses(gaxJar), cache.getDefinedClasses(relocatedJar));
+    Assert.assertEquals(scannedBefore, scannedClasses.get());
+    Assert.assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void testSharedClassScans() throws URISyntaxException, IOException {
+    Path gaxJar = absolutePathOfResource("testdata/gax-1.32.0.jar");
+    // The same class files in a jar file of different content
+    Path republishedJar = temporaryFolder.getRoot().toPath().resolve("republished-gax.jar");
+    try (ZipInputStream input = new ZipInputStream(Files.newInputStream(gaxJar));
+        ZipOutputStream output = new ZipOutputStream(Files.newOutputStream(republishedJar))) {
+      for (ZipEntry entry = input.getNextEntry(); entry != null; entry = input.getNextEntry()) {
+        output.putNextEntry(new ZipEntry(entry.getName()));
+        ByteStreams.copy(input, output);
+      }
+      output.putNextEntry(new ZipEntry("README.txt"));
+      output.write("republished".getBytes(StandardCharsets.UTF_8));
+    }
+    JarScanCache cache = new JarScanCache();
+    cache.getSymbolReferences(gaxJar);
+
+    Metrics.Counter scannedClasses = Metrics.counter("classpath.scannedClasses");
+    Metrics.Counter sharedClasses = Metrics.counter("classpath.sharedClasses");
+    long scannedBefore = scannedClasses.get();
+    long sharedBefore = sharedClasses.get();
+    SymbolReferenceSet symbolReferences = cache.getSymbolReferences(republishedJar);
+    Assert.assertEquals(scannedBefore, scannedClasses.get());
+    Truth.assertThat(sharedClasses.get()).isGreaterThan(sharedBefore);
+    Assert.assertEquals(ClassDumper.scanSymbolReferencesInJar(republishedJar), symbolReferences);
+    Assert.assertEquals(cache.getDefinedClasses(gaxJar), cache.getDefinedClasses(republishedJar));
+  }
+
+  @Test
+  public void testClassNameFilter() throws URISyntaxException, IOException {
+    Path firestoreJar =
+        absolutePathOfResource("testdata/grpc-google-cloud-firestore-v1beta1-0.28.0.jar");
+    JarScanCache cache = new JarScanCache();
+
+    BloomFilter<CharSequence> filter = cache.getClassNameFilter(firestoreJar);
+    for (String className : cache.getDefinedClasses(firestoreJar)) {
+      Assert.assertTrue(className, filter.mightContain(className.replace('.', '/')));
+    }
+    Assert.assertFalse(filter.mightContain("com/google/common/base/Joiner"));
+  }
+
+  @Test
+  public void testClassNameFilter_doesNotScan() throws URISyntaxException, IOException {
+    Path firestoreJar =
+        absolutePathOfResource("testdata/grpc-google-cloud-firestore-v1beta1-0.28.0.jar");
+    JarScanCache cache = new JarScanCache();
+    Metrics.Counter scannedClasses = Metrics.counter("classpath.scannedClasses");
+    long scannedBefore = scannedClasses.get();
+
+    BloomFilter<CharSequence> filter = cache.getClassNameFilter(firestoreJar);
+    Assert.assertTrue(filter.mightContain("com/google/firestore/v1beta1/FirestoreGrpc"));
+    Assert.assertEquals(0, cache.size());
+    Assert.assertEquals(scannedBefore, scannedClasses.get());
+  }
+
+  @Test
+  public void testClassNameFilter_directory() throws IOException {
+    JarScanCache cache = new JarScanCache();
+    Assert.assertNull(cache.getClassNameFilter(temporaryFolder.getRoot().toPath()));
+  }
+}
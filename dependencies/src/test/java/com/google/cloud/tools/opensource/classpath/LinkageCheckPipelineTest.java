@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.classpath;
+
+import com.google.cloud.tools.opensource.dependencies.DependencyPath;
+import com.google.cloud.tools.opensource.dependencies.FakeMavenRepository;
+import com.google.cloud.tools.opensource.dependencies.FakeMavenRepositoryRule;
+import com.google.common.collect.LinkedListMultimap;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.List;
+import org.eclipse.aether.RepositoryException;
+import org.eclipse.aether.artifact.Artifact;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class LinkageCheckPipelineTest {
+
+  @Rule public FakeMavenRepositoryRule fakeRepository = new FakeMavenRepositoryRule();
+
+  private FakeMavenRepository repository;
+
+  @Before
+  public void setUp() throws IOException {
+    repository = fakeRepository.getRepository();
+  }
+
+  @Test
+  public void testCheck() throws IOException, RepositoryException {
+    List<Artifact> roots = repository.addGraph("com.example", 2, 3, 2);
+    JarScanCache jarScanCache = new JarScanCache();
+    LinkageCheckPipeline pipeline = LinkageCheckPipeline.create(jarScanCache, 2, 1);
+
+    StringWriter writer = new StringWriter();
+    pipeline.check(roots, false, LinkageReportWriter.json(writer));
+
+    // The jar files are empty
+    Assert.assertEquals("[]\n", writer.toString());
+    LinkedListMultimap<Path, DependencyPath> paths = StaticLinkageChecker.artifactsToPaths(roots);
+    Assert.assertEquals(paths.keySet().size(), jarScanCache.size());
+  }
+
+  @Test
+  public void testCheck_cachedGraph() throws IOException, RepositoryException {
+    List<Artifact> roots = repository.addGraph("com.example", 1, 2, 2);
+    // The graph comes from the cache of DependencyGraphBuilder, without resolution events
+    int jarCount = StaticLinkageChecker.artifactsToClasspath(roots).size();
+    JarScanCache jarScanCache = new JarScanCache();
+
+    LinkageCheckPipeline.create(jarScanCache)
+        .check(roots, false, LinkageReportWriter.text(new StringWriter()));
+
+    Assert.assertEquals(jarCount, jarScanCache.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreate_invalidThreads() {
+    LinkageCheckPipeline.create(new JarScanCache(), 0, 1);
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.classpath;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.truth.Truth;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LinkageCheckShardsTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static Path absolutePathOfResource(String resourceName) throws URISyntaxException {
+    return Paths.get(URLClassLoader.getSystemResource(resourceName).toURI()).toAbsolutePath();
+  }
+
+  private static List<Path> classpath() throws URISyntaxException {
+    return ImmutableList.of(
+        absolutePathOfResource("testdata/google-cloud-firestore-0.66.0-beta.jar"),
+        absolutePathOfResource("testdata/google-cloud-core-1.48.0.jar"),
+        absolutePathOfResource("testdata/gax-1.32.0.jar"),
+        absolutePathOfResource("testdata/api-common-1.7.0.jar"),
+        absolutePathOfResource("testdata/grpc-google-cloud-firestore-v1beta1-0.28.0.jar"),
+        absolutePathOfResource("testdata/proto-google-cloud-firestore-v1beta1-0.28.0.jar"));
+  }
+
+  private static StaticLinkageCheckReport fullCheck(List<Path> jarFilePaths) throws IOException {
+    return StaticLinkageChecker.create(false, jarFilePaths, ImmutableSet.of(jarFilePaths.get(0)))
+        .findLinkageErrors();
+  }
+
+  private List<Path> checkShards(List<Path> classpath, int shardCount) throws IOException {
+    Path indexFile = temporaryFolder.getRoot().toPath().resolve("scans.idx");
+    new JarScanCache().writeIndex(indexFile, classpath);
+    List<Path> shardReports = new ArrayList<>();
+    for (int shard = 0; shard < shardCount; shard++) {
+      JarScanCache jarScanCache = LinkageCheckShards.loadIndex(indexFile, classpath);
+      Path shardReport = temporaryFolder.getRoot().toPath().resolve(shard + ".shard");
+      try (StaticLinkageChecker checker =
+          new StaticLinkageChecker(
+              false,
+              ClassDumper.create(classpath, jarScanCache),
+              ImmutableSet.of(classpath.get(0)),
+              LinkedListMultimap.create())) {
+        LinkageCheckShards.writeShardReport(
+            shardReport, shard, shardCount, classpath,
+            checker.findLinkageErrors(shard, shardCount));
+      }
+      shardReports.add(shardReport);
+    }
+    return shardReports;
+  }
+
+  @Test
+  public void testMerge_sameAsFullCheck() throws URISyntaxException, IOException {
+    List<Path> classpath = classpath();
+    List<Path> shardReports = checkShards(classpath, 4);
+
+    StaticLinkageCheckReport merged = LinkageCheckShards.merge(shardReports);
+    StaticLinkageCheckReport expected = fullCheck(classpath);
+    Truth.assertThat(expected.getTotalErrorCount()).isGreaterThan(0);
+    Assert.assertEquals(expected.toString(), merged.toString());
+  }
+
+  @Test
+  public void testMerge_missingShard() throws URISyntaxException, IOException {
+    List<Path> shardReports = checkShards(classpath(), 3);
+    try {
+      LinkageCheckShards.merge(shardReports.subList(0, 2));
+      Assert.fail("The merge should fail without the last shard");
+    } catch (IllegalArgumentException ex) {
+      Assert.assertEquals("The shard reports have shards [0, 1] of 3", ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testLoadIndex_missing() throws URISyntaxException {
+    Path indexFile = temporaryFolder.getRoot().toPath().resolve("scans.idx");
+    try {
+      LinkageCheckShards.loadIndex(indexFile, classpath());
+      Assert.fail("A shard should not start without the index");
+    } catch (IOException ex) {
+      Truth.assertThat(ex.getMessage()).contains("Write it with --write-index first");
+    }
+    Assert.assertFalse(Files.exists(indexFile));
+  }
+
+  @Test
+  public void testLoadIndex_jarRebuiltAfterIndex() throws URISyntaxException, IOException {
+    Path firestoreJar = temporaryFolder.getRoot().toPath().resolve("google-cloud-firestore.jar");
+    Files.copy(absolutePathOfResource("testdata/google-cloud-firestore-0.65.0-beta.jar"),
+        firestoreJar);
+    List<Path> classpath = ImmutableList.of(firestoreJar);
+    Path indexFile = temporaryFolder.getRoot().toPath().resolve("scans.idx");
+    JarScanCache indexed = new JarScanCache();
+    indexed.writeIndex(indexFile, classpath);
+
+    Path newJar = absolutePathOfResource("testdata/google-cloud-firestore-0.66.0-beta.jar");
+    FileTime lastModified = Files.getLastModifiedTime(firestoreJar);
+    Files.copy(newJar, firestoreJar, StandardCopyOption.REPLACE_EXISTING);
+    Files.setLastModifiedTime(firestoreJar, FileTime.fromMillis(lastModified.toMillis() + 60_000));
+
+    JarScanCache jarScanCache = LinkageCheckShards.loadIndex(indexFile, classpath);
+    Assert.assertEquals(
+        ClassDumper.scanSymbolReferencesInJar(newJar),
+        jarScanCache.getSymbolReferences(firestoreJar));
+  }
+
+  @Test
+  public void testParseShard() throws Exception {
+    Assert.assertArrayEquals(new int[] {1, 4}, LinkageCheckShards.parseShard("1/4"));
+    for (String invalid : ImmutableList.of("4/4", "1", "-1/4", "a/b")) {
+      try {
+        LinkageCheckShards.parseShard(invalid);
+        Assert.fail(invalid + " should not be a valid shard");
+      } catch (org.apache.commons.cli.ParseException ex) {
+        // pass
+      }
+    }
+  }
+
+  @Test
+  public void testMain_localProcesses()
+      throws URISyntaxException, IOException, InterruptedException {
+    List<Path> classpath = classpath();
+    Path indexFile = temporaryFolder.getRoot().toPath().resolve("scans.idx");
+    String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    String jars = Joiner.on(',').join(classpath);
+
+    // One step writes the index before the shards start
+    Process indexWriter =
+        new ProcessBuilder(
+                java,
+                "-cp",
+                System.getProperty("java.class.path"),
+                StaticLinkageChecker.class.getName(),
+                "-j",
+                jars,
+                "--write-index",
+                indexFile.toString())
+            .redirectOutput(new File(indexFile + ".log"))
+            .redirectErrorStream(true)
+            .start();
+    Assert.assertEquals(0, indexWriter.waitFor());
+    Assert.assertTrue(Files.exists(indexFile));
+
+    List<Process> processes = new ArrayList<>();
+    List<Path> shardReports = new ArrayList<>();
+    for (int shard = 0; shard < 2; shard++) {
+      Path shardReport = temporaryFolder.getRoot().toPath().resolve(shard + ".shard");
+      shardReports.add(shardReport);
+      processes.add(
+          new ProcessBuilder(
+                  java,
+                  "-cp",
+                  System.getProperty("java.class.path"),
+                  StaticLinkageChecker.class.getName(),
+                  "-j",
+                  jars,
+                  "-i",
+                  indexFile.toString(),
+                  "-s",
+                  shard + "/2",
+                  "--shard-output",
+                  shardReport.toString())
+              .redirectOutput(new File(shardReport + ".log"))
+              .redirectErrorStream(true)
+              .start());
+    }
+    for (Process process : processes) {
+      Assert.assertEquals(0, process.waitFor());
+    }
+
+    Assert.assertEquals(
+        fullCheck(classpath).toString(), LinkageCheckShards.merge(shardReports).toString());
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.classpath;
+
+import com.google.cloud.tools.opensource.dependencies.Json;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.html.HtmlEscapers;
+import com.google.common.truth.Truth;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Paths;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LinkageReportWriterTest {
+
+  private JarLinkageReport jarLinkageReport;
+  private JarLinkageReport emptyJarLinkageReport;
+  private StaticLinkageCheckReport staticLinkageCheckReport;
+
+  @Before
+  public void setUp() {
+    ClassSymbolReference classSymbolReference =
+        ClassSymbolReference.builder()
+            .setTargetClassName("ClassA<T>")
+            .setSourceClassName("ClassB")
+            .build();
+    MethodSymbolReference methodSymbolReference =
+        MethodSymbolReference.builder()
+            .setTargetClassName("ClassA")
+            .setMethodName("methodX")
+            .setDescriptor("(Ljava/lang/String;)V")
+            .setSourceClassName("ClassB")
+            .build();
+    FieldSymbolReference fieldSymbolReference =
+        FieldSymbolReference.builder()
+            .setTargetClassName("ClassC")
+            .setFieldName("fieldX")
+            .setSourceClassName("ClassD")
+            .build();
+
+    jarLinkageReport =
+        JarLinkageReport.builder()
+            .setJarPath(Paths.get("a", "b", "c.jar"))
+            .setMissingClassErrors(
+                ImmutableList.of(StaticLinkageError.errorMissingTargetClass(classSymbolReference)))
+            .setMissingMethodErrors(
+                ImmutableList.of(
+                    StaticLinkageError.errorMissingMember(methodSymbolReference, null)))
+            .setMissingFieldErrors(
+                ImmutableList.of(StaticLinkageError.errorMissingMember(fieldSymbolReference, null)))
+            .build();
+    emptyJarLinkageReport =
+        JarLinkageReport.builder()
+            .setJarPath(Paths.get("a", "b", "d.jar"))
+            .setMissingClassErrors(ImmutableList.of())
+            .setMissingMethodErrors(ImmutableList.of())
+            .setMissingFieldErrors(ImmutableList.of())
+            .build();
+    staticLinkageCheckReport =
+        StaticLinkageCheckReport.create(ImmutableList.of(emptyJarLinkageReport, jarLinkageReport));
+  }
+
+  @Test
+  public void testText() throws IOException {
+    StringWriter writer = new StringWriter();
+    staticLinkageCheckReport.writeTo(LinkageReportWriter.text(writer));
+    Assert.assertEquals(jarLinkageReport.toString() + "\n", writer.toString());
+  }
+
+  @Test
+  public void testText_noErrors() throws IOException {
+    StringWriter writer = new StringWriter();
+    LinkageReportWriter reportWriter = LinkageReportWriter.text(writer);
+    reportWriter.write(emptyJarLinkageReport);
+    reportWriter.finish();
+    Assert.assertEquals("No static linkage errors\n", writer.toString());
+  }
+
+  @Test
+  public void testHtml() throws IOException {
+    StringWriter writer = new StringWriter();
+    staticLinkageCheckReport.writeTo(LinkageReportWriter.html(writer));
+    String html = writer.toString();
+    Truth.assertThat(html).startsWith("c.jar (3 errors)");
+    Truth.assertThat(html).contains("ClassA&lt;T&gt;");
+    Truth.assertThat(html).doesNotContain("ClassA<T>");
+  }
+
+  @Test
+  public void testHtml_sameAsEscapedText() throws IOException {
+    ClassSymbolReference reference =
+        ClassSymbolReference.builder()
+            .setTargetClassName("Class\"A\"&'B'<T>")
+            .setSourceClassName("ClassB")
+            .build();
+    StaticLinkageCheckReport report =
+        StaticLinkageCheckReport.create(
+            ImmutableList.of(
+                jarLinkageReport,
+                JarLinkageReport.builder()
+                    .setJarPath(Paths.get("a", "b", "e&f.jar"))
+                    .setMissingClassErrors(
+                        ImmutableList.of(StaticLinkageError.errorMissingTargetClass(reference)))
+                    .setMissingMethodErrors(ImmutableList.of())
+                    .setMissingFieldErrors(ImmutableList.of())
+                    .build()));
+
+    StringWriter text = new StringWriter();
+    report.writeTo(LinkageReportWriter.text(text));
+    StringWriter html = new StringWriter();
+    report.writeTo(LinkageReportWriter.html(html));
+    Assert.assertEquals(HtmlEscapers.htmlEscaper().escape(text.toString()), html.toString());
+  }
+
+  @Test
+  public void testJson() throws IOException {
+    StringWriter writer = new StringWriter();
+    staticLinkageCheckReport.writeTo(LinkageReportWriter.json(writer));
+    String json = writer.toString();
+    Truth.assertThat(json).startsWith("[\n{\"jar\":");
+    Truth.assertThat(json).endsWith("]}\n]\n");
+    Truth.assertThat(json).doesNotContain("d.jar");
+    Truth.assertThat(json)
+        .contains(
+            "{\"type\":\"method\",\"methodName\":\"methodX\","
+                + "\"descriptor\":\"(Ljava/lang/String;)V\",\"reason\":\"SYMBOL_NOT_FOUND\","
+                + "\"sourceClass\":\"ClassB\",\"targetClass\":\"ClassA\","
+                + "\"targetClassLocation\":null}");
+    Truth.assertThat(json).contains("{\"type\":\"class\",");
+    Truth.assertThat(json).contains("{\"type\":\"field\",\"fieldName\":\"fieldX\",");
+  }
+
+  @Test
+  public void testJson_noErrors() throws IOException {
+    StringWriter writer = new StringWriter();
+    LinkageReportWriter.json(writer).finish();
+    Assert.assertEquals("[]\n", writer.toString());
+  }
+
+  @Test
+  public void testNdjson() throws IOException {
+    StringWriter writer = new StringWriter();
+    staticLinkageCheckReport.writeTo(LinkageReportWriter.ndjson(writer));
+    String jar = Json.quote(Paths.get("a", "b", "c.jar"));
+    List<String> lines = Splitter.on('\n').omitEmptyStrings().splitToList(writer.toString());
+    Assert.assertEquals(3, lines.size());
+    Truth.assertThat(lines.get(0)).startsWith("{\"jar\":" + jar + ",\"type\":\"class\",");
+    Assert.assertEquals(
+        "{\"jar\":" + jar + ",\"type\":\"field\",\"fieldName\":\"fieldX\","
+            + "\"reason\":\"SYMBOL_NOT_FOUND\",\"sourceClass\":\"ClassD\","
+            + "\"targetClass\":\"ClassC\",\"targetClassLocation\":null}",
+        lines.get(2));
+  }
+}
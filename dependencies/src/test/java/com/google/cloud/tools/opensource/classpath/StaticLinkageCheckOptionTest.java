@@ -16,6 +16,7 @@
 
 package com.google.cloud.tools.opensource.classpath;
 
+import java.io.StringWriter;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.ParseException;
 import org.junit.Assert;
@@ -58,4 +59,51 @@ public class StaticLinkageCheckOptionTest {
       Assert.assertEquals("Unrecognized option: -x", ex.getMessage());
     }
   }
+
+  @Test
+  public void parseCommandLineOptions_outputFormat() throws ParseException {
+    String[] arguments = {"-j", "a.jar", "--output-format", "ndjson"};
+    CommandLine parsedOption = StaticLinkageCheckOption.readCommandLine(arguments);
+
+    LinkageReportWriter writer =
+        StaticLinkageCheckOption.createReportWriter(parsedOption, new StringWriter());
+    Assert.assertEquals("NdjsonWriter", writer.getClass().getSimpleName());
+  }
+
+  @Test
+  public void parseCommandLineOptions_invalidOutputFormat() {
+    String[] arguments = {"-j", "a.jar", "-o", "xml"};
+    try {
+      StaticLinkageCheckOption.readCommandLine(arguments);
+      Assert.fail();
+    } catch (ParseException ex) {
+      Assert.assertEquals(
+          "Unknown output format xml. Valid formats are [text, json, ndjson]", ex.getMessage());
+    }
+  }
+
+  @Test
+  public void parseCommandLineOptions_shardWithReachability() {
+    String[] arguments = {"-j", "a.jar", "-s", "0/2", "--shard-output", "0.shard", "-r"};
+    try {
+      StaticLinkageCheckOption.readCommandLine(arguments);
+      Assert.fail();
+    } catch (ParseException ex) {
+      Assert.assertEquals("A shard does not support --report-only-reachable", ex.getMessage());
+    }
+  }
+
+  @Test
+  public void parseCommandLineOptions_shardWritingIndex() {
+    String[] arguments = {
+        "-j", "a.jar", "-s", "0/2", "--shard-output", "0.shard", "--write-index", "scans.idx"
+    };
+    try {
+      StaticLinkageCheckOption.readCommandLine(arguments);
+      Assert.fail();
+    } catch (ParseException ex) {
+      Assert.assertEquals(
+          "Write the index with --write-index before the shards start", ex.getMessage());
+    }
+  }
 }
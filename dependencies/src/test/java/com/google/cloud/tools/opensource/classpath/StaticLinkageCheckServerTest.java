@@ -0,0 +1,191 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.classpath;
+
+import com.google.cloud.tools.opensource.dependencies.Metrics;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import com.google.common.truth.Truth;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StaticLinkageCheckServerTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private StaticLinkageCheckServer server;
+
+  @Before
+  public void setUp() throws IOException {
+    server = StaticLinkageCheckServer.start(0);
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  private static Path absolutePathOfResource(String resourceName) throws URISyntaxException {
+    return Paths.get(URLClassLoader.getSystemResource(resourceName).toURI()).toAbsolutePath();
+  }
+
+  private HttpURLConnection post(String body) throws IOException {
+    URL url = new URL("http://localhost:" + server.getPort() + "/check");
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    try (OutputStream requestBody = connection.getOutputStream()) {
+      requestBody.write(body.getBytes(StandardCharsets.UTF_8));
+    }
+    return connection;
+  }
+
+  private static String read(InputStream inputStream) throws IOException {
+    try (InputStream input = inputStream) {
+      return new String(ByteStreams.toByteArray(input), StandardCharsets.UTF_8);
+    }
+  }
+
+  @Test
+  public void testCheck() throws IOException, URISyntaxException {
+    Path firestoreJar =
+        absolutePathOfResource("testdata/grpc-google-cloud-firestore-v1beta1-0.28.0.jar");
+    String body = "-j\n" + firestoreJar + "\n-o\nndjson\n";
+
+    HttpURLConnection connection = post(body);
+    Assert.assertEquals(200, connection.getResponseCode());
+    Truth.assertThat(connection.getContentType()).startsWith("application/x-ndjson");
+    String report = read(connection.getInputStream());
+    Truth.assertThat(report).startsWith("{\"jar\":");
+
+    // The second check of the same class path reuses the class dumper of the first
+    long reusedClassDumpers = Metrics.counter("server.reusedClassDumpers").get();
+    HttpURLConnection secondConnection = post(body);
+    Assert.assertEquals(report, read(secondConnection.getInputStream()));
+    Assert.assertEquals(
+        reusedClassDumpers + 1, Metrics.counter("server.reusedClassDumpers").get());
+  }
+
+  @Test
+  public void testCheck_jarRebuiltInPlace() throws IOException, URISyntaxException {
+    // A module rebuilt by CI at the same path
+    Path firestoreJar = temporaryFolder.getRoot().toPath().resolve("google-cloud-firestore.jar");
+    Files.copy(absolutePathOfResource("testdata/google-cloud-firestore-0.65.0-beta.jar"),
+        firestoreJar);
+    List<Path> classpath =
+        ImmutableList.of(
+            firestoreJar,
+            absolutePathOfResource("testdata/google-cloud-core-1.48.0.jar"),
+            absolutePathOfResource("testdata/gax-1.32.0.jar"),
+            absolutePathOfResource("testdata/api-common-1.7.0.jar"),
+            absolutePathOfResource("testdata/grpc-google-cloud-firestore-v1beta1-0.28.0.jar"),
+            absolutePathOfResource("testdata/proto-google-cloud-firestore-v1beta1-0.28.0.jar"));
+    String body = "-j\n" + Joiner.on(',').join(classpath) + "\n";
+    String firstReport = read(post(body).getInputStream());
+
+    FileTime lastModified = Files.getLastModifiedTime(firestoreJar);
+    Files.copy(absolutePathOfResource("testdata/google-cloud-firestore-0.66.0-beta.jar"),
+        firestoreJar, StandardCopyOption.REPLACE_EXISTING);
+    Files.setLastModifiedTime(firestoreJar, FileTime.fromMillis(lastModified.toMillis() + 60_000));
+    String secondReport = read(post(body).getInputStream());
+
+    StringWriter expected = new StringWriter();
+    try (StaticLinkageChecker checker =
+        StaticLinkageChecker.create(false, classpath, ImmutableSet.of(firestoreJar))) {
+      checker.findLinkageErrors(LinkageReportWriter.text(expected));
+    }
+    Assert.assertEquals(expected.toString(), secondReport);
+    Assert.assertNotEquals(firstReport, secondReport);
+  }
+
+  @Test
+  public void testCheck_invalidArguments() throws IOException {
+    HttpURLConnection connection = post("-o\nxml\n");
+    Assert.assertEquals(400, connection.getResponseCode());
+    Truth.assertThat(read(connection.getErrorStream())).contains("Unknown output format xml");
+  }
+
+  @Test
+  public void testCheck_missingJar() throws IOException {
+    Path missingJar = temporaryFolder.getRoot().toPath().resolve("missing.jar");
+    HttpURLConnection connection = post("-j\n" + missingJar + "\n");
+    Assert.assertEquals(400, connection.getResponseCode());
+    Truth.assertThat(read(connection.getErrorStream())).contains("missing.jar");
+  }
+
+  @Test
+  public void testCheck_failureBeforeReport() throws IOException, URISyntaxException {
+    Path firestoreJar =
+        absolutePathOfResource("testdata/grpc-google-cloud-firestore-v1beta1-0.28.0.jar");
+    HttpURLConnection connection = post("-j\n" + firestoreJar + "\n-r\n");
+    Assert.assertEquals(500, connection.getResponseCode());
+    Truth.assertThat(read(connection.getErrorStream()))
+        .contains("reportOnlyReachable is not yet implemented");
+  }
+
+  @Test
+  public void testMetrics_duringCheck() throws IOException {
+    // A check request whose body has not been sent yet keeps its handler waiting
+    URL checkUrl = new URL("http://localhost:" + server.getPort() + "/check");
+    HttpURLConnection checkConnection = (HttpURLConnection) checkUrl.openConnection();
+    checkConnection.setRequestMethod("POST");
+    checkConnection.setDoOutput(true);
+    checkConnection.setChunkedStreamingMode(0);
+    try (OutputStream requestBody = checkConnection.getOutputStream()) {
+      requestBody.write("-o\n".getBytes(StandardCharsets.UTF_8));
+      requestBody.flush();
+
+      URL url = new URL("http://localhost:" + server.getPort() + "/metrics");
+      HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+      connection.setReadTimeout(10_000);
+      Assert.assertEquals(200, connection.getResponseCode());
+
+      requestBody.write("xml\n".getBytes(StandardCharsets.UTF_8));
+    }
+    Assert.assertEquals(400, checkConnection.getResponseCode());
+  }
+
+  @Test
+  public void testMetrics() throws IOException {
+    URL url = new URL("http://localhost:" + server.getPort() + "/metrics");
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    Assert.assertEquals(200, connection.getResponseCode());
+    Truth.assertThat(read(connection.getInputStream())).contains("\"timers\"");
+  }
+}
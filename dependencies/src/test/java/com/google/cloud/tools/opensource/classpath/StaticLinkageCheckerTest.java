@@ -25,6 +25,7 @@ import com.google.common.collect.Lists;
 import com.google.common.truth.Correspondence;
 import com.google.common.truth.Truth;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.net.URISyntaxException;
 import java.net.URLClassLoader;
 import java.nio.file.Path;
@@ -154,6 +155,20 @@ public class StaticLinkageCheckerTest {
         .isEmpty();
   }
 
+  @Test
+  public void testFindLinkageErrors_streaming() throws IOException, URISyntaxException {
+    List<Path> paths =
+        ImmutableList.of(
+            absolutePathOfResource("testdata/grpc-google-cloud-firestore-v1beta1-0.28.0.jar"),
+            absolutePathOfResource("testdata/guava-26.0-jre.jar"));
+    StaticLinkageChecker staticLinkageChecker =
+        StaticLinkageChecker.create(false, paths, ImmutableSet.copyOf(paths));
+
+    StringWriter writer = new StringWriter();
+    staticLinkageChecker.findLinkageErrors(LinkageReportWriter.text(writer));
+    Assert.assertEquals(staticLinkageChecker.findLinkageErrors().toString(), writer.toString());
+  }
+
   @Test
   public void testFindInvalidReferences_arrayCloneMethod()
       throws IOException, ClassNotFoundException, URISyntaxException {
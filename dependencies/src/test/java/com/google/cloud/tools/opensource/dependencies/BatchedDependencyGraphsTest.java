@@ -0,0 +1,237 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.truth.Truth;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.eclipse.aether.RepositoryException;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.resolution.DependencyResolutionException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BatchedDependencyGraphsTest {
+
+  @Rule public FakeMavenRepositoryRule fakeRepository = new FakeMavenRepositoryRule();
+
+  private FakeMavenRepository repository;
+
+  @Before
+  public void setUp() throws IOException {
+    repository = fakeRepository.getRepository();
+  }
+
+  @Test
+  public void testSameGraphsAsSeparateResolution() throws IOException, RepositoryException {
+    repository.addArtifact("com.example:shared:1.0");
+    repository.addArtifact("com.example:shared:2.0");
+    repository.addArtifact("com.example:left:1.0", "com.example:shared:1.0");
+    repository.addArtifact("com.example:right:1.0", "com.example:shared:2.0");
+    Artifact first =
+        repository.addArtifact(
+            "com.example:first:1.0", "com.example:left:1.0", "com.example:right:1.0");
+    Artifact second = repository.addArtifact("com.example:second:1.0", "com.example:right:1.0");
+    List<Artifact> members = ImmutableList.of(first, second);
+
+    BatchedDependencyGraphs graphs = DependencyGraphBuilder.getBatchedDependencies(members);
+
+    Assert.assertEquals(
+        ImmutableList.of("com.example:first:1.0", "com.example:second:1.0"), graphs.getMembers());
+    for (Artifact member : members) {
+      assertSameGraphs(member, graphs);
+    }
+    // Nearest wins: left's shared:1.0 is seen before right's shared:2.0
+    DependencyGraph transitive = graphs.getTransitiveDependencies(first);
+    Truth.assertThat(transitive.getPaths("com.example:shared:1.0")).isNotEmpty();
+    Truth.assertThat(transitive.getPaths("com.example:shared:2.0")).isEmpty();
+  }
+
+  @Test
+  public void testTransitiveDependencies_managedScopedAndExcluded()
+      throws IOException, RepositoryException {
+    repository.addArtifact("com.example:shared:1.0");
+    repository.addArtifact("com.example:shared:2.0");
+    repository.addArtifact("com.example:excluded:1.0");
+    repository.addArtifact("com.example:optional-leaf:1.0");
+    repository.addArtifact("com.example:provided-leaf:1.0");
+    repository.addArtifactWithPomElements("com.example:left:1.0",
+        "  <dependencies>\n"
+            + dependency("com.example:shared:1.0", "")
+            + dependency("com.example:excluded:1.0", "")
+            + dependency("com.example:optional-leaf:1.0", "<optional>true</optional>")
+            + dependency("com.example:provided-leaf:1.0", "<scope>provided</scope>")
+            + "  </dependencies>\n");
+    repository.addArtifact("com.example:optional:1.0", "com.example:shared:1.0");
+    repository.addArtifact("com.example:provided:1.0", "com.example:shared:1.0");
+    Artifact member = repository.addArtifactWithPomElements("com.example:member:1.0",
+        "  <dependencyManagement>\n    <dependencies>\n"
+            + dependency("com.example:shared:2.0", "")
+            + "    </dependencies>\n  </dependencyManagement>\n"
+            + "  <dependencies>\n"
+            + dependency("com.example:left:1.0",
+                "<exclusions><exclusion><groupId>com.example</groupId>"
+                    + "<artifactId>excluded</artifactId></exclusion></exclusions>")
+            + dependency("com.example:optional:1.0", "<optional>true</optional>")
+            + dependency("com.example:provided:1.0", "<scope>provided</scope>")
+            + "  </dependencies>\n");
+
+    BatchedDependencyGraphs graphs =
+        DependencyGraphBuilder.getBatchedDependencies(ImmutableList.of(member));
+
+    DependencyGraph expected = DependencyGraphBuilder.getTransitiveDependencies(member);
+    DependencyGraph transitive = graphs.getTransitiveDependencies(member);
+    assertSamePaths(expected, transitive);
+    // The version managed by the member wins over the version of left
+    Truth.assertThat(transitive.getPaths("com.example:shared:2.0")).isNotEmpty();
+    Truth.assertThat(transitive.getPaths("com.example:shared:1.0")).isEmpty();
+    Truth.assertThat(transitive.getPaths("com.example:excluded:1.0")).isEmpty();
+    Truth.assertThat(transitive.getPaths("com.example:optional-leaf:1.0")).isEmpty();
+    Truth.assertThat(transitive.getPaths("com.example:provided-leaf:1.0")).isEmpty();
+  }
+
+  @Test
+  public void testOptionalAndProvidedDependencies() throws IOException, RepositoryException {
+    for (String kind : ImmutableList.of("compile", "provided", "optional", "runtime", "test")) {
+      repository.addArtifact("com.example:" + kind + "-compile:1.0");
+      repository.addArtifact("com.example:" + kind + "-provided:1.0");
+      repository.addArtifact("com.example:" + kind + "-optional:1.0");
+      repository.addArtifactWithPomElements("com.example:" + kind + ":1.0",
+          "  <dependencies>\n"
+              + dependency("com.example:" + kind + "-compile:1.0", "")
+              + dependency("com.example:" + kind + "-provided:1.0", "<scope>provided</scope>")
+              + dependency("com.example:" + kind + "-optional:1.0", "<optional>true</optional>")
+              + "  </dependencies>\n");
+    }
+    Artifact member = repository.addArtifactWithPomElements("com.example:member:1.0",
+        "  <dependencies>\n"
+            + dependency("com.example:compile:1.0", "")
+            + dependency("com.example:provided:1.0", "<scope>provided</scope>")
+            + dependency("com.example:optional:1.0", "<optional>true</optional>")
+            + dependency("com.example:runtime:1.0", "<scope>runtime</scope>")
+            + dependency("com.example:test:1.0", "<scope>test</scope>")
+            + "  </dependencies>\n");
+
+    BatchedDependencyGraphs graphs =
+        DependencyGraphBuilder.getBatchedDependencies(ImmutableList.of(member));
+
+    assertSameGraphs(member, graphs);
+    Truth.assertThat(graphs.getCompleteDependencies(member).getPaths("com.example:provided:1.0"))
+        .isEmpty();
+    Truth.assertThat(
+            graphs
+                .getStaticLinkageCheckDependencies(member)
+                .getPaths("com.example:optional-provided:1.0"))
+        .isNotEmpty();
+  }
+
+  @Test
+  public void testNestedVersions() throws IOException, RepositoryException {
+    repository.addArtifact("com.example:leaf:1.0", "com.example:nested:2.0");
+    repository.addArtifact("com.example:nested:2.0", "com.example:leaf:1.0");
+    repository.addArtifact("com.example:middle:1.0", "com.example:nested:2.0");
+    repository.addArtifact("com.example:nested:1.0", "com.example:middle:1.0");
+    Artifact member = repository.addArtifact("com.example:member:1.0", "com.example:nested:1.0");
+
+    BatchedDependencyGraphs graphs =
+        DependencyGraphBuilder.getBatchedDependencies(ImmutableList.of(member));
+
+    assertSameGraphs(member, graphs);
+    // The resolver links nested:2.0 to the dependencies of nested:1.0 as a cycle
+    Truth.assertThat(
+            graphs
+                .getCompleteDependencies(member)
+                .getPaths("com.example:leaf:1.0")
+                .stream()
+                .map(DependencyPath::toString)
+                .collect(Collectors.toList()))
+        .containsExactly(
+            "com.example:member:1.0 / com.example:nested:1.0 / com.example:middle:1.0"
+                + " / com.example:nested:2.0 / com.example:leaf:1.0");
+  }
+
+  @Test
+  public void testGraph() throws IOException, RepositoryException {
+    List<Artifact> roots = repository.addGraph("com.example", 3, 2, 3);
+
+    BatchedDependencyGraphs graphs = DependencyGraphBuilder.getBatchedDependencies(roots);
+
+    for (Artifact root : roots) {
+      assertSameGraphs(root, graphs);
+    }
+  }
+
+  @Test
+  public void testAllMembers() throws IOException, RepositoryException {
+    List<Artifact> roots = repository.addGraph("com.example", 3, 2, 2);
+
+    BatchedDependencyGraphs graphs = DependencyGraphBuilder.getBatchedDependencies(roots);
+
+    Truth.assertThat(graphs.getStaticLinkageCheckDependencies().list())
+        .containsExactlyElementsIn(
+            DependencyGraphBuilder.getStaticLinkageCheckDependencies(roots).list())
+        .inOrder();
+  }
+
+  @Test
+  public void testMissingArtifact() throws IOException, RepositoryException {
+    Artifact broken = repository.addArtifact("com.example:broken:1.0", "com.example:missing:1.0");
+    Artifact healthy = repository.addArtifact("com.example:healthy:1.0");
+
+    BatchedDependencyGraphs graphs =
+        DependencyGraphBuilder.getBatchedDependencies(ImmutableList.of(broken, healthy));
+
+    try {
+      graphs.getCompleteDependencies(broken);
+      Assert.fail("com.example:missing:1.0 should not be resolved");
+    } catch (DependencyResolutionException ex) {
+      Truth.assertThat(ex.getMessage()).contains("com.example:missing:1.0");
+    }
+    Assert.assertEquals(1, graphs.getCompleteDependencies(healthy).list().size());
+  }
+
+  private static String dependency(String coordinates, String elements) {
+    Artifact artifact = new DefaultArtifact(coordinates);
+    return "    <dependency><groupId>" + artifact.getGroupId() + "</groupId><artifactId>"
+        + artifact.getArtifactId() + "</artifactId><version>" + artifact.getVersion()
+        + "</version>" + elements + "</dependency>\n";
+  }
+
+  /** Asserts that the batch has the same graphs of the member as separate resolutions. */
+  private static void assertSameGraphs(Artifact member, BatchedDependencyGraphs graphs)
+      throws RepositoryException {
+    assertSamePaths(
+        DependencyGraphBuilder.getCompleteDependencies(member),
+        graphs.getCompleteDependencies(member));
+    assertSamePaths(
+        DependencyGraphBuilder.getStaticLinkageCheckDependencies(ImmutableList.of(member)),
+        graphs.getStaticLinkageCheckDependencies(member));
+    assertSamePaths(
+        DependencyGraphBuilder.getTransitiveDependencies(member),
+        graphs.getTransitiveDependencies(member));
+  }
+
+  private static void assertSamePaths(DependencyGraph expected, DependencyGraph actual) {
+    Truth.assertThat(actual.list()).containsExactlyElementsIn(expected.list());
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.truth.Truth;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.eclipse.aether.RepositoryException;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Tests of the concurrent fetches against a stand-in for a remote repository: an HTTP server that
+ * serves the files of a {@link FakeMavenRepository} slowly enough for requests to overlap.
+ */
+public class ConcurrentFetcherTest {
+
+  private static final int CONCURRENCY = 4;
+
+  @Rule public FakeMavenRepositoryRule fakeRepository = new FakeMavenRepositoryRule();
+
+  private Path directory;
+  private FakeMavenRepository repository;
+  private HttpServer server;
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+  private final AtomicInteger requests = new AtomicInteger();
+
+  @Before
+  public void setUp() throws IOException {
+    repository = fakeRepository.getRepository();
+    directory = fakeRepository.getDirectory();
+    Path remote = directory.resolve("remote");
+
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", exchange -> serve(remote, exchange));
+    // More server threads than fetches, so that the server does not limit the concurrency
+    server.setExecutor(Executors.newFixedThreadPool(CONCURRENCY * 4));
+    server.start();
+    RemoteRepository httpRepository =
+        new RemoteRepository.Builder(
+                "http-stand-in", "default", "http://localhost:" + server.getAddress().getPort())
+            .build();
+    DependencyGraphBuilder.setRemoteRepositories(ImmutableList.of(httpRepository));
+  }
+
+  @After
+  public void cleanUp() {
+    DependencyGraphBuilder.setFetchConcurrency(0);
+    server.stop(0);
+  }
+
+  private void serve(Path root, HttpExchange exchange) throws IOException {
+    int current = inFlight.incrementAndGet();
+    maxInFlight.accumulateAndGet(current, Math::max);
+    requests.incrementAndGet();
+    try {
+      Thread.sleep(20);
+      Path file = root.resolve(exchange.getRequestURI().getPath().substring(1));
+      if (!Files.isRegularFile(file)) {
+        exchange.sendResponseHeaders(404, -1);
+      } else if ("HEAD".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(200, -1);
+      } else {
+        byte[] content = Files.readAllBytes(file);
+        exchange.sendResponseHeaders(200, content.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+          body.write(content);
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } finally {
+      inFlight.decrementAndGet();
+      exchange.close();
+    }
+  }
+
+  @Test
+  public void testConcurrentFetch() throws IOException, RepositoryException {
+    List<Artifact> roots = repository.addGraph("com.example", 2, 4, 3);
+    DependencyGraphBuilder.setFetchConcurrency(CONCURRENCY);
+
+    DependencyGraph graph = DependencyGraphBuilder.getStaticLinkageCheckDependencies(roots);
+
+    Truth.assertThat(requests.get()).isGreaterThan(0);
+    Truth.assertThat(maxInFlight.get()).isGreaterThan(1);
+    Truth.assertThat(maxInFlight.get()).isAtMost(CONCURRENCY);
+    for (DependencyPath path : graph.list()) {
+      Assert.assertNotNull(path.getLeaf().getFile());
+    }
+  }
+
+  @Test
+  public void testSameGraphAsSequentialFetch() throws IOException, RepositoryException {
+    List<Artifact> roots = repository.addGraph("com.example", 2, 3, 3);
+    DependencyGraph sequential = DependencyGraphBuilder.getStaticLinkageCheckDependencies(roots);
+
+    // A fresh local repository and cache, so that the second resolution fetches everything again
+    System.setProperty("maven.repo.local", directory.resolve("local2").toString());
+    DependencyGraphBuilder.setRemoteRepositories(DependencyGraphBuilder.getRemoteRepositories());
+    DependencyGraphBuilder.setFetchConcurrency(CONCURRENCY);
+    DependencyGraph concurrent = DependencyGraphBuilder.getStaticLinkageCheckDependencies(roots);
+
+    Assert.assertEquals(sequential.list().toString(), concurrent.list().toString());
+  }
+
+  @Test
+  public void testCompleteDependencies_readsEachDescriptorOnce()
+      throws IOException, RepositoryException {
+    List<Artifact> roots = repository.addGraph("com.example", 1, 3, 4);
+    DependencyGraphBuilder.setFetchConcurrency(CONCURRENCY);
+    long descriptors = Metrics.counter("dependencies.prefetch.descriptors").get();
+
+    // The resolutions of the nodes below the root share the fetcher of the traversal
+    DependencyGraph graph = DependencyGraphBuilder.getCompleteDependencies(roots.get(0));
+
+    Set<String> artifacts =
+        graph.list().stream()
+            .map(path -> Artifacts.toCoordinates(path.getLeaf()))
+            .collect(Collectors.toSet());
+    Assert.assertEquals(
+        artifacts.size(), Metrics.counter("dependencies.prefetch.descriptors").get() - descriptors);
+  }
+
+  @Test
+  public void testUsesVirtualThreads() {
+    boolean virtualThreadsAvailable;
+    try {
+      Thread.class.getMethod("ofVirtual");
+      virtualThreadsAvailable = true;
+    } catch (NoSuchMethodException ex) {
+      virtualThreadsAvailable = false;
+    }
+    try (ConcurrentFetcher fetcher =
+        new ConcurrentFetcher(
+            RepositoryUtility.newRepositorySystem(), null, CONCURRENCY)) {
+      Assert.assertEquals(virtualThreadsAvailable, fetcher.usesVirtualThreads());
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.truth.Truth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CoordinateTableTest {
+
+  private final CoordinateTable table = CoordinateTable.shared();
+
+  @Test
+  public void testGetId() {
+    Artifact jar = new DefaultArtifact("com.example.table:foo:1.0");
+    Artifact sources = new DefaultArtifact("com.example.table:foo:jar:sources:1.0");
+    Artifact other = new DefaultArtifact("com.example.table:foo:2.0");
+
+    int id = table.getId(jar);
+    Assert.assertEquals(id, table.getId(sources));
+    Assert.assertNotEquals(id, table.getId(other));
+    Assert.assertEquals("com.example.table:foo:1.0", table.getCoordinates(id));
+    Assert.assertEquals(id, table.findId("com.example.table:foo:1.0"));
+  }
+
+  @Test
+  public void testGetKeyId() {
+    int keyId = table.getKeyId(new DefaultArtifact("com.example.table:bar:1.0"));
+
+    Assert.assertEquals(keyId, table.getKeyId(new DefaultArtifact("com.example.table:bar:2.0")));
+    Assert.assertEquals("com.example.table:bar", table.getKey(keyId));
+    Assert.assertEquals(keyId, table.findKeyId("com.example.table:bar"));
+  }
+
+  @Test
+  public void testFind_absent() {
+    Assert.assertEquals(-1, table.findId("com.example.table:absent:1.0"));
+    Assert.assertEquals(-1, table.findKeyId("com.example.table:absent"));
+  }
+
+  @Test
+  public void testReset() {
+    Artifact root = new DefaultArtifact("com.example.table:reset:1.0");
+    Artifact dependency = new DefaultArtifact("com.example.table:reset-dependency:1.0");
+    DependencyPath rootPath = DependencyPath.of(ImmutableList.of(root));
+    DependencyPath before = DependencyPath.of(ImmutableList.of(root, dependency));
+    DependencyGraph graph = new DependencyGraph();
+    graph.addPath(rootPath);
+
+    CoordinateTable.reset();
+
+    Assert.assertNotSame(table, CoordinateTable.shared());
+    Assert.assertEquals(-1, CoordinateTable.shared().findId("com.example.table:reset:1.0"));
+    // Paths with IDs in different tables are still compared by their coordinates
+    DependencyPath after = DependencyPath.of(ImmutableList.of(root, dependency));
+    Assert.assertEquals(before, after);
+    Assert.assertEquals(before.hashCode(), after.hashCode());
+    // The graph keeps the table it was created with
+    graph.addPath(after);
+    Truth.assertThat(graph.getDependencies("com.example.table:reset:1.0"))
+        .containsExactly("com.example.table:reset-dependency:1.0");
+    Truth.assertThat(graph.mediate().list()).containsExactly(rootPath, before).inOrder();
+  }
+
+  @Test
+  public void testGetId_concurrent() throws InterruptedException, ExecutionException {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<int[]>> results = new ArrayList<>();
+      for (int thread = 0; thread < 4; thread++) {
+        results.add(
+            executor.submit(
+                () -> {
+                  int[] ids = new int[2000];
+                  for (int i = 0; i < ids.length; i++) {
+                    ids[i] =
+                        table.getId(new DefaultArtifact("com.example.concurrent:a" + i + ":1.0"));
+                  }
+                  return ids;
+                }));
+      }
+      int[] expected = results.get(0).get();
+      for (Future<int[]> result : results) {
+        Assert.assertArrayEquals(expected, result.get());
+      }
+      for (int i = 0; i < expected.length; i++) {
+        Assert.assertEquals(
+            "com.example.concurrent:a" + i + ":1.0", table.getCoordinates(expected[i]));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -16,22 +16,27 @@
 
 package com.google.cloud.tools.opensource.dependencies;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 
+import org.eclipse.aether.RepositoryException;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.eclipse.aether.collection.DependencyCollectionException;
 import org.eclipse.aether.resolution.DependencyResolutionException;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
 
 import com.google.common.truth.Truth;
 
 public class DependencyGraphBuilderTest {
 
+  @Rule public FakeMavenRepositoryRule fakeRepository = new FakeMavenRepositoryRule();
+
   private DefaultArtifact datastore =
       new DefaultArtifact("com.google.cloud:google-cloud-datastore:1.37.1");
   private DefaultArtifact guava =
@@ -66,6 +71,34 @@ public class DependencyGraphBuilderTest {
     Assert.assertEquals(31, guavaCount);
   }
 
+  @Test
+  public void testForEachCompleteDependency() throws IOException, RepositoryException {
+    FakeMavenRepository repository = fakeRepository.getRepository();
+    Artifact root = repository.addGraph("com.example", 1, 2, 3).get(0);
+
+    List<DependencyPath> levelOrder = new ArrayList<>();
+    DependencyGraphBuilder.forEachCompleteDependency(root, levelOrder::add);
+    List<DependencyPath> preOrder = new ArrayList<>();
+    DependencyGraphBuilder.forEachCompleteDependencyPreOrder(root, preOrder::add);
+
+    List<DependencyPath> expected = DependencyGraphBuilder.getCompleteDependencies(root).list();
+    Truth.assertThat(levelOrder).containsExactlyElementsIn(expected).inOrder();
+    Truth.assertThat(preOrder).containsExactlyElementsIn(expected);
+    // In pre-order, each path is followed by the paths of its dependencies
+    Assert.assertEquals(2, preOrder.get(1).size());
+    Assert.assertEquals(3, preOrder.get(2).size());
+  }
+
+  @Test
+  public void testMediate_sameAsTransitiveDependencies() throws IOException, RepositoryException {
+    FakeMavenRepository repository = fakeRepository.getRepository();
+    Artifact root = repository.addGraph("com.example", 1, 2, 3).get(0);
+
+    DependencyGraph mediated = DependencyGraphBuilder.getCompleteDependencies(root).mediate();
+    DependencyGraph transitive = DependencyGraphBuilder.getTransitiveDependencies(root);
+    Truth.assertThat(mediated.list()).containsExactlyElementsIn(transitive.list()).inOrder();
+  }
+
   private static int countGuava(DependencyGraph graph) {
     int guavaCount = 0;
     for (DependencyPath path : graph.list()) {
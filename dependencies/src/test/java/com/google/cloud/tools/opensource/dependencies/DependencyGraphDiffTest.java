@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.truth.Truth;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DependencyGraphDiffTest {
+
+  private Artifact foo1 = new DefaultArtifact("com.google:foo:1");
+  private Artifact foo2 = new DefaultArtifact("com.google:foo:2");
+  private Artifact bar1 = new DefaultArtifact("com.google:bar:1");
+  private Artifact bat1 = new DefaultArtifact("com.google:bat:1");
+  private Artifact baz1 = new DefaultArtifact("com.google:baz:1");
+  private Artifact baz2 = new DefaultArtifact("com.google:baz:2");
+
+  private DependencyGraphDiff diff;
+
+  private static DependencyPath path(Artifact... artifacts) {
+    DependencyPath path = new DependencyPath();
+    for (Artifact artifact : artifacts) {
+      path.add(artifact);
+    }
+    return path;
+  }
+
+  private static DependencyGraph graph(DependencyPath... paths) {
+    DependencyGraph graph = new DependencyGraph();
+    for (DependencyPath path : paths) {
+      graph.addPath(path);
+    }
+    return graph;
+  }
+
+  @Before
+  public void setUp() {
+    List<DependencyGraph> oldGraphs =
+        ImmutableList.of(
+            graph(path(foo1), path(foo1, baz1)),
+            graph(path(bar1), path(bar1, baz1), path(bar1, bat1), path(bar1, bat1, baz2)));
+    List<DependencyGraph> newGraphs =
+        ImmutableList.of(
+            graph(path(foo2), path(foo2, baz2)),
+            graph(path(bar1), path(bar1, baz2), path(bar1, bat1), path(bar1, bat1, baz2)));
+    diff = DependencyGraphDiff.compare(oldGraphs, newGraphs);
+  }
+
+  @Test
+  public void testCompare() {
+    Truth.assertThat(diff.getAddedArtifacts()).containsExactly("com.google:foo:2");
+    Truth.assertThat(diff.getRemovedArtifacts())
+        .containsExactly("com.google:foo:1", "com.google:baz:1")
+        .inOrder();
+    Truth.assertThat(diff.getAddedPaths())
+        .containsExactly(path(foo2), path(foo2, baz2), path(bar1, baz2))
+        .inOrder();
+    Truth.assertThat(diff.getRemovedPaths())
+        .containsExactly(path(foo1), path(foo1, baz1), path(bar1, baz1))
+        .inOrder();
+    Truth.assertThat(diff.getAppearedConflicts()).isEmpty();
+    Truth.assertThat(diff.getDisappearedConflicts().get("com.google:baz"))
+        .containsExactly("1", "2")
+        .inOrder();
+    Assert.assertFalse(diff.isEmpty());
+  }
+
+  @Test
+  public void testCompare_sameGraphs() throws IOException {
+    DependencyGraph graph = graph(path(foo1), path(foo1, baz1));
+    DependencyGraphDiff sameDiff =
+        DependencyGraphDiff.compare(ImmutableList.of(graph), ImmutableList.of(graph));
+    Assert.assertTrue(sameDiff.isEmpty());
+
+    StringWriter writer = new StringWriter();
+    sameDiff.writeText(writer);
+    Assert.assertEquals("No differences\n", writer.toString());
+  }
+
+  @Test
+  public void testWriteText() throws IOException {
+    StringWriter writer = new StringWriter();
+    diff.writeText(writer);
+    Assert.assertEquals(
+        "Versions:\n"
+            + "  com.google:foo 1 -> 2\n"
+            + "  com.google:baz 1 -> (none)\n"
+            + "Added paths (3):\n"
+            + "  com.google:foo:2\n"
+            + "  com.google:foo:2 / com.google:baz:2\n"
+            + "  com.google:bar:1 / com.google:baz:2\n"
+            + "Removed paths (3):\n"
+            + "  com.google:foo:1\n"
+            + "  com.google:foo:1 / com.google:baz:1\n"
+            + "  com.google:bar:1 / com.google:baz:1\n"
+            + "Disappeared conflicts:\n"
+            + "  com.google:baz 1, 2\n",
+        writer.toString());
+  }
+
+  @Test
+  public void testWriteNdjson() throws IOException {
+    StringWriter writer = new StringWriter();
+    diff.writeNdjson(writer);
+    List<String> lines = Splitter.on('\n').omitEmptyStrings().splitToList(writer.toString());
+    Assert.assertEquals(10, lines.size());
+    Assert.assertEquals(
+        "{\"change\":\"addedArtifact\",\"artifact\":\"com.google:foo:2\"}", lines.get(0));
+    Assert.assertEquals(
+        "{\"change\":\"addedPath\",\"leaf\":\"com.google:baz:2\","
+            + "\"path\":[\"com.google:foo:2\",\"com.google:baz:2\"]}",
+        lines.get(4));
+    Assert.assertEquals(
+        "{\"change\":\"disappearedConflict\",\"artifact\":\"com.google:baz\","
+            + "\"versions\":[\"1\",\"2\"]}",
+        lines.get(9));
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import com.google.common.truth.Truth;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DependencyGraphSnapshotTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static final Artifact ROOT =
+      new DefaultArtifact("com.example:root:1.0").setFile(new File("root-1.0.jar"));
+  private static final Artifact LEFT = new DefaultArtifact("com.example:left:1.0");
+  private static final Artifact RIGHT = new DefaultArtifact("com.example:right:jar:tests:1.0");
+  private static final Artifact SHARED = new DefaultArtifact("com.example:shared:2.0");
+
+  private static DependencyPath path(Artifact... artifacts) {
+    DependencyPath path = new DependencyPath();
+    for (Artifact artifact : artifacts) {
+      path.add(artifact);
+    }
+    return path;
+  }
+
+  private static DependencyGraph diamond() {
+    DependencyGraph graph = new DependencyGraph();
+    graph.addPath(path(ROOT));
+    graph.addPath(path(ROOT, LEFT));
+    graph.addPath(path(ROOT, RIGHT));
+    graph.addPath(path(ROOT, LEFT, SHARED));
+    graph.addPath(path(ROOT, RIGHT, SHARED));
+    return graph;
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    DependencyGraph graph = diamond();
+    Path file = temporaryFolder.getRoot().toPath().resolve("graph.bin");
+
+    DependencyGraphSnapshot.write(graph, file);
+    DependencyGraphSnapshot snapshot = DependencyGraphSnapshot.read(file);
+
+    Assert.assertEquals(5, snapshot.size());
+    Assert.assertFalse(snapshot.isTruncated());
+    Assert.assertEquals(path(ROOT, RIGHT, SHARED), snapshot.getPath(4));
+    List<DependencyPath> paths = snapshot.toDependencyGraph().list();
+    Truth.assertThat(paths).containsExactlyElementsIn(graph.list()).inOrder();
+
+    Artifact right = paths.get(2).getLeaf();
+    Assert.assertEquals("tests", right.getClassifier());
+    Assert.assertEquals(new File("root-1.0.jar"), paths.get(0).getLeaf().getFile());
+    Assert.assertNull(right.getFile());
+  }
+
+  @Test
+  public void testTruncated() throws IOException {
+    DependencyGraph graph = diamond();
+    graph.setTruncated(true);
+    Path file = temporaryFolder.getRoot().toPath().resolve("graph.bin");
+
+    DependencyGraphSnapshot.write(graph, file);
+    DependencyGraphSnapshot snapshot = DependencyGraphSnapshot.read(file);
+
+    Assert.assertTrue(snapshot.isTruncated());
+    Assert.assertTrue(snapshot.toDependencyGraph().isTruncated());
+  }
+
+  @Test
+  public void testCompactSize() throws IOException {
+    // A chain of 2 artifacts repeated under 10,000 roots
+    DependencyGraph graph = new DependencyGraph();
+    for (int i = 0; i < 10000; i++) {
+      Artifact root = new DefaultArtifact("com.example:root-" + i + ":1.0");
+      graph.addPath(path(root));
+      graph.addPath(path(root, LEFT));
+      graph.addPath(path(root, LEFT, SHARED));
+    }
+    Path file = temporaryFolder.getRoot().toPath().resolve("graph.bin");
+
+    DependencyGraphSnapshot.write(graph, file);
+
+    // Each artifact is written once and each path takes a few bytes
+    long textSize = graph.list().stream().mapToLong(path -> path.toString().length() + 1).sum();
+    Truth.assertThat(Files.size(file)).isLessThan(textSize / 3);
+    Assert.assertEquals(30000, DependencyGraphSnapshot.read(file).size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrite_missingParent() throws IOException {
+    DependencyGraph graph = new DependencyGraph();
+    graph.addPath(path(ROOT, LEFT));
+
+    DependencyGraphSnapshot.write(graph, temporaryFolder.getRoot().toPath().resolve("graph.bin"));
+  }
+
+  @Test
+  public void testRead_notSnapshot() throws IOException {
+    Path file = temporaryFolder.newFile("graph.txt").toPath();
+    Files.write(file, "com.example:root:1.0".getBytes(StandardCharsets.UTF_8));
+
+    try {
+      DependencyGraphSnapshot.read(file);
+      Assert.fail("The text file should not be read as a snapshot");
+    } catch (IOException ex) {
+      Truth.assertThat(ex.getMessage()).startsWith("Not a dependency graph snapshot");
+    }
+  }
+}
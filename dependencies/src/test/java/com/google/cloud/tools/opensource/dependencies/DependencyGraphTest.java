@@ -19,6 +19,7 @@ package com.google.cloud.tools.opensource.dependencies;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.artifact.DefaultArtifact;
@@ -114,4 +115,80 @@ public class DependencyGraphTest {
     Truth.assertThat(paths).containsExactly(path3, path5);
   }
 
+  @Test
+  public void testGetDependencies() {
+    Truth.assertThat(graph.getDependencies("com.google:foo:1"))
+        .containsExactly("com.google:bar:1", "com.google:baz:1", "com.google:bat:1")
+        .inOrder();
+    Truth.assertThat(graph.getDependencies("com.google:baz:2")).isEmpty();
+  }
+
+  @Test
+  public void testGetDependents() {
+    Truth.assertThat(graph.getDependents("com.google:baz:1"))
+        .containsExactly("com.google:foo:1", "com.google:bat:1")
+        .inOrder();
+    Truth.assertThat(graph.getDependents("com.google:foo:1")).isEmpty();
+  }
+
+  @Test
+  public void testGetDependentsOfAnyVersion() {
+    Truth.assertThat(graph.getDependentsOfAnyVersion("com.google:baz"))
+        .containsExactly("com.google:foo:1", "com.google:bar:1", "com.google:bat:1")
+        .inOrder();
+  }
+
+  @Test
+  public void testGetRoots() {
+    Truth.assertThat(graph.getRoots("com.google:baz:2")).containsExactly("com.google:foo:1");
+    Truth.assertThat(graph.getRoots("com.google:guava:20.0")).isEmpty();
+  }
+
+  @Test
+  public void testFindUpdates() {
+    List<Update> updates = graph.findUpdates();
+    Truth.assertThat(updates.stream().map(Update::toString).collect(Collectors.toList()))
+        .containsExactly(
+            "com.google:foo:1 needs to upgrade com.google:baz:1 to 2",
+            "com.google:bat:1 needs to upgrade com.google:baz:1 to 2")
+        .inOrder();
+  }
+
+  @Test
+  public void testMediate() {
+    DependencyGraph mediated = graph.mediate();
+    // baz:1 is nearer than baz:2, which is left out
+    Truth.assertThat(mediated.list()).containsExactly(path1, path2, path3, path6).inOrder();
+    Assert.assertEquals("1", mediated.getHighestVersionMap().get("com.google:baz"));
+  }
+
+  @Test
+  public void testMediate_firstDeclarationWins() {
+    DependencyGraph sameDepth = new DependencyGraph();
+    DependencyPath bat1Path = new DependencyPath();
+    bat1Path.add(bar);
+    bat1Path.add(bat1);
+    DependencyPath baz2Path = new DependencyPath();
+    baz2Path.add(bar);
+    baz2Path.add(baz2);
+    DependencyPath baz1Path = new DependencyPath();
+    baz1Path.add(bar);
+    baz1Path.add(baz1);
+    DependencyPath bat1UnderBaz1 = new DependencyPath();
+    bat1UnderBaz1.add(bar);
+    bat1UnderBaz1.add(baz1);
+    bat1UnderBaz1.add(bat1);
+    DependencyPath barPath = new DependencyPath();
+    barPath.add(bar);
+    // in pre-order
+    sameDepth.addPath(barPath);
+    sameDepth.addPath(baz2Path);
+    sameDepth.addPath(baz1Path);
+    sameDepth.addPath(bat1UnderBaz1);
+    sameDepth.addPath(bat1Path);
+
+    Truth.assertThat(sameDepth.mediate().list())
+        .containsExactly(barPath, baz2Path, bat1Path)
+        .inOrder();
+  }
 }
@@ -54,6 +54,16 @@ public class DependencyPathTest {
     Assert.assertEquals("com.google:foo:1 / com.google:bar:1", path.toString());
   }
   
+  @Test
+  public void testToJson() {
+    DependencyPath path = new DependencyPath();
+    path.add(foo);
+    path.add(bar);
+    Assert.assertEquals(
+        "{\"leaf\":\"com.google:bar:1\",\"path\":[\"com.google:foo:1\",\"com.google:bar:1\"]}",
+        path.toJson());
+  }
+
   @Test
   public void testEquals() {
     DependencyPath path1 = new DependencyPath();
@@ -76,4 +86,19 @@ public class DependencyPathTest {
         .testEquals();
   }
 
+  @Test
+  public void testEquals_sameCoordinates() {
+    // Artifacts with the same group ID, artifact ID, and version are the same in paths
+    DependencyPath path1 = new DependencyPath();
+    path1.add(foo);
+    DependencyPath path2 = new DependencyPath();
+    path2.add(new DefaultArtifact("com.google:foo:jar:sources:1"));
+    DependencyPath path3 = new DependencyPath();
+    path3.add(new DefaultArtifact("com.google:foo:2"));
+
+    new EqualsTester()
+        .addEqualityGroup(path1, path2)
+        .addEqualityGroup(path3)
+        .testEquals();
+  }
 }
@@ -16,14 +16,22 @@
 
 package com.google.cloud.tools.opensource.dependencies;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
+import org.eclipse.aether.RepositoryException;
+import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
 
 public class DependencyTreeFormatterTest {
 
+  @Rule public FakeMavenRepositoryRule fakeRepository = new FakeMavenRepositoryRule();
+
   @Test
   public void testDependencyTree() {
     List<DependencyPath> dependencyPathList = new ArrayList<>();
@@ -63,4 +71,21 @@ public class DependencyTreeFormatterTest {
         "The dependency should be output as tree with indentation",
         expectedTreeOutput, actualTreeOutput);
   }
+
+  @Test
+  public void testPrintDependencyTree() throws IOException, RepositoryException {
+    FakeMavenRepository repository = fakeRepository.getRepository();
+    Artifact root = repository.addGraph("com.example", 1, 2, 3).get(0);
+    String coordinates = Artifacts.toCoordinates(root);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DependencyTreeFormatter.printDependencyTree(
+        coordinates, new PrintStream(bytes, true, "UTF-8"));
+
+    String expected =
+        DependencyTreeFormatter.formatDependencyPaths(
+            DependencyGraphBuilder.getCompleteDependencies(root).list());
+    Assert.assertEquals(
+        "Dependencies for " + coordinates + "\n" + expected + "\n", bytes.toString("UTF-8"));
+  }
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.rules.ExternalResource;
+
+/**
+ * Resolves the dependencies of a test from a {@link FakeMavenRepository} in a temporary
+ * directory, with a local repository in the same directory, instead of Maven Central.
+ *
+ * <p>The repository is set up when a test first asks for it, so that the other tests of the class
+ * can still resolve from Maven Central. After the test, Maven Central and the local repository
+ * are restored and the directory is deleted.
+ */
+public final class FakeMavenRepositoryRule extends ExternalResource {
+
+  private Path directory;
+  private FakeMavenRepository repository;
+  private String savedLocalRepository;
+
+  /**
+   * Returns the repository, which is the only remote repository of {@link DependencyGraphBuilder}
+   * unless the test sets others.
+   */
+  public FakeMavenRepository getRepository() throws IOException {
+    if (repository == null) {
+      directory = Files.createTempDirectory("fake-repository");
+      repository = new FakeMavenRepository(directory.resolve("remote"));
+      savedLocalRepository =
+          System.setProperty("maven.repo.local", directory.resolve("local").toString());
+      DependencyGraphBuilder.setRemoteRepositories(
+          ImmutableList.of(repository.getRemoteRepository()));
+    }
+    return repository;
+  }
+
+  /**
+   * Returns the temporary directory of the repository, for other files of the test. The {@code
+   * remote} and {@code local} directories in it are taken.
+   */
+  public Path getDirectory() throws IOException {
+    getRepository();
+    return directory;
+  }
+
+  @Override
+  protected void after() {
+    if (repository == null) {
+      return;
+    }
+    DependencyGraphBuilder.setRemoteRepositories(ImmutableList.of(RepositoryUtility.CENTRAL));
+    if (savedLocalRepository == null) {
+      System.clearProperty("maven.repo.local");
+    } else {
+      System.setProperty("maven.repo.local", savedLocalRepository);
+    }
+    try {
+      MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    repository = null;
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.truth.Truth;
+import java.io.IOException;
+import java.util.List;
+import org.eclipse.aether.RepositoryException;
+import org.eclipse.aether.artifact.Artifact;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class FakeMavenRepositoryTest {
+
+  @Rule public FakeMavenRepositoryRule fakeRepository = new FakeMavenRepositoryRule();
+
+  private FakeMavenRepository repository;
+
+  @Before
+  public void setUp() throws IOException {
+    repository = fakeRepository.getRepository();
+  }
+
+  private Artifact addDiamond() throws IOException {
+    repository.addArtifact("com.example:d:1.0");
+    repository.addArtifact("com.example:d:2.0");
+    repository.addArtifact("com.example:b:1.0", "com.example:d:1.0");
+    repository.addArtifact("com.example:c:1.0", "com.example:d:2.0");
+    return repository.addArtifact("com.example:a:1.0", "com.example:b:1.0", "com.example:c:1.0");
+  }
+
+  @Test
+  public void testGetCompleteDependencies() throws IOException, RepositoryException {
+    Artifact root = addDiamond();
+
+    DependencyGraph graph = DependencyGraphBuilder.getCompleteDependencies(root);
+
+    Assert.assertEquals(5, graph.list().size());
+    Assert.assertEquals(1, graph.getPaths("com.example:d:1.0").size());
+    Assert.assertEquals(1, graph.getPaths("com.example:d:2.0").size());
+    List<Update> updates = graph.findUpdates();
+    Assert.assertEquals(1, updates.size());
+    Assert.assertEquals(
+        "com.example:b:1.0 needs to upgrade com.example:d:1.0 to 2.0", updates.get(0).toString());
+  }
+
+  @Test
+  public void testGetTransitiveDependencies() throws IOException, RepositoryException {
+    Artifact root = addDiamond();
+
+    DependencyGraph graph = DependencyGraphBuilder.getTransitiveDependencies(root);
+
+    // Maven picks the version nearest to the root, and the first one among the nearest
+    Assert.assertEquals(4, graph.list().size());
+    Assert.assertEquals(1, graph.getPaths("com.example:d:1.0").size());
+    Assert.assertTrue(graph.getPaths("com.example:d:2.0").isEmpty());
+  }
+
+  @Test
+  public void testGetDirectDependencies() throws IOException, RepositoryException {
+    Artifact root = addDiamond();
+
+    List<Artifact> dependencies = DependencyGraphBuilder.getDirectDependencies(root);
+
+    Truth.assertThat(dependencies.stream().map(Artifacts::toCoordinates).toArray())
+        .asList()
+        .containsExactly("com.example:b:1.0", "com.example:c:1.0")
+        .inOrder();
+  }
+
+  @Test
+  public void testReadBom() throws IOException, RepositoryException {
+    List<Artifact> roots = repository.addGraph("com.example", 3, 2, 2);
+    Artifact bom = repository.addBom("com.example:bom:1.0", roots);
+
+    List<Artifact> managedDependencies =
+        RepositoryUtility.readBom(bom, ImmutableList.of(repository.getRemoteRepository()));
+
+    Truth.assertThat(managedDependencies.stream().map(Artifacts::toCoordinates).toArray())
+        .asList()
+        .containsExactly(
+            "com.example:root-0:1.0", "com.example:root-1:1.0", "com.example:root-2:1.0")
+        .inOrder();
+  }
+
+  @Test
+  public void testReadBom_configuredRepositories() throws IOException, RepositoryException {
+    Artifact member = repository.addArtifact("com.example:member:1.0");
+    Artifact bom = repository.addBom("com.example:bom:1.0", ImmutableList.of(member));
+
+    List<Artifact> managedDependencies = RepositoryUtility.readBom(bom);
+
+    Truth.assertThat(managedDependencies.stream().map(Artifacts::toCoordinates).toArray())
+        .asList()
+        .containsExactly("com.example:member:1.0");
+  }
+
+  @Test
+  public void testAddGraph() throws IOException, RepositoryException {
+    List<Artifact> roots = repository.addGraph("com.example", 2, 3, 4);
+    Assert.assertEquals(2, roots.size());
+
+    DependencyGraph graph = DependencyGraphBuilder.getCompleteDependencies(roots.get(0));
+
+    // root, 3 middle artifacts, and under each of them the shared library and the chain of 4
+    Assert.assertEquals(1 + 3 * (1 + 1 + 4), graph.list().size());
+    Truth.assertThat(graph.getHighestVersionMap()).containsEntry("com.example:shared", "1.2");
+    Assert.assertEquals(2, graph.findUpdates().size());
+    DependencyPath deepest = graph.list().get(graph.list().size() - 1);
+    Assert.assertEquals("chain-3", deepest.getLeaf().getArtifactId());
+    Assert.assertEquals(7, deepest.size());
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.truth.Truth;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import org.eclipse.aether.RepositoryException;
+import org.eclipse.aether.artifact.Artifact;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class GraphBudgetTest {
+
+  @Rule public FakeMavenRepositoryRule fakeRepository = new FakeMavenRepositoryRule();
+
+  private Artifact root;
+
+  @Before
+  public void setUp() throws IOException {
+    FakeMavenRepository repository = fakeRepository.getRepository();
+    // The root, 2 middle artifacts and 2 paths to each of shared, chain-0, chain-1 and chain-2
+    root = repository.addGraph("com.example", 1, 2, 3).get(0);
+  }
+
+  @After
+  public void cleanUp() {
+    DependencyGraphBuilder.setGraphBudget(GraphBudget.unlimited());
+  }
+
+  @Test
+  public void testUnlimited() throws RepositoryException {
+    DependencyGraph graph = DependencyGraphBuilder.getCompleteDependencies(root);
+
+    Assert.assertEquals(11, graph.list().size());
+    Assert.assertFalse(graph.isTruncated());
+  }
+
+  @Test
+  public void testMaxDepth() throws RepositoryException {
+    DependencyGraphBuilder.setGraphBudget(GraphBudget.builder().setMaxDepth(2).build());
+
+    DependencyGraph graph = DependencyGraphBuilder.getCompleteDependencies(root);
+
+    Assert.assertEquals(3, graph.list().size());
+    Assert.assertTrue(graph.isTruncated());
+  }
+
+  @Test
+  public void testMaxDepth_notExceeded() throws RepositoryException {
+    DependencyGraphBuilder.setGraphBudget(GraphBudget.builder().setMaxDepth(6).build());
+
+    DependencyGraph graph = DependencyGraphBuilder.getCompleteDependencies(root);
+
+    Assert.assertEquals(11, graph.list().size());
+    Assert.assertFalse(graph.isTruncated());
+  }
+
+  @Test
+  public void testMaxNodes() throws RepositoryException {
+    DependencyGraphBuilder.setGraphBudget(GraphBudget.builder().setMaxNodes(5).build());
+
+    DependencyGraph graph = DependencyGraphBuilder.getCompleteDependencies(root);
+
+    List<DependencyPath> paths = graph.list();
+    Assert.assertEquals(5, paths.size());
+    // Level order keeps the paths nearest to the root
+    Assert.assertEquals(3, paths.get(4).size());
+    Assert.assertTrue(graph.isTruncated());
+  }
+
+  @Test
+  public void testTimeout() throws RepositoryException {
+    DependencyGraphBuilder.setGraphBudget(GraphBudget.builder().setTimeout(Duration.ZERO).build());
+
+    DependencyGraph graph = DependencyGraphBuilder.getCompleteDependencies(root);
+
+    Truth.assertThat(graph.list().size()).isLessThan(11);
+    Assert.assertTrue(graph.isTruncated());
+  }
+
+  @Test
+  public void testBatchedDependencies() throws RepositoryException {
+    DependencyGraphBuilder.setGraphBudget(GraphBudget.builder().setMaxNodes(5).build());
+
+    BatchedDependencyGraphs graphs =
+        DependencyGraphBuilder.getBatchedDependencies(ImmutableList.of(root));
+
+    DependencyGraph graph = graphs.getCompleteDependencies(root);
+    Assert.assertEquals(5, graph.list().size());
+    Assert.assertTrue(graph.isTruncated());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidMaxDepth() {
+    GraphBudget.builder().setMaxDepth(0).build();
+  }
+}
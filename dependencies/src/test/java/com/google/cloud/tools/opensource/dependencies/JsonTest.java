@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JsonTest {
+
+  @Test
+  public void testQuote() {
+    Assert.assertEquals("\"abc\"", Json.quote("abc"));
+    Assert.assertEquals("null", Json.quote(null));
+    Assert.assertEquals("\"a\\\"b\\\\c\\nd\\te\\u0001\"", Json.quote("a\"b\\c\nd\te\u0001"));
+  }
+
+  @Test
+  public void testArray() {
+    Assert.assertEquals("[]", Json.array(ImmutableList.of()));
+    Assert.assertEquals("[\"a\",\"b\"]", Json.array(ImmutableList.of("a", "b")));
+  }
+}
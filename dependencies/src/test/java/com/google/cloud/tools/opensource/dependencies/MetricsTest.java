@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import com.google.common.truth.Truth;
+import java.lang.management.ManagementFactory;
+import java.util.function.Function;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetricsTest {
+
+  @Test
+  public void testTimer() {
+    Metrics.Timer timer = Metrics.timer("test.timer");
+    Assert.assertSame(timer, Metrics.timer("test.timer"));
+    long count = timer.getCount();
+
+    try (Metrics.Timing timing = timer.start()) {
+      // an event
+    }
+    timer.record(5_000_000L);
+
+    Assert.assertEquals(count + 2, timer.getCount());
+    Truth.assertThat(timer.getTotalNanos()).isAtLeast(5_000_000L);
+    Truth.assertThat(timer.getMaxNanos()).isAtLeast(5_000_000L);
+  }
+
+  @Test
+  public void testTimer_wrap() {
+    Metrics.Timer timer = Metrics.timer("test.wrap");
+    long count = timer.getCount();
+
+    Function<String, Integer> length = timer.wrap(String::length);
+
+    Assert.assertEquals(Integer.valueOf(3), length.apply("abc"));
+    Assert.assertEquals(Integer.valueOf(0), length.apply(""));
+    Assert.assertEquals(count + 2, timer.getCount());
+  }
+
+  @Test
+  public void testCounter() {
+    Metrics.Counter counter = Metrics.counter("test.counter");
+    long value = counter.get();
+
+    counter.increment();
+    counter.add(2);
+
+    Assert.assertEquals(value + 3, counter.get());
+  }
+
+  @Test
+  public void testToJson() {
+    Metrics.timer("test.json.timer").record(3_000_000L);
+    Metrics.counter("test.json.counter").increment();
+
+    String json = Metrics.toJson();
+
+    Truth.assertThat(json).startsWith("{\n  \"timers\": {");
+    Truth.assertThat(json).contains("\"test.json.timer\": {\"count\": ");
+    Truth.assertThat(json).contains("\"maxMillis\": ");
+    Truth.assertThat(json).contains("\"counters\": {");
+    Truth.assertThat(json).contains("\"test.json.counter\": ");
+  }
+
+  @Test
+  public void testRegisterMBean() throws JMException {
+    Metrics.registerMBean();
+    // Registering twice has no effect
+    Metrics.registerMBean();
+    Metrics.counter("test.mbean.counter").increment();
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(Metrics.MBEAN_NAME);
+    Assert.assertTrue(server.isRegistered(name));
+    String json = (String) server.getAttribute(name, "Json");
+    Truth.assertThat(json).contains("\"test.mbean.counter\": ");
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.truth.Truth;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.eclipse.aether.RepositoryException;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.DependencyResolutionException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class UnresolvableArtifactCacheTest {
+
+  private static final Artifact ECJ =
+      new DefaultArtifact("org.eclipse.jdt.core.compiler:ecj:4.4RC4");
+  private static final ImmutableList<RemoteRepository> REPOSITORIES =
+      ImmutableList.of(RepositoryUtility.CENTRAL);
+
+  @Rule public FakeMavenRepositoryRule fakeRepository = new FakeMavenRepositoryRule();
+
+  private Path directory;
+  private FakeMavenRepository repository;
+
+  @Before
+  public void setUp() throws IOException {
+    repository = fakeRepository.getRepository();
+    directory = fakeRepository.getDirectory();
+    DependencyGraphBuilder.setUnresolvableArtifactCache(UnresolvableArtifactCache.inMemory());
+  }
+
+  @After
+  public void cleanUp() {
+    DependencyGraphBuilder.setUnresolvableArtifactCache(UnresolvableArtifactCache.inMemory());
+  }
+
+  @Test
+  public void testContains() {
+    UnresolvableArtifactCache cache = UnresolvableArtifactCache.inMemory();
+    Assert.assertFalse(cache.contains(ECJ, REPOSITORIES));
+
+    long hits = Metrics.counter("dependencies.unresolvable.hits").get();
+    cache.add(ECJ, REPOSITORIES);
+
+    Assert.assertTrue(cache.contains(ECJ, REPOSITORIES));
+    Assert.assertEquals(hits + 1, Metrics.counter("dependencies.unresolvable.hits").get());
+  }
+
+  @Test
+  public void testContains_classifierAndExtension() {
+    UnresolvableArtifactCache cache = UnresolvableArtifactCache.inMemory();
+    Artifact sources = new DefaultArtifact("org.eclipse.jdt.core.compiler:ecj:jar:sources:4.4RC4");
+    cache.add(sources, REPOSITORIES);
+
+    Assert.assertTrue(cache.contains(sources, REPOSITORIES));
+    Assert.assertFalse(cache.contains(ECJ, REPOSITORIES));
+    Assert.assertFalse(
+        cache.contains(
+            new DefaultArtifact("org.eclipse.jdt.core.compiler:ecj:pom:4.4RC4"), REPOSITORIES));
+  }
+
+  @Test
+  public void testContains_otherRepositories() {
+    UnresolvableArtifactCache cache = UnresolvableArtifactCache.inMemory();
+    cache.add(ECJ, REPOSITORIES);
+
+    Assert.assertFalse(
+        cache.contains(ECJ, ImmutableList.of(repository.getRemoteRepository())));
+    Assert.assertFalse(
+        cache.contains(
+            ECJ, ImmutableList.of(RepositoryUtility.CENTRAL, repository.getRemoteRepository())));
+  }
+
+  @Test
+  public void testPersistent_replacesFile() throws IOException {
+    Path file = directory.resolve("cache").resolve("unresolvable.txt");
+    UnresolvableArtifactCache cache =
+        UnresolvableArtifactCache.persistent(file, Duration.ofDays(1));
+    cache.add(ECJ, REPOSITORIES);
+    cache.add(new DefaultArtifact("com.example:missing:2.0"), REPOSITORIES);
+
+    Truth.assertThat(Files.readAllLines(file, StandardCharsets.UTF_8)).hasSize(2);
+    try (Stream<Path> files = Files.list(file.getParent())) {
+      // No temporary file is left next to the file
+      Truth.assertThat(files.map(Path::getFileName).map(Path::toString)
+          .collect(Collectors.toList())).containsExactly("unresolvable.txt");
+    }
+    Assert.assertEquals(
+        2, UnresolvableArtifactCache.persistent(file, Duration.ofDays(1)).size());
+  }
+
+  @Test
+  public void testExpiry() throws IOException {
+    Path file = directory.resolve("unresolvable.txt");
+    Clock clock = Clock.fixed(Instant.parse("2018-11-01T00:00:00Z"), ZoneOffset.UTC);
+    UnresolvableArtifactCache cache =
+        UnresolvableArtifactCache.persistent(file, Duration.ofHours(1), clock);
+    cache.add(ECJ, REPOSITORIES);
+
+    Clock later = Clock.offset(clock, Duration.ofMinutes(59));
+    Assert.assertTrue(
+        UnresolvableArtifactCache.persistent(file, Duration.ofHours(1), later)
+            .contains(ECJ, REPOSITORIES));
+
+    Clock expired = Clock.offset(clock, Duration.ofMinutes(61));
+    UnresolvableArtifactCache expiredCache =
+        UnresolvableArtifactCache.persistent(file, Duration.ofHours(1), expired);
+    Assert.assertFalse(expiredCache.contains(ECJ, REPOSITORIES));
+    Assert.assertEquals(0, expiredCache.size());
+  }
+
+  @Test
+  public void testPersistent_malformedLine() throws IOException {
+    Path file = directory.resolve("unresolvable.txt");
+    Files.write(
+        file,
+        ("not a line of the cache\n"
+                + "org.eclipse.jdt.core.compiler:ecj:jar:4.4RC4\t" + Instant.now() + "\n"
+                + "org.eclipse.jdt.core.compiler:ecj:jar:4.4RC4\t"
+                + RepositoryUtility.CENTRAL.getUrl() + "\t" + Instant.now() + "\n")
+            .getBytes(StandardCharsets.UTF_8));
+
+    UnresolvableArtifactCache cache =
+        UnresolvableArtifactCache.persistent(file, Duration.ofDays(1));
+
+    Assert.assertEquals(1, cache.size());
+    Assert.assertTrue(cache.contains(ECJ, REPOSITORIES));
+  }
+
+  @Test
+  public void testResolutionFailsFast() throws IOException, RepositoryException {
+    // The repository does not have ecj
+    Artifact first = repository.addArtifact("com.example:first:1.0", Artifacts.toCoordinates(ECJ));
+    Artifact second =
+        repository.addArtifact("com.example:second:1.0", Artifacts.toCoordinates(ECJ));
+
+    try {
+      DependencyGraphBuilder.getCompleteDependencies(first);
+      Assert.fail("ecj should not be resolved");
+    } catch (DependencyResolutionException ex) {
+      Truth.assertThat(ex.getMessage()).doesNotContain("cached as unresolvable");
+    }
+
+    long hits = Metrics.counter("dependencies.unresolvable.hits").get();
+    try {
+      DependencyGraphBuilder.getCompleteDependencies(second);
+      Assert.fail("ecj should not be resolved");
+    } catch (DependencyResolutionException ex) {
+      Truth.assertThat(ex.getMessage()).contains("cached as unresolvable");
+    }
+    Truth.assertThat(Metrics.counter("dependencies.unresolvable.hits").get()).isGreaterThan(hits);
+  }
+
+  @Test
+  public void testResolutionFromOtherRepositories() throws IOException, RepositoryException {
+    Artifact first = repository.addArtifact("com.example:first:1.0", Artifacts.toCoordinates(ECJ));
+    Path file = directory.resolve("unresolvable.txt");
+    DependencyGraphBuilder.setUnresolvableArtifactCache(
+        UnresolvableArtifactCache.persistent(file, Duration.ofDays(1)));
+    try {
+      DependencyGraphBuilder.getCompleteDependencies(first);
+      Assert.fail("ecj should not be resolved");
+    } catch (DependencyResolutionException ex) {
+      // Recorded as missing from the repository
+    }
+
+    // Another repository has ecj, even for a cache read back from the file
+    FakeMavenRepository other = new FakeMavenRepository(directory.resolve("other"));
+    other.addArtifact("com.example:first:1.0", Artifacts.toCoordinates(ECJ));
+    other.addArtifact(Artifacts.toCoordinates(ECJ));
+    DependencyGraphBuilder.setUnresolvableArtifactCache(
+        UnresolvableArtifactCache.persistent(file, Duration.ofDays(1)));
+    DependencyGraphBuilder.setRemoteRepositories(ImmutableList.of(other.getRemoteRepository()));
+
+    DependencyGraph graph = DependencyGraphBuilder.getCompleteDependencies(first);
+    Truth.assertThat(graph.getPaths("org.eclipse.jdt.core.compiler:ecj:4.4RC4")).hasSize(1);
+  }
+}
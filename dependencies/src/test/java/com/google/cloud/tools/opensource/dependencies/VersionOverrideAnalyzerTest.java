@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.opensource.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.truth.Truth;
+import java.util.Map;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VersionOverrideAnalyzerTest {
+
+  private Artifact foo1 = new DefaultArtifact("com.google:foo:1");
+  private Artifact foo2 = new DefaultArtifact("com.google:foo:2");
+  private Artifact bar1 = new DefaultArtifact("com.google:bar:1");
+  private Artifact bat1 = new DefaultArtifact("com.google:bat:1");
+  private Artifact baz1 = new DefaultArtifact("com.google:baz:1");
+  private Artifact baz2 = new DefaultArtifact("com.google:baz:2");
+  private Artifact baz3 = new DefaultArtifact("com.google:baz:3");
+  private Artifact qux1 = new DefaultArtifact("com.google:qux:1");
+
+  private VersionOverrideAnalyzer analyzer;
+
+  private static DependencyGraph graph(Artifact... artifacts) {
+    DependencyGraph graph = new DependencyGraph();
+    DependencyPath path = new DependencyPath();
+    for (Artifact artifact : artifacts) {
+      path.add(artifact);
+    }
+    graph.addPath(path);
+    return graph;
+  }
+
+  private static DependencyGraph merge(DependencyGraph... graphs) {
+    DependencyGraph merged = new DependencyGraph();
+    for (DependencyGraph graph : graphs) {
+      graph.list().forEach(merged::addPath);
+    }
+    return merged;
+  }
+
+  @Before
+  public void setUp() {
+    // foo:1 -> bar:1 -> baz:2, foo:1 -> baz:1, foo:1 -> bat:1 -> baz:1, qux:1 -> baz:3
+    DependencyGraph foo1Graph =
+        merge(
+            graph(foo1),
+            graph(foo1, bar1),
+            graph(foo1, baz1),
+            graph(foo1, bat1),
+            graph(foo1, bar1, baz2),
+            graph(foo1, bat1, baz1));
+    DependencyGraph foo2Graph = merge(graph(foo2), graph(foo2, baz3));
+    DependencyGraph qux1Graph = merge(graph(qux1), graph(qux1, baz3));
+
+    analyzer =
+        VersionOverrideAnalyzer.create(
+            ImmutableList.of(foo1, qux1),
+            ImmutableList.of(foo1Graph, foo2Graph, qux1Graph, graph(baz2), graph(baz3)));
+  }
+
+  @Test
+  public void testAnalyze_noOverrides() {
+    Map<Artifact, VersionOverrideAnalyzer.Analysis> analyses = analyzer.analyze(ImmutableMap.of());
+    Truth.assertThat(analyses.keySet()).containsExactly(foo1, qux1).inOrder();
+
+    VersionOverrideAnalyzer.Analysis foo = analyses.get(foo1);
+    Assert.assertEquals("1", foo.getMediatedVersions().get("com.google:baz"));
+    Truth.assertThat(foo.getUpdates().stream().map(Update::toString).toArray())
+        .asList()
+        .containsExactly(
+            "com.google:foo:1 needs to upgrade com.google:baz:1 to 2",
+            "com.google:bat:1 needs to upgrade com.google:baz:1 to 2")
+        .inOrder();
+    Assert.assertEquals(baz2, foo.getUpperBoundFailures().get(baz1));
+    Assert.assertEquals(baz3, foo.getGlobalUpperBoundFailures().get(baz1));
+
+    VersionOverrideAnalyzer.Analysis qux = analyses.get(qux1);
+    Truth.assertThat(qux.getUpdates()).isEmpty();
+    Truth.assertThat(qux.getUpperBoundFailures()).isEmpty();
+    Truth.assertThat(qux.getGlobalUpperBoundFailures()).isEmpty();
+  }
+
+  @Test
+  public void testAnalyze_overrideDependency() {
+    Map<Artifact, VersionOverrideAnalyzer.Analysis> analyses =
+        analyzer.analyze(ImmutableMap.of("com.google:baz", "3"));
+
+    VersionOverrideAnalyzer.Analysis foo = analyses.get(foo1);
+    Assert.assertEquals("3", foo.getMediatedVersions().get("com.google:baz"));
+    Truth.assertThat(foo.getUpdates()).isEmpty();
+    Truth.assertThat(foo.getUpperBoundFailures()).isEmpty();
+    Truth.assertThat(foo.getGlobalUpperBoundFailures()).isEmpty();
+  }
+
+  @Test
+  public void testAnalyze_overrideLowerVersion() {
+    Map<Artifact, VersionOverrideAnalyzer.Analysis> analyses =
+        analyzer.analyze(ImmutableMap.of("com.google:baz", "2"));
+
+    // The override applies to the dependencies of every member
+    Assert.assertEquals("2", analyses.get(qux1).getMediatedVersions().get("com.google:baz"));
+    Truth.assertThat(analyses.get(foo1).getUpperBoundFailures()).isEmpty();
+    Truth.assertThat(analyses.get(foo1).getGlobalUpperBoundFailures()).isEmpty();
+  }
+
+  @Test
+  public void testAnalyze_overrideMember() {
+    Map<Artifact, VersionOverrideAnalyzer.Analysis> analyses =
+        analyzer.analyze(ImmutableMap.of("com.google:foo", "2"));
+
+    VersionOverrideAnalyzer.Analysis foo = analyses.get(foo1);
+    Assert.assertEquals(foo2, foo.getRoot());
+    Assert.assertEquals("3", foo.getMediatedVersions().get("com.google:baz"));
+    Truth.assertThat(foo.getGlobalUpperBoundFailures()).isEmpty();
+  }
+
+  @Test
+  public void testAnalyze_unknownVersion() {
+    try {
+      analyzer.analyze(ImmutableMap.of("com.google:baz", "4"));
+      Assert.fail();
+    } catch (IllegalArgumentException ex) {
+      Assert.assertEquals(
+          "The graphs do not have the dependencies of com.google:baz:4", ex.getMessage());
+    }
+  }
+}